@@ -0,0 +1,400 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool kết nối JDBC có giới hạn kích thước.
+ * Giữ sẵn các kết nối "ấm" để repository không phải bắt tay TCP/xác thực lại cho mỗi truy vấn.
+ * Hỗ trợ kích thước min/max, loại bỏ kết nối rảnh, kiểm tra kết nối khi mượn,
+ * timeout khi chờ kết nối và phát hiện kết nối bị giữ quá lâu (rò rỉ).
+ */
+public class ConnectionPool {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = 30_000;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledEntry> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Thống kê phục vụ lập kế hoạch dung lượng
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+
+    /**
+     * Khởi tạo pool kết nối
+     * @param url JDBC URL
+     * @param username tên đăng nhập
+     * @param password mật khẩu
+     * @param minSize số kết nối rảnh tối thiểu được giữ lại
+     * @param maxSize số kết nối tối đa (đang mượn + rảnh)
+     * @param acquireTimeoutMillis thời gian chờ tối đa khi mượn kết nối
+     * @param idleTimeoutMillis thời gian rảnh tối đa trước khi kết nối bị đóng
+     * @param leakThresholdMillis thời gian giữ kết nối tối đa trước khi bị cảnh báo rò rỉ
+     */
+    public ConnectionPool(String url, String username, String password,
+                          int minSize, int maxSize, long acquireTimeoutMillis,
+                          long idleTimeoutMillis, long leakThresholdMillis) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_INTERVAL_MILLIS, HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Mượn một kết nối từ pool. Gọi close() trên kết nối trả về sẽ trả kết nối lại pool.
+     * @return kết nối đã được kiểm tra hợp lệ
+     * @throws SQLException nếu hết thời gian chờ hoặc không thể tạo kết nối mới
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + acquireTimeoutMillis +
+                                       "ms waiting for a database connection (max pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        PooledEntry entry;
+        try {
+            entry = takeValidEntry();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long waited = System.nanoTime() - start;
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        entry.borrowedAt = System.currentTimeMillis();
+        entry.borrowTrace = new Throwable("Connection borrowed here");
+        entry.leakReported = false;
+        borrowed.add(entry);
+        return entry.newHandle();
+    }
+
+    /**
+     * Lấy kết nối rảnh còn sống (LIFO để tái sử dụng kết nối "ấm" nhất), hoặc tạo mới.
+     */
+    private PooledEntry takeValidEntry() throws SQLException {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (isAlive(entry.physical)) {
+                return entry;
+            }
+            destroy(entry);
+        }
+        return createEntry();
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, username, password);
+        createdCount.incrementAndGet();
+        return new PooledEntry(physical);
+    }
+
+    private boolean isAlive(Connection physical) {
+        try {
+            return !physical.isClosed() && physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Trả kết nối lại pool sau khi khôi phục trạng thái mặc định
+     */
+    private void release(PooledEntry entry) {
+        borrowed.remove(entry);
+        try {
+            boolean reusable = !closed && !entry.physical.isClosed();
+            if (reusable && !entry.physical.getAutoCommit()) {
+                // Giao dịch bị bỏ dở không được rò rỉ sang lần mượn tiếp theo
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            if (reusable && entry.physical.isReadOnly()) {
+                entry.physical.setReadOnly(false);
+            }
+            if (reusable) {
+                entry.lastReturnedAt = System.currentTimeMillis();
+                idle.offerFirst(entry);
+            } else {
+                destroy(entry);
+            }
+        } catch (SQLException e) {
+            destroy(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledEntry entry) {
+        destroyedCount.incrementAndGet();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Bảo trì định kỳ: đóng kết nối rảnh quá lâu, bổ sung đến kích thước tối thiểu
+     * và cảnh báo các kết nối bị giữ quá ngưỡng rò rỉ.
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledEntry> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && idle.size() > minSize) {
+            PooledEntry entry = oldestFirst.next();
+            if (now - entry.lastReturnedAt > idleTimeoutMillis && idle.remove(entry)) {
+                destroy(entry);
+            }
+        }
+
+        while (idle.size() < minSize && idle.size() + borrowed.size() < maxSize) {
+            try {
+                PooledEntry entry = createEntry();
+                entry.lastReturnedAt = now;
+                idle.offerLast(entry);
+            } catch (SQLException e) {
+                break; // Cơ sở dữ liệu chưa sẵn sàng, thử lại ở lần bảo trì sau
+            }
+        }
+
+        for (PooledEntry entry : borrowed) {
+            if (!entry.leakReported && now - entry.borrowedAt > leakThresholdMillis) {
+                entry.leakReported = true;
+                leakCount.incrementAndGet();
+                System.err.println("Possible connection leak: connection held for " +
+                                   (now - entry.borrowedAt) + "ms");
+                entry.borrowTrace.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Đóng pool và toàn bộ kết nối rảnh. Kết nối đang mượn sẽ bị đóng khi được trả lại.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Lấy ảnh chụp thống kê hiện tại của pool
+     */
+    public PoolStats getStats() {
+        long borrows = borrowCount.get();
+        return new PoolStats(borrowed.size(), idle.size(), maxSize, borrows, timeoutCount.get(),
+                borrows > 0 ? totalWaitNanos.get() / borrows / 1_000_000.0 : 0.0,
+                maxWaitNanos.get() / 1_000_000.0, createdCount.get(), destroyedCount.get(), leakCount.get());
+    }
+
+    /**
+     * Kết nối vật lý cùng thông tin theo dõi của pool
+     */
+    private final class PooledEntry {
+        private final Connection physical;
+        private volatile long borrowedAt;
+        private volatile long lastReturnedAt;
+        private volatile Throwable borrowTrace;
+        private volatile boolean leakReported;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+            this.lastReturnedAt = System.currentTimeMillis();
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this));
+        }
+    }
+
+    /**
+     * Proxy bọc kết nối vật lý: close() trả kết nối về pool thay vì đóng thật
+     */
+    private final class Handle implements InvocationHandler {
+        private final PooledEntry entry;
+        private final AtomicBoolean returned = new AtomicBoolean(false);
+
+        Handle(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                default:
+                    if (returned.get()) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(entry.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    /**
+     * Thống kê pool (số kết nối đang dùng/rảnh, thời gian chờ...) để lập kế hoạch dung lượng
+     */
+    public static final class PoolStats {
+        private final int active;
+        private final int idle;
+        private final int maxSize;
+        private final long borrowCount;
+        private final long timeoutCount;
+        private final double averageWaitMillis;
+        private final double maxWaitMillis;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long leakCount;
+
+        PoolStats(int active, int idle, int maxSize, long borrowCount, long timeoutCount,
+                  double averageWaitMillis, double maxWaitMillis, long createdCount,
+                  long destroyedCount, long leakCount) {
+            this.active = active;
+            this.idle = idle;
+            this.maxSize = maxSize;
+            this.borrowCount = borrowCount;
+            this.timeoutCount = timeoutCount;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+            this.leakCount = leakCount;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public long getTimeoutCount() {
+            return timeoutCount;
+        }
+
+        public double getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public long getCreatedCount() {
+            return createdCount;
+        }
+
+        public long getDestroyedCount() {
+            return destroyedCount;
+        }
+
+        public long getLeakCount() {
+            return leakCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("PoolStats[active=%d, idle=%d, max=%d, borrows=%d, timeouts=%d, " +
+                                 "avgWait=%.2fms, maxWait=%.2fms, created=%d, destroyed=%d, leaks=%d]",
+                    active, idle, maxSize, borrowCount, timeoutCount, averageWaitMillis,
+                    maxWaitMillis, createdCount, destroyedCount, leakCount);
+        }
+    }
+}
@@ -1,51 +1,307 @@
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Quản lý kết nối cơ sở dữ liệu.
- * Xử lý kết nối MySQL sử dụng mẫu Singleton
+ * Xử lý kết nối MySQL sử dụng mẫu Singleton, các kết nối được cấp phát từ một pool dùng chung.
+ * Ghi và đọc cần dữ liệu mới nhất dùng máy chủ chính (getConnection); các truy vấn chỉ đọc để hiển thị
+ * có thể dùng getReadConnection để được chuyển sang bản sao (read replica) nếu có cấu hình.
+ * Việc đọc lại dữ liệu vừa ghi được theo dõi theo phiên ghi (Session): mọi luồng của giao diện dùng chung
+ * phiên mặc định, còn các luồng nền (OverdueSweeper, phát lại WriteJournal) mở phiên riêng bằng startSession,
+ * nên thao tác ghi nền không buộc các lần đọc của người dùng về máy chủ chính.
+ *
+ * Cấu hình qua system property:
+ *   library.db.url              URL máy chủ chính (mặc định localhost:3306)
+ *   library.db.replicas         danh sách URL bản sao, cách nhau bởi dấu phẩy (mặc định: không có)
+ *   library.db.readYourWritesMs thời gian đọc từ máy chủ chính sau một lần ghi của cùng phiên (mặc định 5000)
+ *   library.db.replicaDownMs    thời gian bỏ qua bản sao sau khi kết nối thất bại (mặc định 30000)
  */
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/library_management";
+    private static final String URL = System.getProperty("library.db.url",
+            "jdbc:mysql://localhost:3306/library_management");
+    private static final String REPLICA_URLS = System.getProperty("library.db.replicas", "");
     private static final String USERNAME = "root";
-    private static final String PASSWORD = "Minh1234*"; 
-    
-    private static Connection connection = null;
-    
+    private static final String PASSWORD = "Minh1234*";
+
+    // Định tuyến đọc: sau một lần ghi, các lần đọc cùng phiên dùng máy chủ chính trong khoảng thời gian này
+    // để người dùng thấy ngay thay đổi của mình dù bản sao còn trễ
+    private static final long READ_YOUR_WRITES_MILLIS = Long.getLong("library.db.readYourWritesMs", 5_000L);
+    private static final long REPLICA_DOWN_MILLIS = Long.getLong("library.db.replicaDownMs", 30_000L);
+    private static final int REPLICA_CONNECT_TIMEOUT_MILLIS = 2_000;
+
+    // Cấu hình pool kết nối
+    private static final int POOL_MIN_SIZE = 2;
+    private static final int POOL_MAX_SIZE = 10;
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 10_000;
+    private static final long IDLE_TIMEOUT_MILLIS = 5 * 60_000;
+    private static final long LEAK_THRESHOLD_MILLIS = 60_000;
+
+    private static volatile ConnectionPool pool = null;
+    private static volatile ReplicaRouter replicas = null;
+
+    /**
+     * Một phiên ghi: thời điểm ghi cuối cùng của những luồng dùng chung phiên này
+     */
+    public static final class Session {
+        private volatile long lastWriteAt;
+    }
+
+    private static final Session DEFAULT_SESSION = new Session();
+    private static final ThreadLocal<Session> SESSION = ThreadLocal.withInitial(() -> DEFAULT_SESSION);
+
+    /**
+     * Lấy pool kết nối, khởi tạo ở lần gọi đầu tiên
+     */
+    private static ConnectionPool getPool() throws ClassNotFoundException {
+        ConnectionPool current = pool;
+        if (current == null || current.isClosed()) {
+            synchronized (DatabaseConnection.class) {
+                current = pool;
+                if (current == null || current.isClosed()) {
+                    Class.forName("com.mysql.cj.jdbc.Driver");
+                    current = new ConnectionPool(withCursorFetch(URL), USERNAME, PASSWORD, POOL_MIN_SIZE,
+                            POOL_MAX_SIZE, ACQUIRE_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, LEAK_THRESHOLD_MILLIS);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Lấy bộ định tuyến bản sao, khởi tạo ở lần gọi đầu tiên
+     * @return bộ định tuyến, rỗng nếu không cấu hình bản sao nào
+     */
+    private static ReplicaRouter getReplicas() throws ClassNotFoundException {
+        ReplicaRouter current = replicas;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = replicas;
+                if (current == null) {
+                    Class.forName("com.mysql.cj.jdbc.Driver");
+                    List<String> urls = new ArrayList<>();
+                    List<ConnectionPool> pools = new ArrayList<>();
+                    for (String url : REPLICA_URLS.split(",")) {
+                        if (url.trim().isEmpty()) {
+                            continue;
+                        }
+                        urls.add(url.trim());
+                        String replicaUrl = withCursorFetch(withConnectTimeout(url.trim()));
+                        // minSize = 0: pool không tự kết nối lại bản sao đang hỏng trong lúc bảo trì
+                        pools.add(new ConnectionPool(replicaUrl, USERNAME, PASSWORD, 0,
+                                POOL_MAX_SIZE, ACQUIRE_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, LEAK_THRESHOLD_MILLIS));
+                    }
+                    current = new ReplicaRouter(pools, urls, REPLICA_DOWN_MILLIS);
+                    replicas = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Bật useCursorFetch trong URL (nếu chưa cấu hình): câu lệnh đặt fetch size dương được đọc bằng
+     * con trỏ phía máy chủ theo từng lô (dùng cho Stream đọc dần, xem ResultSetStreams);
+     * câu lệnh không đặt fetch size vẫn nhận toàn bộ kết quả như trước
+     */
+    private static String withCursorFetch(String url) {
+        if (url.contains("useCursorFetch=")) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "useCursorFetch=true";
+    }
+
+    /**
+     * Thêm connectTimeout vào URL bản sao (nếu chưa có) để bản sao bị tắt được phát hiện nhanh
+     */
+    private static String withConnectTimeout(String url) {
+        if (url.contains("connectTimeout=")) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "connectTimeout=" + REPLICA_CONNECT_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Phiên ghi của luồng hiện tại (phiên mặc định nếu luồng chưa mở phiên riêng)
+     */
+    public static Session currentSession() {
+        return SESSION.get();
+    }
+
+    /**
+     * Gắn luồng hiện tại vào một phiên ghi, ví dụ khi chạy tiếp thao tác của luồng khác (RepositoryExecutor)
+     * @param session phiên cần gắn
+     * @return phiên trước đó của luồng, để khôi phục sau khi chạy xong
+     */
+    public static Session setSession(Session session) {
+        Session previous = SESSION.get();
+        SESSION.set(session != null ? session : DEFAULT_SESSION);
+        return previous;
+    }
+
     /**
-     * Lấy kết nối đến cơ sở dữ liệu.
+     * Mở một phiên ghi riêng cho luồng hiện tại (dùng cho luồng nền): các lần ghi của luồng
+     * không làm các luồng khác đọc từ máy chủ chính
+     */
+    public static void startSession() {
+        SESSION.set(new Session());
+    }
+
+    /**
+     * Lấy kết nối đến máy chủ chính từ pool để ghi. Mỗi lần gọi được tính là một lần ghi
+     * của phiên hiện tại cho việc định tuyến đọc (xem getReadConnection).
+     * Gọi close() trên kết nối sẽ trả kết nối lại pool.
      */
     public static Connection getConnection() {
+        SESSION.get().lastWriteAt = System.currentTimeMillis();
+        return borrowPrimary(true);
+    }
+
+    /**
+     * Lấy kết nối đến máy chủ chính cho lần đọc cần dữ liệu mới nhất (kiểm tra trước khi ghi,
+     * nạp bộ tổng hợp). Không được tính là một lần ghi cho việc định tuyến đọc.
+     */
+    public static Connection getPrimaryReadConnection() {
+        return borrowPrimary(true);
+    }
+
+    /**
+     * Lấy kết nối cho truy vấn chỉ đọc. Kết nối được lấy từ một bản sao, trừ khi:
+     * - không cấu hình bản sao nào;
+     * - phiên hiện tại vừa ghi trong READ_YOUR_WRITES_MILLIS (đọc lại được dữ liệu vừa ghi);
+     * - mọi bản sao đều không kết nối được (chuyển sang máy chủ chính).
+     * Ngược lại, nếu máy chủ chính không kết nối được trong thời gian đọc-sau-ghi thì đọc từ bản sao.
+     * Không dùng kết nối này để ghi: kết nối bản sao ở chế độ chỉ đọc.
+     */
+    public static Connection getReadConnection() {
+        ReplicaRouter router;
+        try {
+            router = getReplicas();
+        } catch (ClassNotFoundException e) {
+            System.err.println("Không tìm thấy MySQL Driver: " + e.getMessage());
+            return null;
+        }
+        if (router.isEmpty()) {
+            return borrowPrimary(true);
+        }
+
+        if (System.currentTimeMillis() - SESSION.get().lastWriteAt < READ_YOUR_WRITES_MILLIS) {
+            Connection conn = borrowPrimary(false);
+            return conn != null ? conn : router.borrow();
+        }
+        Connection conn = router.borrow();
+        return conn != null ? conn : borrowPrimary(true);
+    }
+
+    /**
+     * Như getConnection nhưng ném SQLException khi không kết nối được, để repository xử lý
+     * mất kết nối cùng nhánh với các lỗi SQL khác (trả về false/null) thay vì NullPointerException
+     */
+    public static Connection requireConnection() throws SQLException {
+        Connection conn = getConnection();
+        if (conn == null) {
+            throw new SQLException("Database is unreachable");
+        }
+        return conn;
+    }
+
+    /**
+     * Như getPrimaryReadConnection nhưng ném SQLException khi không kết nối được (xem requireConnection)
+     */
+    public static Connection requirePrimaryReadConnection() throws SQLException {
+        Connection conn = getPrimaryReadConnection();
+        if (conn == null) {
+            throw new SQLException("Database is unreachable");
+        }
+        return conn;
+    }
+
+    /**
+     * Như getReadConnection nhưng ném SQLException khi không kết nối được (xem requireConnection)
+     */
+    public static Connection requireReadConnection() throws SQLException {
+        Connection conn = getReadConnection();
+        if (conn == null) {
+            throw new SQLException("Database is unreachable");
+        }
+        return conn;
+    }
+
+    /**
+     * Mượn kết nối máy chủ chính
+     * @param reportFailure in thông báo lỗi nếu không kết nối được
+     */
+    private static Connection borrowPrimary(boolean reportFailure) {
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            Connection newConnection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-            System.out.println("Successfully connected to the database!");
-            return newConnection;
+            return getPool().borrow();
         } catch (ClassNotFoundException e) {
             System.err.println("Không tìm thấy MySQL Driver: " + e.getMessage());
             return null;
         } catch (SQLException e) {
-            System.err.println("Kết nối cơ sở dữ liệu thất bại: " + e.getMessage());
-            System.err.println("Vui lòng kiểm tra MySQL đã chạy và thông tin đăng nhập chính xác");
+            if (reportFailure) {
+                System.err.println("Kết nối cơ sở dữ liệu thất bại: " + e.getMessage());
+                System.err.println("Vui lòng kiểm tra MySQL đã chạy và thông tin đăng nhập chính xác");
+            }
             return null;
         }
     }
-    
+
+    /**
+     * Kiểm tra máy chủ chính có kết nối được không (không in lỗi, không tính là một lần ghi
+     * cho việc định tuyến đọc). Dùng để phân biệt thao tác bị từ chối với mất kết nối.
+     */
+    public static boolean isPrimaryAvailable() {
+        try (Connection conn = borrowPrimary(false)) {
+            return conn != null;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Số kết nối tối đa của pool máy chủ chính (dùng để giới hạn số thao tác chạy đồng thời)
+     */
+    public static int getPoolMaxSize() {
+        return POOL_MAX_SIZE;
+    }
+
     /**
-     * Đóng kết nối cơ sở dữ liệu
+     * Lấy thống kê của pool kết nối (số kết nối đang dùng/rảnh, thời gian chờ)
+     * @return thống kê hiện tại, hoặc null nếu pool chưa được khởi tạo
+     */
+    public static ConnectionPool.PoolStats getPoolStats() {
+        ConnectionPool current = pool;
+        return current != null ? current.getStats() : null;
+    }
+
+    /**
+     * Lấy trạng thái các bản sao (còn hoạt động hay đang bị bỏ qua, số lần đọc, số lần lỗi)
+     * @return danh sách trạng thái, rỗng nếu không cấu hình bản sao hoặc chưa khởi tạo
+     */
+    public static List<ReplicaRouter.ReplicaStatus> getReplicaStatus() {
+        ReplicaRouter current = replicas;
+        return current != null ? current.getStatus() : new ArrayList<>();
+    }
+
+    /**
+     * Đóng pool kết nối cơ sở dữ liệu (máy chủ chính và các bản sao)
      */
     public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+        synchronized (DatabaseConnection.class) {
+            if (pool != null && !pool.isClosed()) {
+                pool.close();
                 System.out.println("Đã đóng kết nối cơ sở dữ liệu.");
             }
-        } catch (SQLException e) {
-            System.err.println("Lỗi khi đóng kết nối: " + e.getMessage());
+            pool = null;
+            if (replicas != null) {
+                replicas.close();
+            }
+            replicas = null;
         }
     }
-    
+
     /**
      * Kiểm tra kết nối cơ sở dữ liệu
      */
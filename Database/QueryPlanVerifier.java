@@ -0,0 +1,103 @@
+import com.library.repository.QueryCatalog;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kiểm tra kế hoạch thực thi của các câu lệnh repository bằng EXPLAIN và báo những câu lệnh
+ * quét toàn bộ bảng (type = ALL). Danh mục câu lệnh lấy từ QueryCatalog, tức là chính SQL mà
+ * các repository MySQL chạy. Các câu lệnh vốn phải đọc cả bảng (findAll, GROUP BY toàn bảng,
+ * tìm LIKE '%...%') được đánh dấu là cho phép quét toàn bộ và chỉ được báo để tham khảo.
+ * Nên chạy trên cơ sở dữ liệu có dữ liệu gần với thực tế: với bảng quá nhỏ, MySQL có thể
+ * chọn quét toàn bộ dù đã có chỉ mục phù hợp.
+ */
+public final class QueryPlanVerifier {
+
+    /**
+     * Kết quả kiểm tra cho một bảng trong kế hoạch của một câu lệnh
+     */
+    public static final class Finding {
+        private final String statement;
+        private final String table;
+        private final String accessType;
+        private final String key;
+        private final String extra;
+        private final boolean failure;
+
+        Finding(String statement, String table, String accessType, String key, String extra, boolean failure) {
+            this.statement = statement;
+            this.table = table;
+            this.accessType = accessType;
+            this.key = key;
+            this.extra = extra;
+            this.failure = failure;
+        }
+
+        public String getStatement() {
+            return statement;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public String getAccessType() {
+            return accessType;
+        }
+
+        /**
+         * Quét toàn bộ bảng ở câu lệnh lẽ ra phải dùng chỉ mục
+         */
+        public boolean isFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s] %s: table=%s type=%s key=%s extra=%s",
+                    failure ? "FULL SCAN" : "allowed", statement, table, accessType, key, extra);
+        }
+    }
+
+    private QueryPlanVerifier() {
+    }
+
+    /**
+     * Chạy EXPLAIN cho mọi câu lệnh trong danh mục
+     * @return các bảng được đọc bằng cách quét toàn bộ (type = ALL), kể cả các trường hợp được phép
+     */
+    public static List<Finding> verify() {
+        List<Finding> findings = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getPrimaryReadConnection()) {
+            if (conn == null) {
+                return findings;
+            }
+            for (QueryCatalog.Query query : QueryCatalog.queries()) {
+                explain(conn, query, findings);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error verifying query plans: " + e.getMessage());
+        }
+        return findings;
+    }
+
+    private static void explain(Connection conn, QueryCatalog.Query query, List<Finding> findings) {
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + query.getSql())) {
+            List<Object> parameters = query.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                stmt.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String type = rs.getString("type");
+                    if ("ALL".equalsIgnoreCase(type)) {
+                        findings.add(new Finding(query.getName(), rs.getString("table"), type,
+                                rs.getString("key"), rs.getString("Extra"), !query.isFullScanAllowed()));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error explaining " + query.getName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Kiểm tra định tuyến đọc của DatabaseConnection khi một bản sao bị tắt.
+ *
+ * Cấu hình hai bản sao: một URL trỏ tới cổng không có MySQL (127.0.0.1:1) và một URL trỏ tới chính
+ * máy chủ chính (đóng vai bản sao còn sống). Cần một máy chủ MySQL chạy ở library.db.url.
+ * Kiểm tra:
+ * - bản sao hỏng bị đánh dấu và bỏ qua, lần đọc vẫn thành công qua bản sao còn lại;
+ * - lần ghi của một luồng nền (phiên riêng) không buộc các lần đọc của phiên mặc định về máy chủ chính;
+ * - lần đọc trên máy chủ chính (getPrimaryReadConnection) không được tính là một lần ghi;
+ * - phiên vừa ghi thì đọc từ máy chủ chính.
+ *
+ * Cách chạy: java ... ReplicaFailoverCheck
+ * Mã thoát 1 nếu máy chủ chính không kết nối được, 2 nếu có kiểm tra thất bại.
+ */
+public final class ReplicaFailoverCheck {
+    private static final String DEAD_REPLICA_URL = "jdbc:mysql://127.0.0.1:1/library_management?connectTimeout=1000";
+    private static final String PRIMARY_URL = "jdbc:mysql://localhost:3306/library_management";
+
+    private ReplicaFailoverCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Phải đặt trước lần dùng DatabaseConnection đầu tiên (cấu hình được đọc khi nạp lớp)
+        String primaryUrl = System.getProperty("library.db.url", PRIMARY_URL);
+        System.setProperty("library.db.url", primaryUrl);
+        System.setProperty("library.db.replicas", DEAD_REPLICA_URL + "," + primaryUrl);
+
+        if (!DatabaseConnection.isPrimaryAvailable()) {
+            System.out.println("Primary " + primaryUrl + " is unreachable; start MySQL or set -Dlibrary.db.url.");
+            System.exit(1);
+        }
+
+        int failures = 0;
+        try {
+            // Hai lần đọc: bộ định tuyến xoay vòng nên chắc chắn thử bản sao hỏng một lần
+            failures += expect("read succeeds with one replica down", read() && read());
+            ReplicaRouter.ReplicaStatus dead = status(0);
+            ReplicaRouter.ReplicaStatus live = status(1);
+            failures += expect("dead replica marked down", !dead.isAvailable() && dead.getFailures() > 0);
+            failures += expect("reads served by the live replica", live.getReads() == 2);
+
+            long before = status(1).getReads();
+            AtomicBoolean written = new AtomicBoolean();
+            Thread writer = new Thread(() -> {
+                DatabaseConnection.startSession();
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    written.set(conn != null);
+                } catch (SQLException e) {
+                    written.set(false);
+                }
+            }, "failover-check-writer");
+            writer.start();
+            writer.join();
+            failures += expect("background write on primary", written.get());
+            failures += expect("background write does not pin other sessions",
+                    read() && status(1).getReads() == before + 1);
+
+            before = status(1).getReads();
+            try (Connection conn = DatabaseConnection.getPrimaryReadConnection()) {
+                failures += expect("primary read", conn != null);
+            }
+            failures += expect("primary read does not pin reads", read() && status(1).getReads() == before + 1);
+
+            before = status(1).getReads();
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                failures += expect("write on primary", conn != null);
+            }
+            failures += expect("session reads its own writes from the primary",
+                    read() && status(1).getReads() == before);
+        } finally {
+            DatabaseConnection.closeConnection();
+        }
+
+        System.out.println(failures == 0 ? "Replica failover behaved as expected." : failures + " check(s) failed.");
+        System.exit(failures == 0 ? 0 : 2);
+    }
+
+    private static boolean read() {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            return conn != null && conn.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static ReplicaRouter.ReplicaStatus status(int index) {
+        List<ReplicaRouter.ReplicaStatus> status = DatabaseConnection.getReplicaStatus();
+        return status.get(index);
+    }
+
+    private static int expect(String check, boolean passed) {
+        System.out.println((passed ? "OK    " : "FAIL  ") + check);
+        return passed ? 0 : 1;
+    }
+}
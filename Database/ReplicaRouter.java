@@ -0,0 +1,158 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Phân phối kết nối đọc lên các bản sao (read replica) theo vòng tròn.
+ * Mỗi bản sao có pool kết nối riêng. Bản sao không mượn được kết nối bị đánh dấu là hỏng
+ * trong một khoảng thời gian và được bỏ qua; hết khoảng đó nó được thử lại ở lần đọc kế tiếp.
+ * Khi mọi bản sao đều hỏng, borrow() trả về null để DatabaseConnection dùng máy chủ chính.
+ */
+public final class ReplicaRouter {
+
+    /**
+     * Trạng thái của một bản sao, dùng cho màn hình chẩn đoán
+     */
+    public static final class ReplicaStatus {
+        private final String url;
+        private final boolean available;
+        private final long reads;
+        private final long failures;
+        private final ConnectionPool.PoolStats poolStats;
+
+        ReplicaStatus(String url, boolean available, long reads, long failures, ConnectionPool.PoolStats poolStats) {
+            this.url = url;
+            this.available = available;
+            this.reads = reads;
+            this.failures = failures;
+            this.poolStats = poolStats;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * false nếu bản sao đang bị bỏ qua sau một lần kết nối thất bại
+         */
+        public boolean isAvailable() {
+            return available;
+        }
+
+        public long getReads() {
+            return reads;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public ConnectionPool.PoolStats getPoolStats() {
+            return poolStats;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s, reads=%d, failures=%d",
+                    url, available ? "up" : "down", reads, failures);
+        }
+    }
+
+    private static final class Replica {
+        final String url;
+        final ConnectionPool pool;
+        volatile long downUntil;
+        final AtomicLong reads = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+
+        Replica(String url, ConnectionPool pool) {
+            this.url = url;
+            this.pool = pool;
+        }
+    }
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final long downBackoffMillis;
+
+    /**
+     * @param pools pool kết nối của từng bản sao, theo cùng thứ tự với urls
+     * @param urls URL của từng bản sao (chỉ dùng để báo cáo)
+     * @param downBackoffMillis thời gian bỏ qua một bản sao sau khi kết nối thất bại
+     */
+    ReplicaRouter(List<ConnectionPool> pools, List<String> urls, long downBackoffMillis) {
+        for (int i = 0; i < pools.size(); i++) {
+            replicas.add(new Replica(urls.get(i), pools.get(i)));
+        }
+        this.downBackoffMillis = downBackoffMillis;
+    }
+
+    boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    /**
+     * Mượn một kết nối chỉ đọc từ bản sao kế tiếp còn hoạt động
+     * @return kết nối, hoặc null nếu không bản sao nào kết nối được
+     */
+    Connection borrow() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.downUntil > now) {
+                continue;
+            }
+            Connection conn = null;
+            try {
+                conn = replica.pool.borrow();
+                conn.setReadOnly(true);
+                replica.downUntil = 0;
+                replica.reads.incrementAndGet();
+                return conn;
+            } catch (SQLException e) {
+                closeQuietly(conn);
+                replica.failures.incrementAndGet();
+                replica.downUntil = System.currentTimeMillis() + downBackoffMillis;
+                System.err.println("Read replica " + replica.url + " unavailable, skipping for "
+                        + downBackoffMillis + "ms: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    List<ReplicaStatus> getStatus() {
+        long now = System.currentTimeMillis();
+        List<ReplicaStatus> status = new ArrayList<>();
+        for (Replica replica : replicas) {
+            status.add(new ReplicaStatus(replica.url, replica.downUntil <= now,
+                    replica.reads.get(), replica.failures.get(), replica.pool.getStats()));
+        }
+        return status;
+    }
+
+    void close() {
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing replica connection: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,443 @@
+import com.library.model.DocumentKeys;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Quản lý phiên bản lược đồ cơ sở dữ liệu.
+ * Các bước thay đổi (migration) được đánh số tăng dần; phiên bản đã áp dụng được ghi trong bảng
+ * schema_version, nên mỗi bước chỉ chạy một lần cho mỗi cơ sở dữ liệu. Chạy khi khởi động ứng dụng
+ * (MainFrame.main) trước khi repository được sử dụng. Mỗi bước đều có thể chạy lại an toàn
+ * (DDL trong MySQL tự commit nên không thể rollback một bước chạy dở).
+ *
+ * Dòng lệnh: {@code java SchemaMigrator} để nâng cấp lược đồ,
+ * {@code java SchemaMigrator --verify} để nâng cấp rồi kiểm tra kế hoạch thực thi (EXPLAIN)
+ * của các truy vấn repository (xem QueryPlanVerifier).
+ */
+public class SchemaMigrator {
+    private static final String LOCK_NAME = "library_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Một bước thay đổi lược đồ
+     */
+    @FunctionalInterface
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Base tables", SchemaMigrator::createBaseTables),
+        new Migration(2, "ID sequence table", SchemaMigrator::createSequenceTable),
+        new Migration(3, "Normalized document keys", SchemaMigrator::addDocumentKeys),
+        new Migration(4, "Indexes for repository access paths", SchemaMigrator::createQueryIndexes),
+        new Migration(5, "Per-user active loan counter", SchemaMigrator::addActiveLoanCount),
+        new Migration(6, "Genre-first favorite genres index", SchemaMigrator::createFavoriteGenreIndex),
+        new Migration(7, "Persisted overdue status", SchemaMigrator::persistOverdueStatus),
+        new Migration(8, "Nightly fine accrual and outstanding balances", SchemaMigrator::addFineAccrual),
+        new Migration(9, "User type index for statistics counts", SchemaMigrator::createUserTypeIndex)
+    );
+
+    private static volatile boolean migrated;
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Áp dụng các bước chưa chạy (chỉ làm việc thật ở lần gọi đầu tiên trong tiến trình).
+     * Dùng khóa GET_LOCK để nhiều tiến trình khởi động cùng lúc không chạy trùng.
+     * @return true nếu lược đồ đã ở phiên bản mới nhất
+     */
+    public static boolean migrate() {
+        if (migrated) {
+            return true;
+        }
+        synchronized (SchemaMigrator.class) {
+            if (migrated) {
+                return true;
+            }
+
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                if (conn == null) {
+                    return false;
+                }
+                if (!acquireLock(conn)) {
+                    System.err.println("Timed out waiting for the schema migration lock");
+                    return false;
+                }
+                try {
+                    ensureVersionTable(conn);
+                    int current = readVersion(conn);
+                    for (Migration migration : MIGRATIONS) {
+                        if (migration.version <= current) {
+                            continue;
+                        }
+                        migration.step.apply(conn);
+                        recordVersion(conn, migration);
+                        System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+                    }
+                } finally {
+                    releaseLock(conn);
+                }
+                migrated = true;
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error migrating database schema: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Lấy phiên bản lược đồ hiện tại của cơ sở dữ liệu
+     * @return phiên bản đã áp dụng cao nhất, 0 nếu chưa có, -1 nếu lỗi
+     */
+    public static int getCurrentVersion() {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) {
+                return -1;
+            }
+            ensureVersionTable(conn);
+            return readVersion(conn);
+        } catch (SQLException e) {
+            System.err.println("Error reading schema version: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Phiên bản mới nhất mà mã nguồn hiện tại yêu cầu
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    public static void main(String[] args) {
+        boolean verify = args.length > 0 && "--verify".equals(args[0]);
+        try {
+            if (!migrate()) {
+                System.exit(1);
+            }
+            System.out.println("Schema version: " + getCurrentVersion() + "/" + getLatestVersion());
+
+            if (verify) {
+                List<QueryPlanVerifier.Finding> findings = QueryPlanVerifier.verify();
+                for (QueryPlanVerifier.Finding finding : findings) {
+                    System.out.println(finding);
+                }
+                long failures = findings.stream().filter(QueryPlanVerifier.Finding::isFailure).count();
+                System.out.println(failures == 0 ? "No unexpected full scans." : failures + " unexpected full scan(s).");
+                if (failures > 0) {
+                    System.exit(2);
+                }
+            }
+        } finally {
+            DatabaseConnection.closeConnection();
+        }
+    }
+
+    private static boolean acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Error releasing schema migration lock: " + e.getMessage());
+        }
+    }
+
+    private static void ensureVersionTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                         "version INT NOT NULL PRIMARY KEY, " +
+                         "description VARCHAR(200) NOT NULL, " +
+                         "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+    private static int readVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void recordVersion(Connection conn, Migration migration) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT IGNORE INTO schema_version (version, description) VALUES (?, ?)")) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.executeUpdate();
+        }
+    }
+
+    // ==================== CÁC BƯỚC THAY ĐỔI LƯỢC ĐỒ ====================
+
+    /**
+     * Phiên bản 1: các bảng gốc (bỏ qua nếu cơ sở dữ liệu đã được tạo từ trước)
+     */
+    private static void createBaseTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS documents (" +
+                         "id VARCHAR(20) NOT NULL PRIMARY KEY, " +
+                         "title VARCHAR(255) NOT NULL, " +
+                         "author VARCHAR(255), " +
+                         "genre VARCHAR(100), " +
+                         "year INT, " +
+                         "description TEXT, " +
+                         "added_date DATE, " +
+                         "isbn VARCHAR(20), " +
+                         "publisher VARCHAR(255), " +
+                         "page_count INT, " +
+                         "language VARCHAR(50), " +
+                         "edition VARCHAR(50), " +
+                         "total_quantity INT NOT NULL DEFAULT 1, " +
+                         "available_quantity INT NOT NULL DEFAULT 1)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS users (" +
+                         "id VARCHAR(20) NOT NULL PRIMARY KEY, " +
+                         "name VARCHAR(255) NOT NULL, " +
+                         "email VARCHAR(255), " +
+                         "phone VARCHAR(50), " +
+                         "address VARCHAR(255), " +
+                         "registration_date DATE, " +
+                         "user_type VARCHAR(20), " +
+                         "is_active BOOLEAN NOT NULL DEFAULT TRUE, " +
+                         "max_borrow_limit INT NOT NULL DEFAULT 5)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS user_favorite_genres (" +
+                         "user_id VARCHAR(20) NOT NULL, " +
+                         "genre VARCHAR(100) NOT NULL, " +
+                         "PRIMARY KEY (user_id, genre))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS loan_transactions (" +
+                         "id VARCHAR(20) NOT NULL PRIMARY KEY, " +
+                         "user_id VARCHAR(20) NOT NULL, " +
+                         "document_id VARCHAR(20) NOT NULL, " +
+                         "borrow_date DATE, " +
+                         "due_date DATE, " +
+                         "return_date DATE, " +
+                         "status VARCHAR(20), " +
+                         "fine_amount DOUBLE NOT NULL DEFAULT 0, " +
+                         "renewal_count INT NOT NULL DEFAULT 0, " +
+                         "max_renewals INT NOT NULL DEFAULT 2)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS reviews (" +
+                         "id VARCHAR(20) NOT NULL PRIMARY KEY, " +
+                         "user_id VARCHAR(20) NOT NULL, " +
+                         "document_id VARCHAR(20) NOT NULL, " +
+                         "rating INT NOT NULL, " +
+                         "comment TEXT, " +
+                         "review_date DATETIME, " +
+                         "helpful_votes INT NOT NULL DEFAULT 0)");
+        }
+    }
+
+    /**
+     * Phiên bản 2: bảng id_sequences cho MySQLIdAllocator
+     */
+    private static void createSequenceTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS id_sequences (" +
+                         "name VARCHAR(64) NOT NULL PRIMARY KEY, " +
+                         "next_value BIGINT NOT NULL)");
+        }
+    }
+
+    /**
+     * Phiên bản 3: cột khóa chuẩn hóa của tài liệu (isbn_key, title_author_key) và giá trị cho các dòng cũ.
+     * Khóa được tính trong Java (DocumentKeys) nên không thể điền bằng một câu UPDATE thuần SQL.
+     */
+    private static void addDocumentKeys(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!columnExists(conn, "documents", "isbn_key")) {
+                stmt.execute("ALTER TABLE documents ADD COLUMN isbn_key VARCHAR(20) NULL");
+            }
+            if (!columnExists(conn, "documents", "title_author_key")) {
+                stmt.execute("ALTER TABLE documents ADD COLUMN title_author_key VARCHAR(512) NULL");
+            }
+        }
+        createIndexIfMissing(conn, "documents", "idx_documents_isbn_key", "isbn_key");
+        createIndexIfMissing(conn, "documents", "idx_documents_title_author_key", "title_author_key");
+
+        String selectSql = "SELECT id, title, author, isbn FROM documents WHERE title_author_key IS NULL";
+        String updateSql = "UPDATE documents SET isbn_key = ?, title_author_key = ? WHERE id = ?";
+        List<String[]> pending = new ArrayList<>();
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery(selectSql)) {
+            while (rs.next()) {
+                pending.add(new String[]{
+                    DocumentKeys.normalizeIsbn(rs.getString("isbn")),
+                    DocumentKeys.titleAuthorKey(rs.getString("title"), rs.getString("author")),
+                    rs.getString("id")
+                });
+            }
+        }
+        try (PreparedStatement update = conn.prepareStatement(updateSql)) {
+            for (String[] row : pending) {
+                update.setString(1, row[0]);
+                update.setString(2, row[1]);
+                update.setString(3, row[2]);
+                update.addBatch();
+            }
+            if (!pending.isEmpty()) {
+                update.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Phiên bản 4: chỉ mục cho các điều kiện lọc/sắp xếp mà repository sử dụng.
+     * Chỉ mục phụ của InnoDB đã chứa khóa chính, nên (cột) cũng phục vụ ORDER BY cột, id.
+     */
+    private static void createQueryIndexes(Connection conn) throws SQLException {
+        // loan_transactions: theo người dùng, theo tài liệu, giao dịch chưa trả theo hạn trả, theo trạng thái
+        createIndexIfMissing(conn, "loan_transactions", "idx_loans_user_borrow", "user_id", "borrow_date");
+        createIndexIfMissing(conn, "loan_transactions", "idx_loans_user_open", "user_id", "return_date", "status");
+        createIndexIfMissing(conn, "loan_transactions", "idx_loans_document_borrow", "document_id", "borrow_date");
+        createIndexIfMissing(conn, "loan_transactions", "idx_loans_document_open", "document_id", "return_date", "status");
+        createIndexIfMissing(conn, "loan_transactions", "idx_loans_open_due", "return_date", "due_date");
+        createIndexIfMissing(conn, "loan_transactions", "idx_loans_status_borrow", "status", "borrow_date");
+        createIndexIfMissing(conn, "loan_transactions", "idx_loans_borrow_date", "borrow_date");
+
+        // reviews: theo tài liệu (kèm điểm để GROUP BY đọc từ chỉ mục), theo người dùng + tài liệu, theo ngày
+        createIndexIfMissing(conn, "reviews", "idx_reviews_document_rating", "document_id", "rating");
+        createIndexIfMissing(conn, "reviews", "idx_reviews_document_date", "document_id", "review_date");
+        createIndexIfMissing(conn, "reviews", "idx_reviews_user_document", "user_id", "document_id");
+        createIndexIfMissing(conn, "reviews", "idx_reviews_user_date", "user_id", "review_date");
+        createIndexIfMissing(conn, "reviews", "idx_reviews_date", "review_date");
+
+        createIndexIfMissing(conn, "user_favorite_genres", "idx_favorite_genres_user", "user_id", "genre");
+        createIndexIfMissing(conn, "users", "idx_users_name", "name");
+
+        // documents: các cột sắp xếp/lọc của bảng phân trang và findAvailable
+        createIndexIfMissing(conn, "documents", "idx_documents_title", "title");
+        createIndexIfMissing(conn, "documents", "idx_documents_author", "author");
+        createIndexIfMissing(conn, "documents", "idx_documents_genre", "genre");
+        createIndexIfMissing(conn, "documents", "idx_documents_year", "year");
+        createIndexIfMissing(conn, "documents", "idx_documents_isbn", "isbn");
+        createIndexIfMissing(conn, "documents", "idx_documents_available", "available_quantity");
+    }
+
+    /**
+     * Phiên bản 5: bộ đếm số lượt đang mượn trên dòng người dùng (cập nhật trong giao dịch mượn/trả),
+     * khởi tạo từ các giao dịch chưa trả hiện có
+     */
+    private static void addActiveLoanCount(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!columnExists(conn, "users", "active_loan_count")) {
+                stmt.execute("ALTER TABLE users ADD COLUMN active_loan_count INT NOT NULL DEFAULT 0");
+            }
+            stmt.executeUpdate("UPDATE users u SET active_loan_count = (" +
+                               "SELECT COUNT(*) FROM loan_transactions t WHERE t.user_id = u.id " +
+                               "AND t.return_date IS NULL AND t.status IN ('ACTIVE', 'RENEWED'))");
+        }
+        createIndexIfMissing(conn, "users", "idx_users_active_loans", "active_loan_count");
+    }
+
+    /**
+     * Phiên bản 6: chỉ mục (genre, user_id) cho câu hỏi ngược "người dùng nào yêu thích thể loại này"
+     * (khóa chính bắt đầu bằng user_id nên không dùng được cho điều kiện theo genre)
+     */
+    private static void createFavoriteGenreIndex(Connection conn) throws SQLException {
+        createIndexIfMissing(conn, "user_favorite_genres", "idx_favorite_genres_genre", "genre", "user_id");
+    }
+
+    /**
+     * Phiên bản 7: trạng thái OVERDUE được lưu cho giao dịch chưa trả (OverdueSweeper cập nhật mỗi ngày).
+     * Chuyển các giao dịch đã quá hạn hiện có và tạo chỉ mục (status, return_date, due_date)
+     * cho danh sách quá hạn
+     */
+    private static void persistOverdueStatus(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE loan_transactions SET status = 'OVERDUE' " +
+                               "WHERE return_date IS NULL AND status IN ('ACTIVE', 'RENEWED') AND due_date < CURDATE()");
+        }
+        createIndexIfMissing(conn, "loan_transactions", "idx_loans_status_open_due", "status", "return_date", "due_date");
+    }
+
+    /**
+     * Phiên bản 8: ngày cộng dồn phạt trên giao dịch và số dư phạt chưa thanh toán trên dòng người dùng
+     * (cập nhật bởi bộ cộng dồn hằng đêm và khi trả), khởi tạo từ tiền phạt đã ghi của các giao dịch
+     */
+    private static void addFineAccrual(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!columnExists(conn, "loan_transactions", "fine_accrued_through")) {
+                stmt.execute("ALTER TABLE loan_transactions ADD COLUMN fine_accrued_through DATE NULL");
+            }
+            if (!columnExists(conn, "users", "outstanding_fines")) {
+                stmt.execute("ALTER TABLE users ADD COLUMN outstanding_fines DOUBLE NOT NULL DEFAULT 0");
+            }
+            stmt.executeUpdate("UPDATE users u SET outstanding_fines = (" +
+                               "SELECT COALESCE(SUM(t.fine_amount), 0) FROM loan_transactions t WHERE t.user_id = u.id)");
+        }
+        createIndexIfMissing(conn, "users", "idx_users_outstanding_fines", "outstanding_fines");
+    }
+
+    /**
+     * Phiên bản 9: chỉ mục (user_type, is_active) để truy vấn đối soát thống kê đếm người dùng
+     * theo nhóm và theo trạng thái hoạt động chỉ bằng chỉ mục
+     */
+    private static void createUserTypeIndex(Connection conn) throws SQLException {
+        createIndexIfMissing(conn, "users", "idx_users_type_active", "user_type", "is_active");
+    }
+
+    // ==================== HỖ TRỢ ====================
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM information_schema.columns " +
+                     "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    /**
+     * Tạo chỉ mục nếu bảng chưa có chỉ mục nào bắt đầu bằng đúng các cột này
+     * (MySQL không hỗ trợ CREATE INDEX IF NOT EXISTS; kiểm tra theo cột để không tạo trùng
+     * với khóa chính hoặc chỉ mục đã được tạo thủ công dưới tên khác)
+     */
+    private static void createIndexIfMissing(Connection conn, String table, String indexName, String... columns)
+            throws SQLException {
+        String wanted = String.join(",", columns);
+        String sql = "SELECT GROUP_CONCAT(column_name ORDER BY seq_in_index) AS cols " +
+                     "FROM information_schema.statistics " +
+                     "WHERE table_schema = DATABASE() AND table_name = ? GROUP BY index_name";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String existing = rs.getString("cols");
+                    if (existing != null && (existing.equalsIgnoreCase(wanted)
+                            || existing.toLowerCase().startsWith(wanted.toLowerCase() + ","))) {
+                        return;
+                    }
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX " + indexName + " ON " + table + " (" + wanted + ")");
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Kiểm tra mượn/trả đồng thời từ nhiều quầy trên kho dữ liệu đang cấu hình
+ * (MySQL mặc định, hoặc -Dlibrary.repository=memory|log).
+ *
+ * Tạo một tài liệu có ít bản hơn số người mượn, cho các quầy cùng mượn tài liệu đó rồi cùng trả,
+ * sau đó kiểm tra không có bản nào bị cho mượn quá số lượng và số lượng còn lại khớp với số giao dịch.
+ * In số thao tác mỗi giây của từng pha. Dữ liệu thử được xóa khi kết thúc.
+ *
+ * Cách chạy: java ... BorrowLoadCheck [số quầy] [số bản] [số người mượn]
+ * Mã thoát 2 nếu phát hiện cho mượn quá số lượng hoặc số lượng bị lệch.
+ */
+public final class BorrowLoadCheck {
+    private static final int DEFAULT_DESKS = 8;
+    private static final int DEFAULT_COPIES = 20;
+    private static final int DEFAULT_BORROWERS = 200;
+
+    private BorrowLoadCheck() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int desks = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DESKS;
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_COPIES;
+        int borrowers = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BORROWERS;
+
+        Library library = Library.getInstance();
+        Document document = new Document("", "Load check " + System.currentTimeMillis(), "BorrowLoadCheck",
+                                         "Test", 2000, "", "", 1, copies);
+        if (!library.addDocument(document)) {
+            System.err.println("Could not create the test document");
+            System.exit(1);
+        }
+        List<String> userIds = new ArrayList<>(borrowers);
+        for (int i = 0; i < borrowers; i++) {
+            User user = new User("", "Load check " + i, "loadcheck" + i + "@example.com",
+                                 "0000000000", User.UserType.STUDENT);
+            if (library.addUser(user)) {
+                userIds.add(user.getId());
+            }
+        }
+
+        int failures = 0;
+        try {
+            // Pha mượn: mọi người mượn cùng một tài liệu, chỉ được có đúng số bản thành công
+            ConcurrentLinkedQueue<String> loans = new ConcurrentLinkedQueue<>();
+            long borrowNanos = runOnDesks(desks, userIds, userId -> {
+                String transactionId = library.borrowDocument(userId, document.getId());
+                if (transactionId != null) {
+                    loans.add(transactionId);
+                }
+            });
+            Document afterBorrow = library.getDocument(document.getId());
+            int lent = loans.size();
+            report("borrow", userIds.size(), borrowNanos);
+            System.out.println("Borrowed " + lent + "/" + copies + " copies, available "
+                    + afterBorrow.getAvailableQuantity());
+            if (lent > copies) {
+                System.out.println("OVERSOLD: " + lent + " loans for " + copies + " copies");
+                failures++;
+            }
+            if (afterBorrow.getAvailableQuantity() != copies - lent) {
+                System.out.println("MISMATCH: available " + afterBorrow.getAvailableQuantity()
+                        + ", expected " + (copies - lent));
+                failures++;
+            }
+
+            // Pha trả: mỗi giao dịch được trả hai lần từ hai quầy, chỉ một lần được cộng lại
+            List<String> returns = new ArrayList<>(loans);
+            returns.addAll(loans);
+            AtomicInteger returned = new AtomicInteger();
+            long returnNanos = runOnDesks(desks, returns, transactionId -> {
+                if (library.returnDocument(transactionId)) {
+                    returned.incrementAndGet();
+                }
+            });
+            Document afterReturn = library.getDocument(document.getId());
+            report("return", returns.size(), returnNanos);
+            System.out.println("Returned " + returned.get() + "/" + lent + " loans, available "
+                    + afterReturn.getAvailableQuantity());
+            if (returned.get() != lent || afterReturn.getAvailableQuantity() != copies) {
+                System.out.println("MISMATCH: double return or lost return");
+                failures++;
+            }
+        } finally {
+            for (String userId : userIds) {
+                library.removeUser(userId);
+            }
+            library.removeDocument(document.getId());
+        }
+
+        System.out.println(failures == 0 ? "No overselling." : failures + " consistency failure(s).");
+        System.exit(failures == 0 ? 0 : 2);
+    }
+
+    /**
+     * Chia các việc cho số quầy cho trước, bắt đầu cùng lúc
+     * @return thời gian chạy (nano giây)
+     */
+    private static long runOnDesks(int desks, List<String> work, Consumer<String> task)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(desks);
+        CountDownLatch start = new CountDownLatch(1);
+        for (String item : work) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    task.accept(item);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    System.err.println("Error on desk thread: " + e.getMessage());
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        return System.nanoTime() - begin;
+    }
+
+    private static void report(String phase, int operations, long nanos) {
+        double seconds = nanos / 1_000_000_000.0;
+        System.out.printf("%s: %d operations in %.3f s (%.1f ops/s)%n",
+                phase, operations, seconds, operations / Math.max(seconds, 1e-9));
+    }
+}
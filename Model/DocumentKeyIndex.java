@@ -0,0 +1,110 @@
+import java.util.*;
+
+/**
+ * Chỉ mục băm trong bộ nhớ theo khóa chuẩn hóa của tài liệu (ISBN và tiêu đề + tác giả),
+ * dùng để phát hiện tài liệu trùng lặp mà không phải duyệt toàn bộ danh mục.
+ * Các thao tác được đồng bộ hóa vì chỉ mục được cập nhật từ nhiều luồng.
+ */
+public class DocumentKeyIndex {
+    private final Map<String, Set<String>> idsByIsbn = new HashMap<>();
+    private final Map<String, Set<String>> idsByTitleAuthor = new HashMap<>();
+    private final Map<String, String> isbnById = new HashMap<>();
+    private final Map<String, String> titleAuthorById = new HashMap<>();
+
+    /**
+     * Xây dựng lại toàn bộ chỉ mục từ danh sách tài liệu
+     */
+    public synchronized void rebuild(Collection<Document> documents) {
+        idsByIsbn.clear();
+        idsByTitleAuthor.clear();
+        isbnById.clear();
+        titleAuthorById.clear();
+        for (Document document : documents) {
+            indexLocked(document);
+        }
+    }
+
+    /**
+     * Thêm hoặc cập nhật khóa của một tài liệu
+     */
+    public synchronized void index(Document document) {
+        if (document == null || document.getId() == null) {
+            return;
+        }
+        removeLocked(document.getId());
+        indexLocked(document);
+    }
+
+    /**
+     * Bỏ một tài liệu khỏi chỉ mục
+     */
+    public synchronized void remove(String documentId) {
+        if (documentId != null) {
+            removeLocked(documentId);
+        }
+    }
+
+    /**
+     * Tìm mã các tài liệu trùng: cùng khóa tiêu đề + tác giả và cùng ISBN chuẩn hóa
+     * (ISBN rỗng chỉ khớp với tài liệu không có ISBN)
+     * @return tập mã tài liệu trùng (rỗng nếu không có)
+     */
+    public synchronized Set<String> findDuplicates(String title, String author, String isbn) {
+        String isbnKey = DocumentKeys.normalizeIsbn(isbn);
+        Set<String> candidates = isbnKey != null
+                ? idsByIsbn.get(isbnKey)
+                : idsByTitleAuthor.get(DocumentKeys.titleAuthorKey(title, author));
+
+        Set<String> result = new LinkedHashSet<>();
+        if (candidates == null) {
+            return result;
+        }
+        String titleAuthorKey = DocumentKeys.titleAuthorKey(title, author);
+        for (String id : candidates) {
+            if (titleAuthorKey.equals(titleAuthorById.get(id)) && Objects.equals(isbnKey, isbnById.get(id))) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tìm mã các tài liệu có ISBN chuẩn hóa khớp
+     */
+    public synchronized Set<String> findByIsbn(String isbn) {
+        String isbnKey = DocumentKeys.normalizeIsbn(isbn);
+        Set<String> ids = isbnKey != null ? idsByIsbn.get(isbnKey) : null;
+        return ids != null ? new LinkedHashSet<>(ids) : new LinkedHashSet<>();
+    }
+
+    private void indexLocked(Document document) {
+        String id = document.getId();
+        String isbnKey = DocumentKeys.normalizeIsbn(document.getIsbn());
+        String titleAuthorKey = DocumentKeys.titleAuthorKey(document.getTitle(), document.getAuthor());
+
+        if (isbnKey != null) {
+            idsByIsbn.computeIfAbsent(isbnKey, k -> new LinkedHashSet<>()).add(id);
+            isbnById.put(id, isbnKey);
+        }
+        idsByTitleAuthor.computeIfAbsent(titleAuthorKey, k -> new LinkedHashSet<>()).add(id);
+        titleAuthorById.put(id, titleAuthorKey);
+    }
+
+    private void removeLocked(String documentId) {
+        unlink(idsByIsbn, isbnById.remove(documentId), documentId);
+        unlink(idsByTitleAuthor, titleAuthorById.remove(documentId), documentId);
+    }
+
+    private static void unlink(Map<String, Set<String>> map, String key, String documentId) {
+        if (key == null) {
+            return;
+        }
+        Set<String> ids = map.get(key);
+        if (ids != null) {
+            ids.remove(documentId);
+            if (ids.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+}
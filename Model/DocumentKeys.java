@@ -0,0 +1,77 @@
+import java.util.Locale;
+
+/**
+ * Các khóa chuẩn hóa dùng để phát hiện tài liệu trùng lặp:
+ * ISBN chuẩn hóa (ISBN-10 được đổi sang ISBN-13) và khóa tiêu đề + tác giả
+ * (chữ thường, bỏ dấu tiếng Việt, gộp khoảng trắng).
+ */
+public final class DocumentKeys {
+    
+    private DocumentKeys() {
+    }
+    
+    /**
+     * Chuẩn hóa ISBN: bỏ dấu gạch/khoảng trắng, đổi ISBN-10 hợp lệ sang ISBN-13.
+     * Giá trị không phải ISBN hợp lệ được giữ ở dạng chữ hoa đã bỏ ký tự phân cách.
+     * @param isbn ISBN gốc
+     * @return ISBN chuẩn hóa, hoặc null nếu rỗng
+     */
+    public static String normalizeIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String compact = isbn.replaceAll("[^0-9Xx]", "").toUpperCase(Locale.ROOT);
+        if (compact.isEmpty()) {
+            return null;
+        }
+        
+        if (compact.length() == 10 && isValidIsbn10(compact)) {
+            return toIsbn13(compact);
+        }
+        return compact;
+    }
+    
+    /**
+     * Tạo khóa tiêu đề + tác giả (không phân biệt hoa thường, dấu và khoảng trắng thừa)
+     * @return khóa dạng "tiêu đề|tác giả"
+     */
+    public static String titleAuthorKey(String title, String author) {
+        return collapse(title) + "|" + collapse(author);
+    }
+    
+    private static String collapse(String text) {
+        return DocumentSearchIndex.fold(text).trim().replaceAll("\\s+", " ");
+    }
+    
+    private static boolean isValidIsbn10(String isbn) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = isbn.charAt(i);
+            int value;
+            if (c == 'X') {
+                if (i != 9) {
+                    return false;
+                }
+                value = 10;
+            } else {
+                value = c - '0';
+            }
+            sum += value * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+    
+    /**
+     * Đổi ISBN-10 sang ISBN-13 (tiền tố 978 và tính lại chữ số kiểm tra)
+     */
+    private static String toIsbn13(String isbn10) {
+        String body = "978" + isbn10.substring(0, 9);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = body.charAt(i) - '0';
+            sum += (i % 2 == 0) ? digit : digit * 3;
+        }
+        int check = (10 - (sum % 10)) % 10;
+        return body + check;
+    }
+}
@@ -0,0 +1,388 @@
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Chỉ mục đảo ngược (inverted index) trong bộ nhớ cho tìm kiếm tài liệu.
+ * Lập chỉ mục tiêu đề, tác giả, thể loại, mô tả, nhà xuất bản và ISBN; từ khóa được
+ * chuẩn hóa chữ thường và bỏ dấu tiếng Việt nên "nguyễn" khớp với "nguyen".
+ * Danh sách posting được nén (delta + varint) và lưu trong TreeMap để hỗ trợ tìm theo tiền tố.
+ * Truy vấn nhiều từ khóa trả về tài liệu khớp TẤT CẢ từ khóa (AND), mỗi từ khóa khớp theo tiền tố.
+ */
+public class DocumentSearchIndex {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern TOKEN_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern ISBN_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]");
+
+    /**
+     * Trường được lập chỉ mục; ALL dùng cho truy vấn trên tất cả các trường
+     */
+    public enum Field {
+        TITLE('t'),
+        AUTHOR('a'),
+        GENRE('g'),
+        DESCRIPTION('d'),
+        PUBLISHER('p'),
+        ISBN('i'),
+        ALL('*');
+
+        private final char tag;
+
+        Field(char tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * Tạo khóa trong chỉ mục: ký hiệu trường + ':' + từ khóa
+         */
+        String key(String term) {
+            return tag + ":" + term;
+        }
+    }
+
+    private static final Field[] INDEXED_FIELDS = {
+        Field.TITLE, Field.AUTHOR, Field.GENRE, Field.DESCRIPTION, Field.PUBLISHER, Field.ISBN
+    };
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private final List<String> idByOrdinal = new ArrayList<>();
+    private final Map<Integer, Set<String>> keysByOrdinal = new HashMap<>();
+
+    /**
+     * Danh sách posting nén: các số thứ tự tài liệu tăng dần, lưu dạng khoảng cách (delta)
+     * mã hóa varint, nên phần lớn posting chỉ tốn một byte cho mỗi tài liệu.
+     */
+    static final class PostingList {
+        private byte[] data = new byte[8];
+        private int length;
+        private int size;
+        private int last = -1;
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Thêm số thứ tự; nhanh khi số mới lớn hơn mọi số hiện có (trường hợp thêm tài liệu mới)
+         */
+        void add(int ordinal) {
+            if (ordinal > last) {
+                appendDelta(ordinal - last);
+                last = ordinal;
+                size++;
+                return;
+            }
+            int[] values = decode();
+            if (Arrays.binarySearch(values, ordinal) >= 0) {
+                return;
+            }
+            int[] merged = Arrays.copyOf(values, values.length + 1);
+            merged[values.length] = ordinal;
+            Arrays.sort(merged);
+            encode(merged);
+        }
+
+        /**
+         * Bỏ số thứ tự (giải nén, lọc rồi nén lại)
+         */
+        void remove(int ordinal) {
+            int[] values = decode();
+            int index = Arrays.binarySearch(values, ordinal);
+            if (index < 0) {
+                return;
+            }
+            int[] remaining = new int[values.length - 1];
+            System.arraycopy(values, 0, remaining, 0, index);
+            System.arraycopy(values, index + 1, remaining, index, values.length - index - 1);
+            encode(remaining);
+        }
+
+        /**
+         * Giải nén toàn bộ danh sách thành mảng tăng dần
+         */
+        int[] decode() {
+            int[] values = new int[size];
+            int position = 0;
+            int current = -1;
+            for (int i = 0; i < size; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                current += delta;
+                values[i] = current;
+            }
+            return values;
+        }
+
+        private void encode(int[] values) {
+            data = new byte[Math.max(8, values.length * 2)];
+            length = 0;
+            size = 0;
+            last = -1;
+            for (int value : values) {
+                appendDelta(value - last);
+                last = value;
+                size++;
+            }
+        }
+
+        private void appendDelta(int delta) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            while ((delta & ~0x7F) != 0) {
+                data[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            data[length++] = (byte) delta;
+        }
+    }
+
+    /**
+     * Chuẩn hóa văn bản: chữ thường, bỏ dấu tiếng Việt (kể cả đ -> d)
+     * @param text văn bản gốc
+     * @return văn bản đã chuẩn hóa (chuỗi rỗng nếu null)
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        if (isAscii(text)) {
+            // Không có dấu để bỏ: chỉ cần chữ thường
+            return text.toLowerCase(Locale.ROOT);
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        return stripped.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tách văn bản thành các từ khóa đã chuẩn hóa
+     * @param text văn bản gốc
+     * @return danh sách từ khóa (không rỗng, có thể trùng lặp)
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATORS.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Chuẩn hóa ISBN thành một từ khóa duy nhất (bỏ dấu gạch và khoảng trắng)
+     */
+    private static String compactIsbn(String isbn) {
+        return ISBN_SEPARATORS.matcher(fold(isbn)).replaceAll("");
+    }
+
+    /**
+     * Xây dựng lại toàn bộ chỉ mục từ danh sách tài liệu
+     * @param documents tất cả tài liệu cần lập chỉ mục
+     */
+    public void rebuild(Collection<Document> documents) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            ordinalById.clear();
+            idByOrdinal.clear();
+            keysByOrdinal.clear();
+            for (Document document : documents) {
+                indexLocked(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Thêm hoặc cập nhật một tài liệu trong chỉ mục
+     * @param document tài liệu cần lập chỉ mục
+     */
+    public void index(Document document) {
+        if (document == null || document.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(document.getId());
+            indexLocked(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bỏ một tài liệu khỏi chỉ mục
+     * @param documentId mã tài liệu
+     */
+    public void remove(String documentId) {
+        if (documentId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(documentId);
+            Integer ordinal = ordinalById.remove(documentId);
+            if (ordinal != null) {
+                idByOrdinal.set(ordinal, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tìm tài liệu khớp tất cả từ khóa trong truy vấn (mỗi từ khóa khớp theo tiền tố)
+     * @param query chuỗi truy vấn
+     * @param field trường cần tìm, ALL để tìm trên mọi trường
+     * @return tập mã tài liệu khớp (rỗng nếu truy vấn rỗng)
+     */
+    public Set<String> search(String query, Field field) {
+        Field target = field != null ? field : Field.ALL;
+        List<String> terms = target == Field.ISBN ? List.of(compactIsbn(query)) : tokenize(query);
+        terms = terms.stream().filter(term -> !term.isEmpty()).distinct().toList();
+        if (terms.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (String term : terms) {
+                BitSet termMatches = matchPrefix(term, target);
+                if (matches == null) {
+                    matches = termMatches;
+                } else {
+                    matches.and(termMatches);
+                }
+                if (matches.isEmpty()) {
+                    break;
+                }
+            }
+
+            // ISBN có dấu gạch bị tách thành nhiều từ khóa; thử thêm dạng liền khi tìm trên mọi trường
+            if (target == Field.ALL && terms.size() > 1) {
+                String isbn = compactIsbn(query);
+                if (!isbn.isEmpty()) {
+                    matches.or(matchPrefix(isbn, Field.ISBN));
+                }
+            }
+
+            Set<String> ids = new LinkedHashSet<>();
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                String id = idByOrdinal.get(ordinal);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Số tài liệu đang có trong chỉ mục
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gộp posting của mọi từ khóa bắt đầu bằng tiền tố trên trường (hoặc mọi trường)
+     */
+    private BitSet matchPrefix(String prefix, Field field) {
+        BitSet result = new BitSet();
+        Field[] fields = field == Field.ALL ? INDEXED_FIELDS : new Field[]{field};
+        for (Field f : fields) {
+            String from = f.key(prefix);
+            for (PostingList list : postings.subMap(from, true, from + Character.MAX_VALUE, false).values()) {
+                for (int ordinal : list.decode()) {
+                    result.set(ordinal);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void indexLocked(Document document) {
+        Integer existing = ordinalById.get(document.getId());
+        int ordinal;
+        if (existing != null) {
+            ordinal = existing;
+        } else {
+            ordinal = idByOrdinal.size();
+            idByOrdinal.add(document.getId());
+            ordinalById.put(document.getId(), ordinal);
+        }
+
+        Set<String> keys = new HashSet<>();
+        addKeys(keys, Field.TITLE, tokenize(document.getTitle()));
+        addKeys(keys, Field.AUTHOR, tokenize(document.getAuthor()));
+        addKeys(keys, Field.GENRE, tokenize(document.getGenre()));
+        addKeys(keys, Field.DESCRIPTION, tokenize(document.getDescription()));
+        addKeys(keys, Field.PUBLISHER, tokenize(document.getPublisher()));
+        String isbn = compactIsbn(document.getIsbn());
+        if (!isbn.isEmpty()) {
+            keys.add(Field.ISBN.key(isbn));
+        }
+
+        for (String key : keys) {
+            postings.computeIfAbsent(key, k -> new PostingList()).add(ordinal);
+        }
+        keysByOrdinal.put(ordinal, keys);
+    }
+
+    private void addKeys(Set<String> keys, Field field, List<String> terms) {
+        for (String term : terms) {
+            keys.add(field.key(term));
+        }
+    }
+
+    /**
+     * Bỏ các posting của tài liệu; số thứ tự được giữ lại để dùng khi tài liệu được lập chỉ mục lại
+     */
+    private void removeLocked(String documentId) {
+        Integer ordinal = ordinalById.get(documentId);
+        if (ordinal == null) {
+            return;
+        }
+        Set<String> keys = keysByOrdinal.remove(ordinal);
+        if (keys != null) {
+            for (String key : keys) {
+                PostingList list = postings.get(key);
+                if (list != null) {
+                    list.remove(ordinal);
+                    if (list.size() == 0) {
+                        postings.remove(key);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,12 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import com.library.repository.*;
 
 /**
@@ -16,12 +23,51 @@ public class Library {
     private LoanTransactionRepository transactionRepository;
     private ReviewRepository reviewRepository;
     
-    private int nextDocumentId;
-    private int nextUserId;
-    private int nextTransactionId;
-    private int nextReviewId;
+    // Phiên bản bất đồng bộ của các repository trên (chạy trên RepositoryExecutor dùng chung)
+    private AsyncDocumentRepository asyncDocumentRepository;
+    private AsyncUserRepository asyncUserRepository;
+    private AsyncLoanTransactionRepository asyncTransactionRepository;
+    private AsyncReviewRepository asyncReviewRepository;
+    
+    private IdAllocator documentIds;
+    private IdAllocator userIds;
+    private IdAllocator transactionIds;
+    private IdAllocator reviewIds;
     private final double dailyFineRate = 0.50;
     private final int defaultLoanDays = 14;
+    private static final int MAX_RENEW_ATTEMPTS = 3;
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+    private static final long DEFAULT_CACHE_TTL_SECONDS = 300;
+    private static final long STATISTICS_RECONCILE_MILLIS = 5 * 60 * 1000L;
+    
+    /**
+     * System property chọn kho dữ liệu thay cho MySQL: "memory" dùng các repository trong bộ nhớ,
+     * "log" dùng kho nhật ký trên đĩa cho máy trạm không có máy chủ MySQL
+     */
+    public static final String REPOSITORY_PROPERTY = "library.repository";
+    
+    /** System property chọn thư mục dữ liệu của kho nhật ký (mặc định "library-data") */
+    public static final String DATA_DIRECTORY_PROPERTY = "library.dataDir";
+    
+    /** System property chọn thư mục nhật ký ghi trước khi mất kết nối MySQL (mặc định "library-journal") */
+    public static final String JOURNAL_DIRECTORY_PROPERTY = "library.journalDir";
+    
+    private WriteJournal writeJournal;
+    
+    // Chuyển giao dịch sang OVERDUE lúc nửa đêm; người nghe được giữ lại khi đổi repository
+    private OverdueSweeper overdueSweeper;
+    private final List<OverdueSweeper.Listener> overdueListeners = new CopyOnWriteArrayList<>();
+    
+    private final DocumentSearchIndex searchIndex = new DocumentSearchIndex();
+    private volatile boolean searchIndexBuilt;
+    private final DocumentKeyIndex keyIndex = new DocumentKeyIndex();
+    
+    // Bộ đếm thống kê cập nhật theo từng thao tác ghi, đối soát nền bằng truy vấn COUNT/GROUP BY
+    private final LibraryStatistics statistics = new LibraryStatistics();
+    private final AtomicBoolean statisticsReconciling = new AtomicBoolean();
+    
+    // Sự kiện thay đổi phát sau mỗi thao tác ghi thành công (giao diện cập nhật từng dòng thay vì nạp lại bảng)
+    private final LibraryEventBus eventBus = new LibraryEventBus();
     
     /**
      * Constructor riêng tư cho mẫu Singleton
@@ -29,15 +75,53 @@ public class Library {
     private Library() {
         this.libraryName = "Digital Library Management System";
         this.address = "123 Library Street, Knowledge City";
-        this.documentRepository = new MySQLDocumentRepository();
-        this.userRepository = new MySQLUserRepository();
-        this.transactionRepository = new MySQLLoanTransactionRepository();
-        this.reviewRepository = new MySQLReviewRepository();
         
-        this.nextDocumentId = getNextIdFromDatabase("documents", "DOC") + 1;
-        this.nextUserId = getNextIdFromDatabase("users", "USER") + 1;
-        this.nextTransactionId = getNextIdFromDatabase("loan_transactions", "TXN") + 1;
-        this.nextReviewId = getNextIdFromDatabase("reviews", "REV") + 1;
+        if (isInMemoryMode()) {
+            useInMemoryStorage(new InMemoryDatabase());
+            return;
+        }
+        if (isLogStructuredMode()) {
+            if (useLogStructuredStorage(Paths.get(System.getProperty(DATA_DIRECTORY_PROPERTY, "library-data")))) {
+                return;
+            }
+            System.err.println("Falling back to MySQL repositories");
+        }
+        
+        // Repository MySQL được bọc bởi bộ nhớ đệm write-through (cấu hình qua system properties)
+        int cacheSize = Integer.getInteger("library.cache.maxSize", DEFAULT_CACHE_SIZE);
+        long cacheTtlMillis = Long.getLong("library.cache.ttlSeconds", DEFAULT_CACHE_TTL_SECONDS) * 1000L;
+        DocumentRepository documents = new MySQLDocumentRepository();
+        UserRepository users = new MySQLUserRepository();
+        LoanTransactionRepository loans = new MySQLLoanTransactionRepository();
+        ReviewRepository reviews = new MySQLReviewRepository();
+        
+        // Thao tác ghi khi mất kết nối MySQL được ghi vào nhật ký cục bộ và phát lại khi có kết nối lại
+        this.writeJournal = openWriteJournal(documents, users, loans, reviews);
+        if (writeJournal != null) {
+            documents = new JournalingDocumentRepository(documents, writeJournal);
+            users = new JournalingUserRepository(users, writeJournal);
+            loans = new JournalingLoanTransactionRepository(loans, writeJournal);
+            reviews = new JournalingReviewRepository(reviews, writeJournal);
+        }
+        
+        CachingDocumentRepository cachedDocuments =
+                new CachingDocumentRepository(documents, cacheSize, cacheTtlMillis);
+        CachingUserRepository cachedUsers =
+                new CachingUserRepository(users, cacheSize, cacheTtlMillis);
+        setRepositories(cachedDocuments,
+                cachedUsers,
+                new CachingLoanTransactionRepository(loans, cacheSize, cacheTtlMillis,
+                                                     cachedDocuments::invalidate, cachedUsers::invalidate),
+                new CachingReviewRepository(reviews, cacheSize, cacheTtlMillis));
+        if (writeJournal != null) {
+            writeJournal.addListener(this::writeJournalReplayed);
+        }
+        
+        // Mã được cấp theo khối từ bảng id_sequences, không quét bảng khi khởi động
+        this.documentIds = new MySQLIdAllocator("documents", "DOC");
+        this.userIds = new MySQLIdAllocator("users", "USER");
+        this.transactionIds = new MySQLIdAllocator("loan_transactions", "TXN");
+        this.reviewIds = new MySQLIdAllocator("reviews", "REV");
     }
     
     /**
@@ -59,33 +143,290 @@ public class Library {
         this.userRepository = userRepo;
         this.transactionRepository = transactionRepo;
         this.reviewRepository = reviewRepo;
+        this.searchIndexBuilt = false;
+        statistics.reset();
+        
+        RepositoryExecutor executor = RepositoryExecutor.getShared();
+        this.asyncDocumentRepository = new AsyncDocumentRepositoryAdapter(documentRepo, executor);
+        this.asyncUserRepository = new AsyncUserRepositoryAdapter(userRepo, executor);
+        this.asyncTransactionRepository = new AsyncLoanTransactionRepositoryAdapter(transactionRepo, executor);
+        this.asyncReviewRepository = new AsyncReviewRepositoryAdapter(reviewRepo, executor);
+        
+        if (overdueSweeper != null) {
+            overdueSweeper.close();
+        }
+        this.overdueSweeper = new OverdueSweeper(transactionRepo);
+        overdueSweeper.addListener((transactionIds, date) -> {
+            statistics.loansBecameOverdue(transactionIds.size());
+            for (String transactionId : transactionIds) {
+                eventBus.publish(LibraryEvent.loan(LibraryEvent.Type.LOAN_OVERDUE, transactionId, null, null));
+            }
+            for (OverdueSweeper.Listener listener : overdueListeners) {
+                listener.loansBecameOverdue(transactionIds, date);
+            }
+        });
+        // Cộng dồn tiền phạt hằng đêm theo tập (fine_amount và số dư phạt của người dùng được lưu sẵn)
+        overdueSweeper.addDailyTask(date -> transactionRepo.accrueFines(date, dailyFineRate) >= 0);
+        overdueSweeper.start();
+    }
+    
+    /**
+     * Đăng ký nhận thông báo khi giao dịch chuyển sang OVERDUE (gọi trên luồng của bộ quét,
+     * giao diện cần chuyển về luồng Swing)
+     */
+    public void addOverdueListener(OverdueSweeper.Listener listener) {
+        overdueListeners.add(listener);
+    }
+    
+    public void removeOverdueListener(OverdueSweeper.Listener listener) {
+        overdueListeners.remove(listener);
+    }
+    
+    /**
+     * Đăng ký nhận sự kiện thay đổi dữ liệu (gọi trên luồng của bus sự kiện,
+     * giao diện cần chuyển về luồng Swing)
+     */
+    public void addEventListener(LibraryEventBus.Listener listener) {
+        eventBus.addListener(listener);
+    }
+    
+    public void removeEventListener(LibraryEventBus.Listener listener) {
+        eventBus.removeListener(listener);
+    }
+    
+    public AsyncDocumentRepository getAsyncDocumentRepository() {
+        return asyncDocumentRepository;
+    }
+    
+    public AsyncUserRepository getAsyncUserRepository() {
+        return asyncUserRepository;
+    }
+    
+    public AsyncLoanTransactionRepository getAsyncTransactionRepository() {
+        return asyncTransactionRepository;
+    }
+    
+    public AsyncReviewRepository getAsyncReviewRepository() {
+        return asyncReviewRepository;
+    }
+    
+    /**
+     * Thiết lập bộ cấp phát mã cho tài liệu, người dùng, giao dịch và đánh giá
+     */
+    public void setIdAllocators(IdAllocator documentIds, IdAllocator userIds,
+                                IdAllocator transactionIds, IdAllocator reviewIds) {
+        this.documentIds = documentIds;
+        this.userIds = userIds;
+        this.transactionIds = transactionIds;
+        this.reviewIds = reviewIds;
+    }
+    
+    /**
+     * Chuyển sang chế độ một máy trong bộ nhớ: repository và bộ cấp phát mã không cần MySQL.
+     * Dữ liệu mất khi ứng dụng tắt; dùng cho chạy thử, kiểm thử và làm mốc so sánh hiệu năng.
+     * @param database cơ sở dữ liệu trong bộ nhớ (có thể dùng chung giữa nhiều lần gọi)
+     */
+    public void useInMemoryStorage(InMemoryDatabase database) {
+        setRepositories(new InMemoryDocumentRepository(database),
+                        new InMemoryUserRepository(database),
+                        new InMemoryLoanTransactionRepository(database),
+                        new InMemoryReviewRepository(database));
+        setIdAllocators(new InMemoryIdAllocator("DOC"),
+                        new InMemoryIdAllocator("USER"),
+                        new InMemoryIdAllocator("TXN"),
+                        new InMemoryIdAllocator("REV"));
     }
     
     /**
-     * Lấy ID khả dụng tiếp theo từ cơ sở dữ liệu bằng cách trích xuất phần số tối đa
+     * Mở nhật ký ghi trước cho các repository MySQL; nhật ký được đóng khi JVM tắt
+     * @return nhật ký, hoặc null nếu không mở được (thao tác ghi khi mất kết nối sẽ thất bại như trước)
      */
-    private int getNextIdFromDatabase(String tableName, String prefix) {
+    private static WriteJournal openWriteJournal(DocumentRepository documents, UserRepository users,
+                                                 LoanTransactionRepository loans, ReviewRepository reviews) {
+        Path directory = Paths.get(System.getProperty(JOURNAL_DIRECTORY_PROPERTY, "library-journal"));
         try {
-            String sql = "SELECT MAX(CAST(SUBSTRING(id, " + (prefix.length() + 1) + ") AS UNSIGNED)) FROM " + tableName;
-            
-            java.sql.Connection conn = com.library.database.DatabaseConnection.getConnection();
-            if (conn == null) return 0;
-            
-            java.sql.Statement stmt = conn.createStatement();
-            java.sql.ResultSet rs = stmt.executeQuery(sql);
-            
-            if (rs.next()) {
-                int maxId = rs.getInt(1);
-                rs.close();
-                stmt.close();
-                return maxId;
+            WriteJournal journal = WriteJournal.open(directory, documents, users, loans, reviews,
+                                                     WriteJournal.DEFAULT_RETRY_SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "write-journal-close"));
+            return journal;
+        } catch (IOException e) {
+            System.err.println("Error opening write journal in " + directory + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Số thao tác ghi đang chờ trong nhật ký ghi trước (0 nếu không dùng nhật ký)
+     */
+    public int getPendingWriteCount() {
+        return writeJournal != null ? writeJournal.getPendingCount() : 0;
+    }
+    
+    /**
+     * Các xung đột phát hiện khi phát lại nhật ký ghi trước (rỗng nếu không dùng nhật ký)
+     */
+    public List<WriteJournal.Conflict> getWriteConflicts() {
+        return writeJournal != null ? writeJournal.getConflicts() : new ArrayList<>();
+    }
+    
+    /**
+     * Xóa các xung đột đã xem khỏi nhật ký ghi trước
+     * @return false nếu không ghi được nhật ký
+     */
+    public boolean clearWriteConflicts() {
+        return writeJournal == null || writeJournal.clearConflicts();
+    }
+    
+    /**
+     * Sửa các trạng thái đã cập nhật theo thao tác ghi ngoại tuyến sau mỗi lô phát lại (luồng phát lại):
+     * các dòng bị ảnh hưởng được bỏ khỏi bộ nhớ đệm; với thao tác bị từ chối hoặc bị sửa số lượng,
+     * thống kê được đánh dấu cần đối soát và các dòng được đọc lại từ máy chủ (xem publishCorrection).
+     */
+    private void writeJournalReplayed(List<WriteJournal.Replayed> replayed) {
+        boolean conflicts = false;
+        for (WriteJournal.Replayed result : replayed) {
+            evictCached(result);
+            if (result.getConflict() != null) {
+                conflicts = true;
+                publishCorrection(result);
+            }
+        }
+        if (conflicts) {
+            statistics.markStale();
+        }
+    }
+    
+    private void evictCached(WriteJournal.Replayed result) {
+        if (result.getDocumentId() != null && documentRepository instanceof CachingDocumentRepository) {
+            ((CachingDocumentRepository) documentRepository).invalidate(result.getDocumentId());
+        }
+        if (result.getUserId() != null && userRepository instanceof CachingUserRepository) {
+            ((CachingUserRepository) userRepository).invalidate(result.getUserId());
+        }
+        if (result.getTransactionId() != null && transactionRepository instanceof CachingLoanTransactionRepository) {
+            ((CachingLoanTransactionRepository) transactionRepository).invalidate(result.getTransactionId());
+        }
+        if (result.getReviewId() != null && reviewRepository instanceof CachingReviewRepository) {
+            ((CachingReviewRepository) reviewRepository).invalidate(result.getReviewId());
+        }
+    }
+    
+    /**
+     * Đọc lại các dòng của một thao tác bị xung đột: đặt lại lịch quá hạn của giao dịch và chỉ mục
+     * tìm kiếm của tài liệu theo máy chủ, rồi phát sự kiện sửa (hoặc xóa nếu dòng không còn)
+     * để giao diện cập nhật đúng các dòng đó
+     */
+    private void publishCorrection(WriteJournal.Replayed result) {
+        String documentId = result.getDocumentId();
+        String userId = result.getUserId();
+        
+        if (documentId != null) {
+            Document document = documentRepository.findById(documentId);
+            if (document == null) {
+                searchIndex.remove(documentId);
+                keyIndex.remove(documentId);
+                eventBus.publish(LibraryEvent.document(LibraryEvent.Type.DOCUMENT_REMOVED, documentId));
+            } else {
+                if (searchIndexBuilt) {
+                    searchIndex.index(document);
+                    keyIndex.index(document);
+                }
+                eventBus.publish(LibraryEvent.document(LibraryEvent.Type.DOCUMENT_UPDATED, documentId));
             }
-            rs.close();
-            stmt.close();
-        } catch (Exception e) {
-            System.err.println("Warning: Could not get max ID from " + tableName + ": " + e.getMessage());
         }
-        return 0;
+        
+        if (userId != null) {
+            LibraryEvent.Type type = userRepository.findById(userId) != null
+                    ? LibraryEvent.Type.USER_UPDATED : LibraryEvent.Type.USER_REMOVED;
+            eventBus.publish(LibraryEvent.user(type, userId));
+        }
+        
+        String transactionId = result.getTransactionId();
+        if (transactionId != null) {
+            LoanTransaction transaction = transactionRepository.findById(transactionId);
+            if (transaction == null) {
+                overdueSweeper.cancel(transactionId);
+                eventBus.publish(LibraryEvent.loan(LibraryEvent.Type.LOAN_REMOVED, transactionId, documentId, userId));
+            } else {
+                // schedule bỏ giao dịch đã đóng khỏi bánh xe và đặt lại hạn trả theo máy chủ
+                overdueSweeper.schedule(transaction);
+                eventBus.publish(LibraryEvent.loan(LibraryEvent.Type.LOAN_UPDATED, transactionId,
+                                                   transaction.getDocumentId(), transaction.getUserId()));
+            }
+        }
+        
+        String reviewId = result.getReviewId();
+        if (reviewId != null) {
+            LibraryEvent.Type type = reviewRepository.findById(reviewId) != null
+                    ? LibraryEvent.Type.REVIEW_UPDATED : LibraryEvent.Type.REVIEW_REMOVED;
+            eventBus.publish(LibraryEvent.review(type, reviewId, documentId, userId));
+        }
+    }
+    
+    /**
+     * Chuyển sang kho nhật ký trên đĩa trong thư mục cho trước; kho được đóng khi JVM tắt
+     * để lần mở sau không phải dựng lại chỉ mục
+     * @return false nếu không mở được kho (repository hiện tại giữ nguyên)
+     */
+    public boolean useLogStructuredStorage(Path directory) {
+        LogStructuredDatabase database;
+        try {
+            database = LogStructuredDatabase.open(directory);
+        } catch (IOException e) {
+            System.err.println("Error opening record log in " + directory + ": " + e.getMessage());
+            return false;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(database::close, "record-log-close"));
+        useLogStructuredStorage(database);
+        return true;
+    }
+    
+    /**
+     * Chuyển sang kho nhật ký đã mở: repository và bộ cấp phát mã đều lưu trong kho
+     */
+    public void useLogStructuredStorage(LogStructuredDatabase database) {
+        setRepositories(new LogStructuredDocumentRepository(database),
+                        new LogStructuredUserRepository(database),
+                        new LogStructuredLoanTransactionRepository(database),
+                        new LogStructuredReviewRepository(database));
+        setIdAllocators(database.idAllocator("DOC"),
+                        database.idAllocator("USER"),
+                        database.idAllocator("TXN"),
+                        database.idAllocator("REV"));
+    }
+    
+    /**
+     * Kiểm tra ứng dụng có được cấu hình chạy với kho dữ liệu trong bộ nhớ (-Dlibrary.repository=memory)
+     */
+    public static boolean isInMemoryMode() {
+        return "memory".equalsIgnoreCase(System.getProperty(REPOSITORY_PROPERTY));
+    }
+    
+    /**
+     * Kiểm tra ứng dụng có được cấu hình chạy với kho nhật ký trên đĩa (-Dlibrary.repository=log)
+     */
+    public static boolean isLogStructuredMode() {
+        return "log".equalsIgnoreCase(System.getProperty(REPOSITORY_PROPERTY));
+    }
+    
+    /**
+     * Lấy số liệu bộ nhớ đệm của các repository đang dùng bộ nhớ đệm (tên -> thống kê)
+     */
+    public Map<String, EntityCache.Stats> getCacheStatistics() {
+        Map<String, EntityCache.Stats> stats = new LinkedHashMap<>();
+        if (documentRepository instanceof CachingDocumentRepository) {
+            stats.put("documents", ((CachingDocumentRepository) documentRepository).getCacheStats());
+        }
+        if (userRepository instanceof CachingUserRepository) {
+            stats.put("users", ((CachingUserRepository) userRepository).getCacheStats());
+        }
+        if (transactionRepository instanceof CachingLoanTransactionRepository) {
+            stats.put("transactions", ((CachingLoanTransactionRepository) transactionRepository).getCacheStats());
+        }
+        if (reviewRepository instanceof CachingReviewRepository) {
+            stats.put("reviews", ((CachingReviewRepository) reviewRepository).getCacheStats());
+        }
+        return stats;
     }
     
 
@@ -122,45 +463,81 @@ public class Library {
         }
         
         if (document.getId() == null || document.getId().isEmpty()) {
-            document.setId("DOC" + String.format("%04d", nextDocumentId++));
+            String documentId = documentIds.nextId();
+            if (documentId == null) {
+                return false;
+            }
+            document.setId(documentId);
         }
         
         if (documentRepository.findById(document.getId()) != null) {
             return false;
         }
         
-        return documentRepository.save(document);
+        if (!documentRepository.save(document)) {
+            return false;
+        }
+        statistics.documentAdded(document);
+        eventBus.publish(LibraryEvent.document(LibraryEvent.Type.DOCUMENT_ADDED, document.getId()));
+        if (searchIndexBuilt) {
+            searchIndex.index(document);
+            keyIndex.index(document);
+        }
+        return true;
     }
     
     /**
      * Xóa một tài liệu khỏi thư viện
      */
     public boolean removeDocument(String documentId) {
-        if (documentId == null || documentRepository.findById(documentId) == null) {
+        Document document = documentId != null ? documentRepository.findById(documentId) : null;
+        if (document == null) {
             return false;
         }
         
         if (isDocumentBorrowed(documentId)) {
             return false;
         }
-        List<Review> documentReviews = reviewRepository.findByDocumentId(documentId);
-        for (Review review : documentReviews) {
-            reviewRepository.delete(review.getId());
-        }
+        statistics.reviewsRemoved(deleteReviews(reviewRepository.findByDocumentId(documentId)));
         
-        return documentRepository.delete(documentId);
+        if (!documentRepository.delete(documentId)) {
+            return false;
+        }
+        statistics.documentRemoved(document);
+        eventBus.publish(LibraryEvent.document(LibraryEvent.Type.DOCUMENT_REMOVED, documentId));
+        searchIndex.remove(documentId);
+        keyIndex.remove(documentId);
+        return true;
     }
     
     /**
      * Cập nhật thông tin tài liệu
      */
     public boolean updateDocument(Document document) {
-        if (document == null || document.getId() == null || 
-            documentRepository.findById(document.getId()) == null) {
+        if (document == null || document.getId() == null) {
+            return false;
+        }
+        Document previous = documentRepository.findById(document.getId());
+        if (previous == null) {
             return false;
         }
         
-        return documentRepository.update(document);
+        if (!documentRepository.update(document)) {
+            return false;
+        }
+        if (previous != document) {
+            // Repository trả về bản sao nên previous là dòng trước khi sửa
+            statistics.documentRemoved(previous);
+            statistics.documentAdded(document);
+        } else {
+            statistics.markStale();
+        }
+        eventBus.publish(LibraryEvent.document(LibraryEvent.Type.DOCUMENT_UPDATED, document.getId()));
+        if (searchIndexBuilt) {
+            searchIndex.index(document);
+            keyIndex.index(document);
+        }
+        return true;
     }
     
     /**
@@ -170,6 +547,13 @@ public class Library {
         return documentRepository.findById(documentId);
     }
     
+    /**
+     * Lấy nhiều tài liệu theo danh sách ID (ID -> tài liệu)
+     */
+    public Map<String, Document> getDocuments(Collection<String> documentIds) {
+        return documentRepository.findByIds(documentIds);
+    }
+    
     /**
      * Lấy tất cả tài liệu
      */
@@ -177,6 +561,28 @@ public class Library {
         return documentRepository.findAll();
     }
     
+    /**
+     * Đọc dần tất cả tài liệu (dùng cho xuất dữ liệu, thống kê); phải đóng Stream sau khi dùng.
+     * Có thể bọc bằng StreamPublisher để nhận dạng Flow.Publisher có backpressure
+     */
+    public Stream<Document> streamAllDocuments() {
+        return documentRepository.streamAll();
+    }
+    
+    /**
+     * Đọc một trang tài liệu (phân trang theo khóa, sắp xếp và lọc phía cơ sở dữ liệu)
+     */
+    public Page<Document> getDocumentPage(PageRequest request) {
+        return documentRepository.findPage(request);
+    }
+    
+    /**
+     * Đếm số tài liệu khớp bộ lọc của yêu cầu trang
+     */
+    public int countDocuments(PageRequest request) {
+        return documentRepository.count(request);
+    }
+    
     /**
      * Tìm kiếm tài liệu theo tiêu đề
      */
@@ -198,6 +604,83 @@ public class Library {
         return documentRepository.findByGenre(genre);
     }
     
+    /**
+     * Tìm kiếm tài liệu bằng chỉ mục đảo ngược trong bộ nhớ.
+     * Mọi từ khóa phải khớp (AND), mỗi từ khóa khớp theo tiền tố, không phân biệt hoa thường và dấu tiếng Việt.
+     * @param query chuỗi tìm kiếm
+     * @param field trường cần tìm (ALL để tìm trên tiêu đề, tác giả, thể loại, mô tả, nhà xuất bản và ISBN)
+     * @return danh sách tài liệu khớp, sắp xếp theo tiêu đề
+     */
+    public List<Document> searchDocuments(String query, DocumentSearchIndex.Field field) {
+        ensureSearchIndex();
+        Set<String> ids = searchIndex.search(query, field);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        List<Document> results = new ArrayList<>(documentRepository.findByIds(ids).values());
+        results.sort(Comparator.comparing(Document::getTitle, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        return results;
+    }
+    
+    /**
+     * Tìm tài liệu trùng với tiêu đề, tác giả và ISBN cho trước (so sánh theo khóa chuẩn hóa:
+     * không phân biệt hoa thường, dấu, khoảng trắng thừa; ISBN-10 và ISBN-13 tương đương).
+     * Chỉ mục băm trong bộ nhớ (nếu đã xây dựng) chỉ dùng để trả lời nhanh khi có trùng; nếu không thấy thì
+     * luôn kiểm tra các cột khóa có chỉ mục trong cơ sở dữ liệu, để thấy cả tài liệu do quầy khác thêm sau khi khởi động.
+     * @return tài liệu trùng đầu tiên, hoặc null nếu không có
+     */
+    public Document findDuplicateDocument(String title, String author, String isbn) {
+        String isbnKey = DocumentKeys.normalizeIsbn(isbn);
+        String titleAuthorKey = DocumentKeys.titleAuthorKey(title, author);
+        if (searchIndexBuilt) {
+            for (String id : keyIndex.findDuplicates(title, author, isbn)) {
+                Document document = documentRepository.findById(id);
+                if (document != null && isSameDocument(document, titleAuthorKey, isbnKey)) {
+                    return document;
+                }
+            }
+        }
+        
+        List<Document> candidates = isbnKey != null
+                ? documentRepository.findByIsbn(isbnKey)
+                : documentRepository.findByTitleAuthorKey(titleAuthorKey);
+        for (Document document : candidates) {
+            if (isSameDocument(document, titleAuthorKey, isbnKey)) {
+                return document;
+            }
+        }
+        return null;
+    }
+    
+    private static boolean isSameDocument(Document document, String titleAuthorKey, String isbnKey) {
+        return titleAuthorKey.equals(DocumentKeys.titleAuthorKey(document.getTitle(), document.getAuthor()))
+                && Objects.equals(isbnKey, DocumentKeys.normalizeIsbn(document.getIsbn()));
+    }
+    
+    /**
+     * Xây dựng lại chỉ mục tìm kiếm từ cơ sở dữ liệu (ví dụ sau khi dữ liệu bị sửa từ nơi khác)
+     */
+    public synchronized void rebuildSearchIndex() {
+        List<Document> documents = documentRepository.findAll();
+        searchIndex.rebuild(documents);
+        keyIndex.rebuild(documents);
+        searchIndexBuilt = true;
+    }
+    
+    /**
+     * Xây dựng chỉ mục tìm kiếm ở lần tìm kiếm đầu tiên
+     */
+    private void ensureSearchIndex() {
+        if (!searchIndexBuilt) {
+            synchronized (this) {
+                if (!searchIndexBuilt) {
+                    rebuildSearchIndex();
+                }
+            }
+        }
+    }
+    
     /**
      * Lấy các tài liệu có sẵn
      */
@@ -221,14 +704,23 @@ public class Library {
         }
         
         if (user.getId() == null || user.getId().isEmpty()) {
-            user.setId("USER" + String.format("%04d", nextUserId++));
+            String userId = userIds.nextId();
+            if (userId == null) {
+                return false;
+            }
+            user.setId(userId);
         }
         
         if (userRepository.findById(user.getId()) != null) {
             return false;
         }
         
-        return userRepository.save(user);
+        if (!userRepository.save(user)) {
+            return false;
+        }
+        statistics.userAdded(user);
+        eventBus.publish(LibraryEvent.user(LibraryEvent.Type.USER_ADDED, user.getId()));
+        return true;
     }
     
     /**
@@ -250,29 +742,68 @@ public class Library {
             return false;
         }
         List<LoanTransaction> allUserTransactions = transactionRepository.findByUserId(userId);
+        int deletedTransactions = 0;
         for (LoanTransaction transaction : allUserTransactions) {
-            transactionRepository.delete(transaction.getId());
+            if (transactionRepository.delete(transaction.getId())) {
+                deletedTransactions++;
+                eventBus.publish(LibraryEvent.loan(LibraryEvent.Type.LOAN_REMOVED, transaction.getId(),
+                                                   transaction.getDocumentId(), userId));
+            }
+            overdueSweeper.cancel(transaction.getId());
         }
+        statistics.loansDeleted(deletedTransactions);
         
 
-        List<Review> userReviews = reviewRepository.findByUserId(userId);
-        for (Review review : userReviews) {
-            reviewRepository.delete(review.getId());
-        }
+        statistics.reviewsRemoved(deleteReviews(reviewRepository.findByUserId(userId)));
         
-        return userRepository.delete(userId);
+        userRepository.clearFavoriteGenres(userId);
+        if (!userRepository.delete(userId)) {
+            return false;
+        }
+        statistics.userRemoved(user);
+        eventBus.publish(LibraryEvent.user(LibraryEvent.Type.USER_REMOVED, userId));
+        return true;
+    }
+    
+    /**
+     * Xóa các đánh giá cho trước
+     * @return số đánh giá đã xóa
+     */
+    private int deleteReviews(List<Review> reviews) {
+        int deleted = 0;
+        for (Review review : reviews) {
+            if (reviewRepository.delete(review.getId())) {
+                deleted++;
+                eventBus.publish(LibraryEvent.review(LibraryEvent.Type.REVIEW_REMOVED, review.getId(),
+                                                     review.getDocumentId(), review.getUserId()));
+            }
+        }
+        return deleted;
     }
     
     /**
      * Cập nhật thông tin người dùng
      */
     public boolean updateUser(User user) {
-        if (user == null || user.getId() == null || 
-            userRepository.findById(user.getId()) == null) {
+        if (user == null || user.getId() == null) {
+            return false;
+        }
+        User previous = userRepository.findById(user.getId());
+        if (previous == null) {
             return false;
         }
         
-        return userRepository.update(user);
+        if (!userRepository.update(user)) {
+            return false;
+        }
+        if (previous != user) {
+            statistics.userRemoved(previous);
+            statistics.userAdded(user);
+        } else {
+            statistics.markStale();
+        }
+        eventBus.publish(LibraryEvent.user(LibraryEvent.Type.USER_UPDATED, user.getId()));
+        return true;
     }
     
     /**
@@ -282,6 +813,13 @@ public class Library {
         return userRepository.findById(userId);
     }
     
+    /**
+     * Lấy nhiều người dùng theo danh sách ID (ID -> người dùng)
+     */
+    public Map<String, User> getUsers(Collection<String> userIds) {
+        return userRepository.findByIds(userIds);
+    }
+    
     /**
      * Lấy tất cả người dùng
      */
@@ -289,6 +827,37 @@ public class Library {
         return userRepository.findAll();
     }
     
+    /**
+     * Lấy những người dùng đang mượn nhiều tài liệu nhất (truy vấn theo bộ đếm có chỉ mục)
+     * @param limit số người dùng tối đa
+     */
+    public List<User> getTopBorrowers(int limit) {
+        return userRepository.findTopBorrowers(limit);
+    }
+    
+    /**
+     * Lấy những số dư phạt chưa thanh toán lớn nhất (đọc cột đã cộng dồn qua chỉ mục)
+     * @param limit số người dùng tối đa
+     * @return mã người dùng -> số dư, giảm dần theo số dư
+     */
+    public Map<String, Double> getOutstandingFines(int limit) {
+        return userRepository.findOutstandingFines(limit);
+    }
+    
+    /**
+     * Tổng tiền phạt chưa thanh toán của toàn thư viện
+     */
+    public double getTotalOutstandingFines() {
+        return userRepository.getTotalOutstandingFines();
+    }
+    
+    /**
+     * Đọc dần tất cả người dùng; phải đóng Stream sau khi dùng
+     */
+    public Stream<User> streamAllUsers() {
+        return userRepository.streamAll();
+    }
+    
     /**
      * Tìm kiếm người dùng theo tên
      */
@@ -296,6 +865,40 @@ public class Library {
         return userRepository.findByName(name);
     }
     
+    /**
+     * Thêm thể loại yêu thích cho người dùng
+     */
+    public boolean addFavoriteGenre(String userId, String genre) {
+        if (userId == null || genre == null || genre.trim().isEmpty()) {
+            return false;
+        }
+        return userRepository.addFavoriteGenre(userId, genre.trim());
+    }
+    
+    /**
+     * Xóa thể loại yêu thích của người dùng
+     */
+    public boolean removeFavoriteGenre(String userId, String genre) {
+        if (userId == null || genre == null) {
+            return false;
+        }
+        return userRepository.removeFavoriteGenre(userId, genre.trim());
+    }
+    
+    /**
+     * Lấy những người dùng yêu thích một thể loại (ví dụ để thông báo khi có tài liệu mới thuộc thể loại đó).
+     * Mã người dùng đọc từ chỉ mục ngược thể loại -> người dùng, sau đó nạp người dùng bằng một truy vấn theo lô.
+     */
+    public List<User> getUsersInterestedInGenre(String genre) {
+        Set<String> userIds = userRepository.findUserIdsByFavoriteGenre(genre);
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<User> users = new ArrayList<>(userRepository.findByIds(userIds).values());
+        users.sort(Comparator.comparing(User::getName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+        return users;
+    }
+    
     /**
      * Kiểm tra xem người dùng có thể bị xóa không 
      */
@@ -311,52 +914,137 @@ public class Library {
     }
     
     /**
-     * Mượn một tài liệu
+     * Mượn một tài liệu.
+     * Kiểm tra giới hạn, giảm số lượng và ghi giao dịch diễn ra nguyên tử trong repository,
+     * nên hai quầy mượn cùng bản cuối cùng sẽ chỉ có một quầy thành công.
+     * Khi mất kết nối MySQL, chỉ mượn được nếu người dùng và tài liệu còn trong bộ đệm và khối mã
+     * giao dịch đang giữ còn số (xem phạm vi của WriteJournal); ngược lại trả về null.
      */
     public String borrowDocument(String userId, String documentId) {
         User user = userRepository.findById(userId);
         Document document = documentRepository.findById(documentId);
         
-        if (user == null || document == null) {
+        if (!canBorrow(user, document)) {
             return null;
         }
-        
-        if (!user.isActive() || !user.canBorrowMore()) {
-            return null;
+        return createLoan(userId, documentId);
+    }
+    
+    /**
+     * Mượn tài liệu bất đồng bộ: người dùng và tài liệu được đọc đồng thời,
+     * sau đó giao dịch được ghi như borrowDocument
+     * @return future hoàn thành với mã giao dịch, hoặc null nếu không mượn được
+     */
+    public CompletableFuture<String> borrowDocumentAsync(String userId, String documentId) {
+        CompletableFuture<User> user = asyncUserRepository.findByIdAsync(userId);
+        CompletableFuture<Document> document = asyncDocumentRepository.findByIdAsync(documentId);
+        return user.thenCombine(document, this::canBorrow)
+                   .thenCompose(allowed -> allowed
+                           ? RepositoryExecutor.getShared().supply(() -> createLoan(userId, documentId))
+                           : CompletableFuture.completedFuture(null));
+    }
+    
+    /**
+     * Kiểm tra người dùng còn hoạt động, chưa vượt giới hạn và tài liệu còn bản để mượn
+     */
+    private boolean canBorrow(User user, Document document) {
+        if (user == null || document == null) {
+            return false;
         }
-        
-        boolean canBorrow = document.isAvailable();
-        
-        if (!canBorrow) {
+        return user.isActive() && user.canBorrowMore() && document.isAvailable();
+    }
+    
+    /**
+     * Cấp mã và ghi giao dịch mượn (repository kiểm tra lại điều kiện trong cùng giao dịch)
+     * @return mã giao dịch, hoặc null nếu không thành công
+     */
+    private String createLoan(String userId, String documentId) {
+        String transactionId = transactionIds.nextId();
+        if (transactionId == null) {
             return null;
         }
-        String transactionId = "TXN" + String.format("%04d", nextTransactionId++);
         LoanTransaction transaction = new LoanTransaction(transactionId, userId, documentId, defaultLoanDays);
         
-        user.borrowDocument(documentId);
-        document.borrowOne();
-        userRepository.update(user);
-        documentRepository.updateQuantity(documentId, document.getAvailableQuantity());
-        transactionRepository.save(transaction);
+        if (!transactionRepository.borrow(transaction)) {
+            return null;
+        }
+        overdueSweeper.schedule(transaction);
+        statistics.loanCreated();
+        recordAvailability(documentId, false);
+        eventBus.publish(LibraryEvent.loan(LibraryEvent.Type.LOAN_CREATED, transactionId, documentId, userId));
         
         return transactionId;
     }
     
     /**
-     * Trả lại một tài liệu
+     * Trả lại một tài liệu.
+     * Việc đóng giao dịch và hoàn lại số lượng diễn ra nguyên tử; lần trả thứ hai
+     * cho cùng giao dịch sẽ thất bại thay vì cộng số lượng hai lần.
      */
     public boolean returnDocument(String transactionId) {
         LoanTransaction transaction = transactionRepository.findById(transactionId);
-        if (transaction == null || 
-            (transaction.getStatus() != LoanTransaction.TransactionStatus.ACTIVE && 
-             transaction.getStatus() != LoanTransaction.TransactionStatus.RENEWED)) {
+        boolean wasOverdue = isMarkedOverdue(transaction);
+        if (!prepareReturn(transaction)) {
             return false;
         }
-        
-        User user = userRepository.findById(transaction.getUserId());
-        Document document = documentRepository.findById(transaction.getDocumentId());
-        
-        if (user == null || document == null) {
+        return afterReturn(transaction, wasOverdue, transactionRepository.completeReturn(transaction));
+    }
+    
+    /**
+     * Trả tài liệu bất đồng bộ (cùng quy tắc với returnDocument)
+     */
+    public CompletableFuture<Boolean> returnDocumentAsync(String transactionId) {
+        return asyncTransactionRepository.findByIdAsync(transactionId)
+                .thenCompose(transaction -> {
+                    boolean wasOverdue = isMarkedOverdue(transaction);
+                    return prepareReturn(transaction)
+                            ? asyncTransactionRepository.completeReturnAsync(transaction)
+                                    .thenApply(returned -> afterReturn(transaction, wasOverdue, returned))
+                            : CompletableFuture.completedFuture(false);
+                });
+    }
+    
+    /**
+     * Giao dịch chưa trả đã được bộ quét chuyển sang OVERDUE (được tính trong số giao dịch quá hạn)
+     */
+    private static boolean isMarkedOverdue(LoanTransaction transaction) {
+        return transaction != null && transaction.isOpen()
+                && transaction.getStatus() == LoanTransaction.TransactionStatus.OVERDUE;
+    }
+    
+    /**
+     * Bỏ giao dịch đã trả khỏi bộ quét quá hạn, cập nhật bộ đếm thống kê và phát sự kiện trả
+     */
+    private boolean afterReturn(LoanTransaction transaction, boolean wasOverdue, boolean returned) {
+        if (returned) {
+            overdueSweeper.cancel(transaction.getId());
+            if (wasOverdue) {
+                statistics.overdueLoanReturned();
+            }
+            recordAvailability(transaction.getDocumentId(), true);
+            eventBus.publish(LibraryEvent.loan(LibraryEvent.Type.LOAN_RETURNED, transaction.getId(),
+                                               transaction.getDocumentId(), transaction.getUserId()));
+        }
+        return returned;
+    }
+    
+    /**
+     * Ghi nhận tài liệu vừa hết bản sau khi mượn (còn 0) hoặc vừa có lại bản sau khi trả (còn 1).
+     * Đọc lại theo khóa chính sau khi ghi; sai lệch do các lượt mượn/trả đồng thời được sửa ở lần đối soát sau
+     */
+    private void recordAvailability(String documentId, boolean returned) {
+        Document document = documentRepository.findById(documentId);
+        if (document != null && document.getAvailableQuantity() == (returned ? 1 : 0)) {
+            statistics.availabilityChanged(returned);
+        }
+    }
+    
+    /**
+     * Kiểm tra giao dịch còn đang mượn, tính tiền phạt nếu quá hạn và đánh dấu đã trả
+     * @return false nếu giao dịch không tồn tại hoặc đã đóng
+     */
+    private boolean prepareReturn(LoanTransaction transaction) {
+        if (transaction == null || !transaction.isOpen()) {
             return false;
         }
         
@@ -366,29 +1054,33 @@ public class Library {
         }
         
         transaction.returnDocument();
-        user.returnDocument(transaction.getDocumentId());
-        document.returnOne();
-        transactionRepository.update(transaction);
-        userRepository.update(user);
-        documentRepository.updateQuantity(document.getId(), document.getAvailableQuantity());
-        
         return true;
     }
     
     /**
-     * Gia hạn thời gian mượn
+     * Gia hạn thời gian mượn.
+     * Dùng kiểm soát đồng thời lạc quan trên số lần gia hạn; nếu giao dịch bị thay đổi
+     * đồng thời thì đọc lại và thử lại vài lần.
      */
     public boolean renewLoan(String transactionId) {
-        LoanTransaction transaction = transactionRepository.findById(transactionId);
-        if (transaction == null) {
-            return false;
-        }
-        
-        boolean renewed = transaction.renew(defaultLoanDays);
-        if (renewed) {
-            transactionRepository.update(transaction);
+        for (int attempt = 0; attempt < MAX_RENEW_ATTEMPTS; attempt++) {
+            LoanTransaction transaction = transactionRepository.findById(transactionId);
+            if (transaction == null) {
+                return false;
+            }
+            
+            int expectedRenewalCount = transaction.getRenewalCount();
+            if (!transaction.renew(defaultLoanDays)) {
+                return false;
+            }
+            if (transactionRepository.renew(transaction, expectedRenewalCount)) {
+                overdueSweeper.schedule(transaction);
+                eventBus.publish(LibraryEvent.loan(LibraryEvent.Type.LOAN_RENEWED, transactionId,
+                                                   transaction.getDocumentId(), transaction.getUserId()));
+                return true;
+            }
         }
-        return renewed;
+        return false;
     }
     
     /**
@@ -412,6 +1104,17 @@ public class Library {
         return transactionRepository.findOverdueTransactions();
     }
     
+    /**
+     * Lấy giao dịch theo ID (tra cứu theo khóa chính, đi qua bộ đệm)
+     * @return giao dịch, hoặc null nếu không tồn tại
+     */
+    public LoanTransaction getTransaction(String transactionId) {
+        if (transactionId == null) {
+            return null;
+        }
+        return transactionRepository.findById(transactionId);
+    }
+    
     /**
      * Lấy tất cả các lượt đang được mượn
      */
@@ -419,6 +1122,38 @@ public class Library {
         return transactionRepository.findAll();
     }
     
+    /**
+     * Đọc dần tất cả giao dịch (mới nhất trước); phải đóng Stream sau khi dùng
+     */
+    public Stream<LoanTransaction> streamAllTransactions() {
+        return transactionRepository.streamAll();
+    }
+    
+    /**
+     * Lấy bản chiếu hiển thị của một giao dịch (ba lần tra cứu theo khóa chính, đi qua bộ đệm),
+     * dùng khi cập nhật một dòng của bảng mượn/trả
+     * @return bản chiếu, hoặc null nếu giao dịch không tồn tại
+     */
+    public LoanView getLoanView(String transactionId) {
+        LoanTransaction t = getTransaction(transactionId);
+        if (t == null) {
+            return null;
+        }
+        User user = userRepository.findById(t.getUserId());
+        Document document = documentRepository.findById(t.getDocumentId());
+        return new LoanView(t.getId(), t.getUserId(), user != null ? user.getName() : null,
+                t.getDocumentId(), document != null ? document.getTitle() : null,
+                t.getBorrowDate(), t.getDueDate(), t.getReturnDate(), t.getStatus(),
+                t.getFineAmount(), t.getRenewalCount(), t.getMaxRenewals());
+    }
+    
+    /**
+     * Lấy bản chiếu hiển thị của các giao dịch theo bộ lọc (một truy vấn JOIN)
+     */
+    public List<LoanView> getLoanViews(LoanView.Filter filter) {
+        return transactionRepository.findLoanViews(filter);
+    }
+    
     /**
      * Thêm một đánh giá
      */
@@ -431,10 +1166,46 @@ public class Library {
             return false;
         }
         
-        String reviewId = "REV" + String.format("%04d", nextReviewId++);
+        String reviewId = reviewIds.nextId();
+        if (reviewId == null) {
+            return false;
+        }
         
         Review review = new Review(reviewId, userId, documentId, rating, comment);
-        return reviewRepository.save(review);
+        if (!reviewRepository.save(review)) {
+            return false;
+        }
+        statistics.reviewAdded();
+        eventBus.publish(LibraryEvent.review(LibraryEvent.Type.REVIEW_ADDED, reviewId, documentId, userId));
+        return true;
+    }
+    
+    /**
+     * Lấy đánh giá theo ID
+     */
+    public Review getReview(String reviewId) {
+        return reviewRepository.findById(reviewId);
+    }
+    
+    /**
+     * Lấy nhiều đánh giá theo danh sách ID (ID -> đánh giá)
+     */
+    public Map<String, Review> getReviews(Collection<String> reviewIds) {
+        return reviewRepository.findByIds(reviewIds);
+    }
+    
+    /**
+     * Lấy tất cả đánh giá (mới nhất trước)
+     */
+    public List<Review> getAllReviews() {
+        return reviewRepository.findAll();
+    }
+    
+    /**
+     * Đọc dần tất cả đánh giá; phải đóng Stream sau khi dùng
+     */
+    public Stream<Review> streamAllReviews() {
+        return reviewRepository.streamAll();
     }
     
     /**
@@ -451,6 +1222,20 @@ public class Library {
         return reviewRepository.getAverageRating(documentId);
     }
     
+    /**
+     * Lấy số lượng đánh giá cho một tài liệu
+     */
+    public int getDocumentReviewCount(String documentId) {
+        return reviewRepository.getReviewCount(documentId);
+    }
+    
+    /**
+     * Lấy tổng hợp điểm đánh giá của mọi tài liệu có đánh giá (mã tài liệu -> tổng hợp)
+     */
+    public Map<String, RatingAggregate> getRatingAggregates() {
+        return reviewRepository.getRatingAggregates();
+    }
+    
     /**
      * Đánh dấu một đánh giá là hữu ích (tăng số lượt bình chọn hữu ích)
      */
@@ -461,7 +1246,12 @@ public class Library {
         }
         
         review.addHelpfulVote();
-        return reviewRepository.update(review);
+        if (!reviewRepository.update(review)) {
+            return false;
+        }
+        eventBus.publish(LibraryEvent.review(LibraryEvent.Type.REVIEW_UPDATED, reviewId,
+                                             review.getDocumentId(), review.getUserId()));
+        return true;
     }
     
     /**
@@ -481,46 +1271,161 @@ public class Library {
             recommended.addAll(genreDocuments);
         }
         
-        return recommended.stream()
-                .distinct()
-                .sorted((d1, d2) -> Double.compare(getDocumentAverageRating(d2.getId()), 
-                                                 getDocumentAverageRating(d1.getId())))
-                .limit(10)
-                .collect(Collectors.toList());
+        return getTopRatedDocuments(recommended.stream().distinct().collect(Collectors.toList()), 10);
     }
     
     /**
      * Lấy các tài liệu phổ biến (được đánh giá cao nhất)
      */
     public List<Document> getPopularDocuments() {
-        return documentRepository.findAvailable().stream()
-                .sorted((d1, d2) -> Double.compare(getDocumentAverageRating(d2.getId()), 
-                                                 getDocumentAverageRating(d1.getId())))
-                .limit(10)
-                .collect(Collectors.toList());
+        return getTopRatedDocuments(documentRepository.findAvailable(), 10);
     }
     
     /**
-     * Lấy thống kê thư viện
+     * Chọn k tài liệu có điểm trung bình cao nhất trong một lượt duyệt, dùng heap giới hạn k phần tử.
+     * Điểm được đọc từ bảng tổng hợp nạp sẵn nên không phát sinh truy vấn trong lúc so sánh.
+     * Các tài liệu bằng điểm giữ nguyên thứ tự xuất hiện trong danh sách đầu vào.
+     * @param candidates danh sách tài liệu ứng viên
+     * @param k số tài liệu cần lấy
+     * @return tối đa k tài liệu, điểm cao nhất trước
+     */
+    public List<Document> getTopRatedDocuments(List<Document> candidates, int k) {
+        if (candidates == null || candidates.isEmpty() || k <= 0) {
+            return new ArrayList<>();
+        }
+        
+        Map<String, RatingAggregate> aggregates = reviewRepository.getRatingAggregates();
+        
+        // Thứ tự "kém hơn": điểm thấp hơn, hoặc bằng điểm nhưng xuất hiện muộn hơn
+        Comparator<RankedDocument> worstFirst = Comparator
+                .comparingDouble((RankedDocument r) -> r.rating)
+                .thenComparing(Comparator.comparingInt((RankedDocument r) -> r.position).reversed());
+        PriorityQueue<RankedDocument> heap = new PriorityQueue<>(Math.min(k, candidates.size()) + 1, worstFirst);
+        
+        for (int i = 0; i < candidates.size(); i++) {
+            Document document = candidates.get(i);
+            RatingAggregate aggregate = aggregates.get(document.getId());
+            double rating = aggregate != null ? aggregate.getAverageRating() : 0.0;
+            RankedDocument ranked = new RankedDocument(document, rating, i);
+            
+            if (heap.size() < k) {
+                heap.offer(ranked);
+            } else if (worstFirst.compare(ranked, heap.peek()) > 0) {
+                heap.poll();
+                heap.offer(ranked);
+            }
+        }
+        
+        List<RankedDocument> top = new ArrayList<>(heap);
+        top.sort(worstFirst.reversed());
+        return top.stream().map(r -> r.document).collect(Collectors.toList());
+    }
+    
+    /**
+     * Tài liệu kèm điểm và vị trí ban đầu, dùng khi xếp hạng top-k
+     */
+    private static final class RankedDocument {
+        private final Document document;
+        private final double rating;
+        private final int position;
+        
+        private RankedDocument(Document document, double rating, int position) {
+            this.document = document;
+            this.rating = rating;
+            this.position = position;
+        }
+    }
+    
+    /**
+     * Lấy thống kê thư viện từ bộ đếm trong bộ nhớ (không truy vấn cơ sở dữ liệu, trừ lần nạp đầu tiên)
      */
     public Map<String, Object> getLibraryStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        List<Document> allDocuments = documentRepository.findAll();
-        List<Document> availableDocuments = documentRepository.findAvailable();
-        List<User> allUsers = userRepository.findAll();
-        List<LoanTransaction> allTransactions = transactionRepository.findAll();
-        List<LoanTransaction> overdueTransactions = transactionRepository.findOverdueTransactions();
-        
-        stats.put("totalDocuments", allDocuments.size());
-        stats.put("availableDocuments", availableDocuments.size());
-        stats.put("borrowedDocuments", allDocuments.size() - availableDocuments.size());
-        stats.put("totalUsers", allUsers.size());
-        stats.put("activeUsers", allUsers.stream().filter(User::isActive).count());
-        stats.put("totalTransactions", allTransactions.size());
-        stats.put("overdueTransactions", overdueTransactions.size());
-        stats.put("totalReviews", reviewRepository.findAll().size());
+        ensureStatistics();
+        return statistics.asMap();
+    }
+    
+    /**
+     * Lấy thống kê thư viện bất đồng bộ: hoàn thành ngay nếu bộ đếm đã nạp,
+     * nếu chưa thì hoàn thành khi các truy vấn của lần nạp đầu tiên (chạy song song) xong
+     */
+    public CompletableFuture<Map<String, Object>> getLibraryStatisticsAsync() {
+        if (statistics.isLoaded()) {
+            return CompletableFuture.completedFuture(getLibraryStatistics());
+        }
+        return reconcileStatisticsAsync().thenApply(reconciled -> statistics.asMap());
+    }
+    
+    /**
+     * Số tài liệu theo thể loại (từ bộ đếm trong bộ nhớ)
+     */
+    public Map<String, Long> getDocumentCountsByGenre() {
+        ensureStatistics();
+        return statistics.getDocumentsByGenre();
+    }
+    
+    /**
+     * Số người dùng theo nhóm (từ bộ đếm trong bộ nhớ)
+     */
+    public Map<User.UserType, Long> getUserCountsByType() {
+        ensureStatistics();
+        return statistics.getUsersByType();
+    }
+    
+    /**
+     * Đối soát bộ đếm thống kê với cơ sở dữ liệu, chờ đến khi xong (xem reconcileStatisticsAsync)
+     * @return false nếu truy vấn lỗi hoặc có thay đổi được ghi nhận trong lúc đếm (bộ đếm giữ nguyên)
+     */
+    public boolean reconcileStatistics() {
+        return reconcileStatisticsAsync().join();
+    }
+    
+    /**
+     * Đối soát bộ đếm thống kê bằng các truy vấn COUNT/GROUP BY trên chỉ mục. Các truy vấn được gửi
+     * cùng lúc qua các repository bất đồng bộ, nên thời gian chờ là của truy vấn chậm nhất
+     * @return future hoàn thành với false nếu truy vấn lỗi hoặc có thay đổi trong lúc đếm
+     */
+    public CompletableFuture<Boolean> reconcileStatisticsAsync() {
+        long version = statistics.beginReconcile();
+        CompletableFuture<Map<String, Integer>> genreCounts = asyncDocumentRepository.countByGenreAsync();
+        CompletableFuture<Integer> available = asyncDocumentRepository.countAvailableAsync();
+        CompletableFuture<Map<User.UserType, Integer>> typeCounts = asyncUserRepository.countByTypeAsync();
+        CompletableFuture<Integer> active = asyncUserRepository.countActiveAsync();
+        CompletableFuture<Integer> transactions = asyncTransactionRepository.countAllAsync();
+        CompletableFuture<Integer> overdue = asyncTransactionRepository.countOverdueAsync();
+        CompletableFuture<Map<String, RatingAggregate>> aggregates = asyncReviewRepository.getRatingAggregatesAsync();
         
-        return stats;
+        return CompletableFuture.allOf(genreCounts, available, typeCounts, active, transactions, overdue, aggregates)
+                .thenApply(done -> {
+                    if (genreCounts.join() == null || typeCounts.join() == null || aggregates.join() == null
+                            || available.join() < 0 || active.join() < 0
+                            || transactions.join() < 0 || overdue.join() < 0) {
+                        return false;
+                    }
+                    long reviews = 0;
+                    for (RatingAggregate aggregate : aggregates.join().values()) {
+                        reviews += aggregate.getReviewCount();
+                    }
+                    return statistics.reconcile(version, genreCounts.join(), available.join(), typeCounts.join(),
+                                                active.join(), transactions.join(), overdue.join(), reviews);
+                })
+                .exceptionally(e -> {
+                    System.err.println("Error reconciling statistics: " + e.getMessage());
+                    return false;
+                });
+    }
+    
+    /**
+     * Nạp bộ đếm ở lần đọc đầu tiên; sau đó đối soát trên luồng nền khi bộ đếm cũ hơn
+     * STATISTICS_RECONCILE_MILLIS hoặc bị đánh dấu (mỗi lúc chỉ một lần đối soát)
+     */
+    private void ensureStatistics() {
+        if (!statistics.isLoaded()) {
+            reconcileStatistics();
+            return;
+        }
+        if (statistics.needsReconcile(STATISTICS_RECONCILE_MILLIS) && statisticsReconciling.compareAndSet(false, true)) {
+            // Không chặn luồng nào: cờ được bỏ khi các truy vấn xong
+            reconcileStatisticsAsync().whenComplete((reconciled, error) -> statisticsReconciling.set(false));
+        }
     }
 }
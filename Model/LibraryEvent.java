@@ -0,0 +1,101 @@
+/**
+ * Sự kiện thay đổi dữ liệu do Library phát sau mỗi thao tác ghi thành công.
+ * Sự kiện chỉ mang mã của thực thể bị thay đổi (và mã tài liệu/người dùng liên quan nếu biết),
+ * không mang bản sao dữ liệu: bên nhận đọc lại đúng dòng cần thiết theo khóa chính.
+ * Đối tượng bất biến.
+ */
+public final class LibraryEvent {
+
+    /**
+     * Loại thay đổi
+     */
+    public enum Type {
+        DOCUMENT_ADDED,
+        DOCUMENT_UPDATED,
+        DOCUMENT_REMOVED,
+        USER_ADDED,
+        USER_UPDATED,
+        USER_REMOVED,
+        LOAN_CREATED,       // Mượn: số lượng còn lại của tài liệu và số đang mượn của người dùng cũng đổi
+        LOAN_RETURNED,      // Trả: như trên
+        LOAN_RENEWED,
+        LOAN_OVERDUE,       // Bộ quét chuyển giao dịch sang OVERDUE (mã tài liệu/người dùng không kèm theo)
+        LOAN_REMOVED,       // Giao dịch bị xóa cùng người dùng
+        LOAN_UPDATED,       // Giao dịch được sửa theo máy chủ (phát lại nhật ký ghi trước bị từ chối)
+        REVIEW_ADDED,
+        REVIEW_UPDATED,
+        REVIEW_REMOVED
+    }
+
+    private final Type type;
+    private final String entityId;
+    private final String documentId;
+    private final String userId;
+
+    private LibraryEvent(Type type, String entityId, String documentId, String userId) {
+        this.type = type;
+        this.entityId = entityId;
+        this.documentId = documentId;
+        this.userId = userId;
+    }
+
+    /**
+     * Sự kiện của một tài liệu (DOCUMENT_*)
+     */
+    public static LibraryEvent document(Type type, String documentId) {
+        return new LibraryEvent(type, documentId, documentId, null);
+    }
+
+    /**
+     * Sự kiện của một người dùng (USER_*)
+     */
+    public static LibraryEvent user(Type type, String userId) {
+        return new LibraryEvent(type, userId, null, userId);
+    }
+
+    /**
+     * Sự kiện của một giao dịch (LOAN_*)
+     * @param documentId mã tài liệu của giao dịch (null nếu không biết)
+     * @param userId mã người dùng của giao dịch (null nếu không biết)
+     */
+    public static LibraryEvent loan(Type type, String transactionId, String documentId, String userId) {
+        return new LibraryEvent(type, transactionId, documentId, userId);
+    }
+
+    /**
+     * Sự kiện của một đánh giá (REVIEW_*)
+     */
+    public static LibraryEvent review(Type type, String reviewId, String documentId, String userId) {
+        return new LibraryEvent(type, reviewId, documentId, userId);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Mã của thực thể bị thay đổi (tài liệu, người dùng, giao dịch hoặc đánh giá tùy loại)
+     */
+    public String getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * Mã tài liệu liên quan (null nếu không có hoặc không biết)
+     */
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    /**
+     * Mã người dùng liên quan (null nếu không có hoặc không biết)
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LibraryEvent[type=%s, id=%s]", type, entityId);
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Bus sự kiện trong tiến trình cho các thay đổi của Library.
+ * publish không chặn: sự kiện được xếp hàng và giao cho các Listener trên một luồng nền duy nhất,
+ * nên thao tác ghi không chờ giao diện và các sự kiện đến đúng thứ tự chúng được phát.
+ * Listener chạy trên luồng của bus (có thể đọc lại dữ liệu ở đây), giao diện cần chuyển về luồng Swing.
+ */
+public final class LibraryEventBus {
+
+    /**
+     * Nhận các sự kiện thay đổi (gọi trên luồng của bus)
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onEvent(LibraryEvent event);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "library-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Xếp sự kiện vào hàng đợi giao (bỏ qua nếu chưa có ai đăng ký)
+     */
+    public void publish(LibraryEvent event) {
+        if (event == null || listeners.isEmpty()) {
+            return;
+        }
+        dispatcher.execute(() -> deliver(event));
+    }
+
+    private void deliver(LibraryEvent event) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                System.err.println("Error delivering " + event + ": " + e.getMessage());
+            }
+        }
+    }
+}
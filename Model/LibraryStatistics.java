@@ -0,0 +1,215 @@
+import java.util.*;
+
+/**
+ * Bộ đếm thống kê thư viện giữ trong bộ nhớ: tổng số và số còn bản của tài liệu, số tài liệu theo thể loại,
+ * người dùng theo nhóm và theo trạng thái hoạt động, số giao dịch, số giao dịch quá hạn và số đánh giá.
+ * Library cập nhật bộ đếm sau mỗi thao tác ghi thành công nên việc đọc thống kê không truy vấn cơ sở dữ liệu.
+ *
+ * Bộ đếm được nạp và đối soát định kỳ bằng các truy vấn COUNT/GROUP BY của repository. Một lần đối soát
+ * chỉ được áp dụng nếu không có thay đổi nào được ghi nhận trong lúc nó chạy (so sánh số phiên bản),
+ * để kết quả đếm cũ không ghi đè lên một thay đổi vừa được cộng; lần đối soát sau sẽ thử lại.
+ * Sửa tài liệu/người dùng được tính là bỏ dòng cũ và thêm dòng mới; thay đổi không xác định được phần
+ * chênh lệch chỉ đánh dấu cần đối soát.
+ */
+public class LibraryStatistics {
+    private final Map<String, Long> documentsByGenre = new HashMap<>();
+    private final Map<User.UserType, Long> usersByType = new EnumMap<>(User.UserType.class);
+    private long totalDocuments;
+    private long availableDocuments;
+    private long totalUsers;
+    private long activeUsers;
+    private long totalTransactions;
+    private long overdueTransactions;
+    private long totalReviews;
+
+    private boolean loaded;
+    private boolean stale;
+    private long version;
+    private long reconciledAtMillis;
+
+    /**
+     * Bộ đếm đã được nạp ít nhất một lần chưa
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Kiểm tra bộ đếm cần đối soát lại: chưa nạp, bị đánh dấu, hoặc lần đối soát gần nhất cũ hơn maxAgeMillis
+     */
+    public synchronized boolean needsReconcile(long maxAgeMillis) {
+        return !loaded || stale || System.currentTimeMillis() - reconciledAtMillis > maxAgeMillis;
+    }
+
+    /**
+     * Lấy phiên bản hiện tại trước khi chạy các truy vấn đối soát (truyền lại cho reconcile)
+     */
+    public synchronized long beginReconcile() {
+        return version;
+    }
+
+    /**
+     * Thay toàn bộ bộ đếm bằng kết quả đếm từ cơ sở dữ liệu
+     * @param startVersion phiên bản lấy từ beginReconcile trước khi đếm
+     * @return false nếu có thay đổi được ghi nhận trong lúc đếm (kết quả bị bỏ, trừ lần nạp đầu tiên)
+     */
+    public synchronized boolean reconcile(long startVersion, Map<String, Integer> genreCounts, int available,
+                                          Map<User.UserType, Integer> typeCounts, int active,
+                                          int transactions, int overdue, long reviews) {
+        if (loaded && version != startVersion) {
+            return false;
+        }
+        documentsByGenre.clear();
+        totalDocuments = 0;
+        for (Map.Entry<String, Integer> entry : genreCounts.entrySet()) {
+            documentsByGenre.put(entry.getKey(), (long) entry.getValue());
+            totalDocuments += entry.getValue();
+        }
+        usersByType.clear();
+        totalUsers = 0;
+        for (Map.Entry<User.UserType, Integer> entry : typeCounts.entrySet()) {
+            usersByType.put(entry.getKey(), (long) entry.getValue());
+            totalUsers += entry.getValue();
+        }
+        availableDocuments = available;
+        activeUsers = active;
+        totalTransactions = transactions;
+        overdueTransactions = overdue;
+        totalReviews = reviews;
+
+        loaded = true;
+        stale = false;
+        reconciledAtMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Bỏ toàn bộ bộ đếm (ví dụ khi đổi repository); lần đọc sau sẽ nạp lại
+     */
+    public synchronized void reset() {
+        loaded = false;
+        version++;
+    }
+
+    /**
+     * Đánh dấu cần đối soát khi có thay đổi không tính được phần chênh lệch
+     */
+    public synchronized void markStale() {
+        stale = true;
+        version++;
+    }
+
+    // ==================== CẬP NHẬT TỪ THAO TÁC GHI ====================
+
+    public synchronized void documentAdded(Document document) {
+        changeDocument(document, 1);
+    }
+
+    public synchronized void documentRemoved(Document document) {
+        changeDocument(document, -1);
+    }
+
+    /**
+     * Tài liệu chuyển giữa còn bản và hết bản sau khi mượn hoặc trả
+     */
+    public synchronized void availabilityChanged(boolean available) {
+        availableDocuments += available ? 1 : -1;
+        version++;
+    }
+
+    public synchronized void userAdded(User user) {
+        changeUser(user, 1);
+    }
+
+    public synchronized void userRemoved(User user) {
+        changeUser(user, -1);
+    }
+
+    public synchronized void loanCreated() {
+        totalTransactions++;
+        version++;
+    }
+
+    public synchronized void loansDeleted(int count) {
+        totalTransactions -= count;
+        version++;
+    }
+
+    public synchronized void loansBecameOverdue(int count) {
+        overdueTransactions += count;
+        version++;
+    }
+
+    /**
+     * Một giao dịch đang ở trạng thái OVERDUE đã được trả
+     */
+    public synchronized void overdueLoanReturned() {
+        overdueTransactions--;
+        version++;
+    }
+
+    public synchronized void reviewAdded() {
+        totalReviews++;
+        version++;
+    }
+
+    public synchronized void reviewsRemoved(int count) {
+        totalReviews -= count;
+        version++;
+    }
+
+    private void changeDocument(Document document, int delta) {
+        totalDocuments += delta;
+        documentsByGenre.merge(document.getGenre(), (long) delta, (a, b) -> a + b == 0 ? null : a + b);
+        if (document.isAvailable()) {
+            availableDocuments += delta;
+        }
+        version++;
+    }
+
+    private void changeUser(User user, int delta) {
+        totalUsers += delta;
+        User.UserType type = user.getUserType() != null ? user.getUserType() : User.UserType.GUEST;
+        usersByType.merge(type, (long) delta, (a, b) -> a + b == 0 ? null : a + b);
+        if (user.isActive()) {
+            activeUsers += delta;
+        }
+        version++;
+    }
+
+    // ==================== ĐỌC ====================
+
+    /**
+     * Các số liệu tổng (cùng khóa với Library.getLibraryStatistics)
+     */
+    public synchronized Map<String, Object> asMap() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalDocuments", (int) totalDocuments);
+        stats.put("availableDocuments", (int) availableDocuments);
+        stats.put("borrowedDocuments", (int) (totalDocuments - availableDocuments));
+        stats.put("totalUsers", (int) totalUsers);
+        stats.put("activeUsers", activeUsers);
+        stats.put("totalTransactions", (int) totalTransactions);
+        stats.put("overdueTransactions", (int) overdueTransactions);
+        stats.put("totalReviews", (int) totalReviews);
+        return stats;
+    }
+
+    /**
+     * Số tài liệu theo thể loại (bản sao; thể loại rỗng nằm dưới khóa null)
+     */
+    public synchronized Map<String, Long> getDocumentsByGenre() {
+        return new HashMap<>(documentsByGenre);
+    }
+
+    /**
+     * Số người dùng theo nhóm (bản sao; nhóm không có người dùng có giá trị 0)
+     */
+    public synchronized Map<User.UserType, Long> getUsersByType() {
+        Map<User.UserType, Long> counts = new EnumMap<>(User.UserType.class);
+        for (User.UserType type : User.UserType.values()) {
+            counts.put(type, usersByType.getOrDefault(type, 0L));
+        }
+        return counts;
+    }
+}
@@ -14,6 +14,7 @@ public class LoanTransaction {
     private LocalDate returnDate;
     private TransactionStatus status;
     private double fineAmount;
+    private LocalDate fineAccruedThrough;
     private int renewalCount;
     private int maxRenewals;
     
@@ -137,6 +138,17 @@ public class LoanTransaction {
         this.fineAmount = fineAmount;
     }
     
+    /**
+     * Ngày mà tiền phạt đã được cộng dồn đến (null nếu chưa lần nào), do bộ cộng dồn tiền phạt hằng đêm ghi
+     */
+    public LocalDate getFineAccruedThrough() {
+        return fineAccruedThrough;
+    }
+    
+    public void setFineAccruedThrough(LocalDate fineAccruedThrough) {
+        this.fineAccruedThrough = fineAccruedThrough;
+    }
+    
     public int getRenewalCount() {
         return renewalCount;
     }
@@ -154,15 +166,30 @@ public class LoanTransaction {
     }
     
     /**
-     * Kiểm tra xem lượt mượn có quá hạn không
+     * Kiểm tra xem lượt mượn có quá hạn không.
+     * Giao dịch chưa trả đã được OverdueSweeper đánh dấu OVERDUE thì không cần so ngày
      */
     public boolean isOverdue() {
         if (status == TransactionStatus.RETURNED) {
             return false;
         }
+        if (status == TransactionStatus.OVERDUE && returnDate == null) {
+            return true;
+        }
         return LocalDate.now().isAfter(dueDate);
     }
     
+    /**
+     * Kiểm tra giao dịch còn đang mượn (chưa trả): ACTIVE, RENEWED hoặc OVERDUE chưa có ngày trả.
+     * OVERDUE kèm ngày trả là giao dịch đã trả trễ hạn
+     */
+    public boolean isOpen() {
+        return returnDate == null
+                && (status == TransactionStatus.ACTIVE
+                    || status == TransactionStatus.RENEWED
+                    || status == TransactionStatus.OVERDUE);
+    }
+    
     /**
      * Lấy số ngày còn lại đến hạn (số âm nếu quá hạn)
      */
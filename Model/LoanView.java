@@ -0,0 +1,154 @@
+import java.time.LocalDate;
+
+/**
+ * Bản chiếu chỉ đọc của một giao dịch mượn dùng để hiển thị,
+ * gồm các trường của giao dịch cùng tên người dùng và tiêu đề tài liệu
+ */
+public final class LoanView {
+    private final String transactionId;
+    private final String userId;
+    private final String userName;
+    private final String documentId;
+    private final String documentTitle;
+    private final LocalDate borrowDate;
+    private final LocalDate dueDate;
+    private final LocalDate returnDate;
+    private final LoanTransaction.TransactionStatus status;
+    private final double fineAmount;
+    private final int renewalCount;
+    private final int maxRenewals;
+
+    /**
+     * Bộ lọc giao dịch tương ứng với các lựa chọn trên bảng mượn/trả
+     */
+    public enum Filter {
+        ALL,        // Tất cả giao dịch
+        ACTIVE,     // Đang mượn hoặc đã gia hạn
+        RETURNED,   // Đã trả (đúng hạn hoặc trễ hạn)
+        OVERDUE     // Quá hạn và chưa trả
+    }
+
+    public LoanView(String transactionId, String userId, String userName,
+                    String documentId, String documentTitle,
+                    LocalDate borrowDate, LocalDate dueDate, LocalDate returnDate,
+                    LoanTransaction.TransactionStatus status, double fineAmount,
+                    int renewalCount, int maxRenewals) {
+        this.transactionId = transactionId;
+        this.userId = userId;
+        this.userName = userName;
+        this.documentId = documentId;
+        this.documentTitle = documentTitle;
+        this.borrowDate = borrowDate;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+        this.status = status;
+        this.fineAmount = fineAmount;
+        this.renewalCount = renewalCount;
+        this.maxRenewals = maxRenewals;
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Lấy tên người dùng (null nếu người dùng không còn tồn tại)
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    /**
+     * Lấy tiêu đề tài liệu (null nếu tài liệu không còn tồn tại)
+     */
+    public String getDocumentTitle() {
+        return documentTitle;
+    }
+
+    public LocalDate getBorrowDate() {
+        return borrowDate;
+    }
+
+    public LocalDate getDueDate() {
+        return dueDate;
+    }
+
+    public LocalDate getReturnDate() {
+        return returnDate;
+    }
+
+    public LoanTransaction.TransactionStatus getStatus() {
+        return status;
+    }
+
+    public double getFineAmount() {
+        return fineAmount;
+    }
+
+    public int getRenewalCount() {
+        return renewalCount;
+    }
+
+    public int getMaxRenewals() {
+        return maxRenewals;
+    }
+
+    /**
+     * Kiểm tra bản chiếu có thuộc bộ lọc không (cùng điều kiện với LoanTransactionRepository.findLoanViews)
+     */
+    public boolean matches(Filter filter) {
+        switch (filter) {
+            case ACTIVE:
+                return returnDate == null && (status == LoanTransaction.TransactionStatus.ACTIVE
+                        || status == LoanTransaction.TransactionStatus.RENEWED
+                        || status == LoanTransaction.TransactionStatus.OVERDUE);
+            case RETURNED:
+                return returnDate != null && (status == LoanTransaction.TransactionStatus.RETURNED
+                        || status == LoanTransaction.TransactionStatus.OVERDUE);
+            case OVERDUE:
+                return returnDate == null && status == LoanTransaction.TransactionStatus.OVERDUE;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Tạo lại đối tượng giao dịch từ bản chiếu (đủ các trường của bảng loan_transactions),
+     * để thao tác trên một dòng đã nạp không cần truy vấn lại
+     * @return giao dịch mới mang dữ liệu của bản chiếu
+     */
+    public LoanTransaction toTransaction() {
+        LoanTransaction transaction = new LoanTransaction();
+        transaction.setId(transactionId);
+        transaction.setUserId(userId);
+        transaction.setDocumentId(documentId);
+        if (borrowDate != null) {
+            transaction.setBorrowDate(borrowDate);
+        }
+        if (dueDate != null) {
+            transaction.setDueDate(dueDate);
+        }
+        transaction.setReturnDate(returnDate);
+        if (status != null) {
+            transaction.setStatus(status);
+        }
+        transaction.setFineAmount(fineAmount);
+        transaction.setRenewalCount(renewalCount);
+        transaction.setMaxRenewals(maxRenewals);
+        return transaction;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LoanView[id=%s, user=%s, document=%s, status=%s]",
+                transactionId, userName, documentTitle, status);
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Giá trị tổng hợp điểm đánh giá của một tài liệu (tổng điểm, số đánh giá, điểm trung bình).
+ * Đối tượng bất biến - mỗi thay đổi tạo ra một đối tượng mới.
+ */
+public final class RatingAggregate {
+    private final String documentId;
+    private final long ratingSum;
+    private final int reviewCount;
+
+    public RatingAggregate(String documentId, long ratingSum, int reviewCount) {
+        this.documentId = documentId;
+        this.ratingSum = ratingSum;
+        this.reviewCount = reviewCount;
+    }
+
+    /**
+     * Tạo giá trị tổng hợp rỗng (chưa có đánh giá) cho tài liệu
+     */
+    public static RatingAggregate empty(String documentId) {
+        return new RatingAggregate(documentId, 0, 0);
+    }
+
+    /**
+     * Trả về giá trị tổng hợp sau khi thêm một điểm đánh giá
+     */
+    public RatingAggregate plus(int rating) {
+        return new RatingAggregate(documentId, ratingSum + rating, reviewCount + 1);
+    }
+
+    /**
+     * Trả về giá trị tổng hợp sau khi bỏ một điểm đánh giá
+     */
+    public RatingAggregate minus(int rating) {
+        if (reviewCount <= 1) {
+            return empty(documentId);
+        }
+        return new RatingAggregate(documentId, ratingSum - rating, reviewCount - 1);
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    /**
+     * Lấy điểm đánh giá trung bình (0.0 nếu không có đánh giá)
+     */
+    public double getAverageRating() {
+        return reviewCount > 0 ? (double) ratingSum / reviewCount : 0.0;
+    }
+
+    public boolean isEmpty() {
+        return reviewCount == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RatingAggregate[document=%s, sum=%d, count=%d, avg=%.2f]",
+                documentId, ratingSum, reviewCount, getAverageRating());
+    }
+}
@@ -0,0 +1,98 @@
+import com.library.model.Document;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Phiên bản bất đồng bộ của DocumentRepository: mỗi phương thức trả về CompletableFuture
+ * hoàn thành với kết quả của phương thức đồng bộ cùng tên. Không có streamAll vì Stream
+ * giữ kết nối và phải được đóng trên luồng đã mở nó.
+ */
+public interface AsyncDocumentRepository {
+    
+    /**
+     * Lưu tài liệu mới vào cơ sở dữ liệu
+     */
+    CompletableFuture<Boolean> saveAsync(Document document);
+    
+    /**
+     * Tìm tài liệu theo ID
+     */
+    CompletableFuture<Document> findByIdAsync(String id);
+    
+    /**
+     * Tìm nhiều tài liệu theo danh sách ID trong một số truy vấn cố định (ID -> tài liệu)
+     */
+    CompletableFuture<Map<String, Document>> findByIdsAsync(Collection<String> ids);
+    
+    /**
+     * Lấy danh sách tất cả tài liệu
+     */
+    CompletableFuture<List<Document>> findAllAsync();
+    
+    /**
+     * Cập nhật thông tin tài liệu
+     */
+    CompletableFuture<Boolean> updateAsync(Document document);
+    
+    /**
+     * Xóa tài liệu theo ID
+     */
+    CompletableFuture<Boolean> deleteAsync(String id);
+    
+    /**
+     * Tìm kiếm tài liệu theo tiêu đề (không phân biệt hoa thường)
+     */
+    CompletableFuture<List<Document>> findByTitleAsync(String title);
+    
+    /**
+     * Tìm kiếm tài liệu theo tác giả (không phân biệt hoa thường)
+     */
+    CompletableFuture<List<Document>> findByAuthorAsync(String author);
+    
+    /**
+     * Tìm kiếm tài liệu theo thể loại (không phân biệt hoa thường)
+     */
+    CompletableFuture<List<Document>> findByGenreAsync(String genre);
+    
+    /**
+     * Lấy danh sách tài liệu còn số lượng (available_quantity > 0)
+     */
+    CompletableFuture<List<Document>> findAvailableAsync();
+    
+    /**
+     * Tìm tài liệu theo ISBN đã chuẩn hóa (ISBN-10 được đổi sang ISBN-13)
+     */
+    CompletableFuture<List<Document>> findByIsbnAsync(String isbn);
+    
+    /**
+     * Tìm tài liệu theo khóa tiêu đề + tác giả đã chuẩn hóa (xem DocumentKeys.titleAuthorKey)
+     */
+    CompletableFuture<List<Document>> findByTitleAuthorKeyAsync(String titleAuthorKey);
+    
+    /**
+     * Cập nhật số lượng sau khi mượn/trả
+     */
+    CompletableFuture<Boolean> updateQuantityAsync(String documentId, int availableQuantity);
+    
+    /**
+     * Đọc một trang tài liệu theo yêu cầu (sắp xếp, lọc, phân trang theo khóa)
+     */
+    CompletableFuture<Page<Document>> findPageAsync(PageRequest request);
+    
+    /**
+     * Đếm số tài liệu khớp bộ lọc của yêu cầu
+     */
+    CompletableFuture<Integer> countAsync(PageRequest request);
+    
+    /**
+     * Đếm tài liệu theo thể loại (null nếu có lỗi)
+     */
+    CompletableFuture<Map<String, Integer>> countByGenreAsync();
+    
+    /**
+     * Đếm tài liệu còn số lượng (-1 nếu có lỗi)
+     */
+    CompletableFuture<Integer> countAvailableAsync();
+}
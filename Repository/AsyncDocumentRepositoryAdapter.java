@@ -0,0 +1,104 @@
+import com.library.model.Document;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Triển khai AsyncDocumentRepository bằng cách chạy DocumentRepository đồng bộ trên RepositoryExecutor
+ * (luồng ảo nếu JVM hỗ trợ, số thao tác đồng thời giới hạn theo pool kết nối).
+ */
+public class AsyncDocumentRepositoryAdapter implements AsyncDocumentRepository {
+    private final DocumentRepository delegate;
+    private final RepositoryExecutor executor;
+    
+    public AsyncDocumentRepositoryAdapter(DocumentRepository delegate, RepositoryExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> saveAsync(Document document) {
+        return executor.supply(() -> delegate.save(document));
+    }
+    
+    @Override
+    public CompletableFuture<Document> findByIdAsync(String id) {
+        return executor.supply(() -> delegate.findById(id));
+    }
+    
+    @Override
+    public CompletableFuture<Map<String, Document>> findByIdsAsync(Collection<String> ids) {
+        return executor.supply(() -> delegate.findByIds(ids));
+    }
+    
+    @Override
+    public CompletableFuture<List<Document>> findAllAsync() {
+        return executor.supply(() -> delegate.findAll());
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> updateAsync(Document document) {
+        return executor.supply(() -> delegate.update(document));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String id) {
+        return executor.supply(() -> delegate.delete(id));
+    }
+    
+    @Override
+    public CompletableFuture<List<Document>> findByTitleAsync(String title) {
+        return executor.supply(() -> delegate.findByTitle(title));
+    }
+    
+    @Override
+    public CompletableFuture<List<Document>> findByAuthorAsync(String author) {
+        return executor.supply(() -> delegate.findByAuthor(author));
+    }
+    
+    @Override
+    public CompletableFuture<List<Document>> findByGenreAsync(String genre) {
+        return executor.supply(() -> delegate.findByGenre(genre));
+    }
+    
+    @Override
+    public CompletableFuture<List<Document>> findAvailableAsync() {
+        return executor.supply(() -> delegate.findAvailable());
+    }
+    
+    @Override
+    public CompletableFuture<List<Document>> findByIsbnAsync(String isbn) {
+        return executor.supply(() -> delegate.findByIsbn(isbn));
+    }
+    
+    @Override
+    public CompletableFuture<List<Document>> findByTitleAuthorKeyAsync(String titleAuthorKey) {
+        return executor.supply(() -> delegate.findByTitleAuthorKey(titleAuthorKey));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> updateQuantityAsync(String documentId, int availableQuantity) {
+        return executor.supply(() -> delegate.updateQuantity(documentId, availableQuantity));
+    }
+    
+    @Override
+    public CompletableFuture<Page<Document>> findPageAsync(PageRequest request) {
+        return executor.supply(() -> delegate.findPage(request));
+    }
+    
+    @Override
+    public CompletableFuture<Integer> countAsync(PageRequest request) {
+        return executor.supply(() -> delegate.count(request));
+    }
+    
+    @Override
+    public CompletableFuture<Map<String, Integer>> countByGenreAsync() {
+        return executor.supply(delegate::countByGenre);
+    }
+    
+    @Override
+    public CompletableFuture<Integer> countAvailableAsync() {
+        return executor.supply(delegate::countAvailable);
+    }
+}
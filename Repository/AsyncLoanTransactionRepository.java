@@ -0,0 +1,113 @@
+import com.library.model.LoanTransaction;
+import com.library.model.LoanView;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Phiên bản bất đồng bộ của LoanTransactionRepository: mỗi phương thức trả về CompletableFuture
+ * hoàn thành với kết quả của phương thức đồng bộ cùng tên. Không có streamAll vì Stream
+ * giữ kết nối và phải được đóng trên luồng đã mở nó.
+ */
+public interface AsyncLoanTransactionRepository {
+    
+    /**
+     * Lưu giao dịch mượn/trả mới vào cơ sở dữ liệu
+     */
+    CompletableFuture<Boolean> saveAsync(LoanTransaction transaction);
+    
+    /**
+     * Tìm giao dịch mượn/trả theo ID
+     */
+    CompletableFuture<LoanTransaction> findByIdAsync(String id);
+    
+    /**
+     * Lấy danh sách tất cả giao dịch mượn/trả
+     */
+    CompletableFuture<List<LoanTransaction>> findAllAsync();
+    
+    /**
+     * Cập nhật thông tin giao dịch mượn/trả
+     */
+    CompletableFuture<Boolean> updateAsync(LoanTransaction transaction);
+    
+    /**
+     * Xóa giao dịch mượn/trả theo ID
+     */
+    CompletableFuture<Boolean> deleteAsync(String id);
+    
+    /**
+     * Lấy tất cả giao dịch của một người dùng cụ thể
+     */
+    CompletableFuture<List<LoanTransaction>> findByUserIdAsync(String userId);
+    
+    /**
+     * Lấy tất cả giao dịch của một tài liệu cụ thể
+     */
+    CompletableFuture<List<LoanTransaction>> findByDocumentIdAsync(String documentId);
+    
+    /**
+     * Lấy tất cả giao dịch đang hoạt động (chưa trả)
+     */
+    CompletableFuture<List<LoanTransaction>> findActiveTransactionsAsync();
+    
+    /**
+     * Lấy tất cả giao dịch quá hạn
+     */
+    CompletableFuture<List<LoanTransaction>> findOverdueTransactionsAsync();
+    
+    /**
+     * Đếm tất cả giao dịch (-1 nếu có lỗi)
+     */
+    CompletableFuture<Integer> countAllAsync();
+    
+    /**
+     * Đếm giao dịch quá hạn (-1 nếu có lỗi)
+     */
+    CompletableFuture<Integer> countOverdueAsync();
+    
+    /**
+     * Lấy tất cả giao dịch đang hoạt động của một người dùng cụ thể
+     */
+    CompletableFuture<List<LoanTransaction>> findActiveTransactionsByUserIdAsync(String userId);
+    
+    /**
+     * Kiểm tra tài liệu có đang được mượn (có giao dịch hoạt động hay không)
+     */
+    CompletableFuture<Boolean> isDocumentBorrowedAsync(String documentId);
+    
+    /**
+     * Mượn tài liệu nguyên tử: kiểm tra người dùng, giảm số lượng còn lại có điều kiện
+     * và lưu giao dịch trong cùng một giao dịch cơ sở dữ liệu
+     */
+    CompletableFuture<Boolean> borrowAsync(LoanTransaction transaction);
+    
+    /**
+     * Trả tài liệu nguyên tử: đóng giao dịch đang mượn và tăng số lượng còn lại
+     * trong cùng một giao dịch cơ sở dữ liệu
+     */
+    CompletableFuture<Boolean> completeReturnAsync(LoanTransaction transaction);
+    
+    /**
+     * Ghi lần gia hạn nếu số lần gia hạn hiện tại vẫn bằng giá trị mong đợi (đồng thời lạc quan)
+     */
+    CompletableFuture<Boolean> renewAsync(LoanTransaction transaction, int expectedRenewalCount);
+    
+    /**
+     * Chuyển sang OVERDUE các giao dịch trong danh sách còn đang mượn (ACTIVE/RENEWED)
+     * có hạn trả trước ngày today, theo lô
+     */
+    CompletableFuture<List<String>> markOverdueAsync(Collection<String> ids, LocalDate today);
+    
+    /**
+     * Cộng dồn tiền phạt của mọi giao dịch OVERDUE chưa trả đến ngày today (chỉ phần ngày chưa cộng)
+     * vào fine_amount và vào số dư phạt chưa thanh toán của người dùng
+     */
+    CompletableFuture<Integer> accrueFinesAsync(LocalDate today, double dailyFineRate);
+    
+    /**
+     * Lấy bản chiếu hiển thị (giao dịch + tên người dùng + tiêu đề tài liệu) theo bộ lọc
+     */
+    CompletableFuture<List<LoanView>> findLoanViewsAsync(LoanView.Filter filter);
+}
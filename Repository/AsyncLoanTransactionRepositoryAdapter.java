@@ -0,0 +1,115 @@
+import com.library.model.LoanTransaction;
+import com.library.model.LoanView;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Triển khai AsyncLoanTransactionRepository bằng cách chạy LoanTransactionRepository đồng bộ trên RepositoryExecutor
+ * (luồng ảo nếu JVM hỗ trợ, số thao tác đồng thời giới hạn theo pool kết nối).
+ */
+public class AsyncLoanTransactionRepositoryAdapter implements AsyncLoanTransactionRepository {
+    private final LoanTransactionRepository delegate;
+    private final RepositoryExecutor executor;
+    
+    public AsyncLoanTransactionRepositoryAdapter(LoanTransactionRepository delegate, RepositoryExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> saveAsync(LoanTransaction transaction) {
+        return executor.supply(() -> delegate.save(transaction));
+    }
+    
+    @Override
+    public CompletableFuture<LoanTransaction> findByIdAsync(String id) {
+        return executor.supply(() -> delegate.findById(id));
+    }
+    
+    @Override
+    public CompletableFuture<List<LoanTransaction>> findAllAsync() {
+        return executor.supply(() -> delegate.findAll());
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> updateAsync(LoanTransaction transaction) {
+        return executor.supply(() -> delegate.update(transaction));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String id) {
+        return executor.supply(() -> delegate.delete(id));
+    }
+    
+    @Override
+    public CompletableFuture<List<LoanTransaction>> findByUserIdAsync(String userId) {
+        return executor.supply(() -> delegate.findByUserId(userId));
+    }
+    
+    @Override
+    public CompletableFuture<List<LoanTransaction>> findByDocumentIdAsync(String documentId) {
+        return executor.supply(() -> delegate.findByDocumentId(documentId));
+    }
+    
+    @Override
+    public CompletableFuture<List<LoanTransaction>> findActiveTransactionsAsync() {
+        return executor.supply(() -> delegate.findActiveTransactions());
+    }
+    
+    @Override
+    public CompletableFuture<List<LoanTransaction>> findOverdueTransactionsAsync() {
+        return executor.supply(() -> delegate.findOverdueTransactions());
+    }
+    
+    @Override
+    public CompletableFuture<Integer> countAllAsync() {
+        return executor.supply(() -> delegate.countAll());
+    }
+    
+    @Override
+    public CompletableFuture<Integer> countOverdueAsync() {
+        return executor.supply(() -> delegate.countOverdue());
+    }
+    
+    @Override
+    public CompletableFuture<List<LoanTransaction>> findActiveTransactionsByUserIdAsync(String userId) {
+        return executor.supply(() -> delegate.findActiveTransactionsByUserId(userId));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> isDocumentBorrowedAsync(String documentId) {
+        return executor.supply(() -> delegate.isDocumentBorrowed(documentId));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> borrowAsync(LoanTransaction transaction) {
+        return executor.supply(() -> delegate.borrow(transaction));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> completeReturnAsync(LoanTransaction transaction) {
+        return executor.supply(() -> delegate.completeReturn(transaction));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> renewAsync(LoanTransaction transaction, int expectedRenewalCount) {
+        return executor.supply(() -> delegate.renew(transaction, expectedRenewalCount));
+    }
+    
+    @Override
+    public CompletableFuture<List<String>> markOverdueAsync(Collection<String> ids, LocalDate today) {
+        return executor.supply(() -> delegate.markOverdue(ids, today));
+    }
+    
+    @Override
+    public CompletableFuture<Integer> accrueFinesAsync(LocalDate today, double dailyFineRate) {
+        return executor.supply(() -> delegate.accrueFines(today, dailyFineRate));
+    }
+    
+    @Override
+    public CompletableFuture<List<LoanView>> findLoanViewsAsync(LoanView.Filter filter) {
+        return executor.supply(() -> delegate.findLoanViews(filter));
+    }
+}
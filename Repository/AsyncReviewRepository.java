@@ -0,0 +1,74 @@
+import com.library.model.RatingAggregate;
+import com.library.model.Review;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Phiên bản bất đồng bộ của ReviewRepository: mỗi phương thức trả về CompletableFuture
+ * hoàn thành với kết quả của phương thức đồng bộ cùng tên. Không có streamAll vì Stream
+ * giữ kết nối và phải được đóng trên luồng đã mở nó.
+ */
+public interface AsyncReviewRepository {
+    
+    /**
+     * Lưu đánh giá mới vào cơ sở dữ liệu
+     */
+    CompletableFuture<Boolean> saveAsync(Review review);
+    
+    /**
+     * Tìm đánh giá theo ID
+     */
+    CompletableFuture<Review> findByIdAsync(String id);
+    
+    /**
+     * Tìm nhiều đánh giá theo danh sách ID trong một số truy vấn cố định (ID -> đánh giá)
+     */
+    CompletableFuture<Map<String, Review>> findByIdsAsync(Collection<String> ids);
+    
+    /**
+     * Lấy danh sách tất cả đánh giá
+     */
+    CompletableFuture<List<Review>> findAllAsync();
+    
+    /**
+     * Cập nhật thông tin đánh giá
+     */
+    CompletableFuture<Boolean> updateAsync(Review review);
+    
+    /**
+     * Xóa đánh giá theo ID
+     */
+    CompletableFuture<Boolean> deleteAsync(String id);
+    
+    /**
+     * Lấy tất cả đánh giá cho một tài liệu cụ thể
+     */
+    CompletableFuture<List<Review>> findByDocumentIdAsync(String documentId);
+    
+    /**
+     * Lấy tất cả đánh giá của một người dùng cụ thể
+     */
+    CompletableFuture<List<Review>> findByUserIdAsync(String userId);
+    
+    /**
+     * Lấy điểm đánh giá trung bình cho một tài liệu
+     */
+    CompletableFuture<Double> getAverageRatingAsync(String documentId);
+    
+    /**
+     * Lấy số lượng đánh giá cho một tài liệu
+     */
+    CompletableFuture<Integer> getReviewCountAsync(String documentId);
+    
+    /**
+     * Lấy tổng hợp điểm đánh giá (tổng, số lượng, trung bình) của mọi tài liệu có đánh giá
+     */
+    CompletableFuture<Map<String, RatingAggregate>> getRatingAggregatesAsync();
+    
+    /**
+     * Kiểm tra người dùng đã đánh giá tài liệu này chưa
+     */
+    CompletableFuture<Boolean> hasUserReviewedAsync(String userId, String documentId);
+}
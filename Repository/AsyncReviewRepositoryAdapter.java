@@ -0,0 +1,80 @@
+import com.library.model.RatingAggregate;
+import com.library.model.Review;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Triển khai AsyncReviewRepository bằng cách chạy ReviewRepository đồng bộ trên RepositoryExecutor
+ * (luồng ảo nếu JVM hỗ trợ, số thao tác đồng thời giới hạn theo pool kết nối).
+ */
+public class AsyncReviewRepositoryAdapter implements AsyncReviewRepository {
+    private final ReviewRepository delegate;
+    private final RepositoryExecutor executor;
+    
+    public AsyncReviewRepositoryAdapter(ReviewRepository delegate, RepositoryExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> saveAsync(Review review) {
+        return executor.supply(() -> delegate.save(review));
+    }
+    
+    @Override
+    public CompletableFuture<Review> findByIdAsync(String id) {
+        return executor.supply(() -> delegate.findById(id));
+    }
+    
+    @Override
+    public CompletableFuture<Map<String, Review>> findByIdsAsync(Collection<String> ids) {
+        return executor.supply(() -> delegate.findByIds(ids));
+    }
+    
+    @Override
+    public CompletableFuture<List<Review>> findAllAsync() {
+        return executor.supply(() -> delegate.findAll());
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> updateAsync(Review review) {
+        return executor.supply(() -> delegate.update(review));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String id) {
+        return executor.supply(() -> delegate.delete(id));
+    }
+    
+    @Override
+    public CompletableFuture<List<Review>> findByDocumentIdAsync(String documentId) {
+        return executor.supply(() -> delegate.findByDocumentId(documentId));
+    }
+    
+    @Override
+    public CompletableFuture<List<Review>> findByUserIdAsync(String userId) {
+        return executor.supply(() -> delegate.findByUserId(userId));
+    }
+    
+    @Override
+    public CompletableFuture<Double> getAverageRatingAsync(String documentId) {
+        return executor.supply(() -> delegate.getAverageRating(documentId));
+    }
+    
+    @Override
+    public CompletableFuture<Integer> getReviewCountAsync(String documentId) {
+        return executor.supply(() -> delegate.getReviewCount(documentId));
+    }
+    
+    @Override
+    public CompletableFuture<Map<String, RatingAggregate>> getRatingAggregatesAsync() {
+        return executor.supply(() -> delegate.getRatingAggregates());
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> hasUserReviewedAsync(String userId, String documentId) {
+        return executor.supply(() -> delegate.hasUserReviewed(userId, documentId));
+    }
+}
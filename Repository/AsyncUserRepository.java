@@ -0,0 +1,99 @@
+import com.library.model.User;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Phiên bản bất đồng bộ của UserRepository: mỗi phương thức trả về CompletableFuture
+ * hoàn thành với kết quả của phương thức đồng bộ cùng tên. Không có streamAll vì Stream
+ * giữ kết nối và phải được đóng trên luồng đã mở nó.
+ */
+public interface AsyncUserRepository {
+    
+    /**
+     * Lưu người dùng mới vào cơ sở dữ liệu
+     */
+    CompletableFuture<Boolean> saveAsync(User user);
+    
+    /**
+     * Tìm người dùng theo ID
+     */
+    CompletableFuture<User> findByIdAsync(String id);
+    
+    /**
+     * Tìm nhiều người dùng theo danh sách ID trong một số truy vấn cố định (ID -> người dùng)
+     */
+    CompletableFuture<Map<String, User>> findByIdsAsync(Collection<String> ids);
+    
+    /**
+     * Lấy danh sách tất cả người dùng
+     */
+    CompletableFuture<List<User>> findAllAsync();
+    
+    /**
+     * Cập nhật thông tin người dùng
+     */
+    CompletableFuture<Boolean> updateAsync(User user);
+    
+    /**
+     * Xóa người dùng theo ID
+     */
+    CompletableFuture<Boolean> deleteAsync(String id);
+    
+    /**
+     * Tìm kiếm người dùng theo tên (không phân biệt hoa thường)
+     */
+    CompletableFuture<List<User>> findByNameAsync(String name);
+    
+    /**
+     * Lấy những người dùng đang mượn nhiều tài liệu nhất (theo bộ đếm active_loan_count)
+     */
+    CompletableFuture<List<User>> findTopBorrowersAsync(int limit);
+    
+    /**
+     * Lấy những số dư tiền phạt chưa thanh toán lớn nhất (theo cột outstanding_fines)
+     */
+    CompletableFuture<Map<String, Double>> findOutstandingFinesAsync(int limit);
+    
+    /**
+     * Tổng tiền phạt chưa thanh toán của mọi người dùng
+     */
+    CompletableFuture<Double> getTotalOutstandingFinesAsync();
+    
+    /**
+     * Đếm người dùng theo nhóm (null nếu có lỗi)
+     */
+    CompletableFuture<Map<User.UserType, Integer>> countByTypeAsync();
+    
+    /**
+     * Đếm người dùng đang hoạt động (-1 nếu có lỗi)
+     */
+    CompletableFuture<Integer> countActiveAsync();
+    
+    /**
+     * Lấy danh sách thể loại yêu thích của người dùng
+     */
+    CompletableFuture<List<String>> findFavoriteGenresAsync(String userId);
+    
+    /**
+     * Thêm thể loại yêu thích cho người dùng
+     */
+    CompletableFuture<Boolean> addFavoriteGenreAsync(String userId, String genre);
+    
+    /**
+     * Xóa thể loại yêu thích của người dùng
+     */
+    CompletableFuture<Boolean> removeFavoriteGenreAsync(String userId, String genre);
+    
+    /**
+     * Xóa toàn bộ thể loại yêu thích của người dùng
+     */
+    CompletableFuture<Boolean> clearFavoriteGenresAsync(String userId);
+    
+    /**
+     * Lấy mã các người dùng yêu thích một thể loại
+     */
+    CompletableFuture<Set<String>> findUserIdsByFavoriteGenreAsync(String genre);
+}
@@ -0,0 +1,105 @@
+import com.library.model.User;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Triển khai AsyncUserRepository bằng cách chạy UserRepository đồng bộ trên RepositoryExecutor
+ * (luồng ảo nếu JVM hỗ trợ, số thao tác đồng thời giới hạn theo pool kết nối).
+ */
+public class AsyncUserRepositoryAdapter implements AsyncUserRepository {
+    private final UserRepository delegate;
+    private final RepositoryExecutor executor;
+    
+    public AsyncUserRepositoryAdapter(UserRepository delegate, RepositoryExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> saveAsync(User user) {
+        return executor.supply(() -> delegate.save(user));
+    }
+    
+    @Override
+    public CompletableFuture<User> findByIdAsync(String id) {
+        return executor.supply(() -> delegate.findById(id));
+    }
+    
+    @Override
+    public CompletableFuture<Map<String, User>> findByIdsAsync(Collection<String> ids) {
+        return executor.supply(() -> delegate.findByIds(ids));
+    }
+    
+    @Override
+    public CompletableFuture<List<User>> findAllAsync() {
+        return executor.supply(() -> delegate.findAll());
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> updateAsync(User user) {
+        return executor.supply(() -> delegate.update(user));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String id) {
+        return executor.supply(() -> delegate.delete(id));
+    }
+    
+    @Override
+    public CompletableFuture<List<User>> findByNameAsync(String name) {
+        return executor.supply(() -> delegate.findByName(name));
+    }
+    
+    @Override
+    public CompletableFuture<List<User>> findTopBorrowersAsync(int limit) {
+        return executor.supply(() -> delegate.findTopBorrowers(limit));
+    }
+    
+    @Override
+    public CompletableFuture<Map<String, Double>> findOutstandingFinesAsync(int limit) {
+        return executor.supply(() -> delegate.findOutstandingFines(limit));
+    }
+    
+    @Override
+    public CompletableFuture<Double> getTotalOutstandingFinesAsync() {
+        return executor.supply(delegate::getTotalOutstandingFines);
+    }
+    
+    @Override
+    public CompletableFuture<Map<User.UserType, Integer>> countByTypeAsync() {
+        return executor.supply(delegate::countByType);
+    }
+    
+    @Override
+    public CompletableFuture<Integer> countActiveAsync() {
+        return executor.supply(delegate::countActive);
+    }
+    
+    @Override
+    public CompletableFuture<List<String>> findFavoriteGenresAsync(String userId) {
+        return executor.supply(() -> delegate.findFavoriteGenres(userId));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> addFavoriteGenreAsync(String userId, String genre) {
+        return executor.supply(() -> delegate.addFavoriteGenre(userId, genre));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> removeFavoriteGenreAsync(String userId, String genre) {
+        return executor.supply(() -> delegate.removeFavoriteGenre(userId, genre));
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> clearFavoriteGenresAsync(String userId) {
+        return executor.supply(() -> delegate.clearFavoriteGenres(userId));
+    }
+    
+    @Override
+    public CompletableFuture<Set<String>> findUserIdsByFavoriteGenreAsync(String genre) {
+        return executor.supply(() -> delegate.findUserIdsByFavoriteGenre(genre));
+    }
+}
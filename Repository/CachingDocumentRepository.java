@@ -0,0 +1,165 @@
+import com.library.model.Document;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Decorator bộ nhớ đệm cho DocumentRepository.
+ * Tra cứu theo ID được phục vụ từ EntityCache; các thao tác ghi đi thẳng xuống repository
+ * gốc rồi cập nhật hoặc loại bỏ mục tương ứng (write-through).
+ * Các truy vấn danh sách không được lưu đệm.
+ */
+public class CachingDocumentRepository implements DocumentRepository {
+    private final DocumentRepository delegate;
+    private final EntityCache<Document> cache;
+    
+    public CachingDocumentRepository(DocumentRepository delegate, int maxSize, long ttlMillis) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maxSize, ttlMillis, InMemoryDatabase::copy);
+    }
+    
+    @Override
+    public boolean save(Document document) {
+        boolean saved = delegate.save(document);
+        if (saved) {
+            cache.put(document.getId(), document);
+        } else {
+            cache.invalidate(document.getId());
+        }
+        return saved;
+    }
+    
+    @Override
+    public Document findById(String id) {
+        Document document = cache.get(id);
+        if (document == null) {
+            document = delegate.findById(id);
+            cache.put(id, document);
+        }
+        return document;
+    }
+    
+    @Override
+    public Map<String, Document> findByIds(Collection<String> ids) {
+        Map<String, Document> documents = cache.getAll(ids);
+        Set<String> missing = new HashSet<>(ids);
+        missing.removeAll(documents.keySet());
+        missing.remove(null);
+        if (!missing.isEmpty()) {
+            Map<String, Document> loaded = delegate.findByIds(missing);
+            cache.putAll(loaded);
+            documents.putAll(loaded);
+        }
+        return documents;
+    }
+    
+    @Override
+    public List<Document> findAll() {
+        return delegate.findAll();
+    }
+    
+    @Override
+    public Stream<Document> streamAll() {
+        return delegate.streamAll();
+    }
+    
+    @Override
+    public boolean update(Document document) {
+        boolean updated = delegate.update(document);
+        if (updated) {
+            cache.put(document.getId(), document);
+        } else {
+            // Đối tượng có thể đã bị sửa trong bộ nhớ; bỏ để lần sau đọc lại từ cơ sở dữ liệu
+            cache.invalidate(document.getId());
+        }
+        return updated;
+    }
+    
+    @Override
+    public boolean delete(String id) {
+        boolean deleted = delegate.delete(id);
+        cache.invalidate(id);
+        return deleted;
+    }
+    
+    @Override
+    public List<Document> findByTitle(String title) {
+        return delegate.findByTitle(title);
+    }
+    
+    @Override
+    public List<Document> findByAuthor(String author) {
+        return delegate.findByAuthor(author);
+    }
+    
+    @Override
+    public List<Document> findByGenre(String genre) {
+        return delegate.findByGenre(genre);
+    }
+    
+    @Override
+    public List<Document> findAvailable() {
+        return delegate.findAvailable();
+    }
+    
+    @Override
+    public List<Document> findByIsbn(String isbn) {
+        return delegate.findByIsbn(isbn);
+    }
+    
+    @Override
+    public List<Document> findByTitleAuthorKey(String titleAuthorKey) {
+        return delegate.findByTitleAuthorKey(titleAuthorKey);
+    }
+    
+    @Override
+    public boolean updateQuantity(String documentId, int availableQuantity) {
+        boolean updated = delegate.updateQuantity(documentId, availableQuantity);
+        cache.invalidate(documentId);
+        return updated;
+    }
+    
+    @Override
+    public int reconcileAvailableQuantity(String documentId) {
+        int available = delegate.reconcileAvailableQuantity(documentId);
+        cache.invalidate(documentId);
+        return available;
+    }
+    
+    @Override
+    public Page<Document> findPage(PageRequest request) {
+        return delegate.findPage(request);
+    }
+    
+    @Override
+    public int count(PageRequest request) {
+        return delegate.count(request);
+    }
+    
+    @Override
+    public Map<String, Integer> countByGenre() {
+        return delegate.countByGenre();
+    }
+    
+    @Override
+    public int countAvailable() {
+        return delegate.countAvailable();
+    }
+    
+    /**
+     * Bỏ một tài liệu khỏi bộ nhớ đệm (ví dụ khi số lượng thay đổi do mượn/trả)
+     */
+    public void invalidate(String documentId) {
+        cache.invalidate(documentId);
+    }
+    
+    /**
+     * Lấy số liệu thống kê của bộ nhớ đệm
+     */
+    public EntityCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+}
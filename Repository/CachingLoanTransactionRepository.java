@@ -0,0 +1,200 @@
+import com.library.model.LoanTransaction;
+import com.library.model.LoanView;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Decorator bộ nhớ đệm cho LoanTransactionRepository.
+ * Tra cứu theo ID được phục vụ từ EntityCache; các thao tác ghi đi thẳng xuống repository
+ * gốc rồi cập nhật hoặc loại bỏ mục tương ứng (write-through).
+ * Mượn/trả làm thay đổi số lượng còn lại của tài liệu và danh sách tài liệu đang mượn của
+ * người dùng, nên decorator báo cho bộ nhớ đệm tài liệu và người dùng qua callback để bỏ mục tương ứng.
+ */
+public class CachingLoanTransactionRepository implements LoanTransactionRepository {
+    private final LoanTransactionRepository delegate;
+    private final EntityCache<LoanTransaction> cache;
+    private final Consumer<String> documentInvalidator;
+    private final Consumer<String> userInvalidator;
+    
+    /**
+     * @param delegate repository gốc
+     * @param maxSize số giao dịch tối đa trong bộ nhớ đệm
+     * @param ttlMillis thời gian sống của mỗi mục (mili giây)
+     * @param documentInvalidator callback bỏ tài liệu khỏi bộ nhớ đệm tài liệu (có thể null)
+     * @param userInvalidator callback bỏ người dùng khỏi bộ nhớ đệm người dùng (có thể null)
+     */
+    public CachingLoanTransactionRepository(LoanTransactionRepository delegate, int maxSize, long ttlMillis,
+                                            Consumer<String> documentInvalidator,
+                                            Consumer<String> userInvalidator) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maxSize, ttlMillis, InMemoryDatabase::copy);
+        this.documentInvalidator = documentInvalidator != null ? documentInvalidator : id -> { };
+        this.userInvalidator = userInvalidator != null ? userInvalidator : id -> { };
+    }
+    
+    @Override
+    public boolean save(LoanTransaction transaction) {
+        boolean saved = delegate.save(transaction);
+        if (saved) {
+            cache.put(transaction.getId(), transaction);
+        } else {
+            cache.invalidate(transaction.getId());
+        }
+        return saved;
+    }
+    
+    @Override
+    public LoanTransaction findById(String id) {
+        LoanTransaction transaction = cache.get(id);
+        if (transaction == null) {
+            transaction = delegate.findById(id);
+            cache.put(id, transaction);
+        }
+        return transaction;
+    }
+    
+    @Override
+    public List<LoanTransaction> findAll() {
+        return delegate.findAll();
+    }
+    
+    @Override
+    public Stream<LoanTransaction> streamAll() {
+        return delegate.streamAll();
+    }
+    
+    @Override
+    public boolean update(LoanTransaction transaction) {
+        boolean updated = delegate.update(transaction);
+        if (updated) {
+            cache.put(transaction.getId(), transaction);
+        } else {
+            cache.invalidate(transaction.getId());
+        }
+        return updated;
+    }
+    
+    @Override
+    public boolean delete(String id) {
+        boolean deleted = delegate.delete(id);
+        cache.invalidate(id);
+        return deleted;
+    }
+    
+    @Override
+    public List<LoanTransaction> findByUserId(String userId) {
+        return delegate.findByUserId(userId);
+    }
+    
+    @Override
+    public List<LoanTransaction> findByDocumentId(String documentId) {
+        return delegate.findByDocumentId(documentId);
+    }
+    
+    @Override
+    public List<LoanTransaction> findActiveTransactions() {
+        return delegate.findActiveTransactions();
+    }
+    
+    @Override
+    public List<LoanTransaction> findOverdueTransactions() {
+        return delegate.findOverdueTransactions();
+    }
+    
+    @Override
+    public int countAll() {
+        return delegate.countAll();
+    }
+    
+    @Override
+    public int countOverdue() {
+        return delegate.countOverdue();
+    }
+    
+    @Override
+    public List<LoanTransaction> findActiveTransactionsByUserId(String userId) {
+        return delegate.findActiveTransactionsByUserId(userId);
+    }
+    
+    @Override
+    public boolean isDocumentBorrowed(String documentId) {
+        return delegate.isDocumentBorrowed(documentId);
+    }
+    
+    @Override
+    public boolean borrow(LoanTransaction transaction) {
+        boolean borrowed = delegate.borrow(transaction);
+        if (borrowed) {
+            cache.put(transaction.getId(), transaction);
+            documentInvalidator.accept(transaction.getDocumentId());
+            userInvalidator.accept(transaction.getUserId());
+        }
+        return borrowed;
+    }
+    
+    @Override
+    public boolean completeReturn(LoanTransaction transaction) {
+        boolean returned = delegate.completeReturn(transaction);
+        // Dù thành công hay thất bại, đối tượng trong bộ nhớ có thể không còn khớp cơ sở dữ liệu
+        cache.invalidate(transaction.getId());
+        if (returned) {
+            documentInvalidator.accept(transaction.getDocumentId());
+            userInvalidator.accept(transaction.getUserId());
+        }
+        return returned;
+    }
+    
+    @Override
+    public boolean renew(LoanTransaction transaction, int expectedRenewalCount) {
+        boolean renewed = delegate.renew(transaction, expectedRenewalCount);
+        cache.invalidate(transaction.getId());
+        return renewed;
+    }
+    
+    @Override
+    public List<String> markOverdue(Collection<String> ids, LocalDate today) {
+        List<String> marked = delegate.markOverdue(ids, today);
+        if (marked == null) {
+            if (ids != null) {
+                ids.forEach(cache::invalidate);
+            }
+        } else {
+            marked.forEach(cache::invalidate);
+        }
+        return marked;
+    }
+    
+    /**
+     * Tiền phạt thay đổi trên nhiều giao dịch không biết trước, nên bỏ toàn bộ bộ nhớ đệm giao dịch
+     */
+    @Override
+    public int accrueFines(LocalDate today, double dailyFineRate) {
+        int accrued = delegate.accrueFines(today, dailyFineRate);
+        if (accrued != 0) {
+            cache.invalidateAll();
+        }
+        return accrued;
+    }
+    
+    @Override
+    public List<LoanView> findLoanViews(LoanView.Filter filter) {
+        return delegate.findLoanViews(filter);
+    }
+    
+    /**
+     * Bỏ một giao dịch khỏi bộ nhớ đệm (ví dụ khi phát lại nhật ký ghi trước đã sửa hoặc từ chối thao tác)
+     */
+    public void invalidate(String transactionId) {
+        cache.invalidate(transactionId);
+    }
+    
+    /**
+     * Lấy số liệu thống kê của bộ nhớ đệm
+     */
+    public EntityCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+}
@@ -0,0 +1,132 @@
+import com.library.model.RatingAggregate;
+import com.library.model.Review;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Decorator bộ nhớ đệm cho ReviewRepository.
+ * Tra cứu theo ID được phục vụ từ EntityCache; các thao tác ghi đi thẳng xuống repository
+ * gốc rồi cập nhật hoặc loại bỏ mục tương ứng (write-through).
+ * Điểm trung bình đã được repository gốc tổng hợp sẵn nên chỉ chuyển tiếp.
+ */
+public class CachingReviewRepository implements ReviewRepository {
+    private final ReviewRepository delegate;
+    private final EntityCache<Review> cache;
+    
+    public CachingReviewRepository(ReviewRepository delegate, int maxSize, long ttlMillis) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maxSize, ttlMillis, InMemoryDatabase::copy);
+    }
+    
+    @Override
+    public boolean save(Review review) {
+        boolean saved = delegate.save(review);
+        if (saved) {
+            cache.put(review.getId(), review);
+        } else {
+            cache.invalidate(review.getId());
+        }
+        return saved;
+    }
+    
+    @Override
+    public Review findById(String id) {
+        Review review = cache.get(id);
+        if (review == null) {
+            review = delegate.findById(id);
+            cache.put(id, review);
+        }
+        return review;
+    }
+    
+    @Override
+    public Map<String, Review> findByIds(Collection<String> ids) {
+        Map<String, Review> reviews = cache.getAll(ids);
+        Set<String> missing = new HashSet<>(ids);
+        missing.removeAll(reviews.keySet());
+        missing.remove(null);
+        if (!missing.isEmpty()) {
+            Map<String, Review> loaded = delegate.findByIds(missing);
+            cache.putAll(loaded);
+            reviews.putAll(loaded);
+        }
+        return reviews;
+    }
+    
+    @Override
+    public List<Review> findAll() {
+        return delegate.findAll();
+    }
+    
+    @Override
+    public Stream<Review> streamAll() {
+        return delegate.streamAll();
+    }
+    
+    @Override
+    public boolean update(Review review) {
+        boolean updated = delegate.update(review);
+        if (updated) {
+            cache.put(review.getId(), review);
+        } else {
+            // Đối tượng có thể đã bị sửa trong bộ nhớ (ví dụ tăng lượt hữu ích); bỏ để đọc lại
+            cache.invalidate(review.getId());
+        }
+        return updated;
+    }
+    
+    @Override
+    public boolean delete(String id) {
+        boolean deleted = delegate.delete(id);
+        cache.invalidate(id);
+        return deleted;
+    }
+    
+    @Override
+    public List<Review> findByDocumentId(String documentId) {
+        return delegate.findByDocumentId(documentId);
+    }
+    
+    @Override
+    public List<Review> findByUserId(String userId) {
+        return delegate.findByUserId(userId);
+    }
+    
+    @Override
+    public double getAverageRating(String documentId) {
+        return delegate.getAverageRating(documentId);
+    }
+    
+    @Override
+    public int getReviewCount(String documentId) {
+        return delegate.getReviewCount(documentId);
+    }
+    
+    @Override
+    public Map<String, RatingAggregate> getRatingAggregates() {
+        return delegate.getRatingAggregates();
+    }
+    
+    @Override
+    public boolean hasUserReviewed(String userId, String documentId) {
+        return delegate.hasUserReviewed(userId, documentId);
+    }
+    
+    /**
+     * Bỏ một đánh giá khỏi bộ nhớ đệm (ví dụ khi phát lại nhật ký ghi trước đã sửa hoặc từ chối thao tác)
+     */
+    public void invalidate(String reviewId) {
+        cache.invalidate(reviewId);
+    }
+    
+    /**
+     * Lấy số liệu thống kê của bộ nhớ đệm
+     */
+    public EntityCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+}
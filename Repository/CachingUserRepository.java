@@ -0,0 +1,174 @@
+import com.library.model.User;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Decorator bộ nhớ đệm cho UserRepository.
+ * Tra cứu theo ID được phục vụ từ EntityCache; các thao tác ghi đi thẳng xuống repository
+ * gốc rồi cập nhật hoặc loại bỏ mục tương ứng (write-through).
+ * Các truy vấn danh sách và thể loại yêu thích không được lưu đệm.
+ */
+public class CachingUserRepository implements UserRepository {
+    private final UserRepository delegate;
+    private final EntityCache<User> cache;
+    
+    public CachingUserRepository(UserRepository delegate, int maxSize, long ttlMillis) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>(maxSize, ttlMillis, CachingUserRepository::copy);
+    }
+    
+    @Override
+    public boolean save(User user) {
+        boolean saved = delegate.save(user);
+        if (saved) {
+            cache.put(user.getId(), user);
+        } else {
+            cache.invalidate(user.getId());
+        }
+        return saved;
+    }
+    
+    @Override
+    public User findById(String id) {
+        User user = cache.get(id);
+        if (user == null) {
+            user = delegate.findById(id);
+            cache.put(id, user);
+        }
+        return user;
+    }
+    
+    @Override
+    public Map<String, User> findByIds(Collection<String> ids) {
+        Map<String, User> users = cache.getAll(ids);
+        Set<String> missing = new HashSet<>(ids);
+        missing.removeAll(users.keySet());
+        missing.remove(null);
+        if (!missing.isEmpty()) {
+            Map<String, User> loaded = delegate.findByIds(missing);
+            cache.putAll(loaded);
+            users.putAll(loaded);
+        }
+        return users;
+    }
+    
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+    
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+    
+    @Override
+    public boolean update(User user) {
+        boolean updated = delegate.update(user);
+        if (updated) {
+            cache.put(user.getId(), user);
+        } else {
+            // Đối tượng có thể đã bị sửa trong bộ nhớ; bỏ để lần sau đọc lại từ cơ sở dữ liệu
+            cache.invalidate(user.getId());
+        }
+        return updated;
+    }
+    
+    @Override
+    public boolean delete(String id) {
+        boolean deleted = delegate.delete(id);
+        cache.invalidate(id);
+        return deleted;
+    }
+    
+    @Override
+    public List<User> findByName(String name) {
+        return delegate.findByName(name);
+    }
+    
+    @Override
+    public List<User> findTopBorrowers(int limit) {
+        return delegate.findTopBorrowers(limit);
+    }
+    
+    @Override
+    public Map<String, Double> findOutstandingFines(int limit) {
+        return delegate.findOutstandingFines(limit);
+    }
+    
+    @Override
+    public double getTotalOutstandingFines() {
+        return delegate.getTotalOutstandingFines();
+    }
+    
+    @Override
+    public Map<User.UserType, Integer> countByType() {
+        return delegate.countByType();
+    }
+    
+    @Override
+    public int countActive() {
+        return delegate.countActive();
+    }
+    
+    @Override
+    public List<String> findFavoriteGenres(String userId) {
+        return delegate.findFavoriteGenres(userId);
+    }
+    
+    @Override
+    public boolean addFavoriteGenre(String userId, String genre) {
+        boolean added = delegate.addFavoriteGenre(userId, genre);
+        cache.invalidate(userId);
+        return added;
+    }
+    
+    @Override
+    public boolean removeFavoriteGenre(String userId, String genre) {
+        boolean removed = delegate.removeFavoriteGenre(userId, genre);
+        cache.invalidate(userId);
+        return removed;
+    }
+    
+    @Override
+    public boolean clearFavoriteGenres(String userId) {
+        boolean cleared = delegate.clearFavoriteGenres(userId);
+        cache.invalidate(userId);
+        return cleared;
+    }
+    
+    @Override
+    public Set<String> findUserIdsByFavoriteGenre(String genre) {
+        return delegate.findUserIdsByFavoriteGenre(genre);
+    }
+    
+    /**
+     * Bỏ một người dùng khỏi bộ nhớ đệm (ví dụ khi danh sách tài liệu đang mượn thay đổi từ nơi khác)
+     */
+    public void invalidate(String userId) {
+        cache.invalidate(userId);
+    }
+    
+    /**
+     * Lấy số liệu thống kê của bộ nhớ đệm
+     */
+    public EntityCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+    
+    /**
+     * Sao chép người dùng kèm danh sách tài liệu đang mượn và thể loại yêu thích
+     * (findById của repository gốc nạp cả hai danh sách)
+     */
+    private static User copy(User source) {
+        User user = InMemoryDatabase.copy(source);
+        user.setBorrowedDocumentIds(new ArrayList<>(source.getBorrowedDocumentIds()));
+        user.setFavoriteGenres(new ArrayList<>(source.getFavoriteGenres()));
+        return user;
+    }
+}
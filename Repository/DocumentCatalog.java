@@ -0,0 +1,286 @@
+import com.library.model.Document;
+import com.library.model.DocumentSearchIndex;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Danh mục tài liệu gọn cho LogStructuredDatabase: với mỗi tài liệu chỉ giữ các cột dùng để lọc,
+ * sắp xếp và đếm (tiêu đề, tác giả, thể loại, ISBN, năm, số lượng còn), khóa chuỗi được chuẩn hóa sẵn.
+ *
+ * Cho phép đếm và chọn mã tài liệu của một trang mà không nạp toàn bộ nhật ký vào InMemoryDatabase.
+ * Quy tắc lọc và sắp xếp giống InMemoryDocumentRepository.findPage/count; nội dung đầy đủ của
+ * các tài liệu trong trang được đọc riêng theo mã.
+ */
+final class DocumentCatalog {
+
+    /**
+     * Dòng của danh mục; khóa chuẩn hóa của mỗi cột được tính ở lần đầu cột đó được lọc hoặc sắp xếp
+     * (mọi truy cập đều giữ khóa của danh mục)
+     */
+    private static final class Row {
+        final String id;
+        final String title;
+        final String author;
+        final String genre;
+        final String isbn;
+        final int year;
+        final int availableQuantity;
+        private String idKey;
+        private String titleKey;
+        private String authorKey;
+        private String genreKey;
+        private String isbnKey;
+
+        Row(String id, String title, String author, String genre, String isbn, int year, int availableQuantity) {
+            this.id = id;
+            this.title = title;
+            this.author = author;
+            this.genre = genre;
+            this.isbn = isbn;
+            this.year = year;
+            this.availableQuantity = availableQuantity;
+        }
+
+        String idKey() {
+            if (idKey == null) {
+                idKey = sortKey(id);
+            }
+            return idKey;
+        }
+
+        /** Khóa sắp xếp của cột (chuỗi đã chuẩn hóa; null nếu giá trị null, đứng đầu như TEXT_ORDER) */
+        Object key(String sortColumn) {
+            switch (sortColumn) {
+                case "author":
+                    if (authorKey == null) {
+                        authorKey = sortKey(author);
+                    }
+                    return authorKey;
+                case "genre":
+                    if (genreKey == null) {
+                        genreKey = sortKey(genre);
+                    }
+                    return genreKey;
+                case "year":
+                    return year;
+                case "id":
+                    return idKey();
+                default:
+                    if (titleKey == null) {
+                        titleKey = sortKey(title);
+                    }
+                    return titleKey;
+            }
+        }
+
+        /** Khóa dùng để lọc theo tiền tố (giống fold(cột).startsWith(tiền tố)); null nếu cột không được lọc */
+        String filterKey(String filterColumn) {
+            switch (filterColumn) {
+                case "author":
+                case "genre":
+                case "title":
+                    Object key = key(filterColumn);
+                    return key != null ? (String) key : "";
+                case "isbn":
+                    if (isbnKey == null) {
+                        isbnKey = DocumentSearchIndex.fold(isbn);
+                    }
+                    return isbnKey;
+                default:
+                    return null;
+            }
+        }
+    }
+
+    private Map<String, Row> rows = new HashMap<>();
+
+    synchronized void put(Document document) {
+        rows.put(document.getId(), new Row(document.getId(), document.getTitle(), document.getAuthor(),
+                document.getGenre(), document.getIsbn(), document.getYear(), document.getAvailableQuantity()));
+    }
+
+    synchronized void put(RecordCodecs.DocumentSummary summary) {
+        rows.put(summary.id, new Row(summary.id, summary.title, summary.author, summary.genre, summary.isbn,
+                                     summary.year, summary.availableQuantity));
+    }
+
+    synchronized void remove(String id) {
+        rows.remove(id);
+    }
+
+    /**
+     * Xóa danh mục trước khi dựng lại
+     * @param expected số tài liệu dự kiến (để cấp phát bảng băm một lần)
+     */
+    synchronized void clear(int expected) {
+        rows = new HashMap<>(Math.max(16, (int) (expected / 0.75f) + 1));
+    }
+
+    synchronized int count(PageRequest request) {
+        if (!request.hasFilter()) {
+            return rows.size();
+        }
+        String column = request.getFilterColumn();
+        String prefix = DocumentSearchIndex.fold(request.getFilterValue());
+        int count = 0;
+        for (Row row : rows.values()) {
+            if (matches(row, column, prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    synchronized Map<String, Integer> countByGenre() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Row row : rows.values()) {
+            counts.merge(row.genre, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    synchronized int countAvailable() {
+        int count = 0;
+        for (Row row : rows.values()) {
+            if (row.availableQuantity > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Mã các tài liệu của một trang, theo thứ tự của trang.
+     * Chỉ giữ (vị trí + kích thước trang) dòng đầu tiên trong một hàng đợi ưu tiên thay vì sắp xếp toàn bộ.
+     */
+    synchronized List<String> pageIds(PageRequest request) {
+        String sortColumn = sortColumn(request.getSortColumn());
+        Comparator<Row> order = Comparator.<Row, Object>comparing(row -> row.key(sortColumn), DocumentCatalog::compareKeys)
+                .thenComparing(Row::idKey, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+        if (!request.isAscending()) {
+            order = order.reversed();
+        }
+
+        boolean keyset = request.isKeyset();
+        boolean ascending = request.isAscending();
+        Object afterKey = keyset ? afterKey(sortColumn.equals("id") ? request.getAfterId() : request.getAfterValue()) : null;
+        String afterIdKey = keyset ? sortKey(request.getAfterId()) : null;
+        String filterColumn = request.hasFilter() ? request.getFilterColumn() : null;
+        String prefix = filterColumn != null ? DocumentSearchIndex.fold(request.getFilterValue()) : null;
+        int skip = keyset ? 0 : Math.max(request.getOffset(), 0);
+        int wanted = (int) Math.min((long) skip + request.getLimit(), Integer.MAX_VALUE);
+        if (wanted <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Hàng đợi theo thứ tự ngược: phần tử đầu là dòng "lớn nhất" trong số các dòng đang giữ
+        PriorityQueue<Row> top = new PriorityQueue<>(Math.min(wanted, 1024) + 1, order.reversed());
+        for (Row row : rows.values()) {
+            if (filterColumn != null && !matches(row, filterColumn, prefix)) {
+                continue;
+            }
+            if (keyset) {
+                int byValue = compareKeys(row.key(sortColumn), afterKey);
+                int cmp = byValue != 0 ? byValue : compareNullsFirst(row.idKey(), afterIdKey);
+                if (ascending ? cmp <= 0 : cmp >= 0) {
+                    continue;
+                }
+            }
+            if (top.size() < wanted) {
+                top.add(row);
+            } else if (order.compare(row, top.peek()) < 0) {
+                top.poll();
+                top.add(row);
+            }
+        }
+
+        List<Row> selected = new ArrayList<>(top);
+        selected.sort(order);
+        List<String> ids = new ArrayList<>();
+        for (int i = skip; i < selected.size(); i++) {
+            ids.add(selected.get(i).id);
+        }
+        return ids;
+    }
+
+    private static boolean matches(Row row, String filterColumn, String prefix) {
+        String key = row.filterKey(filterColumn);
+        return key == null || key.startsWith(prefix);
+    }
+
+    /**
+     * Cột sắp xếp được hỗ trợ (giống InMemoryDocumentRepository: mặc định là tiêu đề)
+     */
+    static String sortColumn(String requested) {
+        if (requested == null) {
+            return "title";
+        }
+        switch (requested) {
+            case "id":
+            case "author":
+            case "genre":
+            case "year":
+                return requested;
+            default:
+                return "title";
+        }
+    }
+
+    /**
+     * Giá trị cột sắp xếp của tài liệu, dùng làm khóa của trang tiếp theo
+     */
+    static Object sortValue(Document document, String sortColumn) {
+        switch (sortColumn) {
+            case "author":
+                return document.getAuthor();
+            case "genre":
+                return document.getGenre();
+            case "year":
+                return document.getYear();
+            case "id":
+                return document.getId();
+            default:
+                return document.getTitle();
+        }
+    }
+
+    private static String sortKey(String text) {
+        return text != null ? DocumentSearchIndex.fold(text) : null;
+    }
+
+    private static Object afterKey(Object value) {
+        if (value == null || value instanceof Number) {
+            return value;
+        }
+        return DocumentSearchIndex.fold(String.valueOf(value));
+    }
+
+    /**
+     * So sánh khóa: số theo giá trị, còn lại theo chuỗi đã chuẩn hóa (null đứng đầu)
+     */
+    private static int compareKeys(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+        }
+        return compareNullsFirst(text(a), text(b));
+    }
+
+    private static String text(Object key) {
+        if (key instanceof Number) {
+            return DocumentSearchIndex.fold(String.valueOf(key));
+        }
+        return (String) key;
+    }
+
+    private static int compareNullsFirst(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+}
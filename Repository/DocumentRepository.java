@@ -1,5 +1,8 @@
 import com.library.model.Document;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Interface repository cho các thao tác CRUD với tài liệu
@@ -17,11 +20,22 @@ public interface DocumentRepository {
      */
     Document findById(String id);
     
+    /**
+     * Tìm nhiều tài liệu theo danh sách ID trong một số truy vấn cố định (ID -> tài liệu)
+     */
+    Map<String, Document> findByIds(Collection<String> ids);
+    
     /**
      * Lấy danh sách tất cả tài liệu
      */
     List<Document> findAll();
     
+    /**
+     * Đọc dần tất cả tài liệu (cùng thứ tự với findAll) mà không nạp toàn bộ vào bộ nhớ.
+     * Stream giữ một kết nối cho đến khi được đóng, nên phải dùng trong try-with-resources
+     */
+    Stream<Document> streamAll();
+    
     /**
      * Cập nhật thông tin tài liệu
      */
@@ -52,8 +66,47 @@ public interface DocumentRepository {
      */
     List<Document> findAvailable();
     
+    /**
+     * Tìm tài liệu theo ISBN đã chuẩn hóa (ISBN-10 được đổi sang ISBN-13)
+     */
+    List<Document> findByIsbn(String isbn);
+    
+    /**
+     * Tìm tài liệu theo khóa tiêu đề + tác giả đã chuẩn hóa (xem DocumentKeys.titleAuthorKey)
+     */
+    List<Document> findByTitleAuthorKey(String titleAuthorKey);
+    
     /**
      * Cập nhật số lượng sau khi mượn/trả
      */
     boolean updateQuantity(String documentId, int availableQuantity);
+
+    /**
+     * Đặt lại số lượng còn lại theo các giao dịch đang mở: tổng số trừ số giao dịch đang mượn tài liệu
+     * (không nhỏ hơn 0), tính và ghi trong một thao tác trên máy chủ
+     * @return số lượng còn lại sau khi đặt lại, -1 nếu tài liệu không tồn tại hoặc có lỗi
+     */
+    int reconcileAvailableQuantity(String documentId);
+    
+    /**
+     * Đọc một trang tài liệu theo yêu cầu (sắp xếp, lọc, phân trang theo khóa)
+     */
+    Page<Document> findPage(PageRequest request);
+    
+    /**
+     * Đếm số tài liệu khớp bộ lọc của yêu cầu
+     */
+    int count(PageRequest request);
+    
+    /**
+     * Đếm tài liệu theo thể loại (GROUP BY genre; thể loại rỗng được gom dưới khóa null)
+     * @return thể loại -> số tài liệu, hoặc null nếu có lỗi
+     */
+    Map<String, Integer> countByGenre();
+    
+    /**
+     * Đếm tài liệu còn số lượng (available_quantity > 0)
+     * @return số tài liệu, -1 nếu có lỗi
+     */
+    int countAvailable();
 }
@@ -0,0 +1,204 @@
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bộ nhớ đệm thực thể theo khóa, giới hạn kích thước (loại bỏ theo LRU) và có thời gian sống (TTL).
+ * Dùng LinkedHashMap theo thứ tự truy cập; mọi thao tác được đồng bộ hóa vì bộ nhớ đệm
+ * được dùng chung giữa luồng giao diện và các luồng nền.
+ * Thực thể được sao chép khi ghi vào và khi đọc ra: bên gọi có thể sửa đối tượng nhận được
+ * (trước khi ghi xuống cơ sở dữ liệu) mà không làm luồng khác thấy thay đổi chưa lưu hoặc đã thất bại.
+ * @param <V> kiểu thực thể
+ */
+public class EntityCache<V> {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final UnaryOperator<V> copier;
+    private final LinkedHashMap<String, Entry<V>> entries;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+        
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    /**
+     * Số liệu thống kê của bộ nhớ đệm tại một thời điểm
+     */
+    public static final class Stats {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        
+        Stats(int size, int maxSize, long hits, long misses, long evictions) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+        
+        public int getSize() {
+            return size;
+        }
+        
+        public int getMaxSize() {
+            return maxSize;
+        }
+        
+        public long getHits() {
+            return hits;
+        }
+        
+        public long getMisses() {
+            return misses;
+        }
+        
+        public long getEvictions() {
+            return evictions;
+        }
+        
+        /**
+         * Tỉ lệ trúng bộ nhớ đệm (0.0 nếu chưa có lượt đọc nào)
+         */
+        public double getHitRate() {
+            long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0.0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("size=%d/%d, hits=%d, misses=%d, evictions=%d, hitRate=%.1f%%",
+                    size, maxSize, hits, misses, evictions, getHitRate() * 100);
+        }
+    }
+    
+    /**
+     * @param maxSize số thực thể tối đa giữ trong bộ nhớ đệm
+     * @param ttlMillis thời gian sống của mỗi thực thể (mili giây)
+     * @param copier tạo bản sao độc lập của một thực thể
+     */
+    public EntityCache(int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        if (maxSize <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Cache size and TTL must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.copier = copier;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    /**
+     * Lấy bản sao của thực thể theo khóa
+     * @return bản sao thực thể, hoặc null nếu không có hoặc đã hết hạn
+     */
+    public synchronized V get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return copier.apply(entry.value);
+    }
+    
+    /**
+     * Lấy các thực thể có trong bộ nhớ đệm cho tập khóa
+     * @return bảng khóa -> thực thể cho các khóa trúng bộ nhớ đệm
+     */
+    public synchronized Map<String, V> getAll(Collection<String> keys) {
+        Map<String, V> found = new HashMap<>();
+        for (String key : keys) {
+            if (key == null || found.containsKey(key)) {
+                continue;
+            }
+            V value = get(key);
+            if (value != null) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Ghi bản sao của thực thể vào bộ nhớ đệm (bỏ qua giá trị null)
+     */
+    public synchronized void put(String key, V value) {
+        if (key == null || value == null) {
+            return;
+        }
+        entries.put(key, new Entry<>(copier.apply(value), System.currentTimeMillis() + ttlMillis));
+    }
+    
+    /**
+     * Ghi nhiều thực thể vào bộ nhớ đệm
+     */
+    public synchronized void putAll(Map<String, V> values) {
+        for (Map.Entry<String, V> entry : values.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Bỏ một thực thể khỏi bộ nhớ đệm
+     */
+    public synchronized void invalidate(String key) {
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+    
+    /**
+     * Xóa toàn bộ bộ nhớ đệm
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+    
+    /**
+     * Dọn các thực thể đã hết hạn
+     */
+    public synchronized void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt <= now) {
+                iterator.remove();
+            }
+        }
+    }
+    
+    /**
+     * Lấy số liệu thống kê hiện tại
+     */
+    public synchronized Stats getStats() {
+        return new Stats(entries.size(), maxSize, hits, misses, evictions);
+    }
+}
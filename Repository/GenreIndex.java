@@ -0,0 +1,113 @@
+import com.library.model.DocumentSearchIndex;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chỉ mục ngược thể loại -> mã người dùng yêu thích thể loại đó.
+ * Được nạp một lần từ bảng user_favorite_genres và cập nhật khi thể loại yêu thích được thêm
+ * hoặc xóa, nên câu hỏi "những ai quan tâm thể loại X" không cần quét bảng.
+ * Thể loại được so khớp không phân biệt hoa thường và dấu, giống collation của cột trong MySQL.
+ * Bên ghi giữ khóa của đối tượng này trong lúc ghi cơ sở dữ liệu và cập nhật bộ nhớ,
+ * để lần nạp hàng loạt không bỏ sót một thay đổi đang diễn ra.
+ * Cập nhật chỉ thấy thay đổi của tiến trình này, nên chỉ mục được coi là cũ sau maxAgeMillis
+ * và được nạp lại, để thể loại yêu thích sửa từ các máy khác cũng xuất hiện.
+ */
+final class GenreIndex {
+    private final Map<String, Set<String>> usersByGenre = new ConcurrentHashMap<>();
+    private final long maxAgeMillis;
+    private volatile boolean loaded;
+    private volatile long loadedAt;
+
+    /**
+     * Chỉ mục không hết hạn (khi tiến trình này là bên ghi duy nhất, ví dụ kho trong bộ nhớ)
+     */
+    GenreIndex() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxAgeMillis thời gian dùng chỉ mục đã nạp trước khi nạp lại
+     */
+    GenreIndex(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Chuẩn hóa thể loại thành khóa của chỉ mục
+     */
+    static String key(String genre) {
+        return DocumentSearchIndex.fold(genre).trim();
+    }
+
+    /**
+     * Kiểm tra chỉ mục đã được nạp chưa (có thể đã cũ)
+     */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Kiểm tra chỉ mục đã nạp và chưa quá maxAgeMillis
+     */
+    boolean isFresh() {
+        return loaded && System.currentTimeMillis() - loadedAt < maxAgeMillis;
+    }
+
+    /**
+     * Thay toàn bộ dữ liệu bằng kết quả nạp hàng loạt
+     * @param bulk bảng ánh xạ thể loại (đã chuẩn hóa) -> mã người dùng
+     */
+    synchronized void load(Map<String, Set<String>> bulk) {
+        usersByGenre.clear();
+        for (Map.Entry<String, Set<String>> entry : bulk.entrySet()) {
+            Set<String> users = ConcurrentHashMap.newKeySet();
+            users.addAll(entry.getValue());
+            usersByGenre.put(entry.getKey(), users);
+        }
+        loadedAt = System.currentTimeMillis();
+        loaded = true;
+    }
+
+    synchronized void add(String userId, String genre) {
+        if (!loaded) {
+            return;
+        }
+        usersByGenre.computeIfAbsent(key(genre), k -> ConcurrentHashMap.newKeySet()).add(userId);
+    }
+
+    synchronized void remove(String userId, String genre) {
+        if (!loaded) {
+            return;
+        }
+        String key = key(genre);
+        Set<String> users = usersByGenre.get(key);
+        if (users != null) {
+            users.remove(userId);
+            if (users.isEmpty()) {
+                usersByGenre.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Bỏ người dùng khỏi mọi thể loại (khi xóa toàn bộ thể loại yêu thích hoặc xóa người dùng)
+     */
+    synchronized void removeUser(String userId) {
+        if (!loaded) {
+            return;
+        }
+        usersByGenre.values().forEach(users -> users.remove(userId));
+        usersByGenre.values().removeIf(Set::isEmpty);
+    }
+
+    /**
+     * Lấy mã các người dùng yêu thích thể loại
+     * @return bản sao tập mã người dùng (rỗng nếu không có)
+     */
+    Set<String> usersFor(String genre) {
+        Set<String> users = usersByGenre.get(key(genre));
+        return users != null ? new HashSet<>(users) : new HashSet<>();
+    }
+}
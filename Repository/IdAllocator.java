@@ -0,0 +1,17 @@
+/**
+ * Interface cấp phát mã định danh cho một loại thực thể (ví dụ "DOC0001")
+ * Các triển khai phải an toàn khi gọi đồng thời từ nhiều luồng
+ */
+public interface IdAllocator {
+    
+    /**
+     * Cấp phát mã tiếp theo
+     * @return mã mới, hoặc null nếu không thể cấp phát (ví dụ mất kết nối cơ sở dữ liệu)
+     */
+    String nextId();
+    
+    /**
+     * Lấy tiền tố của mã (ví dụ "DOC")
+     */
+    String getPrefix();
+}
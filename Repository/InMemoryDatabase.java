@@ -0,0 +1,298 @@
+import com.library.model.Document;
+import com.library.model.DocumentKeys;
+import com.library.model.DocumentSearchIndex;
+import com.library.model.LoanTransaction;
+import com.library.model.Review;
+import com.library.model.User;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cơ sở dữ liệu trong bộ nhớ dùng chung cho các repository InMemory*.
+ * Mỗi bảng là một ConcurrentHashMap mã -> dòng, kèm các chỉ mục phụ cho những truy vấn
+ * mà repository MySQL dựa vào chỉ mục (thể loại, tác giả, tình trạng còn sách, giao dịch theo
+ * người dùng/tài liệu/trạng thái/hạn trả, đánh giá theo tài liệu/người dùng).
+ *
+ * Dòng được lưu dưới dạng bản sao riêng, repository luôn trả về bản sao mới nên người gọi sửa
+ * đối tượng nhận được không làm thay đổi dữ liệu (giống đọc lại từ MySQL).
+ * Mọi thao tác ghi giữ khóa của đối tượng này để dòng chính và các chỉ mục phụ thay đổi cùng lúc
+ * (mượn/trả cập nhật nhiều bảng trong một lần giữ khóa, tương tự một giao dịch cơ sở dữ liệu).
+ * Đọc không cần khóa; người đọc kiểm tra lại điều kiện trên dòng chính sau khi tra chỉ mục.
+ */
+public final class InMemoryDatabase {
+
+    /** Thứ tự chuỗi gần với collation không phân biệt hoa thường/dấu của MySQL (NULL đứng đầu) */
+    static final Comparator<String> TEXT_ORDER =
+            Comparator.nullsFirst(Comparator.comparing(DocumentSearchIndex::fold));
+
+    // documents
+    final Map<String, Document> documents = new ConcurrentHashMap<>();
+    final SecondaryIndex documentsByGenre = new SecondaryIndex();
+    final SecondaryIndex documentsByAuthor = new SecondaryIndex();
+    final SecondaryIndex documentsByIsbnKey = new SecondaryIndex();
+    final SecondaryIndex documentsByTitleAuthorKey = new SecondaryIndex();
+    final Set<String> availableDocuments = ConcurrentHashMap.newKeySet();
+
+    // users
+    final Map<String, User> users = new ConcurrentHashMap<>();
+    final Map<String, Integer> activeLoanCounts = new ConcurrentHashMap<>();
+    /** Tiền phạt chưa thanh toán của mỗi người dùng (cột users.outstanding_fines) */
+    final Map<String, Double> outstandingFines = new ConcurrentHashMap<>();
+    final Map<String, Set<String>> favoriteGenres = new ConcurrentHashMap<>();
+    final GenreIndex genreIndex = new GenreIndex();
+
+    // loan_transactions
+    final Map<String, LoanTransaction> loans = new ConcurrentHashMap<>();
+    final SecondaryIndex loansByUser = new SecondaryIndex();
+    final SecondaryIndex loansByDocument = new SecondaryIndex();
+    final Map<LoanTransaction.TransactionStatus, Set<String>> loansByStatus =
+            new EnumMap<>(LoanTransaction.TransactionStatus.class);
+    /** Giao dịch chưa trả (return_date IS NULL) theo hạn trả */
+    final ConcurrentSkipListMap<LocalDate, Set<String>> openLoansByDueDate = new ConcurrentSkipListMap<>();
+
+    // reviews
+    final Map<String, Review> reviews = new ConcurrentHashMap<>();
+    final SecondaryIndex reviewsByDocument = new SecondaryIndex();
+    final SecondaryIndex reviewsByUser = new SecondaryIndex();
+    final RatingAggregateStore ratingAggregates = new RatingAggregateStore();
+
+    public InMemoryDatabase() {
+        for (LoanTransaction.TransactionStatus status : LoanTransaction.TransactionStatus.values()) {
+            loansByStatus.put(status, ConcurrentHashMap.newKeySet());
+        }
+        genreIndex.load(new HashMap<>());
+        ratingAggregates.load(new HashMap<>());
+    }
+
+    /**
+     * Xóa toàn bộ dữ liệu (ví dụ giữa các lần đo hiệu năng)
+     */
+    public synchronized void clear() {
+        documents.clear();
+        documentsByGenre.clear();
+        documentsByAuthor.clear();
+        documentsByIsbnKey.clear();
+        documentsByTitleAuthorKey.clear();
+        availableDocuments.clear();
+        users.clear();
+        activeLoanCounts.clear();
+        outstandingFines.clear();
+        favoriteGenres.clear();
+        genreIndex.load(new HashMap<>());
+        loans.clear();
+        loansByUser.clear();
+        loansByDocument.clear();
+        loansByStatus.values().forEach(Set::clear);
+        openLoansByDueDate.clear();
+        reviews.clear();
+        reviewsByDocument.clear();
+        reviewsByUser.clear();
+        ratingAggregates.load(new HashMap<>());
+    }
+
+    // ==================== GHI (gọi khi đang giữ khóa) ====================
+
+    void putDocument(Document document) {
+        Document stored = copy(document);
+        Document previous = documents.put(stored.getId(), stored);
+        if (previous != null) {
+            unindexDocument(previous);
+        }
+        documentsByGenre.add(DocumentSearchIndex.fold(stored.getGenre()), stored.getId());
+        documentsByAuthor.add(DocumentSearchIndex.fold(stored.getAuthor()), stored.getId());
+        documentsByIsbnKey.add(DocumentKeys.normalizeIsbn(stored.getIsbn()), stored.getId());
+        documentsByTitleAuthorKey.add(DocumentKeys.titleAuthorKey(stored.getTitle(), stored.getAuthor()), stored.getId());
+        if (stored.getAvailableQuantity() > 0) {
+            availableDocuments.add(stored.getId());
+        }
+    }
+
+    Document removeDocument(String id) {
+        Document previous = documents.remove(id);
+        if (previous != null) {
+            unindexDocument(previous);
+        }
+        return previous;
+    }
+
+    private void unindexDocument(Document document) {
+        documentsByGenre.remove(DocumentSearchIndex.fold(document.getGenre()), document.getId());
+        documentsByAuthor.remove(DocumentSearchIndex.fold(document.getAuthor()), document.getId());
+        documentsByIsbnKey.remove(DocumentKeys.normalizeIsbn(document.getIsbn()), document.getId());
+        documentsByTitleAuthorKey.remove(DocumentKeys.titleAuthorKey(document.getTitle(), document.getAuthor()),
+                                         document.getId());
+        availableDocuments.remove(document.getId());
+    }
+
+    void putLoan(LoanTransaction transaction) {
+        LoanTransaction stored = copy(transaction);
+        LoanTransaction previous = loans.put(stored.getId(), stored);
+        if (previous != null) {
+            unindexLoan(previous);
+        }
+        loansByUser.add(stored.getUserId(), stored.getId());
+        loansByDocument.add(stored.getDocumentId(), stored.getId());
+        if (stored.getStatus() != null) {
+            loansByStatus.get(stored.getStatus()).add(stored.getId());
+        }
+        if (stored.getReturnDate() == null && stored.getDueDate() != null) {
+            openLoansByDueDate.computeIfAbsent(stored.getDueDate(), d -> ConcurrentHashMap.newKeySet()).add(stored.getId());
+        }
+    }
+
+    LoanTransaction removeLoan(String id) {
+        LoanTransaction previous = loans.remove(id);
+        if (previous != null) {
+            unindexLoan(previous);
+        }
+        return previous;
+    }
+
+    private void unindexLoan(LoanTransaction transaction) {
+        loansByUser.remove(transaction.getUserId(), transaction.getId());
+        loansByDocument.remove(transaction.getDocumentId(), transaction.getId());
+        if (transaction.getStatus() != null) {
+            loansByStatus.get(transaction.getStatus()).remove(transaction.getId());
+        }
+        if (transaction.getDueDate() != null) {
+            openLoansByDueDate.computeIfPresent(transaction.getDueDate(), (d, ids) -> {
+                ids.remove(transaction.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    void putReview(Review review) {
+        Review stored = copy(review);
+        Review previous = reviews.put(stored.getId(), stored);
+        if (previous != null) {
+            reviewsByDocument.remove(previous.getDocumentId(), previous.getId());
+            reviewsByUser.remove(previous.getUserId(), previous.getId());
+            ratingAggregates.remove(previous.getDocumentId(), previous.getRating());
+        }
+        reviewsByDocument.add(stored.getDocumentId(), stored.getId());
+        reviewsByUser.add(stored.getUserId(), stored.getId());
+        ratingAggregates.add(stored.getDocumentId(), stored.getRating());
+    }
+
+    Review removeReview(String id) {
+        Review previous = reviews.remove(id);
+        if (previous != null) {
+            reviewsByDocument.remove(previous.getDocumentId(), previous.getId());
+            reviewsByUser.remove(previous.getUserId(), previous.getId());
+            ratingAggregates.remove(previous.getDocumentId(), previous.getRating());
+        }
+        return previous;
+    }
+
+    // ==================== ĐỌC ====================
+
+    /**
+     * Kiểm tra giao dịch đang mượn (cùng điều kiện với QueryHelper.OPEN_LOAN_CONDITION)
+     */
+    static boolean isOpenLoan(LoanTransaction transaction) {
+        return transaction.isOpen();
+    }
+
+    /**
+     * Lấy bản sao các dòng theo tập mã (bỏ qua mã đã bị xóa)
+     */
+    static <T> List<T> rows(Map<String, T> table, Set<String> ids, UnaryOperator<T> copier) {
+        List<T> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T row = table.get(id);
+            if (row != null) {
+                result.add(copier.apply(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tạo tập thể loại yêu thích rỗng của một người dùng (không trùng lặp theo hoa thường, sắp xếp theo tên)
+     */
+    static Set<String> newGenreSet() {
+        return Collections.synchronizedSet(new TreeSet<>(String.CASE_INSENSITIVE_ORDER));
+    }
+
+    // ==================== SAO CHÉP DÒNG ====================
+
+    static Document copy(Document source) {
+        Document document = new Document();
+        document.setId(source.getId());
+        document.setTitle(source.getTitle());
+        document.setAuthor(source.getAuthor());
+        document.setGenre(source.getGenre());
+        document.setYear(source.getYear());
+        document.setDescription(source.getDescription());
+        document.setAddedDate(source.getAddedDate());
+        document.setIsbn(source.getIsbn());
+        document.setPublisher(source.getPublisher());
+        document.setPageCount(source.getPageCount());
+        document.setLanguage(source.getLanguage());
+        document.setEdition(source.getEdition());
+        document.setTotalQuantity(source.getTotalQuantity());
+        document.setAvailableQuantity(source.getAvailableQuantity());
+        return document;
+    }
+
+    /**
+     * Sao chép các cột của bảng users; danh sách tài liệu đang mượn và thể loại yêu thích
+     * không thuộc dòng người dùng và được repository nạp riêng
+     */
+    static User copy(User source) {
+        User user = new User();
+        user.setId(source.getId());
+        user.setName(source.getName());
+        user.setEmail(source.getEmail());
+        user.setPhone(source.getPhone());
+        user.setAddress(source.getAddress());
+        user.setRegistrationDate(source.getRegistrationDate());
+        user.setUserType(source.getUserType());
+        user.setActive(source.isActive());
+        user.setMaxBorrowLimit(source.getMaxBorrowLimit());
+        user.setBorrowedDocumentIds(new ArrayList<>());
+        user.setFavoriteGenres(new ArrayList<>());
+        return user;
+    }
+
+    static LoanTransaction copy(LoanTransaction source) {
+        LoanTransaction transaction = new LoanTransaction();
+        transaction.setId(source.getId());
+        transaction.setUserId(source.getUserId());
+        transaction.setDocumentId(source.getDocumentId());
+        transaction.setBorrowDate(source.getBorrowDate());
+        transaction.setDueDate(source.getDueDate());
+        transaction.setReturnDate(source.getReturnDate());
+        transaction.setStatus(source.getStatus());
+        transaction.setFineAmount(source.getFineAmount());
+        transaction.setFineAccruedThrough(source.getFineAccruedThrough());
+        transaction.setRenewalCount(source.getRenewalCount());
+        transaction.setMaxRenewals(source.getMaxRenewals());
+        return transaction;
+    }
+
+    static Review copy(Review source) {
+        Review review = new Review();
+        review.setId(source.getId());
+        review.setUserId(source.getUserId());
+        review.setDocumentId(source.getDocumentId());
+        review.setRating(source.getRating());
+        review.setComment(source.getComment());
+        review.setReviewDate(source.getReviewDate());
+        review.setHelpfulVotes(source.getHelpfulVotes());
+        review.setRecommended(source.getRating() >= 4);
+        return review;
+    }
+}
@@ -0,0 +1,339 @@
+import com.library.model.Document;
+import com.library.model.DocumentKeys;
+import com.library.model.DocumentSearchIndex;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Triển khai trong bộ nhớ của DocumentRepository trên InMemoryDatabase.
+ * Kết quả có cùng thứ tự và cùng điều kiện khớp với MySQLDocumentRepository
+ * (so khớp không phân biệt hoa thường và dấu như collation của MySQL).
+ */
+public class InMemoryDocumentRepository implements DocumentRepository {
+
+    /** Thứ tự ORDER BY title; các tài liệu cùng tiêu đề xếp theo ID để kết quả ổn định */
+    private static final Comparator<Document> BY_TITLE =
+            Comparator.comparing(Document::getTitle, InMemoryDatabase.TEXT_ORDER)
+                      .thenComparing(Document::getId, InMemoryDatabase.TEXT_ORDER);
+
+    private final InMemoryDatabase db;
+
+    public InMemoryDocumentRepository(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public boolean save(Document document) {
+        synchronized (db) {
+            if (document.getId() == null || db.documents.containsKey(document.getId())) {
+                return false;
+            }
+            db.putDocument(document);
+            return true;
+        }
+    }
+
+    @Override
+    public Document findById(String id) {
+        Document document = id != null ? db.documents.get(id) : null;
+        return document != null ? InMemoryDatabase.copy(document) : null;
+    }
+
+    @Override
+    public Map<String, Document> findByIds(Collection<String> ids) {
+        Map<String, Document> documents = new HashMap<>();
+        if (ids == null) {
+            return documents;
+        }
+        for (String id : ids) {
+            Document document = findById(id);
+            if (document != null) {
+                documents.put(id, document);
+            }
+        }
+        return documents;
+    }
+
+    @Override
+    public List<Document> findAll() {
+        return sorted(db.documents.keySet());
+    }
+
+    @Override
+    public Stream<Document> streamAll() {
+        return findAll().stream();
+    }
+
+    /**
+     * Cập nhật tài liệu; ngày thêm giữ nguyên như câu UPDATE của MySQL (không ghi cột added_date)
+     */
+    @Override
+    public boolean update(Document document) {
+        synchronized (db) {
+            Document existing = document.getId() != null ? db.documents.get(document.getId()) : null;
+            if (existing == null) {
+                return false;
+            }
+            Document updated = InMemoryDatabase.copy(document);
+            updated.setAddedDate(existing.getAddedDate());
+            db.putDocument(updated);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        synchronized (db) {
+            return id != null && db.removeDocument(id) != null;
+        }
+    }
+
+    @Override
+    public List<Document> findByTitle(String title) {
+        String needle = DocumentSearchIndex.fold(title);
+        return db.documents.values().stream()
+                .filter(d -> DocumentSearchIndex.fold(d.getTitle()).contains(needle))
+                .sorted(BY_TITLE)
+                .map(InMemoryDatabase::copy)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Tìm theo chuỗi con của tác giả: chỉ duyệt các tác giả phân biệt trong chỉ mục
+     */
+    @Override
+    public List<Document> findByAuthor(String author) {
+        String needle = DocumentSearchIndex.fold(author);
+        return sorted(db.documentsByAuthor.matching(key -> key.contains(needle)),
+                      d -> DocumentSearchIndex.fold(d.getAuthor()).contains(needle));
+    }
+
+    /**
+     * Tìm theo chuỗi con của thể loại: chỉ duyệt các thể loại phân biệt trong chỉ mục
+     */
+    @Override
+    public List<Document> findByGenre(String genre) {
+        String needle = DocumentSearchIndex.fold(genre);
+        return sorted(db.documentsByGenre.matching(key -> key.contains(needle)),
+                      d -> DocumentSearchIndex.fold(d.getGenre()).contains(needle));
+    }
+
+    @Override
+    public List<Document> findAvailable() {
+        return sorted(db.availableDocuments, d -> d.getAvailableQuantity() > 0);
+    }
+
+    @Override
+    public List<Document> findByIsbn(String isbn) {
+        String isbnKey = DocumentKeys.normalizeIsbn(isbn);
+        if (isbnKey == null) {
+            return new ArrayList<>();
+        }
+        return byId(db.documentsByIsbnKey.get(isbnKey),
+                    d -> isbnKey.equals(DocumentKeys.normalizeIsbn(d.getIsbn())));
+    }
+
+    @Override
+    public List<Document> findByTitleAuthorKey(String titleAuthorKey) {
+        return byId(db.documentsByTitleAuthorKey.get(titleAuthorKey),
+                    d -> titleAuthorKey != null
+                         && titleAuthorKey.equals(DocumentKeys.titleAuthorKey(d.getTitle(), d.getAuthor())));
+    }
+
+    @Override
+    public boolean updateQuantity(String documentId, int availableQuantity) {
+        synchronized (db) {
+            Document existing = documentId != null ? db.documents.get(documentId) : null;
+            if (existing == null) {
+                return false;
+            }
+            Document updated = InMemoryDatabase.copy(existing);
+            updated.setAvailableQuantity(availableQuantity);
+            db.putDocument(updated);
+            return true;
+        }
+    }
+
+    @Override
+    public int reconcileAvailableQuantity(String documentId) {
+        synchronized (db) {
+            Document existing = documentId != null ? db.documents.get(documentId) : null;
+            if (existing == null) {
+                return -1;
+            }
+            long openLoans = db.loansByDocument.get(documentId).stream()
+                    .map(db.loans::get)
+                    .filter(t -> t != null && documentId.equals(t.getDocumentId()) && InMemoryDatabase.isOpenLoan(t))
+                    .count();
+            Document updated = InMemoryDatabase.copy(existing);
+            updated.setAvailableQuantity((int) Math.max(0, existing.getTotalQuantity() - openLoans));
+            db.putDocument(updated);
+            return updated.getAvailableQuantity();
+        }
+    }
+
+    /**
+     * Đọc một trang theo cùng quy tắc với MySQLDocumentRepository.findPage:
+     * lọc theo tiền tố, sắp xếp theo (cột, id), bắt đầu sau khóa của trang trước hoặc theo vị trí
+     */
+    @Override
+    public Page<Document> findPage(PageRequest request) {
+        String sortColumn = sortColumn(request.getSortColumn());
+        Comparator<Document> order = Comparator.<Document, Object>comparing(d -> sortValue(d, sortColumn), this::compareValues)
+                .thenComparing(Document::getId, InMemoryDatabase.TEXT_ORDER);
+        if (!request.isAscending()) {
+            order = order.reversed();
+        }
+
+        Stream<Document> rows = filtered(request);
+        if (request.isKeyset()) {
+            String afterId = request.getAfterId();
+            Object afterValue = sortColumn.equals("id") ? afterId : request.getAfterValue();
+            boolean ascending = request.isAscending();
+            rows = rows.filter(d -> {
+                int byValue = compareValues(sortValue(d, sortColumn), afterValue);
+                int cmp = byValue != 0 ? byValue : InMemoryDatabase.TEXT_ORDER.compare(d.getId(), afterId);
+                return ascending ? cmp > 0 : cmp < 0;
+            });
+        }
+
+        Stream<Document> ordered = rows.sorted(order);
+        if (!request.isKeyset() && request.getOffset() > 0) {
+            ordered = ordered.skip(request.getOffset());
+        }
+        List<Document> documents = ordered.limit(request.getLimit())
+                .map(InMemoryDatabase::copy)
+                .collect(Collectors.toList());
+
+        PageRequest next = null;
+        if (documents.size() == request.getLimit()) {
+            Document last = documents.get(documents.size() - 1);
+            next = request.after(sortValue(last, sortColumn), last.getId());
+        }
+        return new Page<>(documents, next);
+    }
+
+    @Override
+    public int count(PageRequest request) {
+        return (int) filtered(request).count();
+    }
+
+    @Override
+    public Map<String, Integer> countByGenre() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Document document : db.documents.values()) {
+            counts.merge(document.getGenre(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Override
+    public int countAvailable() {
+        return (int) rowsOf(db.availableDocuments).filter(d -> d.getAvailableQuantity() > 0).count();
+    }
+
+    /**
+     * Các tài liệu khớp bộ lọc tiền tố của yêu cầu; thể loại và tác giả được lọc qua chỉ mục
+     */
+    private Stream<Document> filtered(PageRequest request) {
+        if (!request.hasFilter()) {
+            return db.documents.values().stream();
+        }
+        String prefix = DocumentSearchIndex.fold(request.getFilterValue());
+        switch (request.getFilterColumn()) {
+            case "author":
+                return rowsOf(db.documentsByAuthor.matching(key -> key.startsWith(prefix)))
+                        .filter(d -> DocumentSearchIndex.fold(d.getAuthor()).startsWith(prefix));
+            case "genre":
+                return rowsOf(db.documentsByGenre.matching(key -> key.startsWith(prefix)))
+                        .filter(d -> DocumentSearchIndex.fold(d.getGenre()).startsWith(prefix));
+            case "title":
+                return db.documents.values().stream()
+                        .filter(d -> DocumentSearchIndex.fold(d.getTitle()).startsWith(prefix));
+            case "isbn":
+                return db.documents.values().stream()
+                        .filter(d -> DocumentSearchIndex.fold(d.getIsbn()).startsWith(prefix));
+            default:
+                return db.documents.values().stream();
+        }
+    }
+
+    private Stream<Document> rowsOf(Set<String> ids) {
+        return ids.stream().map(db.documents::get).filter(d -> d != null);
+    }
+
+    private List<Document> sorted(Set<String> ids) {
+        return sorted(ids, d -> true);
+    }
+
+    /**
+     * Lấy các dòng theo tập mã từ chỉ mục, kiểm tra lại điều kiện trên dòng chính, sắp xếp theo tiêu đề
+     */
+    private List<Document> sorted(Set<String> ids, Predicate<Document> condition) {
+        return rowsOf(ids)
+                .filter(condition)
+                .sorted(BY_TITLE)
+                .map(InMemoryDatabase::copy)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Như sorted nhưng theo thứ tự ID (các truy vấn theo khóa chuẩn hóa dùng ORDER BY id)
+     */
+    private List<Document> byId(Set<String> ids, Predicate<Document> condition) {
+        return rowsOf(ids)
+                .filter(condition)
+                .sorted(Comparator.comparing(Document::getId, InMemoryDatabase.TEXT_ORDER))
+                .map(InMemoryDatabase::copy)
+                .collect(Collectors.toList());
+    }
+
+    private static String sortColumn(String requested) {
+        if (requested == null) {
+            return "title";
+        }
+        switch (requested) {
+            case "id":
+            case "author":
+            case "genre":
+            case "year":
+                return requested;
+            default:
+                return "title";
+        }
+    }
+
+    private static Object sortValue(Document document, String sortColumn) {
+        switch (sortColumn) {
+            case "author":
+                return document.getAuthor();
+            case "genre":
+                return document.getGenre();
+            case "year":
+                return document.getYear();
+            case "id":
+                return document.getId();
+            default:
+                return document.getTitle();
+        }
+    }
+
+    /**
+     * So sánh giá trị cột sắp xếp: số theo giá trị, chuỗi theo thứ tự không phân biệt hoa thường/dấu
+     */
+    private int compareValues(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+        }
+        return InMemoryDatabase.TEXT_ORDER.compare(a != null ? String.valueOf(a) : null,
+                                                   b != null ? String.valueOf(b) : null);
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Triển khai trong bộ nhớ của IdAllocator: phát mã tăng dần bằng AtomicLong,
+ * cùng định dạng với MySQLIdAllocator (tiền tố + số có ít nhất 4 chữ số).
+ * Dùng cùng các repository InMemory*; mã không được lưu lại khi ứng dụng tắt.
+ */
+public class InMemoryIdAllocator implements IdAllocator {
+    private final String prefix;
+    private final AtomicLong next;
+
+    /**
+     * @param prefix tiền tố mã (ví dụ "DOC")
+     */
+    public InMemoryIdAllocator(String prefix) {
+        this(prefix, 1);
+    }
+
+    /**
+     * @param prefix tiền tố mã (ví dụ "DOC")
+     * @param start số đầu tiên được phát
+     */
+    public InMemoryIdAllocator(String prefix, long start) {
+        this.prefix = prefix;
+        this.next = new AtomicLong(start);
+    }
+
+    @Override
+    public String nextId() {
+        return prefix + String.format("%04d", next.getAndIncrement());
+    }
+
+    @Override
+    public String getPrefix() {
+        return prefix;
+    }
+}
@@ -0,0 +1,369 @@
+import com.library.model.Document;
+import com.library.model.LoanTransaction;
+import com.library.model.LoanView;
+import com.library.model.User;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Triển khai trong bộ nhớ của LoanTransactionRepository trên InMemoryDatabase.
+ * Mượn, trả và gia hạn kiểm tra cùng điều kiện và cập nhật cùng các bảng như phiên bản MySQL,
+ * trong một lần giữ khóa của cơ sở dữ liệu thay cho giao dịch SQL.
+ */
+public class InMemoryLoanTransactionRepository implements LoanTransactionRepository {
+
+    /** ORDER BY borrow_date DESC (các giao dịch cùng ngày xếp theo ID giảm dần) */
+    private static final Comparator<LoanTransaction> BY_BORROW_DATE_DESC =
+            Comparator.comparing(LoanTransaction::getBorrowDate, Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()))
+                      .thenComparing(LoanTransaction::getId)
+                      .reversed();
+
+    /** ORDER BY due_date ASC (các giao dịch cùng hạn xếp theo ID) */
+    private static final Comparator<LoanTransaction> BY_DUE_DATE =
+            Comparator.comparing(LoanTransaction::getDueDate, Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()))
+                      .thenComparing(LoanTransaction::getId);
+
+    /** Trạng thái được tính là "đang hoạt động" trong các truy vấn findActive* và isDocumentBorrowed */
+    private static final Set<LoanTransaction.TransactionStatus> ACTIVE_STATUSES = EnumSet.of(
+            LoanTransaction.TransactionStatus.ACTIVE,
+            LoanTransaction.TransactionStatus.RENEWED,
+            LoanTransaction.TransactionStatus.OVERDUE);
+
+    private final InMemoryDatabase db;
+
+    public InMemoryLoanTransactionRepository(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public boolean save(LoanTransaction transaction) {
+        synchronized (db) {
+            if (transaction.getId() == null || db.loans.containsKey(transaction.getId())) {
+                return false;
+            }
+            db.putLoan(transaction);
+            return true;
+        }
+    }
+
+    @Override
+    public LoanTransaction findById(String id) {
+        LoanTransaction transaction = id != null ? db.loans.get(id) : null;
+        return transaction != null ? InMemoryDatabase.copy(transaction) : null;
+    }
+
+    @Override
+    public List<LoanTransaction> findAll() {
+        return select(db.loans.keySet(), t -> true, BY_BORROW_DATE_DESC);
+    }
+
+    @Override
+    public Stream<LoanTransaction> streamAll() {
+        return findAll().stream();
+    }
+
+    @Override
+    public boolean update(LoanTransaction transaction) {
+        synchronized (db) {
+            if (transaction.getId() == null || !db.loans.containsKey(transaction.getId())) {
+                return false;
+            }
+            db.putLoan(transaction);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        synchronized (db) {
+            return id != null && db.removeLoan(id) != null;
+        }
+    }
+
+    @Override
+    public List<LoanTransaction> findByUserId(String userId) {
+        return select(db.loansByUser.get(userId), t -> t.getUserId().equals(userId), BY_BORROW_DATE_DESC);
+    }
+
+    @Override
+    public List<LoanTransaction> findByDocumentId(String documentId) {
+        return select(db.loansByDocument.get(documentId), t -> t.getDocumentId().equals(documentId),
+                      BY_BORROW_DATE_DESC);
+    }
+
+    @Override
+    public List<LoanTransaction> findActiveTransactions() {
+        return select(openLoanIds(), this::isActive, BY_DUE_DATE);
+    }
+
+    /**
+     * Giao dịch chưa trả đã được đánh dấu OVERDUE: đọc từ chỉ mục theo trạng thái
+     */
+    @Override
+    public List<LoanTransaction> findOverdueTransactions() {
+        return select(statusIds(LoanTransaction.TransactionStatus.OVERDUE), this::isMarkedOverdue, BY_DUE_DATE);
+    }
+
+    @Override
+    public int countAll() {
+        return db.loans.size();
+    }
+
+    @Override
+    public int countOverdue() {
+        return (int) statusIds(LoanTransaction.TransactionStatus.OVERDUE).stream()
+                .map(db.loans::get)
+                .filter(t -> t != null && isMarkedOverdue(t))
+                .count();
+    }
+
+    @Override
+    public List<LoanTransaction> findActiveTransactionsByUserId(String userId) {
+        return select(db.loansByUser.get(userId), t -> t.getUserId().equals(userId) && isActive(t), BY_DUE_DATE);
+    }
+
+    @Override
+    public boolean isDocumentBorrowed(String documentId) {
+        for (String id : db.loansByDocument.get(documentId)) {
+            LoanTransaction transaction = db.loans.get(id);
+            if (transaction != null && transaction.getDocumentId().equals(documentId) && isActive(transaction)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mượn: kiểm tra người dùng còn hoạt động và chưa vượt giới hạn, giảm số lượng còn lại,
+     * lưu giao dịch và tăng bộ đếm lượt mượn của người dùng - tất cả hoặc không gì cả
+     */
+    @Override
+    public boolean borrow(LoanTransaction transaction) {
+        synchronized (db) {
+            User user = db.users.get(transaction.getUserId());
+            int activeLoans = db.activeLoanCounts.getOrDefault(transaction.getUserId(), 0);
+            if (user == null || !user.isActive() || activeLoans >= user.getMaxBorrowLimit()) {
+                return false;
+            }
+
+            Document document = db.documents.get(transaction.getDocumentId());
+            if (document == null || document.getAvailableQuantity() <= 0
+                    || transaction.getId() == null || db.loans.containsKey(transaction.getId())) {
+                return false;
+            }
+
+            Document updated = InMemoryDatabase.copy(document);
+            updated.setAvailableQuantity(document.getAvailableQuantity() - 1);
+            db.putDocument(updated);
+            db.putLoan(transaction);
+            db.activeLoanCounts.put(transaction.getUserId(), activeLoans + 1);
+            return true;
+        }
+    }
+
+    /**
+     * Trả: đóng giao dịch nếu còn đang mượn, tăng số lượng còn lại (không vượt tổng số),
+     * giảm bộ đếm lượt mượn và điều chỉnh số dư phạt của người dùng theo tiền phạt cuối cùng
+     */
+    @Override
+    public boolean completeReturn(LoanTransaction transaction) {
+        synchronized (db) {
+            LoanTransaction existing = db.loans.get(transaction.getId());
+            if (existing == null || !InMemoryDatabase.isOpenLoan(existing)) {
+                return false;
+            }
+
+            LoanTransaction closed = InMemoryDatabase.copy(existing);
+            closed.setReturnDate(transaction.getReturnDate());
+            closed.setStatus(transaction.getStatus());
+            closed.setFineAmount(transaction.getFineAmount());
+            db.putLoan(closed);
+            addOutstandingFine(existing.getUserId(), closed.getFineAmount() - existing.getFineAmount());
+
+            Document document = db.documents.get(existing.getDocumentId());
+            if (document != null && document.getAvailableQuantity() < document.getTotalQuantity()) {
+                Document updated = InMemoryDatabase.copy(document);
+                updated.setAvailableQuantity(document.getAvailableQuantity() + 1);
+                db.putDocument(updated);
+            }
+            db.activeLoanCounts.computeIfPresent(existing.getUserId(), (id, count) -> count > 0 ? count - 1 : 0);
+            return true;
+        }
+    }
+
+    /**
+     * Gia hạn nếu giao dịch còn đang mượn và số lần gia hạn vẫn bằng giá trị mong đợi
+     */
+    @Override
+    public boolean renew(LoanTransaction transaction, int expectedRenewalCount) {
+        synchronized (db) {
+            LoanTransaction existing = db.loans.get(transaction.getId());
+            if (existing == null || !InMemoryDatabase.isOpenLoan(existing)
+                    || existing.getRenewalCount() != expectedRenewalCount) {
+                return false;
+            }
+
+            LoanTransaction renewed = InMemoryDatabase.copy(existing);
+            renewed.setDueDate(transaction.getDueDate());
+            renewed.setStatus(transaction.getStatus());
+            renewed.setRenewalCount(transaction.getRenewalCount());
+            db.putLoan(renewed);
+            return true;
+        }
+    }
+
+    /**
+     * Chuyển sang OVERDUE các giao dịch còn đang mượn (ACTIVE/RENEWED) có hạn trả trước today,
+     * trong một lần giữ khóa của cơ sở dữ liệu
+     */
+    @Override
+    public List<String> markOverdue(Collection<String> ids, LocalDate today) {
+        List<String> marked = new ArrayList<>();
+        if (ids == null) {
+            return marked;
+        }
+        synchronized (db) {
+            for (String id : new HashSet<>(ids)) {
+                LoanTransaction existing = id != null ? db.loans.get(id) : null;
+                if (existing == null || !InMemoryDatabase.isOpenLoan(existing)
+                        || existing.getStatus() == LoanTransaction.TransactionStatus.OVERDUE
+                        || !existing.getDueDate().isBefore(today)) {
+                    continue;
+                }
+                LoanTransaction overdue = InMemoryDatabase.copy(existing);
+                overdue.setStatus(LoanTransaction.TransactionStatus.OVERDUE);
+                db.putLoan(overdue);
+                marked.add(id);
+            }
+        }
+        return marked;
+    }
+
+    @Override
+    public int accrueFines(LocalDate today, double dailyFineRate) {
+        return accrue(today, dailyFineRate).size();
+    }
+
+    /**
+     * Cộng dồn phạt cho các giao dịch OVERDUE chưa trả (đọc từ chỉ mục theo trạng thái):
+     * mỗi giao dịch được cộng số ngày từ lần cộng trước (hoặc hạn trả) đến today
+     * @return mã các giao dịch đã được cộng
+     */
+    List<String> accrue(LocalDate today, double dailyFineRate) {
+        List<String> accrued = new ArrayList<>();
+        synchronized (db) {
+            for (String id : new ArrayList<>(db.loansByStatus.get(LoanTransaction.TransactionStatus.OVERDUE))) {
+                LoanTransaction existing = db.loans.get(id);
+                if (existing == null || !isMarkedOverdue(existing)) {
+                    continue;
+                }
+                LocalDate from = existing.getFineAccruedThrough() != null
+                        ? existing.getFineAccruedThrough() : existing.getDueDate();
+                long days = ChronoUnit.DAYS.between(from, today);
+                if (days <= 0) {
+                    continue;
+                }
+                LoanTransaction updated = InMemoryDatabase.copy(existing);
+                updated.setFineAmount(existing.getFineAmount() + days * dailyFineRate);
+                updated.setFineAccruedThrough(today);
+                db.putLoan(updated);
+                addOutstandingFine(existing.getUserId(), days * dailyFineRate);
+                accrued.add(id);
+            }
+        }
+        return accrued;
+    }
+
+    private void addOutstandingFine(String userId, double delta) {
+        if (delta != 0) {
+            db.outstandingFines.compute(userId, (id, balance) -> Math.max(0.0, (balance != null ? balance : 0.0) + delta));
+        }
+    }
+
+    /**
+     * Bản chiếu hiển thị với cùng bộ lọc và thứ tự như truy vấn JOIN của MySQL
+     * (tên người dùng/tiêu đề là null nếu dòng liên quan đã bị xóa, như LEFT JOIN)
+     */
+    @Override
+    public List<LoanView> findLoanViews(LoanView.Filter filter) {
+        List<LoanTransaction> transactions;
+        switch (filter) {
+            case ACTIVE:
+                transactions = select(openLoanIds(), this::isActive, BY_BORROW_DATE_DESC);
+                break;
+            case RETURNED:
+                transactions = select(statusIds(LoanTransaction.TransactionStatus.RETURNED,
+                                                LoanTransaction.TransactionStatus.OVERDUE),
+                        t -> t.getReturnDate() != null
+                             && (t.getStatus() == LoanTransaction.TransactionStatus.RETURNED
+                                 || t.getStatus() == LoanTransaction.TransactionStatus.OVERDUE),
+                        BY_BORROW_DATE_DESC);
+                break;
+            case OVERDUE:
+                transactions = findOverdueTransactions();
+                break;
+            default:
+                transactions = findAll();
+                break;
+        }
+        return transactions.stream().map(this::toView).collect(Collectors.toList());
+    }
+
+    private LoanView toView(LoanTransaction t) {
+        User user = db.users.get(t.getUserId());
+        Document document = db.documents.get(t.getDocumentId());
+        return new LoanView(t.getId(), t.getUserId(), user != null ? user.getName() : null,
+                t.getDocumentId(), document != null ? document.getTitle() : null,
+                t.getBorrowDate(), t.getDueDate(), t.getReturnDate(), t.getStatus(),
+                t.getFineAmount(), t.getRenewalCount(), t.getMaxRenewals());
+    }
+
+    private boolean isActive(LoanTransaction transaction) {
+        return transaction.getReturnDate() == null && ACTIVE_STATUSES.contains(transaction.getStatus());
+    }
+
+    private boolean isMarkedOverdue(LoanTransaction transaction) {
+        return transaction.getReturnDate() == null
+                && transaction.getStatus() == LoanTransaction.TransactionStatus.OVERDUE;
+    }
+
+    /**
+     * Mã các giao dịch chưa trả từ chỉ mục theo hạn trả
+     */
+    private Set<String> openLoanIds() {
+        Set<String> ids = new HashSet<>();
+        db.openLoansByDueDate.values().forEach(ids::addAll);
+        return ids;
+    }
+
+    private Set<String> statusIds(LoanTransaction.TransactionStatus... statuses) {
+        Set<String> ids = new HashSet<>();
+        for (LoanTransaction.TransactionStatus status : statuses) {
+            ids.addAll(db.loansByStatus.get(status));
+        }
+        return ids;
+    }
+
+    /**
+     * Lấy các dòng theo tập mã từ chỉ mục, kiểm tra lại điều kiện trên dòng chính rồi sắp xếp
+     */
+    private List<LoanTransaction> select(Set<String> ids, Predicate<LoanTransaction> condition,
+                                         Comparator<LoanTransaction> order) {
+        return ids.stream()
+                .map(db.loans::get)
+                .filter(t -> t != null && condition.test(t))
+                .sorted(order)
+                .map(InMemoryDatabase::copy)
+                .collect(Collectors.toList());
+    }
+}
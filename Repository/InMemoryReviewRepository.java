@@ -0,0 +1,139 @@
+import com.library.model.RatingAggregate;
+import com.library.model.Review;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Triển khai trong bộ nhớ của ReviewRepository trên InMemoryDatabase.
+ * Điểm trung bình đọc từ bộ tổng hợp được cập nhật cùng lúc với mỗi lần ghi đánh giá.
+ */
+public class InMemoryReviewRepository implements ReviewRepository {
+
+    /** ORDER BY review_date DESC (các đánh giá cùng thời điểm xếp theo ID giảm dần) */
+    private static final Comparator<Review> BY_REVIEW_DATE_DESC =
+            Comparator.comparing(Review::getReviewDate, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+                      .thenComparing(Review::getId)
+                      .reversed();
+
+    private final InMemoryDatabase db;
+
+    public InMemoryReviewRepository(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public boolean save(Review review) {
+        synchronized (db) {
+            if (review.getId() == null || db.reviews.containsKey(review.getId())) {
+                return false;
+            }
+            db.putReview(review);
+            return true;
+        }
+    }
+
+    @Override
+    public Review findById(String id) {
+        Review review = id != null ? db.reviews.get(id) : null;
+        return review != null ? InMemoryDatabase.copy(review) : null;
+    }
+
+    @Override
+    public Map<String, Review> findByIds(Collection<String> ids) {
+        Map<String, Review> reviews = new HashMap<>();
+        if (ids == null) {
+            return reviews;
+        }
+        for (String id : ids) {
+            Review review = findById(id);
+            if (review != null) {
+                reviews.put(id, review);
+            }
+        }
+        return reviews;
+    }
+
+    @Override
+    public List<Review> findAll() {
+        return select(db.reviews.keySet(), r -> true);
+    }
+
+    @Override
+    public Stream<Review> streamAll() {
+        return findAll().stream();
+    }
+
+    @Override
+    public boolean update(Review review) {
+        synchronized (db) {
+            if (review.getId() == null || !db.reviews.containsKey(review.getId())) {
+                return false;
+            }
+            db.putReview(review);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        synchronized (db) {
+            return id != null && db.removeReview(id) != null;
+        }
+    }
+
+    @Override
+    public List<Review> findByDocumentId(String documentId) {
+        return select(db.reviewsByDocument.get(documentId), r -> r.getDocumentId().equals(documentId));
+    }
+
+    @Override
+    public List<Review> findByUserId(String userId) {
+        return select(db.reviewsByUser.get(userId), r -> r.getUserId().equals(userId));
+    }
+
+    @Override
+    public double getAverageRating(String documentId) {
+        return db.ratingAggregates.get(documentId).getAverageRating();
+    }
+
+    @Override
+    public int getReviewCount(String documentId) {
+        return db.ratingAggregates.get(documentId).getReviewCount();
+    }
+
+    @Override
+    public Map<String, RatingAggregate> getRatingAggregates() {
+        return db.ratingAggregates.snapshot();
+    }
+
+    @Override
+    public boolean hasUserReviewed(String userId, String documentId) {
+        for (String id : db.reviewsByUser.get(userId)) {
+            Review review = db.reviews.get(id);
+            if (review != null && review.getUserId().equals(userId) && review.getDocumentId().equals(documentId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lấy các dòng theo tập mã từ chỉ mục, kiểm tra lại điều kiện trên dòng chính, mới nhất trước
+     */
+    private List<Review> select(Set<String> ids, Predicate<Review> condition) {
+        return ids.stream()
+                .map(db.reviews::get)
+                .filter(r -> r != null && condition.test(r))
+                .sorted(BY_REVIEW_DATE_DESC)
+                .map(InMemoryDatabase::copy)
+                .collect(Collectors.toList());
+    }
+}
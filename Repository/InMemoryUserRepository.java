@@ -0,0 +1,251 @@
+import com.library.model.DocumentSearchIndex;
+import com.library.model.LoanTransaction;
+import com.library.model.User;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Triển khai trong bộ nhớ của UserRepository trên InMemoryDatabase.
+ * Người dùng trả về được nạp sẵn tài liệu đang mượn (từ chỉ mục giao dịch theo người dùng)
+ * và thể loại yêu thích, giống MySQLUserRepository.
+ */
+public class InMemoryUserRepository implements UserRepository {
+
+    /** Thứ tự ORDER BY name; các người dùng cùng tên xếp theo ID để kết quả ổn định */
+    private static final Comparator<User> BY_NAME =
+            Comparator.comparing(User::getName, InMemoryDatabase.TEXT_ORDER)
+                      .thenComparing(User::getId, InMemoryDatabase.TEXT_ORDER);
+
+    private final InMemoryDatabase db;
+
+    public InMemoryUserRepository(InMemoryDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public boolean save(User user) {
+        synchronized (db) {
+            if (user.getId() == null || db.users.containsKey(user.getId())) {
+                return false;
+            }
+            db.users.put(user.getId(), InMemoryDatabase.copy(user));
+            db.activeLoanCounts.put(user.getId(), 0);
+            return true;
+        }
+    }
+
+    @Override
+    public User findById(String id) {
+        User user = id != null ? db.users.get(id) : null;
+        return user != null ? hydrate(user) : null;
+    }
+
+    @Override
+    public Map<String, User> findByIds(Collection<String> ids) {
+        Map<String, User> users = new HashMap<>();
+        if (ids == null) {
+            return users;
+        }
+        for (String id : ids) {
+            User user = findById(id);
+            if (user != null) {
+                users.put(id, user);
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> findAll() {
+        return db.users.values().stream()
+                .sorted(BY_NAME)
+                .map(this::hydrate)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return findAll().stream();
+    }
+
+    /**
+     * Cập nhật người dùng; ngày đăng ký và bộ đếm lượt mượn giữ nguyên như câu UPDATE của MySQL
+     */
+    @Override
+    public boolean update(User user) {
+        synchronized (db) {
+            User existing = user.getId() != null ? db.users.get(user.getId()) : null;
+            if (existing == null) {
+                return false;
+            }
+            User updated = InMemoryDatabase.copy(user);
+            updated.setRegistrationDate(existing.getRegistrationDate());
+            db.users.put(updated.getId(), updated);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        synchronized (db) {
+            if (id == null || db.users.remove(id) == null) {
+                return false;
+            }
+            db.activeLoanCounts.remove(id);
+            db.outstandingFines.remove(id);
+            db.favoriteGenres.remove(id);
+            db.genreIndex.removeUser(id);
+            return true;
+        }
+    }
+
+    @Override
+    public List<User> findByName(String name) {
+        String needle = DocumentSearchIndex.fold(name);
+        return db.users.values().stream()
+                .filter(u -> DocumentSearchIndex.fold(u.getName()).contains(needle))
+                .sorted(BY_NAME)
+                .map(this::hydrate)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Lấy những người dùng đang mượn nhiều nhất theo bộ đếm lượt mượn
+     * (cùng thứ tự với MySQL: số lượt giảm dần, rồi ID giảm dần)
+     */
+    @Override
+    public List<User> findTopBorrowers(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        return db.activeLoanCounts.entrySet().stream()
+                .filter(e -> e.getValue() > 0 && db.users.containsKey(e.getKey()))
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(InMemoryDatabase.TEXT_ORDER.reversed())))
+                .limit(limit)
+                .map(e -> db.users.get(e.getKey()))
+                .filter(u -> u != null)
+                .map(this::hydrate)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Số dư phạt lớn nhất (cùng thứ tự với MySQL: số dư giảm dần, rồi ID giảm dần)
+     */
+    @Override
+    public Map<String, Double> findOutstandingFines(int limit) {
+        Map<String, Double> balances = new LinkedHashMap<>();
+        if (limit <= 0) {
+            return balances;
+        }
+        db.outstandingFines.entrySet().stream()
+                .filter(e -> e.getValue() > 0 && db.users.containsKey(e.getKey()))
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(InMemoryDatabase.TEXT_ORDER.reversed())))
+                .limit(limit)
+                .forEach(e -> balances.put(e.getKey(), e.getValue()));
+        return balances;
+    }
+
+    @Override
+    public double getTotalOutstandingFines() {
+        return db.outstandingFines.values().stream().mapToDouble(Double::doubleValue).sum();
+    }
+
+    @Override
+    public Map<User.UserType, Integer> countByType() {
+        Map<User.UserType, Integer> counts = new HashMap<>();
+        for (User user : db.users.values()) {
+            counts.merge(user.getUserType(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Override
+    public int countActive() {
+        return (int) db.users.values().stream().filter(User::isActive).count();
+    }
+
+    @Override
+    public List<String> findFavoriteGenres(String userId) {
+        Set<String> genres = userId != null ? db.favoriteGenres.get(userId) : null;
+        if (genres == null) {
+            return new ArrayList<>();
+        }
+        synchronized (genres) {
+            return new ArrayList<>(genres);
+        }
+    }
+
+    @Override
+    public boolean addFavoriteGenre(String userId, String genre) {
+        synchronized (db) {
+            if (userId == null || genre == null) {
+                return false;
+            }
+            Set<String> genres = db.favoriteGenres.computeIfAbsent(userId, id -> InMemoryDatabase.newGenreSet());
+            if (!genres.add(genre)) {
+                return false;
+            }
+            db.genreIndex.add(userId, genre);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean removeFavoriteGenre(String userId, String genre) {
+        synchronized (db) {
+            Set<String> genres = userId != null ? db.favoriteGenres.get(userId) : null;
+            if (genres == null || genre == null || !genres.remove(genre)) {
+                return false;
+            }
+            db.genreIndex.remove(userId, genre);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean clearFavoriteGenres(String userId) {
+        synchronized (db) {
+            if (userId != null) {
+                db.favoriteGenres.remove(userId);
+                db.genreIndex.removeUser(userId);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public Set<String> findUserIdsByFavoriteGenre(String genre) {
+        if (genre == null || genre.trim().isEmpty()) {
+            return new HashSet<>();
+        }
+        return db.genreIndex.usersFor(genre);
+    }
+
+    /**
+     * Tạo bản sao người dùng kèm tài liệu đang mượn (theo ngày mượn) và thể loại yêu thích
+     */
+    private User hydrate(User row) {
+        User user = InMemoryDatabase.copy(row);
+        List<String> borrowed = db.loansByUser.get(user.getId()).stream()
+                .map(db.loans::get)
+                .filter(t -> t != null && InMemoryDatabase.isOpenLoan(t))
+                .sorted(Comparator.comparing(LoanTransaction::getBorrowDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+                                  .thenComparing(LoanTransaction::getId))
+                .map(LoanTransaction::getDocumentId)
+                .collect(Collectors.toList());
+        user.setBorrowedDocumentIds(borrowed);
+        user.setFavoriteGenres(findFavoriteGenres(user.getId()));
+        return user;
+    }
+}
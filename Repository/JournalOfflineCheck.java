@@ -0,0 +1,78 @@
+import com.library.model.Document;
+import com.library.model.User;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Kiểm tra thao tác ghi khi mất kết nối MySQL được nhận vào WriteJournal.
+ *
+ * Trỏ máy chủ chính tới một cổng không có MySQL (mặc định 127.0.0.1:1, hoặc -Dlibrary.db.url),
+ * ghi một tài liệu và một người dùng qua các decorator Journaling* rồi kiểm tra thao tác được xác nhận
+ * thành công, nằm trong nhật ký và vẫn còn sau khi mở lại nhật ký (như khi khởi động lại ứng dụng).
+ * Nhật ký được tạo trong một thư mục tạm và xóa khi kết thúc.
+ *
+ * Cách chạy: java ... JournalOfflineCheck
+ * Mã thoát 2 nếu có thao tác ngoại tuyến không vào được nhật ký.
+ */
+public final class JournalOfflineCheck {
+    private static final String OFFLINE_URL = "jdbc:mysql://127.0.0.1:1/library_management?connectTimeout=1000";
+
+    private JournalOfflineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Phải đặt trước lần dùng DatabaseConnection đầu tiên (URL được đọc khi nạp lớp)
+        if (System.getProperty("library.db.url") == null) {
+            System.setProperty("library.db.url", OFFLINE_URL);
+        }
+
+        DocumentRepository mysqlDocuments = new MySQLDocumentRepository();
+        UserRepository mysqlUsers = new MySQLUserRepository();
+        LoanTransactionRepository mysqlLoans = new MySQLLoanTransactionRepository();
+        ReviewRepository mysqlReviews = new MySQLReviewRepository();
+
+        Path directory = Files.createTempDirectory("journal-offline-check");
+        int failures = 0;
+        try {
+            try (WriteJournal journal = WriteJournal.open(directory, mysqlDocuments, mysqlUsers,
+                                                          mysqlLoans, mysqlReviews, 0)) {
+                DocumentRepository documents = new JournalingDocumentRepository(mysqlDocuments, journal);
+                UserRepository users = new JournalingUserRepository(mysqlUsers, journal);
+
+                Document document = new Document("DOC9001", "Offline check", "JournalOfflineCheck",
+                                                 "Test", 2000, "", "", 1, 1);
+                User user = new User("USER9001", "Offline check", "offline@example.com",
+                                     "0000000000", User.UserType.STUDENT);
+                failures += expect("save document offline", documents.save(document));
+                failures += expect("update user offline", users.update(user));
+                failures += expect("2 writes pending", journal.getPendingCount() == 2);
+                System.out.println("Pending after offline writes: " + journal.getPendingCount());
+            }
+
+            try (WriteJournal reopened = WriteJournal.open(directory, mysqlDocuments, mysqlUsers,
+                                                           mysqlLoans, mysqlReviews, 0)) {
+                failures += expect("writes kept after reopening", reopened.getPendingCount() == 2);
+                failures += expect("no replay while offline", reopened.replay() == 0);
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+
+        System.out.println(failures == 0 ? "Offline writes were journaled." : failures + " check(s) failed.");
+        System.exit(failures == 0 ? 0 : 2);
+    }
+
+    private static int expect(String check, boolean passed) {
+        System.out.println((passed ? "OK    " : "FAIL  ") + check);
+        return passed ? 0 : 1;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
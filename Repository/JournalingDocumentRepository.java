@@ -0,0 +1,118 @@
+import com.library.model.Document;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Decorator ghi trước cho DocumentRepository: thao tác ghi bị mất kết nối được ghi vào
+ * WriteJournal và phát lại sau; thao tác đọc đi thẳng xuống repository gốc.
+ */
+public class JournalingDocumentRepository implements DocumentRepository {
+    private final DocumentRepository delegate;
+    private final WriteJournal journal;
+
+    public JournalingDocumentRepository(DocumentRepository delegate, WriteJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public boolean save(Document document) {
+        return journal.write(() -> delegate.save(document), WriteJournal.Operation.SAVE_DOCUMENT, document);
+    }
+
+    @Override
+    public Document findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Map<String, Document> findByIds(Collection<String> ids) {
+        return delegate.findByIds(ids);
+    }
+
+    @Override
+    public List<Document> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Document> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public boolean update(Document document) {
+        return journal.write(() -> delegate.update(document), WriteJournal.Operation.UPDATE_DOCUMENT, document);
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return journal.write(() -> delegate.delete(id), WriteJournal.Operation.DELETE_DOCUMENT, id, null, 0);
+    }
+
+    @Override
+    public List<Document> findByTitle(String title) {
+        return delegate.findByTitle(title);
+    }
+
+    @Override
+    public List<Document> findByAuthor(String author) {
+        return delegate.findByAuthor(author);
+    }
+
+    @Override
+    public List<Document> findByGenre(String genre) {
+        return delegate.findByGenre(genre);
+    }
+
+    @Override
+    public List<Document> findAvailable() {
+        return delegate.findAvailable();
+    }
+
+    @Override
+    public List<Document> findByIsbn(String isbn) {
+        return delegate.findByIsbn(isbn);
+    }
+
+    @Override
+    public List<Document> findByTitleAuthorKey(String titleAuthorKey) {
+        return delegate.findByTitleAuthorKey(titleAuthorKey);
+    }
+
+    @Override
+    public boolean updateQuantity(String documentId, int availableQuantity) {
+        return journal.write(() -> delegate.updateQuantity(documentId, availableQuantity),
+                             WriteJournal.Operation.UPDATE_QUANTITY, documentId, null, availableQuantity);
+    }
+
+    /**
+     * Không ghi vào nhật ký: giá trị được tính trên máy chủ nên chỉ có nghĩa khi có kết nối
+     */
+    @Override
+    public int reconcileAvailableQuantity(String documentId) {
+        return delegate.reconcileAvailableQuantity(documentId);
+    }
+
+    @Override
+    public Page<Document> findPage(PageRequest request) {
+        return delegate.findPage(request);
+    }
+
+    @Override
+    public int count(PageRequest request) {
+        return delegate.count(request);
+    }
+
+    @Override
+    public Map<String, Integer> countByGenre() {
+        return delegate.countByGenre();
+    }
+
+    @Override
+    public int countAvailable() {
+        return delegate.countAvailable();
+    }
+}
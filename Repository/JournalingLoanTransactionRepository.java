@@ -0,0 +1,125 @@
+import com.library.model.LoanTransaction;
+import com.library.model.LoanView;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Decorator ghi trước cho LoanTransactionRepository: mượn, trả, gia hạn và các thao tác ghi khác
+ * bị mất kết nối được ghi vào WriteJournal và phát lại sau (xung đột số lượng được phát hiện khi
+ * phát lại); thao tác đọc đi thẳng xuống repository gốc.
+ * markOverdue và accrueFines không được ghi trước: trạng thái quá hạn suy ra được từ hạn trả và
+ * tiền phạt chỉ cộng phần ngày chưa cộng, nên OverdueSweeper chỉ cần thử lại khi có kết nối.
+ */
+public class JournalingLoanTransactionRepository implements LoanTransactionRepository {
+    private final LoanTransactionRepository delegate;
+    private final WriteJournal journal;
+
+    public JournalingLoanTransactionRepository(LoanTransactionRepository delegate, WriteJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public boolean save(LoanTransaction transaction) {
+        return journal.write(() -> delegate.save(transaction), WriteJournal.Operation.SAVE_LOAN, transaction, 0);
+    }
+
+    @Override
+    public LoanTransaction findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<LoanTransaction> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<LoanTransaction> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public boolean update(LoanTransaction transaction) {
+        return journal.write(() -> delegate.update(transaction), WriteJournal.Operation.UPDATE_LOAN, transaction, 0);
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return journal.write(() -> delegate.delete(id), WriteJournal.Operation.DELETE_LOAN, id, null, 0);
+    }
+
+    @Override
+    public List<LoanTransaction> findByUserId(String userId) {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public List<LoanTransaction> findByDocumentId(String documentId) {
+        return delegate.findByDocumentId(documentId);
+    }
+
+    @Override
+    public List<LoanTransaction> findActiveTransactions() {
+        return delegate.findActiveTransactions();
+    }
+
+    @Override
+    public List<LoanTransaction> findOverdueTransactions() {
+        return delegate.findOverdueTransactions();
+    }
+
+    @Override
+    public int countAll() {
+        return delegate.countAll();
+    }
+
+    @Override
+    public int countOverdue() {
+        return delegate.countOverdue();
+    }
+
+    @Override
+    public List<LoanTransaction> findActiveTransactionsByUserId(String userId) {
+        return delegate.findActiveTransactionsByUserId(userId);
+    }
+
+    @Override
+    public boolean isDocumentBorrowed(String documentId) {
+        return delegate.isDocumentBorrowed(documentId);
+    }
+
+    @Override
+    public boolean borrow(LoanTransaction transaction) {
+        return journal.write(() -> delegate.borrow(transaction), WriteJournal.Operation.BORROW, transaction, 0);
+    }
+
+    @Override
+    public boolean completeReturn(LoanTransaction transaction) {
+        return journal.write(() -> delegate.completeReturn(transaction), WriteJournal.Operation.RETURN,
+                             transaction, 0);
+    }
+
+    @Override
+    public boolean renew(LoanTransaction transaction, int expectedRenewalCount) {
+        return journal.write(() -> delegate.renew(transaction, expectedRenewalCount), WriteJournal.Operation.RENEW,
+                             transaction, expectedRenewalCount);
+    }
+
+    @Override
+    public List<String> markOverdue(Collection<String> ids, LocalDate today) {
+        return delegate.markOverdue(ids, today);
+    }
+
+    @Override
+    public int accrueFines(LocalDate today, double dailyFineRate) {
+        return delegate.accrueFines(today, dailyFineRate);
+    }
+
+    @Override
+    public List<LoanView> findLoanViews(LoanView.Filter filter) {
+        return delegate.findLoanViews(filter);
+    }
+}
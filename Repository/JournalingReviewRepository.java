@@ -0,0 +1,85 @@
+import com.library.model.RatingAggregate;
+import com.library.model.Review;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Decorator ghi trước cho ReviewRepository: thao tác ghi bị mất kết nối được ghi vào
+ * WriteJournal và phát lại sau; thao tác đọc đi thẳng xuống repository gốc.
+ */
+public class JournalingReviewRepository implements ReviewRepository {
+    private final ReviewRepository delegate;
+    private final WriteJournal journal;
+
+    public JournalingReviewRepository(ReviewRepository delegate, WriteJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public boolean save(Review review) {
+        return journal.write(() -> delegate.save(review), WriteJournal.Operation.SAVE_REVIEW, review);
+    }
+
+    @Override
+    public Review findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Map<String, Review> findByIds(Collection<String> ids) {
+        return delegate.findByIds(ids);
+    }
+
+    @Override
+    public List<Review> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Review> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public boolean update(Review review) {
+        return journal.write(() -> delegate.update(review), WriteJournal.Operation.UPDATE_REVIEW, review);
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return journal.write(() -> delegate.delete(id), WriteJournal.Operation.DELETE_REVIEW, id, null, 0);
+    }
+
+    @Override
+    public List<Review> findByDocumentId(String documentId) {
+        return delegate.findByDocumentId(documentId);
+    }
+
+    @Override
+    public List<Review> findByUserId(String userId) {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public double getAverageRating(String documentId) {
+        return delegate.getAverageRating(documentId);
+    }
+
+    @Override
+    public int getReviewCount(String documentId) {
+        return delegate.getReviewCount(documentId);
+    }
+
+    @Override
+    public Map<String, RatingAggregate> getRatingAggregates() {
+        return delegate.getRatingAggregates();
+    }
+
+    @Override
+    public boolean hasUserReviewed(String userId, String documentId) {
+        return delegate.hasUserReviewed(userId, documentId);
+    }
+}
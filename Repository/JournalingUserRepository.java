@@ -0,0 +1,113 @@
+import com.library.model.User;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Decorator ghi trước cho UserRepository: thao tác ghi bị mất kết nối được ghi vào
+ * WriteJournal và phát lại sau; thao tác đọc đi thẳng xuống repository gốc.
+ */
+public class JournalingUserRepository implements UserRepository {
+    private final UserRepository delegate;
+    private final WriteJournal journal;
+
+    public JournalingUserRepository(UserRepository delegate, WriteJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public boolean save(User user) {
+        return journal.write(() -> delegate.save(user), WriteJournal.Operation.SAVE_USER, user);
+    }
+
+    @Override
+    public User findById(String id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Map<String, User> findByIds(Collection<String> ids) {
+        return delegate.findByIds(ids);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public boolean update(User user) {
+        return journal.write(() -> delegate.update(user), WriteJournal.Operation.UPDATE_USER, user);
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return journal.write(() -> delegate.delete(id), WriteJournal.Operation.DELETE_USER, id, null, 0);
+    }
+
+    @Override
+    public List<User> findByName(String name) {
+        return delegate.findByName(name);
+    }
+
+    @Override
+    public List<User> findTopBorrowers(int limit) {
+        return delegate.findTopBorrowers(limit);
+    }
+
+    @Override
+    public Map<String, Double> findOutstandingFines(int limit) {
+        return delegate.findOutstandingFines(limit);
+    }
+
+    @Override
+    public double getTotalOutstandingFines() {
+        return delegate.getTotalOutstandingFines();
+    }
+
+    @Override
+    public Map<User.UserType, Integer> countByType() {
+        return delegate.countByType();
+    }
+
+    @Override
+    public int countActive() {
+        return delegate.countActive();
+    }
+
+    @Override
+    public List<String> findFavoriteGenres(String userId) {
+        return delegate.findFavoriteGenres(userId);
+    }
+
+    @Override
+    public boolean addFavoriteGenre(String userId, String genre) {
+        return journal.write(() -> delegate.addFavoriteGenre(userId, genre),
+                             WriteJournal.Operation.ADD_FAVORITE_GENRE, userId, genre, 0);
+    }
+
+    @Override
+    public boolean removeFavoriteGenre(String userId, String genre) {
+        return journal.write(() -> delegate.removeFavoriteGenre(userId, genre),
+                             WriteJournal.Operation.REMOVE_FAVORITE_GENRE, userId, genre, 0);
+    }
+
+    @Override
+    public boolean clearFavoriteGenres(String userId) {
+        return journal.write(() -> delegate.clearFavoriteGenres(userId),
+                             WriteJournal.Operation.CLEAR_FAVORITE_GENRES, userId, null, 0);
+    }
+
+    @Override
+    public Set<String> findUserIdsByFavoriteGenre(String genre) {
+        return delegate.findUserIdsByFavoriteGenre(genre);
+    }
+}
@@ -1,5 +1,9 @@
 import com.library.model.LoanTransaction;
+import com.library.model.LoanView;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface repository cho các thao tác CRUD với giao dịch mượn/trả
@@ -22,6 +26,12 @@ public interface LoanTransactionRepository {
      */
     List<LoanTransaction> findAll();
     
+    /**
+     * Đọc dần tất cả giao dịch mượn/trả (cùng thứ tự với findAll) mà không nạp toàn bộ vào bộ nhớ.
+     * Stream giữ một kết nối cho đến khi được đóng, nên phải dùng trong try-with-resources
+     */
+    Stream<LoanTransaction> streamAll();
+    
     /**
      * Cập nhật thông tin giao dịch mượn/trả
      */
@@ -48,10 +58,22 @@ public interface LoanTransactionRepository {
     List<LoanTransaction> findActiveTransactions();
     
     /**
-     * Lấy tất cả giao dịch quá hạn
+     * Lấy tất cả giao dịch quá hạn (trạng thái OVERDUE đã được lưu và chưa trả)
      */
     List<LoanTransaction> findOverdueTransactions();
     
+    /**
+     * Đếm tất cả giao dịch
+     * @return số giao dịch, -1 nếu có lỗi
+     */
+    int countAll();
+    
+    /**
+     * Đếm giao dịch quá hạn (cùng điều kiện với findOverdueTransactions)
+     * @return số giao dịch, -1 nếu có lỗi
+     */
+    int countOverdue();
+    
     /**
      * Lấy tất cả giao dịch đang hoạt động của một người dùng cụ thể
      */
@@ -61,4 +83,40 @@ public interface LoanTransactionRepository {
      * Kiểm tra tài liệu có đang được mượn (có giao dịch hoạt động hay không)
      */
     boolean isDocumentBorrowed(String documentId);
+    
+    /**
+     * Mượn tài liệu nguyên tử: kiểm tra người dùng, giảm số lượng còn lại có điều kiện
+     * và lưu giao dịch trong cùng một giao dịch cơ sở dữ liệu
+     */
+    boolean borrow(LoanTransaction transaction);
+    
+    /**
+     * Trả tài liệu nguyên tử: đóng giao dịch đang mượn và tăng số lượng còn lại
+     * trong cùng một giao dịch cơ sở dữ liệu
+     */
+    boolean completeReturn(LoanTransaction transaction);
+    
+    /**
+     * Ghi lần gia hạn nếu số lần gia hạn hiện tại vẫn bằng giá trị mong đợi (đồng thời lạc quan)
+     */
+    boolean renew(LoanTransaction transaction, int expectedRenewalCount);
+    
+    /**
+     * Chuyển sang OVERDUE các giao dịch trong danh sách còn đang mượn (ACTIVE/RENEWED)
+     * có hạn trả trước ngày today, theo lô
+     * @return mã các giao dịch đã được chuyển, null nếu có lỗi
+     */
+    List<String> markOverdue(Collection<String> ids, LocalDate today);
+    
+    /**
+     * Cộng dồn tiền phạt của mọi giao dịch OVERDUE chưa trả đến ngày today (chỉ phần ngày chưa cộng)
+     * vào fine_amount và vào số dư phạt chưa thanh toán của người dùng
+     * @return số giao dịch được cộng, -1 nếu có lỗi
+     */
+    int accrueFines(LocalDate today, double dailyFineRate);
+    
+    /**
+     * Lấy bản chiếu hiển thị (giao dịch + tên người dùng + tiêu đề tài liệu) theo bộ lọc
+     */
+    List<LoanView> findLoanViews(LoanView.Filter filter);
 }
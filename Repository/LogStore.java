@@ -0,0 +1,730 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Kho bản ghi dạng nhật ký chỉ ghi thêm trên đĩa, dùng cho LogStructuredDatabase.
+ *
+ * Tệp records.log là chuỗi các lô bản ghi [độ dài][CRC32][các bản ghi]; mỗi bản ghi là
+ * (bảng, thao tác, mã, giá trị) và một lô được ghi bằng một lần ghi FileChannel nên
+ * các thay đổi của một thao tác (ví dụ mượn: giao dịch + tài liệu + người dùng) có hoặc không cùng nhau.
+ * Tệp records.idx là bảng băm địa chỉ mở được ánh xạ vào bộ nhớ (MappedByteBuffer):
+ * (bảng, mã) -> vị trí bản ghi mới nhất trong nhật ký, nên mở kho chỉ cần ánh xạ tệp chỉ mục
+ * thay vì đọc lại toàn bộ dữ liệu.
+ *
+ * Phục hồi: chỉ mục chỉ được tin cậy nếu lần trước đóng kho bình thường. Nếu không
+ * (ứng dụng bị tắt đột ngột), chỉ mục được dựng lại bằng cách đọc lại nhật ký từ đầu;
+ * phần đuôi bị ghi dở (sai độ dài hoặc CRC) được cắt bỏ.
+ * Nén: ghi lại các bản ghi còn sống sang tệp mới rồi thay thế nhật ký cũ.
+ *
+ * Mọi phương thức đều đồng bộ trên đối tượng kho.
+ */
+final class LogStore implements Closeable {
+
+    static final String LOG_FILE = "records.log";
+    static final String INDEX_FILE = "records.idx";
+    private static final String COMPACT_FILE = "records.log.compact";
+
+    private static final int INDEX_MAGIC = 0x4C494458; // "LIDX"
+    private static final int INDEX_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 24;
+    private static final int INITIAL_CAPACITY = 1 << 14;
+    private static final double MAX_LOAD = 0.7;
+
+    private static final int BATCH_HEADER_SIZE = 8;
+    private static final int MAX_BATCH_BYTES = 64 << 20;
+    private static final int COMPACT_BATCH_BYTES = 1 << 20;
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    private static final byte SLOT_EMPTY = 0;
+    private static final byte SLOT_LIVE = 1;
+    private static final byte SLOT_DELETED = 2;
+
+    // Vị trí các trường trong phần đầu tệp chỉ mục
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_SIZE = 12;
+    private static final int H_DELETED = 16;
+    private static final int H_CLEAN = 20;
+    private static final int H_CHECKPOINT = 24;
+    private static final int H_LIVE_BYTES = 32;
+
+    // Vị trí các trường trong một ô: băm (8), vị trí (8), độ dài (4), bảng (1), trạng thái (1)
+    private static final int S_HASH = 0;
+    private static final int S_OFFSET = 8;
+    private static final int S_LENGTH = 16;
+    private static final int S_TABLE = 20;
+    private static final int S_STATE = 21;
+
+    /**
+     * Một thay đổi trong lô ghi: value null nghĩa là xóa
+     */
+    static final class Entry {
+        final byte table;
+        final String id;
+        final byte[] value;
+
+        Entry(byte table, String id, byte[] value) {
+            this.table = table;
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Nhận các bản ghi còn sống khi duyệt kho
+     */
+    interface Visitor {
+        void visit(byte table, String id, byte[] value) throws IOException;
+    }
+
+    private final Path directory;
+    private final boolean syncOnAppend;
+    private FileChannel log;
+    private long logSize;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int size;
+    private int deleted;
+    private long liveBytes;
+    private boolean recovered;
+
+    private LogStore(Path directory, boolean syncOnAppend) {
+        this.directory = directory;
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    /**
+     * Mở (hoặc tạo) kho trong thư mục
+     * @param syncOnAppend gọi force() sau mỗi lô để lô đã ghi không mất khi mất điện
+     */
+    static LogStore open(Path directory, boolean syncOnAppend) throws IOException {
+        Files.createDirectories(directory);
+        LogStore store = new LogStore(directory, syncOnAppend);
+        try {
+            store.openFiles();
+        } catch (IOException e) {
+            store.closeQuietly();
+            throw e;
+        }
+        return store;
+    }
+
+    private void openFiles() throws IOException {
+        // Tệp nén dở dang từ lần chạy trước: nhật ký cũ vẫn nguyên vẹn
+        Files.deleteIfExists(directory.resolve(COMPACT_FILE));
+        log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        logSize = log.size();
+        indexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long checkpoint = mapExistingIndex();
+        if (checkpoint < 0) {
+            recovered = logSize > 0;
+            mapIndex(INITIAL_CAPACITY);
+            clearSlots();
+            checkpoint = 0;
+        }
+        replay(checkpoint);
+
+        // Đánh dấu đang mở: nếu ứng dụng dừng đột ngột, lần mở sau sẽ dựng lại chỉ mục từ nhật ký
+        index.put(H_CLEAN, (byte) 0);
+        writeHeader();
+        index.force();
+    }
+
+    /**
+     * Ánh xạ tệp chỉ mục có sẵn nếu nó hợp lệ và được đóng bình thường
+     * @return vị trí nhật ký mà chỉ mục đã phản ánh, hoặc -1 nếu phải dựng lại
+     */
+    private long mapExistingIndex() throws IOException {
+        long fileSize = indexChannel.size();
+        if (fileSize < HEADER_SIZE) {
+            return -1;
+        }
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        int storedCapacity = index.getInt(H_CAPACITY);
+        long checkpoint = index.getLong(H_CHECKPOINT);
+        if (index.getInt(H_MAGIC) != INDEX_MAGIC || index.getInt(H_VERSION) != INDEX_VERSION
+                || index.get(H_CLEAN) != 1 || Integer.bitCount(storedCapacity) != 1
+                || (long) HEADER_SIZE + (long) storedCapacity * SLOT_SIZE > fileSize
+                || checkpoint < 0 || checkpoint > logSize) {
+            return -1;
+        }
+        capacity = storedCapacity;
+        size = index.getInt(H_SIZE);
+        deleted = index.getInt(H_DELETED);
+        liveBytes = index.getLong(H_LIVE_BYTES);
+        return checkpoint;
+    }
+
+    private void mapIndex(int newCapacity) throws IOException {
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+        capacity = newCapacity;
+    }
+
+    private void clearSlots() {
+        for (int i = 0; i < capacity; i++) {
+            index.put(slot(i) + S_STATE, SLOT_EMPTY);
+        }
+        size = 0;
+        deleted = 0;
+        liveBytes = 0;
+    }
+
+    private void writeHeader() {
+        index.putInt(H_MAGIC, INDEX_MAGIC);
+        index.putInt(H_VERSION, INDEX_VERSION);
+        index.putInt(H_CAPACITY, capacity);
+        index.putInt(H_SIZE, size);
+        index.putInt(H_DELETED, deleted);
+        index.putLong(H_CHECKPOINT, logSize);
+        index.putLong(H_LIVE_BYTES, liveBytes);
+    }
+
+    /**
+     * Đọc lại các lô từ vị trí cho trước và cập nhật chỉ mục; cắt bỏ phần đuôi hỏng
+     */
+    private void replay(long from) throws IOException {
+        long position = from;
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+        while (position + BATCH_HEADER_SIZE <= logSize) {
+            header.clear();
+            readFully(log, header, position);
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            if (length <= 0 || length > MAX_BATCH_BYTES || position + BATCH_HEADER_SIZE + length > logSize) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(log, body, position + BATCH_HEADER_SIZE);
+            if (crc(body.array(), 0, length) != crc || !applyBatch(body, position + BATCH_HEADER_SIZE)) {
+                break;
+            }
+            position += BATCH_HEADER_SIZE + length;
+        }
+        if (position < logSize) {
+            System.err.println("Truncating " + (logSize - position) + " bytes of incomplete records at offset "
+                    + position + " in " + directory.resolve(LOG_FILE));
+            log.truncate(position);
+            logSize = position;
+            recovered = true;
+        }
+    }
+
+    /**
+     * Áp dụng các bản ghi của một lô vào chỉ mục
+     * @param base vị trí của thân lô trong nhật ký
+     * @return false nếu thân lô không đọc được (coi như phần đuôi hỏng)
+     */
+    private boolean applyBatch(ByteBuffer body, long base) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        List<long[]> locations = new ArrayList<>();
+        try {
+            body.position(0);
+            while (body.hasRemaining()) {
+                int start = body.position();
+                byte table = body.get();
+                byte op = body.get();
+                byte[] id = new byte[body.getShort() & 0xFFFF];
+                body.get(id);
+                int valueLength = body.getInt();
+                if (op == OP_PUT && valueLength >= 0) {
+                    body.position(body.position() + valueLength);
+                } else if (op != OP_DELETE) {
+                    return false;
+                }
+                // Giá trị không cần đọc để dựng chỉ mục; mảng rỗng chỉ để phân biệt ghi với xóa
+                entries.add(new Entry(table, new String(id, StandardCharsets.UTF_8),
+                                      op == OP_PUT ? new byte[0] : null));
+                locations.add(new long[] {base + start, body.position() - start});
+            }
+        } catch (RuntimeException e) {
+            return false;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry.value == null) {
+                indexDelete(entry.table, entry.id);
+            } else {
+                indexPut(entry.table, entry.id, locations.get(i)[0], (int) locations.get(i)[1]);
+            }
+        }
+        return true;
+    }
+
+    // ==================== GHI ====================
+
+    /**
+     * Ghi một lô thay đổi vào cuối nhật ký rồi cập nhật chỉ mục
+     */
+    synchronized void append(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        byte[][] encoded = new byte[entries.size()][];
+        int length = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            encoded[i] = encodeEntry(entries.get(i));
+            length += encoded[i].length;
+        }
+        if (length > MAX_BATCH_BYTES) {
+            throw new IOException("Batch of " + length + " bytes exceeds the record log limit");
+        }
+
+        ByteBuffer batch = ByteBuffer.allocate(BATCH_HEADER_SIZE + length);
+        batch.putInt(length);
+        batch.putInt(0);
+        for (byte[] entry : encoded) {
+            batch.put(entry);
+        }
+        batch.putInt(4, crc(batch.array(), BATCH_HEADER_SIZE, length));
+        batch.flip();
+
+        long position = logSize;
+        writeFully(log, batch, position);
+        if (syncOnAppend) {
+            log.force(false);
+        }
+        logSize = position + batch.capacity();
+
+        long offset = position + BATCH_HEADER_SIZE;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry.value == null) {
+                indexDelete(entry.table, entry.id);
+            } else {
+                indexPut(entry.table, entry.id, offset, encoded[i].length);
+            }
+            offset += encoded[i].length;
+        }
+        writeHeader();
+    }
+
+    private static byte[] encodeEntry(Entry entry) throws IOException {
+        byte[] id = entry.id.getBytes(StandardCharsets.UTF_8);
+        if (id.length > 0xFFFF) {
+            throw new IOException("Record id is too long");
+        }
+        int valueLength = entry.value != null ? entry.value.length : 0;
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 1 + 2 + id.length + 4 + valueLength);
+        buffer.put(entry.table);
+        buffer.put(entry.value != null ? OP_PUT : OP_DELETE);
+        buffer.putShort((short) id.length);
+        buffer.put(id);
+        buffer.putInt(entry.value != null ? valueLength : -1);
+        if (entry.value != null) {
+            buffer.put(entry.value);
+        }
+        return buffer.array();
+    }
+
+    // ==================== ĐỌC ====================
+
+    /**
+     * Đọc giá trị mới nhất của một bản ghi
+     * @return giá trị, hoặc null nếu không có (hoặc đã bị xóa)
+     */
+    synchronized byte[] get(byte table, String id) throws IOException {
+        int slot = find(table, id);
+        if (slot < 0) {
+            return null;
+        }
+        return valueOf(readEntry(index.getLong(slot + S_OFFSET), index.getInt(slot + S_LENGTH)));
+    }
+
+    /**
+     * Duyệt mọi bản ghi còn sống theo thứ tự trong nhật ký (đọc tuần tự)
+     */
+    synchronized void forEach(Visitor visitor) throws IOException {
+        for (long[] location : liveLocations()) {
+            ByteBuffer entry = readEntry(location[0], (int) location[1]);
+            byte table = entry.get(0);
+            visitor.visit(table, idOf(entry), valueOf(entry));
+        }
+    }
+
+    /**
+     * Duyệt các bản ghi còn sống của một bảng; bảng được lọc theo chỉ mục nên bản ghi
+     * của các bảng khác không được đọc. Nhật ký được ánh xạ (chỉ đọc) trong lúc duyệt,
+     * nên các bản ghi được lấy thẳng từ bộ nhớ theo thứ tự ô của chỉ mục.
+     */
+    synchronized void forEach(byte table, Visitor visitor) throws IOException {
+        if (logSize > Integer.MAX_VALUE) {
+            // Quá lớn để ánh xạ một lần: đọc từng bản ghi
+            for (long[] location : liveSlotLocations()) {
+                if (index.get((int) location[0] + S_TABLE) == table) {
+                    ByteBuffer entry = readEntry(location[1], (int) location[2]);
+                    visitor.visit(table, idOf(entry), valueOf(entry));
+                }
+            }
+            return;
+        }
+        MappedByteBuffer mapped = log.map(FileChannel.MapMode.READ_ONLY, 0, logSize);
+        for (int i = 0; i < capacity; i++) {
+            int slot = slot(i);
+            if (index.get(slot + S_STATE) != SLOT_LIVE || index.get(slot + S_TABLE) != table) {
+                continue;
+            }
+            int offset = (int) index.getLong(slot + S_OFFSET);
+            int idLength = mapped.getShort(offset + 2) & 0xFFFF;
+            byte[] id = new byte[idLength];
+            mapped.get(offset + 4, id);
+            byte[] value = new byte[mapped.getInt(offset + 4 + idLength)];
+            mapped.get(offset + 8 + idLength, value);
+            visitor.visit(table, new String(id, StandardCharsets.UTF_8), value);
+        }
+    }
+
+    /**
+     * Số bản ghi còn sống
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Kích thước nhật ký (byte)
+     */
+    synchronized long logSize() {
+        return logSize;
+    }
+
+    /**
+     * Tổng kích thước các bản ghi còn sống (byte); phần còn lại của nhật ký có thể thu hồi khi nén
+     */
+    synchronized long liveBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * Lần mở kho vừa rồi có phải dựng lại chỉ mục hoặc cắt phần đuôi hỏng không
+     */
+    synchronized boolean wasRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Nhật ký đủ lớn và có hơn một nửa là bản ghi cũ
+     */
+    synchronized boolean needsCompaction() {
+        return logSize >= MIN_COMPACT_BYTES && liveBytes * 2 < logSize;
+    }
+
+    // ==================== NÉN ====================
+
+    /**
+     * Ghi các bản ghi còn sống sang nhật ký mới, thay thế nhật ký cũ và cập nhật vị trí trong chỉ mục.
+     * Nếu ứng dụng dừng giữa chừng, lần mở sau dùng nhật ký cũ hoặc mới (thay thế là nguyên tử)
+     * và dựng lại chỉ mục từ đó.
+     */
+    synchronized void compact() throws IOException {
+        Path compactPath = directory.resolve(COMPACT_FILE);
+        List<long[]> locations = liveSlotLocations();
+        long[] newOffsets = new long[locations.size()];
+
+        try (FileChannel out = FileChannel.open(compactPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long outPosition = 0;
+            ByteBuffer body = ByteBuffer.allocate(COMPACT_BATCH_BYTES);
+            List<Integer> pending = new ArrayList<>();
+            for (int i = 0; i < locations.size(); i++) {
+                ByteBuffer entry = readEntry(locations.get(i)[1], (int) locations.get(i)[2]);
+                if (body.position() > 0 && body.remaining() < entry.capacity()) {
+                    outPosition = flushCompactBatch(out, body, outPosition, pending, newOffsets);
+                }
+                if (body.capacity() < entry.capacity()) {
+                    body = ByteBuffer.allocate(entry.capacity());
+                }
+                newOffsets[i] = body.position();
+                pending.add(i);
+                body.put(entry);
+            }
+            if (body.position() > 0) {
+                flushCompactBatch(out, body, outPosition, pending, newOffsets);
+            }
+            out.force(true);
+        }
+
+        log.close();
+        Files.move(compactPath, directory.resolve(LOG_FILE),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        logSize = log.size();
+
+        for (int i = 0; i < locations.size(); i++) {
+            index.putLong((int) locations.get(i)[0] + S_OFFSET, newOffsets[i]);
+        }
+        rehash(capacity);
+        writeHeader();
+    }
+
+    /**
+     * Ghi một lô của nhật ký mới; newOffsets của các bản ghi trong lô được đổi từ vị trí trong thân lô
+     * thành vị trí tuyệt đối
+     */
+    private long flushCompactBatch(FileChannel out, ByteBuffer body, long position,
+                                   List<Integer> pending, long[] newOffsets) throws IOException {
+        int length = body.position();
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+        header.putInt(length);
+        header.putInt(crc(body.array(), 0, length));
+        header.flip();
+        writeFully(out, header, position);
+        body.flip();
+        writeFully(out, body, position + BATCH_HEADER_SIZE);
+        body.clear();
+        for (int i : pending) {
+            newOffsets[i] += position + BATCH_HEADER_SIZE;
+        }
+        pending.clear();
+        return position + BATCH_HEADER_SIZE + length;
+    }
+
+    // ==================== CHỈ MỤC ====================
+
+    private static int slot(int i) {
+        return HEADER_SIZE + i * SLOT_SIZE;
+    }
+
+    /**
+     * Băm FNV-1a 64 bit của (bảng, mã)
+     */
+    private static long hash(byte table, String id) {
+        long h = 0xcbf29ce484222325L;
+        h = (h ^ table) * 0x100000001b3L;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private int home(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+
+    /**
+     * Tìm ô còn sống của (bảng, mã); so sánh mã thật trong nhật ký khi trùng băm
+     * @return vị trí ô trong tệp chỉ mục, hoặc -1
+     */
+    private int find(byte table, String id) throws IOException {
+        long h = hash(table, id);
+        for (int i = home(h), probes = 0; probes < capacity; i = (i + 1) & (capacity - 1), probes++) {
+            int slot = slot(i);
+            byte state = index.get(slot + S_STATE);
+            if (state == SLOT_EMPTY) {
+                return -1;
+            }
+            if (state == SLOT_LIVE && index.getLong(slot + S_HASH) == h && index.get(slot + S_TABLE) == table
+                    && id.equals(idAt(index.getLong(slot + S_OFFSET)))) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void indexPut(byte table, String id, long offset, int length) throws IOException {
+        int existing = find(table, id);
+        if (existing >= 0) {
+            liveBytes += length - index.getInt(existing + S_LENGTH);
+            index.putLong(existing + S_OFFSET, offset);
+            index.putInt(existing + S_LENGTH, length);
+            return;
+        }
+        if (size + deleted + 1 > capacity * MAX_LOAD) {
+            rehash(size + 1 > capacity * MAX_LOAD / 2 ? capacity * 2 : capacity);
+        }
+        insert(hash(table, id), table, offset, length);
+        size++;
+        liveBytes += length;
+    }
+
+    private void indexDelete(byte table, String id) throws IOException {
+        int slot = find(table, id);
+        if (slot >= 0) {
+            index.put(slot + S_STATE, SLOT_DELETED);
+            liveBytes -= index.getInt(slot + S_LENGTH);
+            size--;
+            deleted++;
+        }
+    }
+
+    /**
+     * Ghi một ô mới vào vị trí trống đầu tiên (ô đã xóa được dùng lại)
+     */
+    private void insert(long h, byte table, long offset, int length) {
+        for (int i = home(h); ; i = (i + 1) & (capacity - 1)) {
+            int slot = slot(i);
+            byte state = index.get(slot + S_STATE);
+            if (state != SLOT_LIVE) {
+                if (state == SLOT_DELETED) {
+                    deleted--;
+                }
+                index.putLong(slot + S_HASH, h);
+                index.putLong(slot + S_OFFSET, offset);
+                index.putInt(slot + S_LENGTH, length);
+                index.put(slot + S_TABLE, table);
+                index.put(slot + S_STATE, SLOT_LIVE);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Dựng lại bảng băm với dung lượng mới (bỏ các ô đã xóa); tệp chỉ mục được mở rộng tại chỗ
+     */
+    private void rehash(int newCapacity) throws IOException {
+        int count = 0;
+        long[] hashes = new long[size];
+        long[] offsets = new long[size];
+        int[] lengths = new int[size];
+        byte[] tables = new byte[size];
+        for (int i = 0; i < capacity; i++) {
+            int slot = slot(i);
+            if (index.get(slot + S_STATE) == SLOT_LIVE) {
+                hashes[count] = index.getLong(slot + S_HASH);
+                offsets[count] = index.getLong(slot + S_OFFSET);
+                lengths[count] = index.getInt(slot + S_LENGTH);
+                tables[count] = index.get(slot + S_TABLE);
+                count++;
+            }
+        }
+        if (newCapacity != capacity) {
+            mapIndex(newCapacity);
+        }
+        clearSlots();
+        for (int i = 0; i < count; i++) {
+            insert(hashes[i], tables[i], offsets[i], lengths[i]);
+            liveBytes += lengths[i];
+        }
+        size = count;
+    }
+
+    /**
+     * Vị trí và độ dài các bản ghi còn sống, sắp theo vị trí trong nhật ký
+     */
+    private List<long[]> liveLocations() {
+        List<long[]> locations = new ArrayList<>();
+        for (long[] location : liveSlotLocations()) {
+            locations.add(new long[] {location[1], location[2]});
+        }
+        return locations;
+    }
+
+    /**
+     * (ô, vị trí, độ dài) của các bản ghi còn sống, sắp theo vị trí trong nhật ký
+     */
+    private List<long[]> liveSlotLocations() {
+        List<long[]> locations = new ArrayList<>(size);
+        for (int i = 0; i < capacity; i++) {
+            int slot = slot(i);
+            if (index.get(slot + S_STATE) == SLOT_LIVE) {
+                locations.add(new long[] {slot, index.getLong(slot + S_OFFSET), index.getInt(slot + S_LENGTH)});
+            }
+        }
+        locations.sort((a, b) -> Long.compare(a[1], b[1]));
+        return locations;
+    }
+
+    // ==================== ĐỌC BẢN GHI ====================
+
+    private ByteBuffer readEntry(long offset, int length) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(length);
+        readFully(log, entry, offset);
+        entry.flip();
+        return entry;
+    }
+
+    private String idAt(long offset) throws IOException {
+        ByteBuffer prefix = ByteBuffer.allocate(4);
+        readFully(log, prefix, offset);
+        ByteBuffer id = ByteBuffer.allocate(prefix.getShort(2) & 0xFFFF);
+        readFully(log, id, offset + 4);
+        return new String(id.array(), StandardCharsets.UTF_8);
+    }
+
+    private static String idOf(ByteBuffer entry) {
+        int idLength = entry.getShort(2) & 0xFFFF;
+        return new String(entry.array(), 4, idLength, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] valueOf(ByteBuffer entry) {
+        int idLength = entry.getShort(2) & 0xFFFF;
+        int valueLength = entry.getInt(4 + idLength);
+        return Arrays.copyOfRange(entry.array(), 8 + idLength, 8 + idLength + valueLength);
+    }
+
+    private static int crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of record log at offset " + position);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, start + buffer.position());
+        }
+    }
+
+    // ==================== ĐÓNG ====================
+
+    /**
+     * Đóng kho: đẩy nhật ký xuống đĩa rồi đánh dấu chỉ mục là khớp với nhật ký
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (log == null) {
+            return;
+        }
+        log.force(true);
+        writeHeader();
+        index.put(H_CLEAN, (byte) 1);
+        index.force();
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (log != null) {
+                log.close();
+            }
+            if (indexChannel != null) {
+                indexChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing record log: " + e.getMessage());
+        }
+        log = null;
+        indexChannel = null;
+    }
+}
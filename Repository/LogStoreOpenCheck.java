@@ -0,0 +1,150 @@
+import com.library.model.Document;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Đo thời gian mở kho nhật ký (LogStructuredDatabase) có nhiều tài liệu và hiển thị trang đầu.
+ *
+ * Tạo một kho với N tài liệu (mặc định 100000, hoặc tham số đầu tiên) trong thư mục tạm, đóng lại,
+ * rồi đo: mở kho, đếm tài liệu và đọc trang đầu sắp theo tiêu đề như DocumentPanel khi khởi động.
+ * Mục tiêu: tổng thời gian dưới 1 giây (không đọc lại toàn bộ nhật ký vào bộ nhớ).
+ * Sau đó nạp toàn bộ nhật ký (in thời gian để so sánh) và kiểm tra các trang/số đếm của danh mục
+ * khớp với InMemoryDocumentRepository trên bản đã nạp. Thư mục tạm được xóa khi kết thúc.
+ *
+ * Cách chạy: java ... LogStoreOpenCheck [số tài liệu] [mục tiêu ms]
+ * Mã thoát 2 nếu vượt mục tiêu hoặc kết quả sai.
+ */
+public final class LogStoreOpenCheck {
+    private static final int DEFAULT_DOCUMENTS = 100_000;
+    private static final int PAGE_SIZE = 100;
+    private static final long TARGET_MILLIS = 1_000;
+
+    private LogStoreOpenCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DOCUMENTS;
+        long target = args.length > 1 ? Long.parseLong(args[1]) : TARGET_MILLIS;
+        Path directory = Files.createTempDirectory("log-store-open-check");
+        int failures = 0;
+        try {
+            long start = System.nanoTime();
+            try (LogStructuredDatabase database = LogStructuredDatabase.open(directory, false, 0)) {
+                DocumentRepository documents = new LogStructuredDocumentRepository(database);
+                for (int i = 0; i < count; i++) {
+                    String id = String.format("DOC%06d", i);
+                    documents.save(new Document(id, "Title " + Integer.toHexString(i * 7919), "Author " + (i % 997),
+                                                "Genre " + (i % 31), 1900 + i % 120, "", "", 2, 2));
+                }
+            }
+            System.out.printf("Created %d documents in %d ms%n", count, millisSince(start));
+
+            start = System.nanoTime();
+            try (LogStructuredDatabase database = LogStructuredDatabase.open(directory, false, 0)) {
+                long opened = millisSince(start);
+                DocumentRepository documents = new LogStructuredDocumentRepository(database);
+                PageRequest request = PageRequest.of("title", true, PAGE_SIZE);
+                int total = documents.count(request);
+                long counted = millisSince(start);
+                Page<Document> page = documents.findPage(request);
+                long paged = millisSince(start);
+                Page<Document> second = documents.findPage(page.getNext());
+                long nextPaged = millisSince(start);
+
+                System.out.printf("open %d ms, count %d ms, first page %d ms, next page %d ms%n",
+                                  opened, counted - opened, paged - counted, nextPaged - paged);
+                failures += expect("count matches", total == count);
+                failures += expect("first page is full", page.getItems().size() == Math.min(PAGE_SIZE, count));
+                failures += expect("pages are ordered", isOrdered(page, second));
+                failures += expect("open + count + first page under " + target + " ms", paged < target);
+                failures += expect("log not loaded into memory", !database.isLoaded());
+
+                start = System.nanoTime();
+                database.ensureLoaded();
+                System.out.printf("full load for comparison %d ms%n", millisSince(start));
+                failures += expect("catalog matches the loaded view",
+                                   matchesLoadedView(documents, new InMemoryDocumentRepository(database.view())));
+
+                Document added = new Document("DOCNEW", "A first title", "Author", "Genre 0", 2000, "", "", 1, 1);
+                boolean saved = documents.save(added);
+                boolean listed = firstId(documents.findPage(request)).equals("DOCNEW")
+                        && documents.count(request) == count + 1;
+                boolean deleted = documents.delete("DOCNEW");
+                failures += expect("catalog follows writes", saved && listed && deleted
+                        && !firstId(documents.findPage(request)).equals("DOCNEW") && documents.count(request) == count);
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+
+        System.out.println(failures == 0 ? "Record log opened within target." : failures + " check(s) failed.");
+        System.exit(failures == 0 ? 0 : 2);
+    }
+
+    private static boolean matchesLoadedView(DocumentRepository catalog, DocumentRepository loaded) {
+        List<PageRequest> requests = List.of(
+                PageRequest.of("title", true, PAGE_SIZE),
+                PageRequest.of("year", false, PAGE_SIZE).atOffset(250),
+                PageRequest.of("author", true, PAGE_SIZE).withFilter("author", "author 12"),
+                PageRequest.of("genre", false, PAGE_SIZE).withFilter("genre", "GENRE 3"),
+                PageRequest.of("id", true, PAGE_SIZE).withFilter("title", "title f"));
+        for (PageRequest request : requests) {
+            if (catalog.count(request) != loaded.count(request)) {
+                return false;
+            }
+            // Trang đầu và trang tiếp theo (theo khóa)
+            Page<Document> expected = loaded.findPage(request);
+            Page<Document> actual = catalog.findPage(request);
+            if (!ids(expected).equals(ids(actual)) || (expected.getNext() == null) != (actual.getNext() == null)) {
+                return false;
+            }
+            if (expected.getNext() != null
+                    && !ids(loaded.findPage(expected.getNext())).equals(ids(catalog.findPage(actual.getNext())))) {
+                return false;
+            }
+        }
+        return catalog.countByGenre().equals(loaded.countByGenre())
+                && catalog.countAvailable() == loaded.countAvailable();
+    }
+
+    private static String firstId(Page<Document> page) {
+        return page.getItems().isEmpty() ? "" : page.getItems().get(0).getId();
+    }
+
+    private static List<String> ids(Page<Document> page) {
+        return page.getItems().stream().map(Document::getId).collect(Collectors.toList());
+    }
+
+    private static boolean isOrdered(Page<Document> first, Page<Document> second) {
+        Document previous = null;
+        for (Page<Document> page : List.of(first, second)) {
+            for (Document document : page.getItems()) {
+                if (previous != null && InMemoryDatabase.TEXT_ORDER.compare(previous.getTitle(), document.getTitle()) > 0) {
+                    return false;
+                }
+                previous = document;
+            }
+        }
+        return true;
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static int expect(String check, boolean passed) {
+        System.out.println((passed ? "OK    " : "FAIL  ") + check);
+        return passed ? 0 : 1;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,393 @@
+import com.library.model.Document;
+import com.library.model.LoanTransaction;
+import com.library.model.Review;
+import com.library.model.User;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cơ sở dữ liệu lưu trên đĩa cho máy trạm không có MySQL, dùng chung cho các repository LogStructured*.
+ *
+ * Dữ liệu bền vững nằm trong LogStore (nhật ký chỉ ghi thêm + chỉ mục ánh xạ bộ nhớ).
+ * Mở cơ sở dữ liệu chỉ ánh xạ chỉ mục; tra cứu theo mã (tài liệu, giao dịch, đánh giá) đọc thẳng
+ * một bản ghi từ nhật ký. Các truy vấn danh sách/tìm kiếm và mọi thao tác ghi dùng một bản
+ * InMemoryDatabase (với các chỉ mục phụ của nó) được nạp từ nhật ký ở lần đầu cần đến,
+ * sau đó được cập nhật cùng lúc với nhật ký. Đếm và phân trang tài liệu dùng DocumentCatalog,
+ * chỉ dựng từ các bản ghi tài liệu, nên màn hình đầu tiên không phải chờ nạp toàn bộ nhật ký.
+ *
+ * Mỗi thao tác ghi chạy trên bản trong bộ nhớ rồi ghi các dòng bị thay đổi thành một lô vào nhật ký
+ * khi vẫn giữ khóa của bản trong bộ nhớ. Nếu ghi nhật ký thất bại, bản trong bộ nhớ bị bỏ và được
+ * nạp lại từ đĩa ở lần đọc sau, nên thay đổi chưa ghi được không bao giờ hiển thị.
+ */
+public final class LogStructuredDatabase implements AutoCloseable {
+
+    static final byte DOCUMENTS = 1;
+    static final byte USERS = 2;
+    static final byte LOANS = 3;
+    static final byte REVIEWS = 4;
+    static final byte SEQUENCES = 5;
+
+    /** Chu kỳ mặc định kiểm tra và nén nhật ký (giây) */
+    public static final long DEFAULT_COMPACTION_INTERVAL_SECONDS = 300;
+
+    /** Số mã giữ trước mỗi lần cấp phát (giống MySQLIdAllocator) */
+    private static final int ID_BLOCK_SIZE = 20;
+
+    /**
+     * Tạo lô bản ghi cần ghi sau một thay đổi (đọc trạng thái mới từ bản trong bộ nhớ)
+     */
+    interface Batch {
+        List<LogStore.Entry> entries() throws IOException;
+    }
+
+    private interface Decoder<T> {
+        T decode(byte[] value) throws IOException;
+    }
+
+    private final LogStore store;
+    private final InMemoryDatabase view = new InMemoryDatabase();
+    private volatile boolean loaded;
+    private final DocumentCatalog catalog = new DocumentCatalog();
+    private volatile boolean catalogLoaded;
+    private final Object sequenceLock = new Object();
+    private final ScheduledExecutorService compactor;
+
+    private LogStructuredDatabase(LogStore store, long compactionIntervalSeconds) {
+        this.store = store;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "record-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (compactionIntervalSeconds > 0) {
+            compactor.scheduleWithFixedDelay(this::compactIfNeeded, compactionIntervalSeconds,
+                                             compactionIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Mở (hoặc tạo) cơ sở dữ liệu trong thư mục, đẩy mỗi lô xuống đĩa và nén định kỳ
+     */
+    public static LogStructuredDatabase open(Path directory) throws IOException {
+        return open(directory, true, DEFAULT_COMPACTION_INTERVAL_SECONDS);
+    }
+
+    /**
+     * Mở (hoặc tạo) cơ sở dữ liệu trong thư mục
+     * @param syncOnAppend gọi force() sau mỗi lô ghi (tắt để nhập dữ liệu hàng loạt nhanh hơn)
+     * @param compactionIntervalSeconds chu kỳ kiểm tra nén (0: chỉ nén khi gọi compact())
+     */
+    public static LogStructuredDatabase open(Path directory, boolean syncOnAppend,
+                                             long compactionIntervalSeconds) throws IOException {
+        LogStore store = LogStore.open(directory, syncOnAppend);
+        if (store.wasRecovered()) {
+            System.err.println("Record log in " + directory + " was not closed cleanly; index rebuilt from the log");
+        }
+        return new LogStructuredDatabase(store, compactionIntervalSeconds);
+    }
+
+    InMemoryDatabase view() {
+        return view;
+    }
+
+    // ==================== NẠP ====================
+
+    /**
+     * Nạp bản trong bộ nhớ từ nhật ký nếu chưa nạp
+     * @return false nếu đọc nhật ký thất bại (bản trong bộ nhớ để trống)
+     */
+    boolean ensureLoaded() {
+        if (loaded) {
+            return true;
+        }
+        synchronized (view) {
+            if (loaded) {
+                return true;
+            }
+            try {
+                view.clear();
+                store.forEach(this::load);
+                loaded = true;
+                return true;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error loading record log: " + e.getMessage());
+                view.clear();
+                return false;
+            }
+        }
+    }
+
+    private void load(byte table, String id, byte[] value) throws IOException {
+        switch (table) {
+            case DOCUMENTS:
+                view.putDocument(RecordCodecs.decodeDocument(value));
+                break;
+            case USERS:
+                RecordCodecs.UserRecord record = RecordCodecs.decodeUser(value);
+                view.users.put(id, record.user);
+                view.activeLoanCounts.put(id, record.activeLoanCount);
+                if (record.outstandingFines > 0) {
+                    view.outstandingFines.put(id, record.outstandingFines);
+                }
+                if (!record.favoriteGenres.isEmpty()) {
+                    Set<String> genres = InMemoryDatabase.newGenreSet();
+                    genres.addAll(record.favoriteGenres);
+                    view.favoriteGenres.put(id, genres);
+                    genres.forEach(genre -> view.genreIndex.add(id, genre));
+                }
+                break;
+            case LOANS:
+                view.putLoan(RecordCodecs.decodeLoan(value));
+                break;
+            case REVIEWS:
+                view.putReview(RecordCodecs.decodeReview(value));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Danh mục tài liệu, dựng từ các bản ghi tài liệu ở lần đầu cần đến
+     * @return null nếu đọc nhật ký thất bại
+     */
+    DocumentCatalog catalog() {
+        if (catalogLoaded) {
+            return catalog;
+        }
+        // Giữ khóa của bản trong bộ nhớ để không có lô ghi nào xen vào giữa lúc dựng
+        synchronized (view) {
+            if (catalogLoaded) {
+                return catalog;
+            }
+            try {
+                catalog.clear(store.size());
+                store.forEach(DOCUMENTS, (table, id, value) -> catalog.put(RecordCodecs.decodeDocumentSummary(value)));
+                catalogLoaded = true;
+                return catalog;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error loading document catalog: " + e.getMessage());
+                catalog.clear(0);
+                return null;
+            }
+        }
+    }
+
+    // ==================== ĐỌC THEO MÃ ====================
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    Document readDocument(String id) {
+        return read(DOCUMENTS, id, RecordCodecs::decodeDocument);
+    }
+
+    LoanTransaction readLoan(String id) {
+        return read(LOANS, id, RecordCodecs::decodeLoan);
+    }
+
+    Review readReview(String id) {
+        return read(REVIEWS, id, RecordCodecs::decodeReview);
+    }
+
+    private <T> T read(byte table, String id, Decoder<T> decoder) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            byte[] value = store.get(table, id);
+            return value != null ? decoder.decode(value) : null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading record " + id + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // ==================== GHI ====================
+
+    /**
+     * Thực hiện một thay đổi trên bản trong bộ nhớ rồi ghi các dòng bị ảnh hưởng vào nhật ký
+     * @param change thay đổi (trả về false nếu không áp dụng được, khi đó không ghi gì)
+     * @param batch các bản ghi cần ghi sau khi thay đổi thành công
+     */
+    boolean write(BooleanSupplier change, Batch batch) {
+        synchronized (view) {
+            if (!ensureLoaded() || !change.getAsBoolean()) {
+                return false;
+            }
+            try {
+                List<LogStore.Entry> entries = batch.entries();
+                store.append(entries);
+                if (catalogLoaded) {
+                    updateCatalog(entries);
+                }
+                return true;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error writing record log: " + e.getMessage());
+                // Bỏ bản trong bộ nhớ: lần đọc sau nạp lại đúng những gì đã có trên đĩa
+                loaded = false;
+                view.clear();
+                return false;
+            }
+        }
+    }
+
+    private void updateCatalog(List<LogStore.Entry> entries) {
+        for (LogStore.Entry entry : entries) {
+            if (entry.table != DOCUMENTS) {
+                continue;
+            }
+            Document document = view.documents.get(entry.id);
+            if (document != null) {
+                catalog.put(document);
+            } else {
+                catalog.remove(entry.id);
+            }
+        }
+    }
+
+    LogStore.Entry documentEntry(String id) throws IOException {
+        Document document = view.documents.get(id);
+        return new LogStore.Entry(DOCUMENTS, id, document != null ? RecordCodecs.encode(document) : null);
+    }
+
+    /**
+     * Bản ghi người dùng gồm dòng users, bộ đếm lượt mượn, tiền phạt chưa thanh toán và thể loại yêu thích
+     */
+    LogStore.Entry userEntry(String id) throws IOException {
+        User user = view.users.get(id);
+        if (user == null) {
+            return new LogStore.Entry(USERS, id, null);
+        }
+        List<String> genres = new ArrayList<>();
+        Set<String> favorites = view.favoriteGenres.get(id);
+        if (favorites != null) {
+            synchronized (favorites) {
+                genres.addAll(favorites);
+            }
+        }
+        return new LogStore.Entry(USERS, id,
+                RecordCodecs.encode(user, view.activeLoanCounts.getOrDefault(id, 0),
+                                    view.outstandingFines.getOrDefault(id, 0.0), genres));
+    }
+
+    LogStore.Entry loanEntry(String id) throws IOException {
+        LoanTransaction transaction = view.loans.get(id);
+        return new LogStore.Entry(LOANS, id, transaction != null ? RecordCodecs.encode(transaction) : null);
+    }
+
+    LogStore.Entry reviewEntry(String id) throws IOException {
+        Review review = view.reviews.get(id);
+        return new LogStore.Entry(REVIEWS, id, review != null ? RecordCodecs.encode(review) : null);
+    }
+
+    // ==================== CẤP PHÁT MÃ ====================
+
+    /**
+     * Tạo bộ cấp phát mã có chuỗi số lưu trong nhật ký (theo khối như MySQLIdAllocator),
+     * nên mã không bị trùng sau khi khởi động lại
+     * @param prefix tiền tố mã (ví dụ "DOC")
+     */
+    public IdAllocator idAllocator(String prefix) {
+        return new IdAllocator() {
+            private final AtomicLong next = new AtomicLong();
+            private long end;
+
+            @Override
+            public synchronized String nextId() {
+                if (next.get() >= end) {
+                    long start = reserveIds(prefix, ID_BLOCK_SIZE);
+                    if (start < 0) {
+                        return null;
+                    }
+                    next.set(start);
+                    end = start + ID_BLOCK_SIZE;
+                }
+                return prefix + String.format("%04d", next.getAndIncrement());
+            }
+
+            @Override
+            public String getPrefix() {
+                return prefix;
+            }
+        };
+    }
+
+    /**
+     * Giữ trước một khối số của chuỗi
+     * @return số đầu tiên của khối, hoặc -1 nếu không ghi được nhật ký
+     */
+    private long reserveIds(String sequence, int count) {
+        synchronized (sequenceLock) {
+            try {
+                byte[] value = store.get(SEQUENCES, sequence);
+                long start = value != null ? RecordCodecs.decodeLong(value) : 1;
+                store.append(Collections.singletonList(
+                        new LogStore.Entry(SEQUENCES, sequence, RecordCodecs.encode(start + count))));
+                return start;
+            } catch (IOException e) {
+                System.err.println("Error reserving ids for " + sequence + ": " + e.getMessage());
+                return -1;
+            }
+        }
+    }
+
+    // ==================== NÉN VÀ ĐÓNG ====================
+
+    /**
+     * Nén nhật ký ngay (bỏ các phiên bản cũ và bản ghi đã xóa)
+     * @return true nếu thành công
+     */
+    public boolean compact() {
+        try {
+            store.compact();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error compacting record log: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (store.needsCompaction()) {
+            compact();
+        }
+    }
+
+    /**
+     * Số bản ghi còn sống trong nhật ký
+     */
+    public int getRecordCount() {
+        return store.size();
+    }
+
+    /**
+     * Kích thước nhật ký (byte)
+     */
+    public long getLogSize() {
+        return store.logSize();
+    }
+
+    /**
+     * Đóng cơ sở dữ liệu; chỉ mục được đánh dấu khớp với nhật ký để lần mở sau không phải dựng lại
+     */
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        try {
+            store.close();
+        } catch (IOException e) {
+            System.err.println("Error closing record log: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+import com.library.model.Document;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Triển khai DocumentRepository trên LogStructuredDatabase.
+ * Tra cứu theo mã đọc thẳng từ nhật ký khi bản trong bộ nhớ chưa được nạp; đếm và phân trang
+ * dùng danh mục tài liệu của cơ sở dữ liệu (trang được đọc theo mã); các truy vấn khác
+ * dùng InMemoryDocumentRepository trên bản trong bộ nhớ, mỗi thay đổi được ghi vào nhật ký.
+ */
+public class LogStructuredDocumentRepository implements DocumentRepository {
+    private final LogStructuredDatabase database;
+    private final InMemoryDocumentRepository delegate;
+
+    public LogStructuredDocumentRepository(LogStructuredDatabase database) {
+        this.database = database;
+        this.delegate = new InMemoryDocumentRepository(database.view());
+    }
+
+    @Override
+    public boolean save(Document document) {
+        return database.write(() -> delegate.save(document),
+                () -> Collections.singletonList(database.documentEntry(document.getId())));
+    }
+
+    @Override
+    public Document findById(String id) {
+        return database.isLoaded() ? delegate.findById(id) : database.readDocument(id);
+    }
+
+    @Override
+    public Map<String, Document> findByIds(Collection<String> ids) {
+        if (database.isLoaded()) {
+            return delegate.findByIds(ids);
+        }
+        Map<String, Document> documents = new HashMap<>();
+        if (ids != null) {
+            for (String id : ids) {
+                Document document = database.readDocument(id);
+                if (document != null) {
+                    documents.put(id, document);
+                }
+            }
+        }
+        return documents;
+    }
+
+    @Override
+    public List<Document> findAll() {
+        database.ensureLoaded();
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Document> streamAll() {
+        return findAll().stream();
+    }
+
+    @Override
+    public boolean update(Document document) {
+        return database.write(() -> delegate.update(document),
+                () -> Collections.singletonList(database.documentEntry(document.getId())));
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return database.write(() -> delegate.delete(id),
+                () -> Collections.singletonList(database.documentEntry(id)));
+    }
+
+    @Override
+    public List<Document> findByTitle(String title) {
+        database.ensureLoaded();
+        return delegate.findByTitle(title);
+    }
+
+    @Override
+    public List<Document> findByAuthor(String author) {
+        database.ensureLoaded();
+        return delegate.findByAuthor(author);
+    }
+
+    @Override
+    public List<Document> findByGenre(String genre) {
+        database.ensureLoaded();
+        return delegate.findByGenre(genre);
+    }
+
+    @Override
+    public List<Document> findAvailable() {
+        database.ensureLoaded();
+        return delegate.findAvailable();
+    }
+
+    @Override
+    public List<Document> findByIsbn(String isbn) {
+        database.ensureLoaded();
+        return delegate.findByIsbn(isbn);
+    }
+
+    @Override
+    public List<Document> findByTitleAuthorKey(String titleAuthorKey) {
+        database.ensureLoaded();
+        return delegate.findByTitleAuthorKey(titleAuthorKey);
+    }
+
+    @Override
+    public boolean updateQuantity(String documentId, int availableQuantity) {
+        return database.write(() -> delegate.updateQuantity(documentId, availableQuantity),
+                () -> Collections.singletonList(database.documentEntry(documentId)));
+    }
+
+    @Override
+    public int reconcileAvailableQuantity(String documentId) {
+        int[] available = {-1};
+        boolean written = database.write(() -> (available[0] = delegate.reconcileAvailableQuantity(documentId)) >= 0,
+                () -> Collections.singletonList(database.documentEntry(documentId)));
+        return written ? available[0] : -1;
+    }
+
+    @Override
+    public Page<Document> findPage(PageRequest request) {
+        DocumentCatalog catalog = database.catalog();
+        if (catalog == null) {
+            database.ensureLoaded();
+            return delegate.findPage(request);
+        }
+        List<String> ids = catalog.pageIds(request);
+        Map<String, Document> found = findByIds(ids);
+        List<Document> documents = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Document document = found.get(id);
+            if (document != null) {
+                documents.add(document);
+            }
+        }
+
+        PageRequest next = null;
+        if (documents.size() == request.getLimit()) {
+            Document last = documents.get(documents.size() - 1);
+            next = request.after(DocumentCatalog.sortValue(last, DocumentCatalog.sortColumn(request.getSortColumn())),
+                                 last.getId());
+        }
+        return new Page<>(documents, next);
+    }
+
+    @Override
+    public int count(PageRequest request) {
+        DocumentCatalog catalog = database.catalog();
+        if (catalog == null) {
+            database.ensureLoaded();
+            return delegate.count(request);
+        }
+        return catalog.count(request);
+    }
+
+    @Override
+    public Map<String, Integer> countByGenre() {
+        DocumentCatalog catalog = database.catalog();
+        if (catalog == null) {
+            database.ensureLoaded();
+            return delegate.countByGenre();
+        }
+        return catalog.countByGenre();
+    }
+
+    @Override
+    public int countAvailable() {
+        DocumentCatalog catalog = database.catalog();
+        if (catalog == null) {
+            database.ensureLoaded();
+            return delegate.countAvailable();
+        }
+        return catalog.countAvailable();
+    }
+}
@@ -0,0 +1,179 @@
+import com.library.model.LoanTransaction;
+import com.library.model.LoanView;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Triển khai LoanTransactionRepository trên LogStructuredDatabase.
+ * Mượn và trả ghi giao dịch, tài liệu và người dùng bị thay đổi trong cùng một lô nhật ký,
+ * nên sau khi phục hồi số lượng còn lại và bộ đếm lượt mượn luôn khớp với các giao dịch.
+ */
+public class LogStructuredLoanTransactionRepository implements LoanTransactionRepository {
+    private final LogStructuredDatabase database;
+    private final InMemoryLoanTransactionRepository delegate;
+
+    public LogStructuredLoanTransactionRepository(LogStructuredDatabase database) {
+        this.database = database;
+        this.delegate = new InMemoryLoanTransactionRepository(database.view());
+    }
+
+    @Override
+    public boolean save(LoanTransaction transaction) {
+        return database.write(() -> delegate.save(transaction),
+                () -> Collections.singletonList(database.loanEntry(transaction.getId())));
+    }
+
+    @Override
+    public LoanTransaction findById(String id) {
+        return database.isLoaded() ? delegate.findById(id) : database.readLoan(id);
+    }
+
+    @Override
+    public List<LoanTransaction> findAll() {
+        database.ensureLoaded();
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<LoanTransaction> streamAll() {
+        return findAll().stream();
+    }
+
+    @Override
+    public boolean update(LoanTransaction transaction) {
+        return database.write(() -> delegate.update(transaction),
+                () -> Collections.singletonList(database.loanEntry(transaction.getId())));
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return database.write(() -> delegate.delete(id),
+                () -> Collections.singletonList(database.loanEntry(id)));
+    }
+
+    @Override
+    public List<LoanTransaction> findByUserId(String userId) {
+        database.ensureLoaded();
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public List<LoanTransaction> findByDocumentId(String documentId) {
+        database.ensureLoaded();
+        return delegate.findByDocumentId(documentId);
+    }
+
+    @Override
+    public List<LoanTransaction> findActiveTransactions() {
+        database.ensureLoaded();
+        return delegate.findActiveTransactions();
+    }
+
+    @Override
+    public List<LoanTransaction> findOverdueTransactions() {
+        database.ensureLoaded();
+        return delegate.findOverdueTransactions();
+    }
+
+    @Override
+    public int countAll() {
+        database.ensureLoaded();
+        return delegate.countAll();
+    }
+
+    @Override
+    public int countOverdue() {
+        database.ensureLoaded();
+        return delegate.countOverdue();
+    }
+
+    @Override
+    public List<LoanTransaction> findActiveTransactionsByUserId(String userId) {
+        database.ensureLoaded();
+        return delegate.findActiveTransactionsByUserId(userId);
+    }
+
+    @Override
+    public boolean isDocumentBorrowed(String documentId) {
+        database.ensureLoaded();
+        return delegate.isDocumentBorrowed(documentId);
+    }
+
+    @Override
+    public boolean borrow(LoanTransaction transaction) {
+        return database.write(() -> delegate.borrow(transaction),
+                () -> Arrays.asList(database.loanEntry(transaction.getId()),
+                                    database.documentEntry(transaction.getDocumentId()),
+                                    database.userEntry(transaction.getUserId())));
+    }
+
+    /**
+     * Trả: mã tài liệu và người dùng lấy từ giao dịch đã lưu (đối tượng truyền vào có thể chỉ có mã giao dịch)
+     */
+    @Override
+    public boolean completeReturn(LoanTransaction transaction) {
+        return database.write(() -> delegate.completeReturn(transaction), () -> {
+            LoanTransaction closed = database.view().loans.get(transaction.getId());
+            return Arrays.asList(database.loanEntry(closed.getId()),
+                                 database.documentEntry(closed.getDocumentId()),
+                                 database.userEntry(closed.getUserId()));
+        });
+    }
+
+    @Override
+    public boolean renew(LoanTransaction transaction, int expectedRenewalCount) {
+        return database.write(() -> delegate.renew(transaction, expectedRenewalCount),
+                () -> Collections.singletonList(database.loanEntry(transaction.getId())));
+    }
+
+    /**
+     * Các giao dịch được chuyển sang OVERDUE được ghi trong cùng một lô nhật ký
+     */
+    @Override
+    public List<String> markOverdue(Collection<String> ids, LocalDate today) {
+        List<String> marked = new ArrayList<>();
+        boolean written = database.write(() -> marked.addAll(delegate.markOverdue(ids, today)), () -> {
+            List<LogStore.Entry> entries = new ArrayList<>(marked.size());
+            for (String id : marked) {
+                entries.add(database.loanEntry(id));
+            }
+            return entries;
+        });
+        // write trả về false cả khi không có gì thay đổi lẫn khi ghi nhật ký lỗi
+        return written || marked.isEmpty() ? marked : null;
+    }
+
+    /**
+     * Các giao dịch được cộng phạt và người dùng của chúng được ghi trong cùng một lô nhật ký
+     */
+    @Override
+    public int accrueFines(LocalDate today, double dailyFineRate) {
+        List<String> accrued = new ArrayList<>();
+        boolean written = database.write(() -> accrued.addAll(delegate.accrue(today, dailyFineRate)), () -> {
+            List<LogStore.Entry> entries = new ArrayList<>(accrued.size());
+            Set<String> userIds = new HashSet<>();
+            for (String id : accrued) {
+                entries.add(database.loanEntry(id));
+                userIds.add(database.view().loans.get(id).getUserId());
+            }
+            for (String userId : userIds) {
+                entries.add(database.userEntry(userId));
+            }
+            return entries;
+        });
+        return written || accrued.isEmpty() ? accrued.size() : -1;
+    }
+
+    @Override
+    public List<LoanView> findLoanViews(LoanView.Filter filter) {
+        database.ensureLoaded();
+        return delegate.findLoanViews(filter);
+    }
+}
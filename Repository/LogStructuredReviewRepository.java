@@ -0,0 +1,109 @@
+import com.library.model.RatingAggregate;
+import com.library.model.Review;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Triển khai ReviewRepository trên LogStructuredDatabase.
+ * Điểm trung bình đọc từ bộ tổng hợp của bản trong bộ nhớ, được dựng lại khi nạp nhật ký.
+ */
+public class LogStructuredReviewRepository implements ReviewRepository {
+    private final LogStructuredDatabase database;
+    private final InMemoryReviewRepository delegate;
+
+    public LogStructuredReviewRepository(LogStructuredDatabase database) {
+        this.database = database;
+        this.delegate = new InMemoryReviewRepository(database.view());
+    }
+
+    @Override
+    public boolean save(Review review) {
+        return database.write(() -> delegate.save(review),
+                () -> Collections.singletonList(database.reviewEntry(review.getId())));
+    }
+
+    @Override
+    public Review findById(String id) {
+        return database.isLoaded() ? delegate.findById(id) : database.readReview(id);
+    }
+
+    @Override
+    public Map<String, Review> findByIds(Collection<String> ids) {
+        if (database.isLoaded()) {
+            return delegate.findByIds(ids);
+        }
+        Map<String, Review> reviews = new HashMap<>();
+        if (ids != null) {
+            for (String id : ids) {
+                Review review = database.readReview(id);
+                if (review != null) {
+                    reviews.put(id, review);
+                }
+            }
+        }
+        return reviews;
+    }
+
+    @Override
+    public List<Review> findAll() {
+        database.ensureLoaded();
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Review> streamAll() {
+        return findAll().stream();
+    }
+
+    @Override
+    public boolean update(Review review) {
+        return database.write(() -> delegate.update(review),
+                () -> Collections.singletonList(database.reviewEntry(review.getId())));
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return database.write(() -> delegate.delete(id),
+                () -> Collections.singletonList(database.reviewEntry(id)));
+    }
+
+    @Override
+    public List<Review> findByDocumentId(String documentId) {
+        database.ensureLoaded();
+        return delegate.findByDocumentId(documentId);
+    }
+
+    @Override
+    public List<Review> findByUserId(String userId) {
+        database.ensureLoaded();
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public double getAverageRating(String documentId) {
+        database.ensureLoaded();
+        return delegate.getAverageRating(documentId);
+    }
+
+    @Override
+    public int getReviewCount(String documentId) {
+        database.ensureLoaded();
+        return delegate.getReviewCount(documentId);
+    }
+
+    @Override
+    public Map<String, RatingAggregate> getRatingAggregates() {
+        database.ensureLoaded();
+        return delegate.getRatingAggregates();
+    }
+
+    @Override
+    public boolean hasUserReviewed(String userId, String documentId) {
+        database.ensureLoaded();
+        return delegate.hasUserReviewed(userId, documentId);
+    }
+}
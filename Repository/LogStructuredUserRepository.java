@@ -0,0 +1,134 @@
+import com.library.model.User;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Triển khai UserRepository trên LogStructuredDatabase.
+ * Người dùng luôn được đọc từ bản trong bộ nhớ vì cần nạp kèm tài liệu đang mượn
+ * (từ các giao dịch); bộ đếm lượt mượn và thể loại yêu thích được ghi cùng bản ghi người dùng.
+ */
+public class LogStructuredUserRepository implements UserRepository {
+    private final LogStructuredDatabase database;
+    private final InMemoryUserRepository delegate;
+
+    public LogStructuredUserRepository(LogStructuredDatabase database) {
+        this.database = database;
+        this.delegate = new InMemoryUserRepository(database.view());
+    }
+
+    @Override
+    public boolean save(User user) {
+        return database.write(() -> delegate.save(user),
+                () -> Collections.singletonList(database.userEntry(user.getId())));
+    }
+
+    @Override
+    public User findById(String id) {
+        database.ensureLoaded();
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Map<String, User> findByIds(Collection<String> ids) {
+        database.ensureLoaded();
+        return delegate.findByIds(ids);
+    }
+
+    @Override
+    public List<User> findAll() {
+        database.ensureLoaded();
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll() {
+        return findAll().stream();
+    }
+
+    @Override
+    public boolean update(User user) {
+        return database.write(() -> delegate.update(user),
+                () -> Collections.singletonList(database.userEntry(user.getId())));
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return database.write(() -> delegate.delete(id),
+                () -> Collections.singletonList(database.userEntry(id)));
+    }
+
+    @Override
+    public List<User> findByName(String name) {
+        database.ensureLoaded();
+        return delegate.findByName(name);
+    }
+
+    @Override
+    public List<User> findTopBorrowers(int limit) {
+        database.ensureLoaded();
+        return delegate.findTopBorrowers(limit);
+    }
+
+    @Override
+    public Map<String, Double> findOutstandingFines(int limit) {
+        database.ensureLoaded();
+        return delegate.findOutstandingFines(limit);
+    }
+
+    @Override
+    public double getTotalOutstandingFines() {
+        database.ensureLoaded();
+        return delegate.getTotalOutstandingFines();
+    }
+
+    @Override
+    public Map<User.UserType, Integer> countByType() {
+        database.ensureLoaded();
+        return delegate.countByType();
+    }
+
+    @Override
+    public int countActive() {
+        database.ensureLoaded();
+        return delegate.countActive();
+    }
+
+    @Override
+    public List<String> findFavoriteGenres(String userId) {
+        database.ensureLoaded();
+        return delegate.findFavoriteGenres(userId);
+    }
+
+    @Override
+    public boolean addFavoriteGenre(String userId, String genre) {
+        return database.write(() -> delegate.addFavoriteGenre(userId, genre),
+                () -> Collections.singletonList(database.userEntry(userId)));
+    }
+
+    @Override
+    public boolean removeFavoriteGenre(String userId, String genre) {
+        return database.write(() -> delegate.removeFavoriteGenre(userId, genre),
+                () -> Collections.singletonList(database.userEntry(userId)));
+    }
+
+    /**
+     * Xóa thể loại yêu thích; người dùng không tồn tại thì không có gì để ghi
+     */
+    @Override
+    public boolean clearFavoriteGenres(String userId) {
+        return database.write(() -> delegate.clearFavoriteGenres(userId),
+                () -> userId != null && database.view().users.containsKey(userId)
+                        ? Collections.singletonList(database.userEntry(userId))
+                        : Collections.emptyList());
+    }
+
+    @Override
+    public Set<String> findUserIdsByFavoriteGenre(String genre) {
+        database.ensureLoaded();
+        return delegate.findUserIdsByFavoriteGenre(genre);
+    }
+}
@@ -1,11 +1,50 @@
 import com.library.model.Document;
+import com.library.model.DocumentKeys;
 import com.library.database.DatabaseConnection;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class MySQLDocumentRepository implements DocumentRepository {
     
+    /** Các cột được phép dùng để sắp xếp trang (tên logic -> tên cột) */
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+        "id", "id",
+        "title", "title",
+        "author", "author",
+        "genre", "genre",
+        "year", "year"
+    );
+    
+    /** Các cột được phép lọc theo tiền tố */
+    private static final Map<String, String> FILTER_COLUMNS = Map.of(
+        "title", "title",
+        "author", "author",
+        "genre", "genre",
+        "isbn", "isbn"
+    );
+    
+    // Câu lệnh được dùng chung với QueryCatalog để QueryPlanVerifier kiểm tra đúng SQL đang chạy
+    static final String FIND_BY_ID_SQL = "SELECT * FROM documents WHERE id = ?";
+    static final String FIND_ALL_SQL = "SELECT * FROM documents ORDER BY title";
+    static final String FIND_BY_TITLE_SQL = "SELECT * FROM documents WHERE LOWER(title) LIKE LOWER(?) ORDER BY title";
+    static final String FIND_BY_AUTHOR_SQL = "SELECT * FROM documents WHERE LOWER(author) LIKE LOWER(?) ORDER BY title";
+    static final String FIND_BY_GENRE_SQL = "SELECT * FROM documents WHERE LOWER(genre) LIKE LOWER(?) ORDER BY title";
+    static final String FIND_AVAILABLE_SQL = "SELECT * FROM documents WHERE available_quantity > 0 ORDER BY title";
+    static final String FIND_BY_ISBN_KEY_SQL = "SELECT * FROM documents WHERE isbn_key = ? ORDER BY id";
+    static final String FIND_BY_TITLE_AUTHOR_KEY_SQL = "SELECT * FROM documents WHERE title_author_key = ? ORDER BY id";
+    static final String COUNT_BY_GENRE_SQL = "SELECT genre, COUNT(*) FROM documents GROUP BY genre";
+    static final String COUNT_AVAILABLE_SQL = "SELECT COUNT(*) FROM documents WHERE available_quantity > 0";
+    static final String RECONCILE_AVAILABLE_SQL =
+            "UPDATE documents SET available_quantity = GREATEST(0, total_quantity - " +
+            "(SELECT COUNT(*) FROM loan_transactions WHERE document_id = ? AND " + QueryHelper.OPEN_LOAN_CONDITION + ")) " +
+            "WHERE id = ?";
+    static final String FIND_AVAILABLE_QUANTITY_SQL = "SELECT available_quantity FROM documents WHERE id = ?";
+    
     /**
      * Lưu tài liệu mới vào cơ sở dữ liệu
      * @param document tài liệu cần lưu
@@ -14,10 +53,11 @@ public class MySQLDocumentRepository implements DocumentRepository {
     @Override
     public boolean save(Document document) {
         String sql = "INSERT INTO documents (id, title, author, genre, year, description, added_date, " +
-                     "isbn, publisher, page_count, language, edition, total_quantity, available_quantity) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                     "isbn, publisher, page_count, language, edition, total_quantity, available_quantity, " +
+                     "isbn_key, title_author_key) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, document.getId());
@@ -34,6 +74,8 @@ public class MySQLDocumentRepository implements DocumentRepository {
             stmt.setString(12, document.getEdition());
             stmt.setInt(13, document.getTotalQuantity());
             stmt.setInt(14, document.getAvailableQuantity());
+            stmt.setString(15, DocumentKeys.normalizeIsbn(document.getIsbn()));
+            stmt.setString(16, DocumentKeys.titleAuthorKey(document.getTitle(), document.getAuthor()));
             
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -49,9 +91,9 @@ public class MySQLDocumentRepository implements DocumentRepository {
      */
     @Override
     public Document findById(String id) {
-        String sql = "SELECT * FROM documents WHERE id = ?";
+        String sql = FIND_BY_ID_SQL;
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, id);
@@ -66,16 +108,49 @@ public class MySQLDocumentRepository implements DocumentRepository {
         return null;
     }
     
+    /**
+     * Tìm nhiều tài liệu theo danh sách ID, dùng truy vấn IN (...) chia theo từng phần
+     * @param ids danh sách ID của tài liệu
+     * @return bảng ánh xạ ID -> tài liệu (ID không tồn tại sẽ không có trong kết quả)
+     */
+    @Override
+    public Map<String, Document> findByIds(Collection<String> ids) {
+        Map<String, Document> documents = new HashMap<>();
+        List<List<String>> chunks = QueryHelper.chunk(ids);
+        if (chunks.isEmpty()) {
+            return documents;
+        }
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection()) {
+            for (List<String> chunk : chunks) {
+                String sql = findByIdsSql(chunk.size());
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    QueryHelper.bindKeys(stmt, 1, chunk);
+                    ResultSet rs = stmt.executeQuery();
+                    
+                    while (rs.next()) {
+                        Document document = mapResultSetToDocument(rs);
+                        documents.put(document.getId(), document);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error when searching for documents by IDs: " + e.getMessage());
+        }
+        return documents;
+    }
+    
     /**
      * Lấy danh sách tất cả tài liệu
      * @return danh sách tài liệu được sắp xếp theo tiêu đề
      */
     @Override
     public List<Document> findAll() {
-        String sql = "SELECT * FROM documents ORDER BY title";
+        String sql = FIND_ALL_SQL;
         List<Document> documents = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -88,6 +163,15 @@ public class MySQLDocumentRepository implements DocumentRepository {
         return documents;
     }
     
+    /**
+     * Đọc dần tất cả tài liệu: driver trả dữ liệu theo luồng và mỗi dòng chỉ được ánh xạ khi cần
+     * @return Stream tài liệu, phải được đóng sau khi dùng
+     */
+    @Override
+    public Stream<Document> streamAll() {
+        return ResultSetStreams.stream(FIND_ALL_SQL, this::mapResultSetToDocument);
+    }
+    
     /**
      * Cập nhật thông tin tài liệu
      * @param document tài liệu với thông tin mới
@@ -97,10 +181,11 @@ public class MySQLDocumentRepository implements DocumentRepository {
     public boolean update(Document document) {
         String sql = "UPDATE documents SET title = ?, author = ?, genre = ?, year = ?, " +
                      "description = ?, isbn = ?, publisher = ?, page_count = ?, " +
-                     "language = ?, edition = ?, total_quantity = ?, available_quantity = ? " +
+                     "language = ?, edition = ?, total_quantity = ?, available_quantity = ?, " +
+                     "isbn_key = ?, title_author_key = ? " +
                      "WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, document.getTitle());
@@ -115,7 +200,9 @@ public class MySQLDocumentRepository implements DocumentRepository {
             stmt.setString(10, document.getEdition());
             stmt.setInt(11, document.getTotalQuantity());
             stmt.setInt(12, document.getAvailableQuantity());
-            stmt.setString(13, document.getId());
+            stmt.setString(13, DocumentKeys.normalizeIsbn(document.getIsbn()));
+            stmt.setString(14, DocumentKeys.titleAuthorKey(document.getTitle(), document.getAuthor()));
+            stmt.setString(15, document.getId());
             
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -133,7 +220,7 @@ public class MySQLDocumentRepository implements DocumentRepository {
     public boolean delete(String id) {
         String sql = "DELETE FROM documents WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, id);
@@ -151,10 +238,10 @@ public class MySQLDocumentRepository implements DocumentRepository {
      */
     @Override
     public List<Document> findByTitle(String title) {
-        String sql = "SELECT * FROM documents WHERE LOWER(title) LIKE LOWER(?) ORDER BY title";
+        String sql = FIND_BY_TITLE_SQL;
         List<Document> documents = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, "%" + title + "%");
@@ -176,10 +263,10 @@ public class MySQLDocumentRepository implements DocumentRepository {
      */
     @Override
     public List<Document> findByAuthor(String author) {
-        String sql = "SELECT * FROM documents WHERE LOWER(author) LIKE LOWER(?) ORDER BY title";
+        String sql = FIND_BY_AUTHOR_SQL;
         List<Document> documents = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, "%" + author + "%");
@@ -201,10 +288,10 @@ public class MySQLDocumentRepository implements DocumentRepository {
      */
     @Override
     public List<Document> findByGenre(String genre) {
-        String sql = "SELECT * FROM documents WHERE LOWER(genre) LIKE LOWER(?) ORDER BY title";
+        String sql = FIND_BY_GENRE_SQL;
         List<Document> documents = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, "%" + genre + "%");
@@ -225,10 +312,10 @@ public class MySQLDocumentRepository implements DocumentRepository {
      */
     @Override
     public List<Document> findAvailable() {
-        String sql = "SELECT * FROM documents WHERE available_quantity > 0 ORDER BY title";
+        String sql = FIND_AVAILABLE_SQL;
         List<Document> documents = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -251,7 +338,7 @@ public class MySQLDocumentRepository implements DocumentRepository {
     public boolean updateQuantity(String documentId, int availableQuantity) {
         String sql = "UPDATE documents SET available_quantity = ? WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, availableQuantity);
@@ -264,6 +351,305 @@ public class MySQLDocumentRepository implements DocumentRepository {
         }
     }
     
+    /**
+     * Đặt lại số lượng còn lại bằng một câu lệnh UPDATE trên máy chủ chính (số giao dịch đang mở được
+     * đếm bằng truy vấn con), rồi đọc giá trị mới trong cùng giao dịch cơ sở dữ liệu
+     * @param documentId mã tài liệu
+     * @return số lượng còn lại sau khi đặt lại, -1 nếu không có tài liệu hoặc có lỗi
+     */
+    @Override
+    public int reconcileAvailableQuantity(String documentId) {
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(RECONCILE_AVAILABLE_SQL)) {
+                    stmt.setString(1, documentId);
+                    stmt.setString(2, documentId);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return -1;
+                    }
+                }
+                
+                int available = -1;
+                try (PreparedStatement stmt = conn.prepareStatement(FIND_AVAILABLE_QUANTITY_SQL)) {
+                    stmt.setString(1, documentId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            available = rs.getInt(1);
+                        }
+                    }
+                }
+                
+                conn.commit();
+                return available;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reconciling document quantity: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Tìm tài liệu theo ISBN đã chuẩn hóa (ISBN-10 và ISBN-13 của cùng một sách cho cùng kết quả)
+     * @param isbn ISBN cần tìm
+     * @return danh sách tài liệu có ISBN khớp
+     */
+    @Override
+    public List<Document> findByIsbn(String isbn) {
+        String isbnKey = DocumentKeys.normalizeIsbn(isbn);
+        if (isbnKey == null) {
+            return new ArrayList<>();
+        }
+        return findByKey(FIND_BY_ISBN_KEY_SQL, isbnKey, "Error finding documents by ISBN: ");
+    }
+    
+    /**
+     * Tìm tài liệu theo khóa tiêu đề + tác giả đã chuẩn hóa
+     * @param titleAuthorKey khóa tạo bởi DocumentKeys.titleAuthorKey
+     * @return danh sách tài liệu có khóa khớp
+     */
+    @Override
+    public List<Document> findByTitleAuthorKey(String titleAuthorKey) {
+        return findByKey(FIND_BY_TITLE_AUTHOR_KEY_SQL, titleAuthorKey, "Error finding documents by title/author: ");
+    }
+    
+    private List<Document> findByKey(String sql, String key, String errorMessage) {
+        List<Document> documents = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, key);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                documents.add(mapResultSetToDocument(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println(errorMessage + e.getMessage());
+        }
+        return documents;
+    }
+    
+    /**
+     * Đọc một trang tài liệu theo khóa (keyset): WHERE (cột, id) > (giá trị, id cuối trang trước)
+     * ORDER BY cột, id LIMIT n. Dùng OFFSET khi yêu cầu không mang khóa.
+     * author, genre và year có thể NULL: MySQL xếp NULL trước khi tăng dần và sau khi giảm dần,
+     * nên điều kiện khóa xử lý riêng trường hợp giá trị cuối trang là NULL (xem keysetCondition).
+     * @param request yêu cầu trang
+     * @return trang tài liệu cùng yêu cầu cho trang kế tiếp
+     */
+    @Override
+    public Page<Document> findPage(PageRequest request) {
+        String sortColumn = SORT_COLUMNS.getOrDefault(request.getSortColumn(), "title");
+        List<Object> params = new ArrayList<>();
+        String sql = findPageSql(request, params);
+        
+        List<Document> documents = new ArrayList<>();
+        // Giá trị cột sắp xếp của dòng cuối đọc thẳng từ ResultSet: year NULL ánh xạ thành 0 trong Document
+        Object lastSortValue = null;
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                documents.add(mapResultSetToDocument(rs));
+                lastSortValue = rs.getObject(sortColumn);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding document page: " + e.getMessage());
+            return new Page<>(documents, null);
+        }
+        
+        PageRequest next = null;
+        if (documents.size() == request.getLimit()) {
+            Document last = documents.get(documents.size() - 1);
+            next = request.after(lastSortValue, last.getId());
+        }
+        return new Page<>(documents, next);
+    }
+    
+    /**
+     * Câu lệnh đọc một trang (xem findPage)
+     * @param request yêu cầu trang
+     * @param params danh sách nhận giá trị tham số theo thứ tự '?'
+     * @return câu lệnh SELECT
+     */
+    static String findPageSql(PageRequest request, List<Object> params) {
+        String sortColumn = SORT_COLUMNS.getOrDefault(request.getSortColumn(), "title");
+        String direction = request.isAscending() ? "ASC" : "DESC";
+        String comparator = request.isAscending() ? ">" : "<";
+        
+        StringBuilder sql = new StringBuilder("SELECT * FROM documents");
+        List<String> conditions = new ArrayList<>();
+        
+        appendFilter(request, conditions, params);
+        if (request.isKeyset()) {
+            if (sortColumn.equals("id")) {
+                conditions.add("id " + comparator + " ?");
+                params.add(request.getAfterId());
+            } else {
+                conditions.add(keysetCondition(sortColumn, request.isAscending(), request.getAfterValue(),
+                                               request.getAfterId(), params));
+            }
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        
+        sql.append(" ORDER BY ").append(sortColumn).append(' ').append(direction);
+        if (!sortColumn.equals("id")) {
+            sql.append(", id ").append(direction);
+        }
+        sql.append(" LIMIT ?");
+        params.add(request.getLimit());
+        if (!request.isKeyset() && request.getOffset() > 0) {
+            sql.append(" OFFSET ?");
+            params.add(request.getOffset());
+        }
+        return sql.toString();
+    }
+    
+    /**
+     * Điều kiện "đứng sau dòng (giá trị, id)" theo thứ tự ORDER BY cột, id của MySQL, kể cả khi cột NULL.
+     * Tăng dần (NULL đứng đầu): sau NULL là các NULL có id lớn hơn rồi mọi giá trị khác NULL.
+     * Giảm dần (NULL đứng cuối): sau một giá trị còn cả các dòng NULL; sau NULL chỉ còn các NULL có id nhỏ hơn.
+     * So sánh với tham số NULL luôn cho UNKNOWN nên không bao giờ truyền NULL vào dấu so sánh.
+     */
+    private static String keysetCondition(String column, boolean ascending, Object afterValue, String afterId,
+                                          List<Object> params) {
+        String comparator = ascending ? ">" : "<";
+        if (afterValue == null) {
+            params.add(afterId);
+            return ascending
+                    ? "((" + column + " IS NULL AND id > ?) OR " + column + " IS NOT NULL)"
+                    : "(" + column + " IS NULL AND id < ?)";
+        }
+        params.add(afterValue);
+        params.add(afterValue);
+        params.add(afterId);
+        String condition = column + " " + comparator + " ? OR (" + column + " = ? AND id " + comparator + " ?)";
+        return ascending ? "(" + condition + ")" : "(" + condition + " OR " + column + " IS NULL)";
+    }
+    
+    /**
+     * Đếm số tài liệu khớp bộ lọc của yêu cầu (bỏ qua vị trí và kích thước trang)
+     * @param request yêu cầu trang
+     * @return số tài liệu khớp
+     */
+    @Override
+    public int count(PageRequest request) {
+        List<Object> params = new ArrayList<>();
+        String sql = countSql(request, params);
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting documents: " + e.getMessage());
+        }
+        return 0;
+    }
+    
+    /**
+     * Câu lệnh đếm tài liệu khớp bộ lọc (xem count)
+     * @param request yêu cầu trang
+     * @param params danh sách nhận giá trị tham số theo thứ tự '?'
+     * @return câu lệnh SELECT COUNT(*)
+     */
+    static String countSql(PageRequest request, List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM documents");
+        List<String> conditions = new ArrayList<>();
+        appendFilter(request, conditions, params);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        return sql.toString();
+    }
+    
+    /**
+     * Câu lệnh đọc nhiều tài liệu theo mã
+     * @param count số mã trong mệnh đề IN
+     */
+    static String findByIdsSql(int count) {
+        return "SELECT * FROM documents WHERE id IN (" + QueryHelper.placeholders(count) + ")";
+    }
+    
+    /**
+     * Đếm tài liệu theo thể loại (GROUP BY trên chỉ mục idx_documents_genre, không đọc dòng dữ liệu)
+     * @return thể loại -> số tài liệu, hoặc null nếu có lỗi
+     */
+    @Override
+    public Map<String, Integer> countByGenre() {
+        String sql = COUNT_BY_GENRE_SQL;
+        Map<String, Integer> counts = new HashMap<>();
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                counts.put(rs.getString(1), rs.getInt(2));
+            }
+            return counts;
+        } catch (SQLException e) {
+            System.err.println("Error counting documents by genre: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Đếm tài liệu còn số lượng (quét khoảng trên chỉ mục idx_documents_available)
+     * @return số tài liệu, -1 nếu có lỗi
+     */
+    @Override
+    public int countAvailable() {
+        String sql = COUNT_AVAILABLE_SQL;
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting available documents: " + e.getMessage());
+        }
+        return -1;
+    }
+    
+    /**
+     * Thêm điều kiện lọc theo tiền tố (LIKE 'x%' vẫn dùng được chỉ mục của cột)
+     */
+    private static void appendFilter(PageRequest request, List<String> conditions, List<Object> params) {
+        if (!request.hasFilter()) {
+            return;
+        }
+        String filterColumn = FILTER_COLUMNS.get(request.getFilterColumn());
+        if (filterColumn == null) {
+            return;
+        }
+        conditions.add(filterColumn + " LIKE ?");
+        params.add(QueryHelper.escapeLike(request.getFilterValue()) + "%");
+    }
+    
     /**
      * Phương thức hỗ trợ để ánh xạ ResultSet thành đối tượng Document
      */
@@ -0,0 +1,159 @@
+import com.library.database.DatabaseConnection;
+import java.sql.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Triển khai MySQL của IdAllocator theo kiểu hi/lo.
+ * Mỗi lần cần, bộ cấp phát giữ trước một khối số từ bảng id_sequences
+ * (SELECT ... FOR UPDATE trong một giao dịch), sau đó phát các số trong khối bằng AtomicLong
+ * mà không cần khóa hay truy vấn. Vì khối được giữ trong cơ sở dữ liệu nên nhiều thể hiện
+ * ứng dụng dùng chung cơ sở dữ liệu không bao giờ nhận trùng mã.
+ * Các số còn thừa trong khối khi ứng dụng tắt sẽ bị bỏ qua (mã có thể không liên tục).
+ * Bảng id_sequences được tạo bởi SchemaMigrator.
+ */
+public class MySQLIdAllocator implements IdAllocator {
+    /** Kích thước khối mặc định */
+    public static final int DEFAULT_BLOCK_SIZE = 20;
+    
+    /** Khóa dòng bộ đếm khi giữ khối (dùng chung với QueryCatalog) */
+    static final String LOCK_SEQUENCE_SQL = "SELECT next_value FROM id_sequences WHERE name = ? FOR UPDATE";
+    private static final String ADVANCE_SEQUENCE_SQL = "UPDATE id_sequences SET next_value = ? WHERE name = ?";
+    
+    private final String sequenceName;
+    private final String tableName;
+    private final String prefix;
+    private final int blockSize;
+    private volatile Block currentBlock = Block.EXHAUSTED;
+    
+    /**
+     * Khối số đã giữ trước: [next, end)
+     */
+    private static final class Block {
+        static final Block EXHAUSTED = new Block(0, 0);
+        
+        final AtomicLong next;
+        final long end;
+        
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+    
+    /**
+     * @param tableName bảng chứa thực thể (dùng tên bảng làm tên chuỗi số và để khởi tạo lần đầu)
+     * @param prefix tiền tố mã (ví dụ "DOC")
+     */
+    public MySQLIdAllocator(String tableName, String prefix) {
+        this(tableName, prefix, DEFAULT_BLOCK_SIZE);
+    }
+    
+    /**
+     * @param tableName bảng chứa thực thể (dùng tên bảng làm tên chuỗi số và để khởi tạo lần đầu)
+     * @param prefix tiền tố mã (ví dụ "DOC")
+     * @param blockSize số mã giữ trước trong mỗi lần truy cập cơ sở dữ liệu
+     */
+    public MySQLIdAllocator(String tableName, String prefix, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        this.sequenceName = tableName;
+        this.tableName = tableName;
+        this.prefix = prefix;
+        this.blockSize = blockSize;
+    }
+    
+    @Override
+    public String nextId() {
+        while (true) {
+            Block block = currentBlock;
+            long value = block.next.getAndIncrement();
+            if (value < block.end) {
+                return prefix + String.format("%04d", value);
+            }
+            
+            // Khối đã hết: chỉ một luồng giữ khối mới, các luồng khác dùng lại kết quả
+            synchronized (this) {
+                if (currentBlock == block) {
+                    Block reserved = reserveBlock();
+                    if (reserved == null) {
+                        return null;
+                    }
+                    currentBlock = reserved;
+                }
+            }
+        }
+    }
+    
+    @Override
+    public String getPrefix() {
+        return prefix;
+    }
+    
+    /**
+     * Giữ trước khối số tiếp theo trong bảng id_sequences
+     * @return khối mới, null nếu thất bại
+     */
+    private Block reserveBlock() {
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Long start = selectForUpdate(conn, LOCK_SEQUENCE_SQL);
+                if (start == null) {
+                    seedSequence(conn);
+                    start = selectForUpdate(conn, LOCK_SEQUENCE_SQL);
+                    if (start == null) {
+                        conn.rollback();
+                        return null;
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(ADVANCE_SEQUENCE_SQL)) {
+                    stmt.setLong(1, start + blockSize);
+                    stmt.setString(2, sequenceName);
+                    stmt.executeUpdate();
+                }
+                
+                conn.commit();
+                return new Block(start, start + blockSize);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reserving ID block for " + sequenceName + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private Long selectForUpdate(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, sequenceName);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong("next_value") : null;
+        }
+    }
+    
+    /**
+     * Khởi tạo chuỗi số lần đầu từ mã lớn nhất hiện có trong bảng thực thể.
+     * Việc quét chỉ xảy ra một lần cho mỗi cơ sở dữ liệu; INSERT IGNORE giúp hai thể hiện
+     * khởi tạo cùng lúc không ghi đè lẫn nhau.
+     */
+    private void seedSequence(Connection conn) throws SQLException {
+        String maxSql = "SELECT MAX(CAST(SUBSTRING(id, " + (prefix.length() + 1) + ") AS UNSIGNED)) FROM " + tableName;
+        long maxExisting = 0;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(maxSql)) {
+            if (rs.next()) {
+                maxExisting = rs.getLong(1);
+            }
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT IGNORE INTO id_sequences (name, next_value) VALUES (?, ?)")) {
+            stmt.setString(1, sequenceName);
+            stmt.setLong(2, maxExisting + 1);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -1,8 +1,12 @@
 import com.library.model.LoanTransaction;
+import com.library.model.LoanView;
 import com.library.database.DatabaseConnection;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Triển khai MySQL của LoanTransactionRepository
@@ -10,6 +14,73 @@ import java.util.List;
  */
 public class MySQLLoanTransactionRepository implements LoanTransactionRepository {
     
+    private static final String INSERT_SQL =
+            "INSERT INTO loan_transactions (id, user_id, document_id, borrow_date, due_date, " +
+            "return_date, status, fine_amount, renewal_count, max_renewals) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    // Câu lệnh được dùng chung với QueryCatalog để QueryPlanVerifier kiểm tra đúng SQL đang chạy
+    static final String FIND_BY_ID_SQL = "SELECT * FROM loan_transactions WHERE id = ?";
+    static final String FIND_ALL_SQL = "SELECT * FROM loan_transactions ORDER BY borrow_date DESC";
+    static final String FIND_BY_USER_ID_SQL =
+            "SELECT * FROM loan_transactions WHERE user_id = ? ORDER BY borrow_date DESC";
+    static final String FIND_BY_DOCUMENT_ID_SQL =
+            "SELECT * FROM loan_transactions WHERE document_id = ? ORDER BY borrow_date DESC";
+    static final String FIND_ACTIVE_SQL =
+            "SELECT * FROM loan_transactions WHERE " + QueryHelper.OPEN_LOAN_CONDITION + " ORDER BY due_date ASC";
+    static final String FIND_OVERDUE_SQL =
+            "SELECT * FROM loan_transactions WHERE status = 'OVERDUE' AND return_date IS NULL ORDER BY due_date ASC";
+    static final String FIND_ACTIVE_BY_USER_ID_SQL =
+            "SELECT * FROM loan_transactions WHERE user_id = ? AND " + QueryHelper.OPEN_LOAN_CONDITION +
+            " ORDER BY due_date ASC";
+    static final String COUNT_ALL_SQL = "SELECT COUNT(*) FROM loan_transactions";
+    static final String COUNT_OVERDUE_SQL =
+            "SELECT COUNT(*) FROM loan_transactions WHERE status = 'OVERDUE' AND return_date IS NULL";
+    static final String IS_DOCUMENT_BORROWED_SQL =
+            "SELECT COUNT(*) FROM loan_transactions WHERE document_id = ? AND " + QueryHelper.OPEN_LOAN_CONDITION;
+    
+    // Mượn
+    static final String LOCK_USER_SQL =
+            "SELECT is_active, max_borrow_limit, active_loan_count FROM users WHERE id = ? FOR UPDATE";
+    static final String DECREMENT_AVAILABLE_SQL =
+            "UPDATE documents SET available_quantity = available_quantity - 1 WHERE id = ? AND available_quantity > 0";
+    static final String INCREMENT_USER_LOANS_SQL =
+            "UPDATE users SET active_loan_count = active_loan_count + 1 WHERE id = ?";
+    
+    // Trả và gia hạn
+    static final String LOCK_OPEN_LOAN_SQL =
+            "SELECT fine_amount FROM loan_transactions WHERE id = ? AND " + QueryHelper.OPEN_LOAN_CONDITION + " FOR UPDATE";
+    static final String CLOSE_LOAN_SQL =
+            "UPDATE loan_transactions SET return_date = ?, status = ?, fine_amount = ? " +
+            "WHERE id = ? AND " + QueryHelper.OPEN_LOAN_CONDITION;
+    static final String INCREMENT_AVAILABLE_SQL =
+            "UPDATE documents SET available_quantity = available_quantity + 1 " +
+            "WHERE id = ? AND available_quantity < total_quantity";
+    static final String DECREMENT_USER_LOANS_SQL =
+            "UPDATE users SET active_loan_count = active_loan_count - 1 WHERE id = ? AND active_loan_count > 0";
+    static final String ADJUST_USER_FINES_SQL =
+            "UPDATE users SET outstanding_fines = GREATEST(0, outstanding_fines + ?) WHERE id = ?";
+    static final String RENEW_SQL =
+            "UPDATE loan_transactions SET due_date = ?, status = ?, renewal_count = ? " +
+            "WHERE id = ? AND renewal_count = ? AND " + QueryHelper.OPEN_LOAN_CONDITION;
+    
+    // Quá hạn và tiền phạt: tham số ngày là ngày chạy của OverdueSweeper
+    private static final String DUE_CONDITION = "status IN ('ACTIVE', 'RENEWED') AND return_date IS NULL AND due_date < ?";
+    private static final String PENDING_FINE_CONDITION =
+            "status = 'OVERDUE' AND return_date IS NULL AND COALESCE(fine_accrued_through, due_date) < ?";
+    private static final String PENDING_FINE_DAYS = "DATEDIFF(?, COALESCE(fine_accrued_through, due_date))";
+    static final String LOCK_PENDING_FINES_SQL =
+            "SELECT id FROM loan_transactions WHERE " + PENDING_FINE_CONDITION + " FOR UPDATE";
+    static final String ACCRUE_USER_FINES_SQL =
+            "UPDATE users u JOIN (" +
+            "SELECT user_id, SUM(" + PENDING_FINE_DAYS + ") AS days FROM loan_transactions " +
+            "WHERE " + PENDING_FINE_CONDITION + " GROUP BY user_id) a ON a.user_id = u.id " +
+            "SET u.outstanding_fines = u.outstanding_fines + a.days * ?";
+    // fine_amount được gán trước nên vẫn đọc fine_accrued_through cũ
+    static final String ACCRUE_LOAN_FINES_SQL =
+            "UPDATE loan_transactions SET fine_amount = fine_amount + " + PENDING_FINE_DAYS + " * ?, " +
+            "fine_accrued_through = ? WHERE " + PENDING_FINE_CONDITION;
+    
     /**
      * Lưu một giao dịch mượn mới vào cơ sở dữ liệu
      * @param transaction đối tượng giao dịch mượn cần lưu
@@ -17,30 +88,10 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
      */
     @Override
     public boolean save(LoanTransaction transaction) {
-        String sql = "INSERT INTO loan_transactions (id, user_id, document_id, borrow_date, due_date, " +
-                     "return_date, status, fine_amount, renewal_count, max_renewals) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, transaction.getId());
-            stmt.setString(2, transaction.getUserId());
-            stmt.setString(3, transaction.getDocumentId());
-            stmt.setDate(4, Date.valueOf(transaction.getBorrowDate()));
-            stmt.setDate(5, Date.valueOf(transaction.getDueDate()));
-            
-            if (transaction.getReturnDate() != null) {
-                stmt.setDate(6, Date.valueOf(transaction.getReturnDate()));
-            } else {
-                stmt.setNull(6, Types.DATE);
-            }
-            
-            stmt.setString(7, transaction.getStatus().name());
-            stmt.setDouble(8, transaction.getFineAmount());
-            stmt.setInt(9, transaction.getRenewalCount());
-            stmt.setInt(10, transaction.getMaxRenewals());
+        try (Connection conn = DatabaseConnection.requireConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
             
+            bindInsert(stmt, transaction);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
             System.err.println("Error saving loan transaction: " + e.getMessage());
@@ -55,9 +106,9 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
      */
     @Override
     public LoanTransaction findById(String id) {
-        String sql = "SELECT * FROM loan_transactions WHERE id = ?";
+        String sql = FIND_BY_ID_SQL;
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, id);
@@ -78,10 +129,10 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
      */
     @Override
     public List<LoanTransaction> findAll() {
-        String sql = "SELECT * FROM loan_transactions ORDER BY borrow_date DESC";
+        String sql = FIND_ALL_SQL;
         List<LoanTransaction> transactions = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -94,6 +145,15 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
         return transactions;
     }
     
+    /**
+     * Đọc dần tất cả giao dịch mượn/trả: driver trả dữ liệu theo luồng và mỗi dòng chỉ được ánh xạ khi cần
+     * @return Stream giao dịch mượn/trả, phải được đóng sau khi dùng
+     */
+    @Override
+    public Stream<LoanTransaction> streamAll() {
+        return ResultSetStreams.stream(FIND_ALL_SQL, this::mapResultSetToTransaction);
+    }
+    
     /**
      * Cập nhật thông tin giao dịch mượn
      * @param transaction đối tượng giao dịch mượn cần cập nhật
@@ -106,7 +166,7 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
                      "fine_amount = ?, renewal_count = ?, max_renewals = ? " +
                      "WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, transaction.getUserId());
@@ -142,7 +202,7 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
     public boolean delete(String id) {
         String sql = "DELETE FROM loan_transactions WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, id);
@@ -160,10 +220,10 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
      */
     @Override
     public List<LoanTransaction> findByUserId(String userId) {
-        String sql = "SELECT * FROM loan_transactions WHERE user_id = ? ORDER BY borrow_date DESC";
+        String sql = FIND_BY_USER_ID_SQL;
         List<LoanTransaction> transactions = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, userId);
@@ -185,10 +245,10 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
      */
     @Override
     public List<LoanTransaction> findByDocumentId(String documentId) {
-        String sql = "SELECT * FROM loan_transactions WHERE document_id = ? ORDER BY borrow_date DESC";
+        String sql = FIND_BY_DOCUMENT_ID_SQL;
         List<LoanTransaction> transactions = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, documentId);
@@ -209,12 +269,10 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
      */
     @Override
     public List<LoanTransaction> findActiveTransactions() {
-        String sql = "SELECT * FROM loan_transactions " +
-                     "WHERE status IN ('ACTIVE', 'RENEWED', 'OVERDUE') AND return_date IS NULL " +
-                     "ORDER BY due_date ASC";
+        String sql = FIND_ACTIVE_SQL;
         List<LoanTransaction> transactions = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -228,17 +286,16 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
     }
     
     /**
-     * Tìm tất cả giao dịch mượn quá hạn
+     * Tìm tất cả giao dịch mượn quá hạn: đọc trạng thái OVERDUE do OverdueSweeper ghi
+     * thay vì so hạn trả với CURDATE() trên từng dòng
      * @return danh sách giao dịch mượn quá hạn
      */
     @Override
     public List<LoanTransaction> findOverdueTransactions() {
-        String sql = "SELECT * FROM loan_transactions " +
-                     "WHERE due_date < CURDATE() AND return_date IS NULL " +
-                     "ORDER BY due_date ASC";
+        String sql = FIND_OVERDUE_SQL;
         List<LoanTransaction> transactions = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -251,6 +308,38 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
         return transactions;
     }
     
+    /**
+     * Đếm tất cả giao dịch (InnoDB đếm trên chỉ mục phụ nhỏ nhất)
+     * @return số giao dịch, -1 nếu có lỗi
+     */
+    @Override
+    public int countAll() {
+        return count(COUNT_ALL_SQL, "Error counting transactions: ");
+    }
+    
+    /**
+     * Đếm giao dịch quá hạn (quét khoảng trên chỉ mục idx_loans_status_open_due)
+     * @return số giao dịch, -1 nếu có lỗi
+     */
+    @Override
+    public int countOverdue() {
+        return count(COUNT_OVERDUE_SQL, "Error counting overdue transactions: ");
+    }
+    
+    private int count(String sql, String errorMessage) {
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println(errorMessage + e.getMessage());
+        }
+        return -1;
+    }
+    
     /**
      * Tìm tất cả giao dịch mượn đang hoạt động của một người dùng
      * @param userId mã người dùng
@@ -258,12 +347,10 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
      */
     @Override
     public List<LoanTransaction> findActiveTransactionsByUserId(String userId) {
-        String sql = "SELECT * FROM loan_transactions " +
-                     "WHERE user_id = ? AND status IN ('ACTIVE', 'RENEWED', 'OVERDUE') AND return_date IS NULL " +
-                     "ORDER BY due_date ASC";
+        String sql = FIND_ACTIVE_BY_USER_ID_SQL;
         List<LoanTransaction> transactions = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requirePrimaryReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, userId);
@@ -285,10 +372,9 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
      */
     @Override
     public boolean isDocumentBorrowed(String documentId) {
-        String sql = "SELECT COUNT(*) FROM loan_transactions " +
-                     "WHERE document_id = ? AND status IN ('ACTIVE', 'RENEWED', 'OVERDUE') AND return_date IS NULL";
+        String sql = IS_DOCUMENT_BORROWED_SQL;
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requirePrimaryReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, documentId);
@@ -303,6 +389,376 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
         return false;
     }
     
+    /**
+     * Lấy bản chiếu hiển thị của các giao dịch bằng một truy vấn JOIN duy nhất
+     * @param filter bộ lọc giao dịch
+     * @return danh sách bản chiếu, sắp xếp theo ngày mượn giảm dần (quá hạn: theo hạn trả tăng dần)
+     */
+    @Override
+    public List<LoanView> findLoanViews(LoanView.Filter filter) {
+        String sql = findLoanViewsSql(filter);
+        List<LoanView> views = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                views.add(mapResultSetToLoanView(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding loan views: " + e.getMessage());
+        }
+        return views;
+    }
+    
+    /**
+     * Câu lệnh JOIN của findLoanViews cho một bộ lọc
+     * @param filter bộ lọc giao dịch
+     */
+    static String findLoanViewsSql(LoanView.Filter filter) {
+        String where;
+        String orderBy = "ORDER BY t.borrow_date DESC";
+        switch (filter) {
+            case ACTIVE:
+                where = "WHERE t.status IN ('ACTIVE', 'RENEWED', 'OVERDUE') AND t.return_date IS NULL ";
+                break;
+            case RETURNED:
+                where = "WHERE t.status IN ('RETURNED', 'OVERDUE') AND t.return_date IS NOT NULL ";
+                break;
+            case OVERDUE:
+                where = "WHERE t.status = 'OVERDUE' AND t.return_date IS NULL ";
+                orderBy = "ORDER BY t.due_date ASC";
+                break;
+            default:
+                where = "";
+                break;
+        }
+        
+        return "SELECT t.id, t.user_id, u.name AS user_name, t.document_id, d.title AS document_title, " +
+               "t.borrow_date, t.due_date, t.return_date, t.status, t.fine_amount, " +
+               "t.renewal_count, t.max_renewals " +
+               "FROM loan_transactions t " +
+               "LEFT JOIN users u ON u.id = t.user_id " +
+               "LEFT JOIN documents d ON d.id = t.document_id " +
+               where + orderBy;
+    }
+    
+    /**
+     * Phương thức hỗ trợ để ánh xạ ResultSet của truy vấn JOIN thành đối tượng LoanView
+     */
+    private LoanView mapResultSetToLoanView(ResultSet rs) throws SQLException {
+        Date borrowDate = rs.getDate("borrow_date");
+        Date dueDate = rs.getDate("due_date");
+        Date returnDate = rs.getDate("return_date");
+        String statusStr = rs.getString("status");
+        
+        return new LoanView(
+            rs.getString("id"),
+            rs.getString("user_id"),
+            rs.getString("user_name"),
+            rs.getString("document_id"),
+            rs.getString("document_title"),
+            borrowDate != null ? borrowDate.toLocalDate() : null,
+            dueDate != null ? dueDate.toLocalDate() : null,
+            returnDate != null ? returnDate.toLocalDate() : null,
+            statusStr != null ? LoanTransaction.TransactionStatus.valueOf(statusStr) : null,
+            rs.getDouble("fine_amount"),
+            rs.getInt("renewal_count"),
+            rs.getInt("max_renewals"));
+    }
+    
+    /**
+     * Mượn tài liệu trong một giao dịch cơ sở dữ liệu duy nhất:
+     * khóa dòng người dùng, kiểm tra giới hạn mượn, giảm số lượng còn lại có điều kiện
+     * (available_quantity > 0), ghi giao dịch và tăng bộ đếm active_loan_count của người dùng.
+     * Hai quầy cùng mượn bản cuối cùng thì chỉ một bên thành công.
+     * @param transaction giao dịch mượn mới
+     * @return true nếu mượn thành công, false nếu người dùng không hợp lệ, vượt giới hạn hoặc hết tài liệu
+     */
+    @Override
+    public boolean borrow(LoanTransaction transaction) {
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Khóa dòng người dùng để các lượt mượn đồng thời của cùng người dùng được tuần tự hóa;
+                // số lượt đang mượn được đọc từ bộ đếm trên dòng người dùng, không phải đếm lại giao dịch
+                try (PreparedStatement stmt = conn.prepareStatement(LOCK_USER_SQL)) {
+                    stmt.setString(1, transaction.getUserId());
+                    ResultSet rs = stmt.executeQuery();
+                    if (!rs.next() || !rs.getBoolean("is_active")
+                            || rs.getInt("active_loan_count") >= rs.getInt("max_borrow_limit")) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(DECREMENT_AVAILABLE_SQL)) {
+                    stmt.setString(1, transaction.getDocumentId());
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+                    bindInsert(stmt, transaction);
+                    stmt.executeUpdate();
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(INCREMENT_USER_LOANS_SQL)) {
+                    stmt.setString(1, transaction.getUserId());
+                    stmt.executeUpdate();
+                }
+                
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error borrowing document: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Trả tài liệu trong một giao dịch cơ sở dữ liệu duy nhất: khóa và đóng giao dịch mượn có điều kiện
+     * (chỉ khi còn đang mượn) rồi tăng số lượng còn lại của tài liệu, giảm bộ đếm
+     * active_loan_count và điều chỉnh outstanding_fines của người dùng theo chênh lệch giữa
+     * tiền phạt cuối cùng và phần đã cộng dồn.
+     * Hai lần trả đồng thời cho cùng một giao dịch chỉ cộng lại số lượng một lần.
+     * @param transaction giao dịch đã được đặt ngày trả, trạng thái và tiền phạt
+     * @return true nếu trả thành công, false nếu giao dịch không còn đang mượn
+     */
+    @Override
+    public boolean completeReturn(LoanTransaction transaction) {
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                double accruedFine;
+                try (PreparedStatement stmt = conn.prepareStatement(LOCK_OPEN_LOAN_SQL)) {
+                    stmt.setString(1, transaction.getId());
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false;
+                        }
+                        accruedFine = rs.getDouble("fine_amount");
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(CLOSE_LOAN_SQL)) {
+                    stmt.setDate(1, Date.valueOf(transaction.getReturnDate()));
+                    stmt.setString(2, transaction.getStatus().name());
+                    stmt.setDouble(3, transaction.getFineAmount());
+                    stmt.setString(4, transaction.getId());
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(INCREMENT_AVAILABLE_SQL)) {
+                    stmt.setString(1, transaction.getDocumentId());
+                    stmt.executeUpdate();
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(DECREMENT_USER_LOANS_SQL)) {
+                    stmt.setString(1, transaction.getUserId());
+                    stmt.executeUpdate();
+                }
+                
+                double fineChange = transaction.getFineAmount() - accruedFine;
+                if (fineChange != 0) {
+                    try (PreparedStatement stmt = conn.prepareStatement(ADJUST_USER_FINES_SQL)) {
+                        stmt.setDouble(1, fineChange);
+                        stmt.setString(2, transaction.getUserId());
+                        stmt.executeUpdate();
+                    }
+                }
+                
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error returning document: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Gia hạn với kiểm soát đồng thời lạc quan: chỉ ghi khi số lần gia hạn trong cơ sở dữ liệu
+     * vẫn bằng giá trị đã đọc trước đó
+     * @param transaction giao dịch đã được gia hạn trong bộ nhớ
+     * @param expectedRenewalCount số lần gia hạn đã đọc trước khi gia hạn
+     * @return true nếu ghi thành công, false nếu giao dịch đã bị thay đổi hoặc không còn đang mượn
+     */
+    @Override
+    public boolean renew(LoanTransaction transaction, int expectedRenewalCount) {
+        String sql = RENEW_SQL;
+        
+        try (Connection conn = DatabaseConnection.requireConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setDate(1, Date.valueOf(transaction.getDueDate()));
+            stmt.setString(2, transaction.getStatus().name());
+            stmt.setInt(3, transaction.getRenewalCount());
+            stmt.setString(4, transaction.getId());
+            stmt.setInt(5, expectedRenewalCount);
+            
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Error renewing loan transaction: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Chuyển các giao dịch đến hạn sang OVERDUE: mỗi nhóm tối đa IN_CLAUSE_CHUNK_SIZE mã được khóa
+     * bằng một SELECT ... FOR UPDATE (để biết chính xác dòng nào được chuyển) rồi cập nhật bằng một
+     * câu lệnh UPDATE. Giao dịch đã trả, đã gia hạn sang hạn mới hoặc đã OVERDUE được bỏ qua.
+     * @param ids mã các giao dịch cần kiểm tra
+     * @param today ngày hiện tại; giao dịch có hạn trả trước ngày này bị coi là quá hạn
+     * @return mã các giao dịch đã được chuyển, null nếu có lỗi (không nhóm nào được ghi)
+     */
+    @Override
+    public List<String> markOverdue(Collection<String> ids, LocalDate today) {
+        List<String> marked = new ArrayList<>();
+        List<List<String>> chunks = QueryHelper.chunk(ids);
+        if (chunks.isEmpty()) {
+            return marked;
+        }
+        
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (List<String> chunk : chunks) {
+                    String selectSql = lockDueSql(chunk.size());
+                    List<String> due = new ArrayList<>();
+                    try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                        QueryHelper.bindKeys(stmt, 1, chunk);
+                        stmt.setDate(chunk.size() + 1, Date.valueOf(today));
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                due.add(rs.getString("id"));
+                            }
+                        }
+                    }
+                    if (due.isEmpty()) {
+                        continue;
+                    }
+                    
+                    String updateSql = "UPDATE loan_transactions SET status = 'OVERDUE' WHERE id IN (" +
+                                       QueryHelper.placeholders(due.size()) + ")";
+                    try (PreparedStatement stmt = conn.prepareStatement(updateSql)) {
+                        QueryHelper.bindKeys(stmt, 1, due);
+                        stmt.executeUpdate();
+                    }
+                    marked.addAll(due);
+                }
+                conn.commit();
+                return marked;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error marking overdue loan transactions: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Câu lệnh khóa các giao dịch đến hạn trong một nhóm mã của markOverdue
+     * @param count số mã trong mệnh đề IN (tham số cuối là ngày hiện tại)
+     */
+    static String lockDueSql(int count) {
+        return "SELECT id FROM loan_transactions WHERE id IN (" + QueryHelper.placeholders(count) + ") AND " +
+               DUE_CONDITION + " FOR UPDATE";
+    }
+    
+    /**
+     * Cộng dồn tiền phạt bằng các câu lệnh theo tập, không nạp từng giao dịch: khóa các giao dịch
+     * OVERDUE chưa trả còn ngày chưa cộng, cộng outstanding_fines của người dùng bằng một UPDATE ... JOIN
+     * trên tổng số ngày gom theo người dùng, rồi cộng fine_amount và ghi fine_accrued_through.
+     * Chỉ phần ngày từ fine_accrued_through (hoặc hạn trả) đến today được cộng, nên chạy bù sau
+     * nhiều ngày hoặc chạy lại trong cùng ngày vẫn cho cùng kết quả.
+     * @param today ngày cộng dồn đến
+     * @param dailyFineRate tiền phạt mỗi ngày quá hạn
+     * @return số giao dịch được cộng, -1 nếu có lỗi (không có gì được ghi)
+     */
+    @Override
+    public int accrueFines(LocalDate today, double dailyFineRate) {
+        Date day = Date.valueOf(today);
+        
+        try (Connection conn = DatabaseConnection.requireConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement stmt = conn.prepareStatement(LOCK_PENDING_FINES_SQL)) {
+                    stmt.setDate(1, day);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return 0;
+                        }
+                    }
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(ACCRUE_USER_FINES_SQL)) {
+                    stmt.setDate(1, day);
+                    stmt.setDate(2, day);
+                    stmt.setDouble(3, dailyFineRate);
+                    stmt.executeUpdate();
+                }
+                
+                int accrued;
+                try (PreparedStatement stmt = conn.prepareStatement(ACCRUE_LOAN_FINES_SQL)) {
+                    stmt.setDate(1, day);
+                    stmt.setDouble(2, dailyFineRate);
+                    stmt.setDate(3, day);
+                    stmt.setDate(4, day);
+                    accrued = stmt.executeUpdate();
+                }
+                
+                conn.commit();
+                return accrued;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error accruing fines: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    /**
+     * Gán các tham số của câu lệnh INSERT_SQL từ giao dịch
+     */
+    private void bindInsert(PreparedStatement stmt, LoanTransaction transaction) throws SQLException {
+        stmt.setString(1, transaction.getId());
+        stmt.setString(2, transaction.getUserId());
+        stmt.setString(3, transaction.getDocumentId());
+        stmt.setDate(4, Date.valueOf(transaction.getBorrowDate()));
+        stmt.setDate(5, Date.valueOf(transaction.getDueDate()));
+        
+        if (transaction.getReturnDate() != null) {
+            stmt.setDate(6, Date.valueOf(transaction.getReturnDate()));
+        } else {
+            stmt.setNull(6, Types.DATE);
+        }
+        
+        stmt.setString(7, transaction.getStatus().name());
+        stmt.setDouble(8, transaction.getFineAmount());
+        stmt.setInt(9, transaction.getRenewalCount());
+        stmt.setInt(10, transaction.getMaxRenewals());
+    }
+    
     /**
      * Phương thức hỗ trợ để ánh xạ ResultSet thành đối tượng LoanTransaction
      * @param rs ResultSet từ câu truy vấn SQL
@@ -339,6 +795,11 @@ public class MySQLLoanTransactionRepository implements LoanTransactionRepository
         transaction.setRenewalCount(rs.getInt("renewal_count"));
         transaction.setMaxRenewals(rs.getInt("max_renewals"));
         
+        Date fineAccruedThrough = rs.getDate("fine_accrued_through");
+        if (fineAccruedThrough != null) {
+            transaction.setFineAccruedThrough(fineAccruedThrough.toLocalDate());
+        }
+        
         return transaction;
     }
 }
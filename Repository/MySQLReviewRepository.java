@@ -1,8 +1,13 @@
+import com.library.model.RatingAggregate;
 import com.library.model.Review;
 import com.library.database.DatabaseConnection;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Triển khai MySQL của ReviewRepository
@@ -10,6 +15,22 @@ import java.util.List;
  */
 public class MySQLReviewRepository implements ReviewRepository {
     
+    /** Thời gian dùng tổng hợp điểm đánh giá trước khi nạp lại (thấy đánh giá ghi từ máy khác) */
+    private static final long RATING_AGGREGATES_MAX_AGE_MILLIS =
+            Long.getLong("library.ratings.refreshSeconds", 60L) * 1000L;
+    
+    /** Tổng hợp điểm đánh giá theo tài liệu, nạp định kỳ và cập nhật tăng dần giữa các lần nạp */
+    private final RatingAggregateStore ratingAggregates = new RatingAggregateStore(RATING_AGGREGATES_MAX_AGE_MILLIS);
+    
+    // Câu lệnh được dùng chung với QueryCatalog để QueryPlanVerifier kiểm tra đúng SQL đang chạy
+    static final String FIND_BY_ID_SQL = "SELECT * FROM reviews WHERE id = ?";
+    static final String FIND_ALL_SQL = "SELECT * FROM reviews ORDER BY review_date DESC";
+    static final String FIND_BY_DOCUMENT_ID_SQL = "SELECT * FROM reviews WHERE document_id = ? ORDER BY review_date DESC";
+    static final String FIND_BY_USER_ID_SQL = "SELECT * FROM reviews WHERE user_id = ? ORDER BY review_date DESC";
+    static final String HAS_USER_REVIEWED_SQL = "SELECT COUNT(*) as count FROM reviews WHERE user_id = ? AND document_id = ?";
+    static final String RATING_AGGREGATES_SQL =
+            "SELECT document_id, SUM(rating) AS rating_sum, COUNT(*) AS review_count FROM reviews GROUP BY document_id";
+    
     /**
      * Lưu một đánh giá mới vào cơ sở dữ liệu
      * @param review đối tượng Review cần lưu
@@ -20,7 +41,7 @@ public class MySQLReviewRepository implements ReviewRepository {
         String sql = "INSERT INTO reviews (id, user_id, document_id, rating, comment, review_date, helpful_votes) " +
                      "VALUES (?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, review.getId());
@@ -31,7 +52,13 @@ public class MySQLReviewRepository implements ReviewRepository {
             stmt.setTimestamp(6, Timestamp.valueOf(review.getReviewDate()));
             stmt.setInt(7, review.getHelpfulVotes());
             
-            return stmt.executeUpdate() > 0;
+            synchronized (ratingAggregates) {
+                if (stmt.executeUpdate() > 0) {
+                    ratingAggregates.add(review.getDocumentId(), review.getRating());
+                    return true;
+                }
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error saving review: " + e.getMessage());
             return false;
@@ -45,9 +72,9 @@ public class MySQLReviewRepository implements ReviewRepository {
      */
     @Override
     public Review findById(String id) {
-        String sql = "SELECT * FROM reviews WHERE id = ?";
+        String sql = FIND_BY_ID_SQL;
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, id);
@@ -62,16 +89,49 @@ public class MySQLReviewRepository implements ReviewRepository {
         return null;
     }
     
+    /**
+     * Tìm nhiều đánh giá theo danh sách ID, dùng truy vấn IN (...) chia theo từng phần
+     * @param ids danh sách mã đánh giá
+     * @return bảng ánh xạ mã -> đánh giá (mã không tồn tại sẽ không có trong kết quả)
+     */
+    @Override
+    public Map<String, Review> findByIds(Collection<String> ids) {
+        Map<String, Review> reviews = new HashMap<>();
+        List<List<String>> chunks = QueryHelper.chunk(ids);
+        if (chunks.isEmpty()) {
+            return reviews;
+        }
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection()) {
+            for (List<String> chunk : chunks) {
+                String sql = findByIdsSql(chunk.size());
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    QueryHelper.bindKeys(stmt, 1, chunk);
+                    ResultSet rs = stmt.executeQuery();
+                    
+                    while (rs.next()) {
+                        Review review = mapResultSetToReview(rs);
+                        reviews.put(review.getId(), review);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding reviews by IDs: " + e.getMessage());
+        }
+        return reviews;
+    }
+    
     /**
      * Lấy tất cả các đánh giá
      * @return danh sách tất cả đánh giá, sắp xếp theo ngày đánh giá giảm dần
      */
     @Override
     public List<Review> findAll() {
-        String sql = "SELECT * FROM reviews ORDER BY review_date DESC";
+        String sql = FIND_ALL_SQL;
         List<Review> reviews = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -84,6 +144,15 @@ public class MySQLReviewRepository implements ReviewRepository {
         return reviews;
     }
     
+    /**
+     * Đọc dần tất cả đánh giá: driver trả dữ liệu theo luồng và mỗi dòng chỉ được ánh xạ khi cần
+     * @return Stream đánh giá, phải được đóng sau khi dùng
+     */
+    @Override
+    public Stream<Review> streamAll() {
+        return ResultSetStreams.stream(FIND_ALL_SQL, this::mapResultSetToReview);
+    }
+    
     /**
      * Cập nhật thông tin đánh giá
      * @param review đối tượng Review cần cập nhật
@@ -95,7 +164,7 @@ public class MySQLReviewRepository implements ReviewRepository {
                      "review_date = ?, helpful_votes = ? " +
                      "WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, review.getUserId());
@@ -106,7 +175,20 @@ public class MySQLReviewRepository implements ReviewRepository {
             stmt.setInt(6, review.getHelpfulVotes());
             stmt.setString(7, review.getId());
             
-            return stmt.executeUpdate() > 0;
+            synchronized (ratingAggregates) {
+                // Đọc điểm cũ trước khi ghi để cập nhật tổng hợp theo chênh lệch
+                Review previous = findRatingKey(conn, review.getId());
+                if (stmt.executeUpdate() > 0) {
+                    if (previous != null) {
+                        ratingAggregates.replace(previous.getDocumentId(), previous.getRating(),
+                                                 review.getDocumentId(), review.getRating());
+                    } else {
+                        ratingAggregates.invalidate();
+                    }
+                    return true;
+                }
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error updating review: " + e.getMessage());
             return false;
@@ -122,11 +204,23 @@ public class MySQLReviewRepository implements ReviewRepository {
     public boolean delete(String id) {
         String sql = "DELETE FROM reviews WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, id);
-            return stmt.executeUpdate() > 0;
+            
+            synchronized (ratingAggregates) {
+                Review previous = findRatingKey(conn, id);
+                if (stmt.executeUpdate() > 0) {
+                    if (previous != null) {
+                        ratingAggregates.remove(previous.getDocumentId(), previous.getRating());
+                    } else {
+                        ratingAggregates.invalidate();
+                    }
+                    return true;
+                }
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error deleting review: " + e.getMessage());
             return false;
@@ -140,10 +234,10 @@ public class MySQLReviewRepository implements ReviewRepository {
      */
     @Override
     public List<Review> findByDocumentId(String documentId) {
-        String sql = "SELECT * FROM reviews WHERE document_id = ? ORDER BY review_date DESC";
+        String sql = FIND_BY_DOCUMENT_ID_SQL;
         List<Review> reviews = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, documentId);
@@ -165,10 +259,10 @@ public class MySQLReviewRepository implements ReviewRepository {
      */
     @Override
     public List<Review> findByUserId(String userId) {
-        String sql = "SELECT * FROM reviews WHERE user_id = ? ORDER BY review_date DESC";
+        String sql = FIND_BY_USER_ID_SQL;
         List<Review> reviews = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, userId);
@@ -184,51 +278,32 @@ public class MySQLReviewRepository implements ReviewRepository {
     }
     
     /**
-     * Lấy điểm đánh giá trung bình của một tài liệu
+     * Lấy điểm đánh giá trung bình của một tài liệu từ bộ tổng hợp trong bộ nhớ
      * @param documentId mã tài liệu
      * @return điểm đánh giá trung bình (0.0 nếu không có đánh giá)
      */
     @Override
     public double getAverageRating(String documentId) {
-        String sql = "SELECT AVG(rating) as avg_rating FROM reviews WHERE document_id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, documentId);
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getDouble("avg_rating");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting average rating: " + e.getMessage());
-        }
-        return 0.0;
+        return ensureRatingAggregatesLoaded() ? ratingAggregates.get(documentId).getAverageRating() : 0.0;
     }
     
     /**
-     * Lấy số lượng đánh giá của một tài liệu
+     * Lấy số lượng đánh giá của một tài liệu từ bộ tổng hợp trong bộ nhớ
      * @param documentId mã tài liệu
      * @return số lượng đánh giá
      */
     @Override
     public int getReviewCount(String documentId) {
-        String sql = "SELECT COUNT(*) as review_count FROM reviews WHERE document_id = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, documentId);
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt("review_count");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting review count: " + e.getMessage());
-        }
-        return 0;
+        return ensureRatingAggregatesLoaded() ? ratingAggregates.get(documentId).getReviewCount() : 0;
+    }
+    
+    /**
+     * Lấy giá trị tổng hợp điểm đánh giá của tất cả tài liệu có đánh giá
+     * @return bảng ánh xạ mã tài liệu -> giá trị tổng hợp (chỉ đọc)
+     */
+    @Override
+    public Map<String, RatingAggregate> getRatingAggregates() {
+        return ensureRatingAggregatesLoaded() ? ratingAggregates.snapshot() : Map.of();
     }
     
     /**
@@ -239,9 +314,9 @@ public class MySQLReviewRepository implements ReviewRepository {
      */
     @Override
     public boolean hasUserReviewed(String userId, String documentId) {
-        String sql = "SELECT COUNT(*) as count FROM reviews WHERE user_id = ? AND document_id = ?";
+        String sql = HAS_USER_REVIEWED_SQL;
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requirePrimaryReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, userId);
@@ -257,6 +332,69 @@ public class MySQLReviewRepository implements ReviewRepository {
         return false;
     }
     
+    /**
+     * Nạp tổng hợp điểm đánh giá bằng một truy vấn GROUP BY nếu chưa nạp hoặc đã cũ.
+     * Nếu nạp lại thất bại thì tiếp tục dùng dữ liệu cũ.
+     * @return true nếu dữ liệu tổng hợp sẵn sàng, false nếu chưa nạp được lần nào
+     */
+    private boolean ensureRatingAggregatesLoaded() {
+        if (ratingAggregates.isFresh()) {
+            return true;
+        }
+        
+        String sql = RATING_AGGREGATES_SQL;
+        
+        synchronized (ratingAggregates) {
+            if (ratingAggregates.isFresh()) {
+                return true;
+            }
+            
+            try (Connection conn = DatabaseConnection.requirePrimaryReadConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                
+                Map<String, RatingAggregate> bulk = new HashMap<>();
+                while (rs.next()) {
+                    String documentId = rs.getString("document_id");
+                    bulk.put(documentId, new RatingAggregate(documentId,
+                            rs.getLong("rating_sum"), rs.getInt("review_count")));
+                }
+                ratingAggregates.load(bulk);
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error loading rating aggregates: " + e.getMessage());
+                return ratingAggregates.isLoaded();
+            }
+        }
+    }
+    
+    /**
+     * Câu lệnh đọc nhiều đánh giá theo mã
+     * @param count số mã trong mệnh đề IN
+     */
+    static String findByIdsSql(int count) {
+        return "SELECT * FROM reviews WHERE id IN (" + QueryHelper.placeholders(count) + ")";
+    }
+    
+    /**
+     * Đọc mã tài liệu và điểm hiện tại của một đánh giá (chỉ hai cột cần cho bộ tổng hợp)
+     * @return Review chỉ có documentId và rating, null nếu không tồn tại
+     */
+    private Review findRatingKey(Connection conn, String id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT document_id, rating FROM reviews WHERE id = ?")) {
+            stmt.setString(1, id);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                Review review = new Review();
+                review.setDocumentId(rs.getString("document_id"));
+                review.setRating(rs.getInt("rating"));
+                return review;
+            }
+        }
+        return null;
+    }
+    
     /**
      * Phương thức hỗ trợ để ánh xạ ResultSet thành đối tượng Review
      * @param rs ResultSet từ câu truy vấn SQL
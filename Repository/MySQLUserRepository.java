@@ -2,7 +2,14 @@ import com.library.model.User;
 import com.library.database.DatabaseConnection;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Triển khai MySQL của UserRepository
@@ -10,6 +17,36 @@ import java.util.List;
  */
 public class MySQLUserRepository implements UserRepository {
     
+    /** Thời gian dùng chỉ mục thể loại yêu thích trước khi nạp lại (thấy thay đổi ghi từ máy khác) */
+    private static final long GENRE_INDEX_MAX_AGE_MILLIS =
+            Long.getLong("library.genreIndex.refreshSeconds", 60L) * 1000L;
+    
+    /** Chỉ mục ngược thể loại -> người dùng yêu thích, nạp định kỳ và cập nhật khi thêm/xóa thể loại */
+    private final GenreIndex genreIndex = new GenreIndex(GENRE_INDEX_MAX_AGE_MILLIS);
+    
+    // Câu lệnh được dùng chung với QueryCatalog để QueryPlanVerifier kiểm tra đúng SQL đang chạy
+    static final String FIND_BY_ID_SQL = "SELECT * FROM users WHERE id = ?";
+    static final String FIND_ALL_SQL = "SELECT * FROM users ORDER BY name";
+    static final String FIND_BY_NAME_SQL = "SELECT * FROM users WHERE LOWER(name) LIKE LOWER(?) ORDER BY name";
+    static final String FIND_FAVORITE_GENRES_SQL = "SELECT genre FROM user_favorite_genres WHERE user_id = ? ORDER BY genre";
+    static final String REMOVE_FAVORITE_GENRE_SQL = "DELETE FROM user_favorite_genres WHERE user_id = ? AND genre = ?";
+    static final String FIND_USER_IDS_BY_FAVORITE_GENRE_SQL = "SELECT user_id FROM user_favorite_genres WHERE genre = ?";
+    static final String FIND_TOP_BORROWERS_SQL =
+            "SELECT * FROM users WHERE active_loan_count > 0 ORDER BY active_loan_count DESC, id DESC LIMIT ?";
+    static final String FIND_OUTSTANDING_FINES_SQL =
+            "SELECT id, outstanding_fines FROM users WHERE outstanding_fines > 0 " +
+            "ORDER BY outstanding_fines DESC, id DESC LIMIT ?";
+    static final String TOTAL_OUTSTANDING_FINES_SQL =
+            "SELECT COALESCE(SUM(outstanding_fines), 0) FROM users WHERE outstanding_fines > 0";
+    static final String COUNT_BY_TYPE_SQL = "SELECT user_type, COUNT(*) FROM users GROUP BY user_type";
+    static final String COUNT_ACTIVE_SQL = "SELECT COUNT(*) FROM users WHERE is_active = TRUE";
+    static final String OPEN_LOANS_SQL =
+            "SELECT user_id, document_id FROM loan_transactions WHERE " + QueryHelper.OPEN_LOAN_CONDITION +
+            " ORDER BY borrow_date";
+    static final String ALL_FAVORITE_GENRES_SQL =
+            "SELECT user_id, genre FROM user_favorite_genres ORDER BY user_id, genre";
+    static final String GENRE_INDEX_SQL = "SELECT user_id, genre FROM user_favorite_genres";
+    
     /**
      * Lưu một người dùng mới vào cơ sở dữ liệu
      * @param user đối tượng User cần lưu
@@ -21,7 +58,7 @@ public class MySQLUserRepository implements UserRepository {
                      "user_type, is_active, max_borrow_limit) " +
                      "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, user.getId());
@@ -48,16 +85,17 @@ public class MySQLUserRepository implements UserRepository {
      */
     @Override
     public User findById(String id) {
-        String sql = "SELECT * FROM users WHERE id = ?";
+        String sql = FIND_BY_ID_SQL;
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, id);
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                User user = mapResultSetToUser(rs);               
+                User user = mapResultSetToUser(rs);
+                hydrate(conn, List.of(user), false);
                 return user;
             }
         } catch (SQLException e) {
@@ -66,16 +104,50 @@ public class MySQLUserRepository implements UserRepository {
         return null;
     }
     
+    /**
+     * Tìm nhiều người dùng theo danh sách ID, dùng truy vấn IN (...) chia theo từng phần
+     * @param ids danh sách mã người dùng
+     * @return bảng ánh xạ mã -> người dùng (mã không tồn tại sẽ không có trong kết quả)
+     */
+    @Override
+    public Map<String, User> findByIds(Collection<String> ids) {
+        Map<String, User> users = new HashMap<>();
+        List<List<String>> chunks = QueryHelper.chunk(ids);
+        if (chunks.isEmpty()) {
+            return users;
+        }
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection()) {
+            for (List<String> chunk : chunks) {
+                String sql = findByIdsSql(chunk.size());
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    QueryHelper.bindKeys(stmt, 1, chunk);
+                    ResultSet rs = stmt.executeQuery();
+                    
+                    while (rs.next()) {
+                        User user = mapResultSetToUser(rs);
+                        users.put(user.getId(), user);
+                    }
+                }
+            }
+            hydrate(conn, users.values(), false);
+        } catch (SQLException e) {
+            System.err.println("Error finding users by IDs: " + e.getMessage());
+        }
+        return users;
+    }
+    
     /**
      * Lấy tất cả người dùng
      * @return danh sách tất cả người dùng, sắp xếp theo tên
      */
     @Override
     public List<User> findAll() {
-        String sql = "SELECT * FROM users ORDER BY name";
+        String sql = FIND_ALL_SQL;
         List<User> users = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -83,12 +155,24 @@ public class MySQLUserRepository implements UserRepository {
                 User user = mapResultSetToUser(rs);
                 users.add(user);
             }
+            hydrate(conn, users, true);
         } catch (SQLException e) {
             System.err.println("Error finding all users: " + e.getMessage());
         }        
         return users;
     }
     
+    /**
+     * Đọc dần tất cả người dùng: driver trả dữ liệu theo luồng và mỗi dòng chỉ được ánh xạ khi cần
+     * @return Stream người dùng, phải được đóng sau khi dùng
+     */
+    @Override
+    public Stream<User> streamAll() {
+        // Mỗi lô được nạp dữ liệu liên quan trên chính kết nối của Stream (không mượn thêm kết nối)
+        return ResultSetStreams.stream(FIND_ALL_SQL, this::mapResultSetToUser,
+                                       QueryHelper.IN_CLAUSE_CHUNK_SIZE, (conn, batch) -> hydrate(conn, batch, false));
+    }
+    
     /**
      * Cập nhật thông tin người dùng
      * @param user đối tượng User cần cập nhật
@@ -100,7 +184,7 @@ public class MySQLUserRepository implements UserRepository {
                      "user_type = ?, is_active = ?, max_borrow_limit = ? " +
                      "WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, user.getName());
@@ -128,11 +212,18 @@ public class MySQLUserRepository implements UserRepository {
     public boolean delete(String id) {
         String sql = "DELETE FROM users WHERE id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, id);
-            return stmt.executeUpdate() > 0;
+            
+            synchronized (genreIndex) {
+                if (stmt.executeUpdate() > 0) {
+                    genreIndex.removeUser(id);
+                    return true;
+                }
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error deleting user: " + e.getMessage());
             return false;
@@ -146,10 +237,10 @@ public class MySQLUserRepository implements UserRepository {
      */
     @Override
     public List<User> findByName(String name) {
-        String sql = "SELECT * FROM users WHERE LOWER(name) LIKE LOWER(?) ORDER BY name";
+        String sql = FIND_BY_NAME_SQL;
         List<User> users = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, "%" + name + "%");
@@ -159,6 +250,7 @@ public class MySQLUserRepository implements UserRepository {
                 User user = mapResultSetToUser(rs);
                 users.add(user);
             }
+            hydrate(conn, users, false);
         } catch (SQLException e) {
             System.err.println("Error finding users by name: " + e.getMessage());
         }
@@ -172,10 +264,10 @@ public class MySQLUserRepository implements UserRepository {
      */
     @Override
     public List<String> findFavoriteGenres(String userId) {
-        String sql = "SELECT genre FROM user_favorite_genres WHERE user_id = ? ORDER BY genre";
+        String sql = FIND_FAVORITE_GENRES_SQL;
         List<String> genres = new ArrayList<>();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireReadConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, userId);
@@ -200,13 +292,19 @@ public class MySQLUserRepository implements UserRepository {
     public boolean addFavoriteGenre(String userId, String genre) {
         String sql = "INSERT IGNORE INTO user_favorite_genres (user_id, genre) VALUES (?, ?)";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, userId);
             stmt.setString(2, genre);
             
-            return stmt.executeUpdate() > 0;
+            synchronized (genreIndex) {
+                if (stmt.executeUpdate() > 0) {
+                    genreIndex.add(userId, genre);
+                    return true;
+                }
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error adding favorite genre: " + e.getMessage());
             return false;
@@ -221,15 +319,21 @@ public class MySQLUserRepository implements UserRepository {
      */
     @Override
     public boolean removeFavoriteGenre(String userId, String genre) {
-        String sql = "DELETE FROM user_favorite_genres WHERE user_id = ? AND genre = ?";
+        String sql = REMOVE_FAVORITE_GENRE_SQL;
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, userId);
             stmt.setString(2, genre);
             
-            return stmt.executeUpdate() > 0;
+            synchronized (genreIndex) {
+                if (stmt.executeUpdate() > 0) {
+                    genreIndex.remove(userId, genre);
+                    return true;
+                }
+            }
+            return false;
         } catch (SQLException e) {
             System.err.println("Error removing favorite genre: " + e.getMessage());
             return false;
@@ -245,11 +349,15 @@ public class MySQLUserRepository implements UserRepository {
     public boolean clearFavoriteGenres(String userId) {
         String sql = "DELETE FROM user_favorite_genres WHERE user_id = ?";
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.requireConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, userId);
-            stmt.executeUpdate();
+            
+            synchronized (genreIndex) {
+                stmt.executeUpdate();
+                genreIndex.removeUser(userId);
+            }
             return true;
         } catch (SQLException e) {
             System.err.println("Error clearing favorite genres: " + e.getMessage());
@@ -257,6 +365,327 @@ public class MySQLUserRepository implements UserRepository {
         }
     }
     
+    /**
+     * Lấy mã các người dùng yêu thích một thể loại (ví dụ để thông báo tài liệu mới thuộc thể loại đó).
+     * Đọc từ chỉ mục ngược trong bộ nhớ; chỉ truy vấn cơ sở dữ liệu nếu chỉ mục chưa nạp được.
+     * @param genre thể loại (không phân biệt hoa thường)
+     * @return tập mã người dùng, rỗng nếu không có ai
+     */
+    @Override
+    public Set<String> findUserIdsByFavoriteGenre(String genre) {
+        if (genre == null || genre.trim().isEmpty()) {
+            return new HashSet<>();
+        }
+        if (ensureGenreIndexLoaded()) {
+            return genreIndex.usersFor(genre);
+        }
+        
+        String sql = FIND_USER_IDS_BY_FAVORITE_GENRE_SQL;
+        Set<String> userIds = new HashSet<>();
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setString(1, genre.trim());
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                userIds.add(rs.getString("user_id"));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding users by favorite genre: " + e.getMessage());
+        }
+        return userIds;
+    }
+    
+    /**
+     * Lấy những người dùng đang mượn nhiều tài liệu nhất, đọc từ bộ đếm active_loan_count
+     * qua chỉ mục (không nạp toàn bộ người dùng hay đếm lại giao dịch)
+     * @param limit số người dùng tối đa
+     * @return danh sách người dùng có ít nhất một lượt đang mượn, giảm dần theo số lượt
+     */
+    @Override
+    public List<User> findTopBorrowers(int limit) {
+        String sql = FIND_TOP_BORROWERS_SQL;
+        List<User> users = new ArrayList<>();
+        if (limit <= 0) {
+            return users;
+        }
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, limit);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                users.add(mapResultSetToUser(rs));
+            }
+            hydrate(conn, users, false);
+        } catch (SQLException e) {
+            System.err.println("Error finding top borrowers: " + e.getMessage());
+        }
+        return users;
+    }
+    
+    /**
+     * Lấy những số dư tiền phạt chưa thanh toán lớn nhất, đọc từ cột outstanding_fines qua chỉ mục
+     * @param limit số người dùng tối đa
+     * @return mã người dùng -> số dư (chỉ số dư dương), giảm dần theo số dư
+     */
+    @Override
+    public Map<String, Double> findOutstandingFines(int limit) {
+        String sql = FIND_OUTSTANDING_FINES_SQL;
+        Map<String, Double> balances = new LinkedHashMap<>();
+        if (limit <= 0) {
+            return balances;
+        }
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, limit);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                balances.put(rs.getString("id"), rs.getDouble("outstanding_fines"));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding outstanding fines: " + e.getMessage());
+        }
+        return balances;
+    }
+    
+    /**
+     * Tổng tiền phạt chưa thanh toán: cộng trên chỉ mục outstanding_fines, chỉ các dòng có số dư
+     * @return tổng số dư, 0 nếu có lỗi
+     */
+    @Override
+    public double getTotalOutstandingFines() {
+        String sql = TOTAL_OUTSTANDING_FINES_SQL;
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            if (rs.next()) {
+                return rs.getDouble(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error summing outstanding fines: " + e.getMessage());
+        }
+        return 0.0;
+    }
+    
+    /**
+     * Đếm người dùng theo nhóm (GROUP BY trên chỉ mục idx_users_type_active);
+     * user_type NULL được tính là GUEST như khi ánh xạ dòng
+     * @return nhóm -> số người dùng, hoặc null nếu có lỗi
+     */
+    @Override
+    public Map<User.UserType, Integer> countByType() {
+        String sql = COUNT_BY_TYPE_SQL;
+        Map<User.UserType, Integer> counts = new HashMap<>();
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                String userType = rs.getString(1);
+                User.UserType type = userType != null ? User.UserType.valueOf(userType) : User.UserType.GUEST;
+                counts.merge(type, rs.getInt(2), Integer::sum);
+            }
+            return counts;
+        } catch (SQLException | IllegalArgumentException e) {
+            System.err.println("Error counting users by type: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Đếm người dùng đang hoạt động (chỉ đọc chỉ mục idx_users_type_active)
+     * @return số người dùng, -1 nếu có lỗi
+     */
+    @Override
+    public int countActive() {
+        String sql = COUNT_ACTIVE_SQL;
+        
+        try (Connection conn = DatabaseConnection.requireReadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting active users: " + e.getMessage());
+        }
+        return -1;
+    }
+    
+    /**
+     * Nạp các dữ liệu liên quan (tài liệu đang mượn, thể loại yêu thích) cho một lô người dùng,
+     * mỗi loại bằng một truy vấn gom nhóm thay vì một truy vấn cho từng người dùng
+     * @param conn kết nối đang dùng
+     * @param users người dùng cần nạp
+     * @param allUsers true nếu danh sách gồm mọi người dùng (đọc cả bảng, không cần IN)
+     */
+    private void hydrate(Connection conn, Collection<User> users, boolean allUsers) throws SQLException {
+        hydrateBorrowedDocuments(conn, users, allUsers);
+        hydrateFavoriteGenres(conn, users, allUsers);
+    }
+    
+    /**
+     * Nạp danh sách tài liệu đang mượn cho nhiều người dùng cùng lúc từ các giao dịch chưa trả
+     * @param conn kết nối đang dùng
+     * @param users người dùng cần nạp
+     * @param allUsers true nếu danh sách gồm mọi người dùng (đọc mọi giao dịch chưa trả, không cần IN)
+     */
+    private void hydrateBorrowedDocuments(Connection conn, Collection<User> users, boolean allUsers) throws SQLException {
+        if (users.isEmpty()) {
+            return;
+        }
+        Map<String, List<String>> borrowed = new HashMap<>();
+        
+        if (allUsers) {
+            String sql = OPEN_LOANS_SQL;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                collectBorrowed(rs, borrowed);
+            }
+        } else {
+            List<String> ids = new ArrayList<>();
+            for (User user : users) {
+                ids.add(user.getId());
+            }
+            for (List<String> chunk : QueryHelper.chunk(ids)) {
+                String sql = borrowedDocumentsSql(chunk.size());
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    QueryHelper.bindKeys(stmt, 1, chunk);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        collectBorrowed(rs, borrowed);
+                    }
+                }
+            }
+        }
+        
+        for (User user : users) {
+            user.setBorrowedDocumentIds(borrowed.getOrDefault(user.getId(), new ArrayList<>()));
+        }
+    }
+    
+    /**
+     * Câu lệnh đọc tài liệu đang mượn của một nhóm người dùng
+     * @param count số mã trong mệnh đề IN
+     */
+    static String borrowedDocumentsSql(int count) {
+        return "SELECT user_id, document_id FROM loan_transactions WHERE user_id IN (" +
+               QueryHelper.placeholders(count) + ") AND " + QueryHelper.OPEN_LOAN_CONDITION + " ORDER BY borrow_date";
+    }
+    
+    private void collectBorrowed(ResultSet rs, Map<String, List<String>> borrowed) throws SQLException {
+        while (rs.next()) {
+            borrowed.computeIfAbsent(rs.getString("user_id"), k -> new ArrayList<>()).add(rs.getString("document_id"));
+        }
+    }
+    
+    /**
+     * Nạp thể loại yêu thích cho nhiều người dùng cùng lúc
+     * @param conn kết nối đang dùng
+     * @param users người dùng cần nạp
+     * @param allUsers true nếu danh sách gồm mọi người dùng (đọc cả bảng, không cần IN)
+     */
+    private void hydrateFavoriteGenres(Connection conn, Collection<User> users, boolean allUsers) throws SQLException {
+        if (users.isEmpty()) {
+            return;
+        }
+        Map<String, List<String>> genres = new HashMap<>();
+        
+        if (allUsers) {
+            String sql = ALL_FAVORITE_GENRES_SQL;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                collectGenres(rs, genres);
+            }
+        } else {
+            List<String> ids = new ArrayList<>();
+            for (User user : users) {
+                ids.add(user.getId());
+            }
+            for (List<String> chunk : QueryHelper.chunk(ids)) {
+                String sql = favoriteGenresSql(chunk.size());
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    QueryHelper.bindKeys(stmt, 1, chunk);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        collectGenres(rs, genres);
+                    }
+                }
+            }
+        }
+        
+        for (User user : users) {
+            user.setFavoriteGenres(genres.getOrDefault(user.getId(), new ArrayList<>()));
+        }
+    }
+    
+    /**
+     * Câu lệnh đọc thể loại yêu thích của một nhóm người dùng
+     * @param count số mã trong mệnh đề IN
+     */
+    static String favoriteGenresSql(int count) {
+        return "SELECT user_id, genre FROM user_favorite_genres WHERE user_id IN (" +
+               QueryHelper.placeholders(count) + ") ORDER BY user_id, genre";
+    }
+    
+    /**
+     * Câu lệnh đọc nhiều người dùng theo mã
+     * @param count số mã trong mệnh đề IN
+     */
+    static String findByIdsSql(int count) {
+        return "SELECT * FROM users WHERE id IN (" + QueryHelper.placeholders(count) + ")";
+    }
+    
+    private void collectGenres(ResultSet rs, Map<String, List<String>> genres) throws SQLException {
+        while (rs.next()) {
+            genres.computeIfAbsent(rs.getString("user_id"), k -> new ArrayList<>()).add(rs.getString("genre"));
+        }
+    }
+    
+    /**
+     * Nạp chỉ mục ngược thể loại -> người dùng bằng một lần đọc bảng nếu chưa nạp hoặc đã cũ
+     * @return true nếu chỉ mục sẵn sàng, false nếu nạp thất bại (khi đó đọc thẳng qua chỉ mục (genre, user_id))
+     */
+    private boolean ensureGenreIndexLoaded() {
+        if (genreIndex.isFresh()) {
+            return true;
+        }
+        
+        String sql = GENRE_INDEX_SQL;
+        
+        synchronized (genreIndex) {
+            if (genreIndex.isFresh()) {
+                return true;
+            }
+            
+            try (Connection conn = DatabaseConnection.requirePrimaryReadConnection();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                
+                Map<String, Set<String>> bulk = new HashMap<>();
+                while (rs.next()) {
+                    bulk.computeIfAbsent(GenreIndex.key(rs.getString("genre")), k -> new HashSet<>())
+                        .add(rs.getString("user_id"));
+                }
+                genreIndex.load(bulk);
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error loading favorite genre index: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+    
     /**
      * Phương thức hỗ trợ để ánh xạ ResultSet thành đối tượng User
      * @param rs ResultSet từ câu truy vấn SQL
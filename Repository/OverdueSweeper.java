@@ -0,0 +1,284 @@
+import com.library.model.LoanTransaction;
+import com.library.database.DatabaseConnection;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bộ quét quá hạn: giữ các giao dịch đang mượn trong một bánh xe thời gian băm (hashed timing wheel)
+ * theo ngày bắt đầu quá hạn (hạn trả + 1). Mỗi khi sang ngày mới, chỉ ô của ngày đó được đọc;
+ * các giao dịch đến hạn được chuyển sang OVERDUE bằng một lần markOverdue theo lô và các Listener
+ * được báo. Nhờ vậy danh sách quá hạn là một truy vấn theo trạng thái đã lưu, không phải so
+ * hạn trả với ngày hiện tại trên từng dòng.
+ *
+ * Ngày d nằm ở ô d mod WHEEL_SIZE; giao dịch có hạn xa hơn một vòng nằm lại trong ô cho đến vòng của nó.
+ * Library gọi schedule khi mượn/gia hạn và cancel khi trả. Lịch bị lỡ (máy ngủ qua nửa đêm, mất kết nối)
+ * được bù ở lần quét sau; markOverdue tự kiểm tra lại điều kiện nên mục cũ trong bánh xe là vô hại.
+ * Sau khi quét, các DailyTask (ví dụ cộng dồn tiền phạt) chạy một lần mỗi ngày.
+ */
+public final class OverdueSweeper implements AutoCloseable {
+    /** Số ô của bánh xe (lũy thừa của 2) */
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /** Thời gian chờ trước khi thử lại một lần quét thất bại (giây) */
+    private static final long RETRY_SECONDS = 60;
+
+    /**
+     * Nhận thông báo khi có giao dịch vừa chuyển sang OVERDUE (gọi trên luồng của bộ quét)
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void loansBecameOverdue(List<String> transactionIds, LocalDate date);
+    }
+
+    /**
+     * Việc chạy mỗi ngày một lần, sau khi các giao dịch đến hạn đã được chuyển sang OVERDUE.
+     * Có thể bị chạy lại trong cùng ngày khi một việc khác thất bại, nên phải chạy lại được an toàn
+     */
+    @FunctionalInterface
+    public interface DailyTask {
+        /**
+         * @return false nếu thất bại (cả lượt được thử lại sau RETRY_SECONDS)
+         */
+        boolean run(LocalDate date);
+    }
+
+    private final LoanTransactionRepository repository;
+    private final Clock clock;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<DailyTask> dailyTasks = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    // Các trường dưới đây được bảo vệ bởi khóa của đối tượng
+    private final List<Map<String, Long>> slots = new ArrayList<>(WHEEL_SIZE);
+    private final Map<String, Long> scheduled = new HashMap<>();
+    private final Set<String> pending = new LinkedHashSet<>();
+    private long currentDay;
+    private long lastTaskDay = Long.MIN_VALUE;
+    private ScheduledFuture<?> nextSweep;
+    private boolean closed;
+
+    public OverdueSweeper(LoanTransactionRepository repository) {
+        this(repository, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param repository repository giao dịch dùng để nạp giao dịch đang mượn và ghi trạng thái quá hạn
+     * @param clock đồng hồ xác định ngày hiện tại và thời điểm nửa đêm
+     */
+    public OverdueSweeper(LoanTransactionRepository repository, Clock clock) {
+        this.repository = repository;
+        this.clock = clock;
+        this.currentDay = LocalDate.now(clock).toEpochDay();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            slots.add(new HashMap<>());
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            // Phiên ghi riêng: ghi của bộ quét không buộc các lần đọc của giao diện về máy chủ chính
+            Thread thread = new Thread(() -> {
+                DatabaseConnection.startSession();
+                r.run();
+            }, "overdue-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Nạp các giao dịch đang mượn vào bánh xe rồi quét ngay (trên luồng của bộ quét);
+     * các lần quét sau chạy lúc nửa đêm
+     */
+    public void start() {
+        scheduler.execute(() -> {
+            for (LoanTransaction transaction : repository.findActiveTransactions()) {
+                schedule(transaction);
+            }
+            sweep();
+        });
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void addDailyTask(DailyTask task) {
+        dailyTasks.add(task);
+    }
+
+    /**
+     * Đặt (hoặc đặt lại sau khi gia hạn) giao dịch vào ô của ngày nó bắt đầu quá hạn.
+     * Giao dịch đã trả hoặc đã OVERDUE được bỏ khỏi bánh xe
+     */
+    public synchronized void schedule(LoanTransaction transaction) {
+        if (transaction == null || transaction.getId() == null) {
+            return;
+        }
+        String id = transaction.getId();
+        unschedule(id);
+        if (!transaction.isOpen() || transaction.getDueDate() == null
+                || transaction.getStatus() == LoanTransaction.TransactionStatus.OVERDUE) {
+            return;
+        }
+
+        long overdueDay = transaction.getDueDate().toEpochDay() + 1;
+        if (overdueDay <= currentDay) {
+            pending.add(id);
+            rescheduleSweep(0);
+        } else {
+            slots.get((int) (overdueDay & WHEEL_MASK)).put(id, overdueDay);
+            scheduled.put(id, overdueDay);
+        }
+    }
+
+    /**
+     * Bỏ giao dịch khỏi bánh xe (đã trả hoặc đã xóa)
+     */
+    public synchronized void cancel(String transactionId) {
+        if (transactionId != null) {
+            unschedule(transactionId);
+        }
+    }
+
+    /**
+     * Số giao dịch đang chờ trong bánh xe
+     */
+    public synchronized int getScheduledCount() {
+        return scheduled.size() + pending.size();
+    }
+
+    private void unschedule(String id) {
+        Long overdueDay = scheduled.remove(id);
+        if (overdueDay != null) {
+            slots.get((int) (overdueDay & WHEEL_MASK)).remove(id);
+        }
+        pending.remove(id);
+    }
+
+    /**
+     * Quay bánh xe đến hôm nay, ghi các giao dịch đến hạn trong một lô và hẹn lần quét tiếp theo
+     */
+    private void sweep() {
+        LocalDate today = LocalDate.now(clock);
+        List<String> due;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            while (currentDay < today.toEpochDay()) {
+                currentDay++;
+                expire(slots.get((int) (currentDay & WHEEL_MASK)));
+            }
+            due = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        if (!due.isEmpty()) {
+            List<String> marked = repository.markOverdue(due, today);
+            if (marked == null) {
+                synchronized (this) {
+                    pending.addAll(due);
+                    rescheduleSweep(TimeUnit.SECONDS.toMillis(RETRY_SECONDS));
+                }
+                return;
+            }
+            if (!marked.isEmpty()) {
+                for (Listener listener : listeners) {
+                    try {
+                        listener.loansBecameOverdue(marked, today);
+                    } catch (RuntimeException e) {
+                        System.err.println("Error notifying overdue listener: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        if (!runDailyTasks(today)) {
+            synchronized (this) {
+                rescheduleSweep(TimeUnit.SECONDS.toMillis(RETRY_SECONDS));
+            }
+            return;
+        }
+
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime midnight = today.plusDays(1).atStartOfDay(now.getZone());
+        synchronized (this) {
+            // Thêm một giây để chắc chắn LocalDate.now() đã sang ngày mới khi lần quét sau chạy
+            rescheduleSweep(Duration.between(now, midnight).toMillis() + 1000);
+        }
+    }
+
+    /**
+     * Chạy các DailyTask nếu hôm nay chưa chạy thành công
+     * @return false nếu có việc thất bại
+     */
+    private boolean runDailyTasks(LocalDate today) {
+        synchronized (this) {
+            if (lastTaskDay >= today.toEpochDay()) {
+                return true;
+            }
+        }
+        for (DailyTask task : dailyTasks) {
+            try {
+                if (!task.run(today)) {
+                    return false;
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error running daily task: " + e.getMessage());
+                return false;
+            }
+        }
+        synchronized (this) {
+            lastTaskDay = today.toEpochDay();
+        }
+        return true;
+    }
+
+    /**
+     * Chuyển các mục của ô đã đến vòng của chúng sang danh sách chờ ghi
+     */
+    private void expire(Map<String, Long> slot) {
+        slot.entrySet().removeIf(entry -> {
+            if (entry.getValue() > currentDay) {
+                return false;
+            }
+            scheduled.remove(entry.getKey());
+            pending.add(entry.getKey());
+            return true;
+        });
+    }
+
+    private void rescheduleSweep(long delayMillis) {
+        if (closed) {
+            return;
+        }
+        if (nextSweep != null) {
+            nextSweep.cancel(false);
+        }
+        nextSweep = scheduler.schedule(this::sweep, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        scheduler.shutdownNow();
+    }
+}
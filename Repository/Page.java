@@ -0,0 +1,26 @@
+import java.util.List;
+
+/**
+ * Một trang kết quả cùng yêu cầu dùng để đọc trang kế tiếp theo khóa (keyset)
+ * @param <T> kiểu thực thể
+ */
+public final class Page<T> {
+    private final List<T> items;
+    private final PageRequest next;
+    
+    public Page(List<T> items, PageRequest next) {
+        this.items = items;
+        this.next = next;
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    /**
+     * Lấy yêu cầu cho trang kế tiếp (null nếu đây là trang cuối)
+     */
+    public PageRequest getNext() {
+        return next;
+    }
+}
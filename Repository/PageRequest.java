@@ -0,0 +1,116 @@
+/**
+ * Mô tả một trang dữ liệu cần đọc: cột sắp xếp, chiều sắp xếp, bộ lọc và vị trí bắt đầu.
+ * Vị trí bắt đầu ưu tiên dùng khóa (keyset) - giá trị sắp xếp và ID của dòng cuối trang trước -
+ * để cơ sở dữ liệu đi thẳng theo chỉ mục; OFFSET chỉ dùng khi nhảy tới trang chưa có khóa.
+ * Đối tượng bất biến; các phương thức with/after/atOffset trả về đối tượng mới.
+ * Tên cột là tên logic và được repository kiểm tra theo danh sách cho phép.
+ */
+public final class PageRequest {
+    private final String sortColumn;
+    private final boolean ascending;
+    private final int limit;
+    private final int offset;
+    private final String filterColumn;
+    private final String filterValue;
+    private final Object afterValue;
+    private final String afterId;
+    
+    private PageRequest(String sortColumn, boolean ascending, int limit, int offset,
+                        String filterColumn, String filterValue, Object afterValue, String afterId) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.sortColumn = sortColumn;
+        this.ascending = ascending;
+        this.limit = limit;
+        this.offset = Math.max(0, offset);
+        this.filterColumn = filterColumn;
+        this.filterValue = filterValue;
+        this.afterValue = afterValue;
+        this.afterId = afterId;
+    }
+    
+    /**
+     * Tạo yêu cầu trang đầu tiên
+     * @param sortColumn cột sắp xếp (tên logic, ví dụ "title")
+     * @param ascending true nếu sắp xếp tăng dần
+     * @param limit số dòng mỗi trang
+     */
+    public static PageRequest of(String sortColumn, boolean ascending, int limit) {
+        return new PageRequest(sortColumn, ascending, limit, 0, null, null, null, null);
+    }
+    
+    /**
+     * Thêm bộ lọc theo tiền tố trên một cột (xử lý phía cơ sở dữ liệu)
+     */
+    public PageRequest withFilter(String column, String value) {
+        return new PageRequest(sortColumn, ascending, limit, 0, column, value, null, null);
+    }
+    
+    /**
+     * Đổi cách sắp xếp (vị trí bắt đầu quay về trang đầu)
+     */
+    public PageRequest withSort(String column, boolean ascendingOrder) {
+        return new PageRequest(column, ascendingOrder, limit, 0, filterColumn, filterValue, null, null);
+    }
+    
+    /**
+     * Yêu cầu trang nằm ngay sau dòng có giá trị sắp xếp và ID cho trước (keyset)
+     */
+    public PageRequest after(Object sortValue, String id) {
+        return new PageRequest(sortColumn, ascending, limit, 0, filterColumn, filterValue, sortValue, id);
+    }
+    
+    /**
+     * Yêu cầu trang bắt đầu tại vị trí cho trước (OFFSET), dùng khi không có khóa của trang trước
+     */
+    public PageRequest atOffset(int rowOffset) {
+        return new PageRequest(sortColumn, ascending, limit, rowOffset, filterColumn, filterValue, null, null);
+    }
+    
+    public String getSortColumn() {
+        return sortColumn;
+    }
+    
+    public boolean isAscending() {
+        return ascending;
+    }
+    
+    public int getLimit() {
+        return limit;
+    }
+    
+    public int getOffset() {
+        return offset;
+    }
+    
+    public String getFilterColumn() {
+        return filterColumn;
+    }
+    
+    public String getFilterValue() {
+        return filterValue;
+    }
+    
+    /**
+     * Kiểm tra có bộ lọc hay không
+     */
+    public boolean hasFilter() {
+        return filterColumn != null && filterValue != null && !filterValue.isEmpty();
+    }
+    
+    public Object getAfterValue() {
+        return afterValue;
+    }
+    
+    public String getAfterId() {
+        return afterId;
+    }
+    
+    /**
+     * Kiểm tra yêu cầu có dùng khóa (keyset) hay không
+     */
+    public boolean isKeyset() {
+        return afterId != null;
+    }
+}
@@ -0,0 +1,197 @@
+import com.library.model.LoanView;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Danh mục các câu lệnh của repository MySQL để kiểm tra kế hoạch thực thi (xem QueryPlanVerifier).
+ * Mọi câu lệnh lấy từ chính hằng số hoặc hàm tạo SQL mà repository dùng khi chạy, nên khi repository
+ * sửa truy vấn thì danh mục thay đổi theo. Câu lệnh tạo động (trang theo khóa, bộ lọc giao dịch,
+ * mệnh đề IN) được tạo với các biến thể tiêu biểu, kèm giá trị tham số mẫu đúng kiểu.
+ */
+public final class QueryCatalog {
+
+    /**
+     * Một câu lệnh cần kiểm tra cùng giá trị mẫu cho các tham số '?'
+     */
+    public static final class Query {
+        private final String name;
+        private final String sql;
+        private final List<Object> parameters;
+        private final boolean fullScanAllowed;
+
+        Query(String name, String sql, List<Object> parameters, boolean fullScanAllowed) {
+            this.name = name;
+            this.sql = sql;
+            this.parameters = Collections.unmodifiableList(parameters);
+            this.fullScanAllowed = fullScanAllowed;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<Object> getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Câu lệnh vốn phải đọc cả bảng (findAll, GROUP BY toàn bảng, LIKE '%...%')
+         */
+        public boolean isFullScanAllowed() {
+            return fullScanAllowed;
+        }
+    }
+
+    private static final int SAMPLE_KEYS = 3;
+    private static final int SAMPLE_LIMIT = 100;
+
+    private QueryCatalog() {
+    }
+
+    /**
+     * Tạo danh mục câu lệnh hiện tại
+     * @return các câu lệnh theo thứ tự bảng
+     */
+    public static List<Query> queries() {
+        List<Query> queries = new ArrayList<>();
+        Date today = Date.valueOf(LocalDate.now());
+
+        // documents
+        add(queries, "documents.findById", MySQLDocumentRepository.FIND_BY_ID_SQL, false);
+        add(queries, "documents.findByIds", MySQLDocumentRepository.findByIdsSql(SAMPLE_KEYS), false);
+        add(queries, "documents.findAll", MySQLDocumentRepository.FIND_ALL_SQL, true);
+        add(queries, "documents.findByTitle", MySQLDocumentRepository.FIND_BY_TITLE_SQL, true);
+        add(queries, "documents.findByAuthor", MySQLDocumentRepository.FIND_BY_AUTHOR_SQL, true);
+        add(queries, "documents.findByGenre", MySQLDocumentRepository.FIND_BY_GENRE_SQL, true);
+        add(queries, "documents.findAvailable", MySQLDocumentRepository.FIND_AVAILABLE_SQL, true);
+        add(queries, "documents.findByIsbn", MySQLDocumentRepository.FIND_BY_ISBN_KEY_SQL, false);
+        add(queries, "documents.findByTitleAuthorKey", MySQLDocumentRepository.FIND_BY_TITLE_AUTHOR_KEY_SQL, false);
+        add(queries, "documents.countByGenre", MySQLDocumentRepository.COUNT_BY_GENRE_SQL, false);
+        add(queries, "documents.countAvailable", MySQLDocumentRepository.COUNT_AVAILABLE_SQL, false);
+        add(queries, "documents.reconcileAvailable", MySQLDocumentRepository.RECONCILE_AVAILABLE_SQL, false);
+        add(queries, "documents.reconcileAvailable.read", MySQLDocumentRepository.FIND_AVAILABLE_QUANTITY_SQL, false);
+        addPage(queries, "documents.findPage.first", PageRequest.of("title", true, SAMPLE_LIMIT));
+        addPage(queries, "documents.findPage.offset", PageRequest.of("title", true, SAMPLE_LIMIT).atOffset(SAMPLE_LIMIT));
+        addPage(queries, "documents.findPage.keyset",
+                PageRequest.of("title", true, SAMPLE_LIMIT).after("M", "DOC00100"));
+        addPage(queries, "documents.findPage.keyset.desc",
+                PageRequest.of("title", false, SAMPLE_LIMIT).after("M", "DOC00100"));
+        addPage(queries, "documents.findPage.keyset.id",
+                PageRequest.of("id", true, SAMPLE_LIMIT).after("DOC00100", "DOC00100"));
+        addPage(queries, "documents.findPage.keyset.nullable",
+                PageRequest.of("author", true, SAMPLE_LIMIT).after("M", "DOC00100"));
+        addPage(queries, "documents.findPage.keyset.nullable.desc",
+                PageRequest.of("year", false, SAMPLE_LIMIT).after(2000, "DOC00100"));
+        addPage(queries, "documents.findPage.keyset.afterNull",
+                PageRequest.of("author", true, SAMPLE_LIMIT).after(null, "DOC00100"));
+        addPage(queries, "documents.findPage.keyset.afterNull.desc",
+                PageRequest.of("year", false, SAMPLE_LIMIT).after(null, "DOC00100"));
+        addPage(queries, "documents.findPage.filtered",
+                PageRequest.of("title", true, SAMPLE_LIMIT).withFilter("author", "M").after("M", "DOC00100"));
+        addCount(queries, "documents.count", PageRequest.of("title", true, SAMPLE_LIMIT));
+        addCount(queries, "documents.count.filtered",
+                PageRequest.of("title", true, SAMPLE_LIMIT).withFilter("title", "M"));
+
+        // users
+        add(queries, "users.findById", MySQLUserRepository.FIND_BY_ID_SQL, false);
+        add(queries, "users.findByIds", MySQLUserRepository.findByIdsSql(SAMPLE_KEYS), false);
+        add(queries, "users.findAll", MySQLUserRepository.FIND_ALL_SQL, true);
+        add(queries, "users.findByName", MySQLUserRepository.FIND_BY_NAME_SQL, true);
+        add(queries, "users.findTopBorrowers", MySQLUserRepository.FIND_TOP_BORROWERS_SQL, false, 5);
+        add(queries, "users.findOutstandingFines", MySQLUserRepository.FIND_OUTSTANDING_FINES_SQL, false, 5);
+        add(queries, "users.totalOutstandingFines", MySQLUserRepository.TOTAL_OUTSTANDING_FINES_SQL, false);
+        add(queries, "users.countByType", MySQLUserRepository.COUNT_BY_TYPE_SQL, false);
+        add(queries, "users.countActive", MySQLUserRepository.COUNT_ACTIVE_SQL, false);
+        add(queries, "users.openLoans", MySQLUserRepository.OPEN_LOANS_SQL, false);
+        add(queries, "users.borrowedDocuments", MySQLUserRepository.borrowedDocumentsSql(SAMPLE_KEYS), false);
+        add(queries, "users.findFavoriteGenres", MySQLUserRepository.FIND_FAVORITE_GENRES_SQL, false);
+        add(queries, "users.allFavoriteGenres", MySQLUserRepository.ALL_FAVORITE_GENRES_SQL, true);
+        add(queries, "users.favoriteGenres", MySQLUserRepository.favoriteGenresSql(SAMPLE_KEYS), false);
+        add(queries, "users.findUserIdsByFavoriteGenre", MySQLUserRepository.FIND_USER_IDS_BY_FAVORITE_GENRE_SQL, false);
+        add(queries, "users.genreIndex", MySQLUserRepository.GENRE_INDEX_SQL, true);
+        add(queries, "users.removeFavoriteGenre", MySQLUserRepository.REMOVE_FAVORITE_GENRE_SQL, false);
+
+        // loan_transactions
+        add(queries, "loans.findById", MySQLLoanTransactionRepository.FIND_BY_ID_SQL, false);
+        add(queries, "loans.findAll", MySQLLoanTransactionRepository.FIND_ALL_SQL, true);
+        add(queries, "loans.findByUserId", MySQLLoanTransactionRepository.FIND_BY_USER_ID_SQL, false);
+        add(queries, "loans.findByDocumentId", MySQLLoanTransactionRepository.FIND_BY_DOCUMENT_ID_SQL, false);
+        add(queries, "loans.findActive", MySQLLoanTransactionRepository.FIND_ACTIVE_SQL, false);
+        add(queries, "loans.findOverdue", MySQLLoanTransactionRepository.FIND_OVERDUE_SQL, false);
+        add(queries, "loans.findActiveByUserId", MySQLLoanTransactionRepository.FIND_ACTIVE_BY_USER_ID_SQL, false);
+        add(queries, "loans.countAll", MySQLLoanTransactionRepository.COUNT_ALL_SQL, false);
+        add(queries, "loans.countOverdue", MySQLLoanTransactionRepository.COUNT_OVERDUE_SQL, false);
+        add(queries, "loans.isDocumentBorrowed", MySQLLoanTransactionRepository.IS_DOCUMENT_BORROWED_SQL, false);
+        for (LoanView.Filter filter : LoanView.Filter.values()) {
+            add(queries, "loans.views." + filter.name().toLowerCase(),
+                MySQLLoanTransactionRepository.findLoanViewsSql(filter), filter == LoanView.Filter.ALL);
+        }
+        add(queries, "loans.borrow.lockUser", MySQLLoanTransactionRepository.LOCK_USER_SQL, false);
+        add(queries, "loans.borrow.decrementAvailable", MySQLLoanTransactionRepository.DECREMENT_AVAILABLE_SQL, false);
+        add(queries, "loans.borrow.incrementUser", MySQLLoanTransactionRepository.INCREMENT_USER_LOANS_SQL, false);
+        add(queries, "loans.return.lockLoan", MySQLLoanTransactionRepository.LOCK_OPEN_LOAN_SQL, false);
+        add(queries, "loans.return.closeLoan", MySQLLoanTransactionRepository.CLOSE_LOAN_SQL, false,
+            today, "RETURNED", 0.0, "LOAN00001");
+        add(queries, "loans.return.incrementAvailable", MySQLLoanTransactionRepository.INCREMENT_AVAILABLE_SQL, false);
+        add(queries, "loans.return.decrementUser", MySQLLoanTransactionRepository.DECREMENT_USER_LOANS_SQL, false);
+        add(queries, "loans.return.adjustFines", MySQLLoanTransactionRepository.ADJUST_USER_FINES_SQL, false,
+            0.0, "USER00001");
+        add(queries, "loans.renew", MySQLLoanTransactionRepository.RENEW_SQL, false,
+            today, "RENEWED", 1, "LOAN00001", 0);
+        add(queries, "loans.markOverdue", MySQLLoanTransactionRepository.lockDueSql(SAMPLE_KEYS), false,
+            "LOAN00001", "LOAN00002", "LOAN00003", today);
+        add(queries, "loans.accrueFines.lock", MySQLLoanTransactionRepository.LOCK_PENDING_FINES_SQL, false, today);
+        add(queries, "loans.accrueFines.users", MySQLLoanTransactionRepository.ACCRUE_USER_FINES_SQL, false,
+            today, today, 0.5);
+        add(queries, "loans.accrueFines.loans", MySQLLoanTransactionRepository.ACCRUE_LOAN_FINES_SQL, false,
+            today, 0.5, today, today);
+
+        // reviews
+        add(queries, "reviews.findById", MySQLReviewRepository.FIND_BY_ID_SQL, false);
+        add(queries, "reviews.findByIds", MySQLReviewRepository.findByIdsSql(SAMPLE_KEYS), false);
+        add(queries, "reviews.findAll", MySQLReviewRepository.FIND_ALL_SQL, true);
+        add(queries, "reviews.findByDocumentId", MySQLReviewRepository.FIND_BY_DOCUMENT_ID_SQL, false);
+        add(queries, "reviews.findByUserId", MySQLReviewRepository.FIND_BY_USER_ID_SQL, false);
+        add(queries, "reviews.hasUserReviewed", MySQLReviewRepository.HAS_USER_REVIEWED_SQL, false);
+        add(queries, "reviews.ratingAggregates", MySQLReviewRepository.RATING_AGGREGATES_SQL, true);
+
+        // id_sequences
+        add(queries, "idSequences.reserve", MySQLIdAllocator.LOCK_SEQUENCE_SQL, false);
+        return queries;
+    }
+
+    /**
+     * Thêm câu lệnh; khi không truyền tham số, mỗi '?' được gán một chuỗi mẫu
+     */
+    private static void add(List<Query> queries, String name, String sql, boolean fullScanAllowed,
+                            Object... parameters) {
+        List<Object> values = new ArrayList<>(Arrays.asList(parameters));
+        if (values.isEmpty()) {
+            int count = (int) sql.chars().filter(c -> c == '?').count();
+            for (int i = 1; i <= count; i++) {
+                values.add("EXPLAIN" + i);
+            }
+        }
+        queries.add(new Query(name, sql, values, fullScanAllowed));
+    }
+
+    private static void addPage(List<Query> queries, String name, PageRequest request) {
+        List<Object> params = new ArrayList<>();
+        String sql = MySQLDocumentRepository.findPageSql(request, params);
+        queries.add(new Query(name, sql, params, false));
+    }
+
+    private static void addCount(List<Query> queries, String name, PageRequest request) {
+        List<Object> params = new ArrayList<>();
+        String sql = MySQLDocumentRepository.countSql(request, params);
+        queries.add(new Query(name, sql, params, false));
+    }
+}
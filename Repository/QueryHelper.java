@@ -0,0 +1,89 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Các tiện ích dùng chung cho truy vấn SQL của các repository MySQL
+ */
+final class QueryHelper {
+    /** Số khóa tối đa trong một mệnh đề IN (...) */
+    static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
+    /**
+     * Điều kiện của giao dịch đang mượn (chưa trả), dùng chung cho các repository.
+     * OVERDUE chưa có ngày trả là giao dịch đã được OverdueSweeper đánh dấu quá hạn
+     */
+    static final String OPEN_LOAN_CONDITION = "return_date IS NULL AND status IN ('ACTIVE', 'RENEWED', 'OVERDUE')";
+
+    private QueryHelper() {
+    }
+
+    /**
+     * Tạo chuỗi tham số "?, ?, ?" cho mệnh đề IN
+     * @param count số tham số
+     * @return chuỗi tham số
+     */
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Chia tập khóa thành các phần có kích thước tối đa IN_CLAUSE_CHUNK_SIZE.
+     * Khóa null và khóa trùng lặp được loại bỏ.
+     * @param keys tập khóa cần chia
+     * @return danh sách các phần khóa
+     */
+    static List<List<String>> chunk(Collection<String> keys) {
+        List<List<String>> chunks = new ArrayList<>();
+        if (keys == null || keys.isEmpty()) {
+            return chunks;
+        }
+
+        List<String> current = new ArrayList<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            if (key == null) {
+                continue;
+            }
+            current.add(key);
+            if (current.size() == IN_CLAUSE_CHUNK_SIZE) {
+                chunks.add(current);
+                current = new ArrayList<>();
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * Thoát các ký tự đặc biệt của LIKE (%, _ và \\) để giá trị được so khớp nguyên văn
+     * @param value giá trị cần thoát
+     * @return giá trị đã thoát
+     */
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    /**
+     * Gán danh sách khóa vào các tham số của câu lệnh, bắt đầu từ vị trí cho trước
+     * @param stmt câu lệnh cần gán tham số
+     * @param startIndex vị trí tham số đầu tiên (bắt đầu từ 1)
+     * @param keys danh sách khóa
+     */
+    static void bindKeys(PreparedStatement stmt, int startIndex, List<String> keys) throws SQLException {
+        for (int i = 0; i < keys.size(); i++) {
+            stmt.setString(startIndex + i, keys.get(i));
+        }
+    }
+}
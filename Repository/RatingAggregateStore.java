@@ -0,0 +1,115 @@
+import com.library.model.RatingAggregate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bộ nhớ tổng hợp điểm đánh giá theo tài liệu (tổng, số lượng, trung bình).
+ * Được nạp một lần bằng truy vấn GROUP BY và cập nhật tăng dần khi đánh giá
+ * được thêm, sửa hoặc xóa, nên việc đọc điểm trung bình không cần truy vấn cơ sở dữ liệu.
+ * Bên ghi giữ khóa của đối tượng này trong lúc ghi cơ sở dữ liệu và cập nhật bộ nhớ,
+ * để lần nạp hàng loạt không đếm trùng một thay đổi đang diễn ra.
+ * Cập nhật tăng dần chỉ thấy thay đổi của tiến trình này, nên dữ liệu được coi là cũ sau maxAgeMillis
+ * và được nạp lại, để đánh giá ghi từ các máy khác cũng được tính.
+ */
+final class RatingAggregateStore {
+    private final Map<String, RatingAggregate> aggregates = new ConcurrentHashMap<>();
+    private final long maxAgeMillis;
+    private volatile boolean loaded;
+    private volatile long loadedAt;
+
+    /**
+     * Bộ nhớ không hết hạn (khi tiến trình này là bên ghi duy nhất, ví dụ kho trong bộ nhớ)
+     */
+    RatingAggregateStore() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxAgeMillis thời gian dùng dữ liệu đã nạp trước khi nạp lại
+     */
+    RatingAggregateStore(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Kiểm tra dữ liệu tổng hợp đã được nạp chưa (có thể đã cũ)
+     */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Kiểm tra dữ liệu đã nạp và chưa quá maxAgeMillis
+     */
+    boolean isFresh() {
+        return loaded && System.currentTimeMillis() - loadedAt < maxAgeMillis;
+    }
+
+    /**
+     * Thay toàn bộ dữ liệu bằng kết quả nạp hàng loạt
+     * @param bulk bảng ánh xạ mã tài liệu -> giá trị tổng hợp
+     */
+    synchronized void load(Map<String, RatingAggregate> bulk) {
+        aggregates.clear();
+        aggregates.putAll(bulk);
+        loadedAt = System.currentTimeMillis();
+        loaded = true;
+    }
+
+    /**
+     * Đánh dấu dữ liệu cần nạp lại (ví dụ khi không xác định được thay đổi)
+     */
+    synchronized void invalidate() {
+        loaded = false;
+        aggregates.clear();
+    }
+
+    /**
+     * Lấy giá trị tổng hợp của tài liệu (giá trị rỗng nếu chưa có đánh giá)
+     */
+    RatingAggregate get(String documentId) {
+        RatingAggregate aggregate = aggregates.get(documentId);
+        return aggregate != null ? aggregate : RatingAggregate.empty(documentId);
+    }
+
+    /**
+     * Lấy bản sao chỉ đọc của tất cả giá trị tổng hợp
+     */
+    Map<String, RatingAggregate> snapshot() {
+        return Collections.unmodifiableMap(new HashMap<>(aggregates));
+    }
+
+    /**
+     * Ghi nhận một đánh giá mới
+     */
+    synchronized void add(String documentId, int rating) {
+        if (!loaded || documentId == null) {
+            return;
+        }
+        aggregates.compute(documentId, (id, current) ->
+                (current != null ? current : RatingAggregate.empty(id)).plus(rating));
+    }
+
+    /**
+     * Ghi nhận việc xóa một đánh giá
+     */
+    synchronized void remove(String documentId, int rating) {
+        if (!loaded || documentId == null) {
+            return;
+        }
+        aggregates.computeIfPresent(documentId, (id, current) -> {
+            RatingAggregate next = current.minus(rating);
+            return next.isEmpty() ? null : next;
+        });
+    }
+
+    /**
+     * Ghi nhận việc sửa một đánh giá (có thể đổi điểm hoặc đổi tài liệu)
+     */
+    synchronized void replace(String oldDocumentId, int oldRating, String newDocumentId, int newRating) {
+        remove(oldDocumentId, oldRating);
+        add(newDocumentId, newRating);
+    }
+}
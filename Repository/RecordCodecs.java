@@ -0,0 +1,349 @@
+import com.library.model.Document;
+import com.library.model.LoanTransaction;
+import com.library.model.Review;
+import com.library.model.User;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Mã hóa nhị phân các dòng dữ liệu cho LogStore.
+ * Mỗi giá trị bắt đầu bằng số phiên bản định dạng để có thể thêm cột sau này
+ * mà vẫn đọc được nhật ký cũ.
+ */
+final class RecordCodecs {
+
+    private static final byte FORMAT_VERSION = 2;
+
+    /** Phiên bản đầu tiên có tiền phạt chưa thanh toán (người dùng) và ngày cộng dồn phạt (giao dịch) */
+    private static final byte FINES_VERSION = 2;
+
+    /**
+     * Dòng người dùng kèm các dữ liệu mà MySQL lưu ở cột/bảng riêng
+     * (bộ đếm lượt mượn đang hoạt động, tiền phạt chưa thanh toán và thể loại yêu thích)
+     */
+    static final class UserRecord {
+        final User user;
+        final int activeLoanCount;
+        final double outstandingFines;
+        final List<String> favoriteGenres;
+
+        UserRecord(User user, int activeLoanCount, double outstandingFines, List<String> favoriteGenres) {
+            this.user = user;
+            this.activeLoanCount = activeLoanCount;
+            this.outstandingFines = outstandingFines;
+            this.favoriteGenres = favoriteGenres;
+        }
+    }
+
+    /**
+     * Các cột của tài liệu mà DocumentCatalog cần (lọc, sắp xếp, đếm)
+     */
+    static final class DocumentSummary {
+        final String id;
+        final String title;
+        final String author;
+        final String genre;
+        final int year;
+        final String isbn;
+        final int availableQuantity;
+
+        DocumentSummary(String id, String title, String author, String genre, int year, String isbn,
+                        int availableQuantity) {
+            this.id = id;
+            this.title = title;
+            this.author = author;
+            this.genre = genre;
+            this.year = year;
+            this.isbn = isbn;
+            this.availableQuantity = availableQuantity;
+        }
+    }
+
+    private RecordCodecs() {
+    }
+
+    // ==================== DOCUMENT ====================
+
+    static byte[] encode(Document document) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        writeString(out, document.getId());
+        writeString(out, document.getTitle());
+        writeString(out, document.getAuthor());
+        writeString(out, document.getGenre());
+        out.writeInt(document.getYear());
+        writeString(out, document.getDescription());
+        writeDate(out, document.getAddedDate());
+        writeString(out, document.getIsbn());
+        writeString(out, document.getPublisher());
+        out.writeInt(document.getPageCount());
+        writeString(out, document.getLanguage());
+        writeString(out, document.getEdition());
+        out.writeInt(document.getTotalQuantity());
+        out.writeInt(document.getAvailableQuantity());
+        return bytes.toByteArray();
+    }
+
+    static Document decodeDocument(byte[] value) throws IOException {
+        DataInputStream in = open(value);
+        Document document = new Document();
+        document.setId(readString(in));
+        document.setTitle(readString(in));
+        document.setAuthor(readString(in));
+        document.setGenre(readString(in));
+        document.setYear(in.readInt());
+        document.setDescription(readString(in));
+        document.setAddedDate(readDate(in));
+        document.setIsbn(readString(in));
+        document.setPublisher(readString(in));
+        document.setPageCount(in.readInt());
+        document.setLanguage(readString(in));
+        document.setEdition(readString(in));
+        document.setTotalQuantity(in.readInt());
+        document.setAvailableQuantity(in.readInt());
+        return document;
+    }
+
+    /**
+     * Chỉ đọc các cột của DocumentSummary; các cột còn lại được bỏ qua mà không tạo đối tượng
+     */
+    static DocumentSummary decodeDocumentSummary(byte[] value) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(value);
+        byte version = in.get();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported record format version " + version);
+        }
+        try {
+            String id = readString(in);
+            String title = readString(in);
+            String author = readString(in);
+            String genre = readString(in);
+            int year = in.getInt();
+            skipString(in); // description
+            in.getLong(); // added date
+            String isbn = readString(in);
+            skipString(in); // publisher
+            in.getInt(); // page count
+            skipString(in); // language
+            skipString(in); // edition
+            in.getInt(); // total quantity
+            return new DocumentSummary(id, title, author, genre, year, isbn, in.getInt());
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Truncated document record", e);
+        }
+    }
+
+    // ==================== USER ====================
+
+    static byte[] encode(User user, int activeLoanCount, double outstandingFines,
+                         Collection<String> favoriteGenres) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        writeString(out, user.getId());
+        writeString(out, user.getName());
+        writeString(out, user.getEmail());
+        writeString(out, user.getPhone());
+        writeString(out, user.getAddress());
+        writeDate(out, user.getRegistrationDate());
+        writeString(out, user.getUserType() != null ? user.getUserType().name() : null);
+        out.writeBoolean(user.isActive());
+        out.writeInt(user.getMaxBorrowLimit());
+        out.writeInt(activeLoanCount);
+        out.writeInt(favoriteGenres.size());
+        for (String genre : favoriteGenres) {
+            writeString(out, genre);
+        }
+        out.writeDouble(outstandingFines);
+        return bytes.toByteArray();
+    }
+
+    static UserRecord decodeUser(byte[] value) throws IOException {
+        DataInputStream in = open(value);
+        User user = new User();
+        user.setId(readString(in));
+        user.setName(readString(in));
+        user.setEmail(readString(in));
+        user.setPhone(readString(in));
+        user.setAddress(readString(in));
+        user.setRegistrationDate(readDate(in));
+        String userType = readString(in);
+        user.setUserType(userType != null ? User.UserType.valueOf(userType) : null);
+        user.setActive(in.readBoolean());
+        user.setMaxBorrowLimit(in.readInt());
+        user.setBorrowedDocumentIds(new ArrayList<>());
+        user.setFavoriteGenres(new ArrayList<>());
+        int activeLoanCount = in.readInt();
+        int genreCount = in.readInt();
+        List<String> genres = new ArrayList<>(genreCount);
+        for (int i = 0; i < genreCount; i++) {
+            genres.add(readString(in));
+        }
+        double outstandingFines = version(value) >= FINES_VERSION ? in.readDouble() : 0.0;
+        return new UserRecord(user, activeLoanCount, outstandingFines, genres);
+    }
+
+    // ==================== LOAN TRANSACTION ====================
+
+    static byte[] encode(LoanTransaction transaction) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        writeString(out, transaction.getId());
+        writeString(out, transaction.getUserId());
+        writeString(out, transaction.getDocumentId());
+        writeDate(out, transaction.getBorrowDate());
+        writeDate(out, transaction.getDueDate());
+        writeDate(out, transaction.getReturnDate());
+        writeString(out, transaction.getStatus() != null ? transaction.getStatus().name() : null);
+        out.writeDouble(transaction.getFineAmount());
+        out.writeInt(transaction.getRenewalCount());
+        out.writeInt(transaction.getMaxRenewals());
+        writeDate(out, transaction.getFineAccruedThrough());
+        return bytes.toByteArray();
+    }
+
+    static LoanTransaction decodeLoan(byte[] value) throws IOException {
+        DataInputStream in = open(value);
+        LoanTransaction transaction = new LoanTransaction();
+        transaction.setId(readString(in));
+        transaction.setUserId(readString(in));
+        transaction.setDocumentId(readString(in));
+        transaction.setBorrowDate(readDate(in));
+        transaction.setDueDate(readDate(in));
+        transaction.setReturnDate(readDate(in));
+        String status = readString(in);
+        transaction.setStatus(status != null ? LoanTransaction.TransactionStatus.valueOf(status) : null);
+        transaction.setFineAmount(in.readDouble());
+        transaction.setRenewalCount(in.readInt());
+        transaction.setMaxRenewals(in.readInt());
+        if (version(value) >= FINES_VERSION) {
+            transaction.setFineAccruedThrough(readDate(in));
+        }
+        return transaction;
+    }
+
+    // ==================== REVIEW ====================
+
+    static byte[] encode(Review review) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        writeString(out, review.getId());
+        writeString(out, review.getUserId());
+        writeString(out, review.getDocumentId());
+        out.writeInt(review.getRating());
+        writeString(out, review.getComment());
+        writeString(out, review.getReviewDate() != null ? review.getReviewDate().toString() : null);
+        out.writeInt(review.getHelpfulVotes());
+        return bytes.toByteArray();
+    }
+
+    static Review decodeReview(byte[] value) throws IOException {
+        DataInputStream in = open(value);
+        Review review = new Review();
+        review.setId(readString(in));
+        review.setUserId(readString(in));
+        review.setDocumentId(readString(in));
+        review.setRating(in.readInt());
+        review.setComment(readString(in));
+        String reviewDate = readString(in);
+        review.setReviewDate(reviewDate != null ? LocalDateTime.parse(reviewDate) : null);
+        review.setHelpfulVotes(in.readInt());
+        review.setRecommended(review.getRating() >= 4);
+        return review;
+    }
+
+    // ==================== SỐ ĐẾM ====================
+
+    static byte[] encode(long value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(value);
+        return bytes.toByteArray();
+    }
+
+    static long decodeLong(byte[] value) throws IOException {
+        return open(value).readLong();
+    }
+
+    // ==================== KIỂU CƠ BẢN ====================
+
+    /**
+     * Mở giá trị để đọc; chấp nhận mọi phiên bản định dạng từ 1 đến FORMAT_VERSION
+     */
+    private static DataInputStream open(byte[] value) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(value));
+        byte version = in.readByte();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported record format version " + version);
+        }
+        return in;
+    }
+
+    private static byte version(byte[] value) {
+        return value[0];
+    }
+
+    /**
+     * Chuỗi có thể null; độ dài ghi bằng int nên không bị giới hạn 64 KB như writeUTF
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static void skipString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length > 0) {
+            in.position(in.position() + length);
+        }
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeLong(date != null ? date.toEpochDay() : Long.MIN_VALUE);
+    }
+
+    private static LocalDate readDate(DataInputStream in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay != Long.MIN_VALUE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+}
@@ -0,0 +1,100 @@
+import com.library.database.DatabaseConnection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Bộ thực thi cho các repository bất đồng bộ.
+ * Trên JVM có luồng ảo (Java 21+), mỗi thao tác chạy trên một luồng ảo riêng và một Semaphore
+ * giới hạn số thao tác chạy đồng thời bằng kích thước pool kết nối, nên các thao tác vượt quá
+ * chờ rẻ trên luồng ảo thay vì chờ kết nối trong pool. Trên JVM cũ hơn, một pool luồng cố định
+ * cùng kích thước được dùng thay thế.
+ * Thao tác chạy trong phiên ghi của luồng gửi (DatabaseConnection.Session), để việc đọc lại dữ liệu
+ * vừa ghi vẫn đúng khi thao tác ghi và thao tác đọc sau đó chạy trên các luồng khác nhau.
+ */
+public final class RepositoryExecutor {
+    private static volatile RepositoryExecutor shared;
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final boolean virtualThreads;
+
+    /**
+     * @param maxConcurrency số thao tác tối đa chạy đồng thời
+     */
+    public RepositoryExecutor(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        }
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(maxConcurrency, r -> {
+            Thread thread = new Thread(r, "repository-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Bộ thực thi dùng chung, giới hạn theo kích thước pool kết nối MySQL
+     */
+    public static RepositoryExecutor getShared() {
+        RepositoryExecutor current = shared;
+        if (current == null) {
+            synchronized (RepositoryExecutor.class) {
+                current = shared;
+                if (current == null) {
+                    current = new RepositoryExecutor(DatabaseConnection.getPoolMaxSize());
+                    shared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Tạo executor một-luồng-ảo-cho-mỗi-tác-vụ nếu JVM hỗ trợ (gọi qua reflection để vẫn biên dịch với Java 17)
+     * @return executor, hoặc null nếu không có luồng ảo
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Chạy một thao tác chặn (blocking) và trả về kết quả qua CompletableFuture
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        DatabaseConnection.Session session = DatabaseConnection.currentSession();
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            DatabaseConnection.Session previous = DatabaseConnection.setSession(session);
+            try {
+                return task.get();
+            } finally {
+                DatabaseConnection.setSession(previous);
+                permits.release();
+            }
+        }, executor);
+    }
+
+    /**
+     * Các thao tác có chạy trên luồng ảo không
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Dừng nhận thao tác mới; các thao tác đang chạy được hoàn thành
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,251 @@
+import com.library.database.DatabaseConnection;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Tạo Stream đọc dần kết quả truy vấn thay vì nạp toàn bộ vào một danh sách.
+ * Mỗi dòng chỉ được ánh xạ khi Stream cần đến, và driver được yêu cầu trả dữ liệu theo lô
+ * (fetch size) nên bộ nhớ sử dụng không phụ thuộc vào kích thước bảng.
+ * Stream giữ một kết nối của pool cho đến khi được đóng: người gọi phải dùng try-with-resources
+ * (Stream cũng tự giải phóng tài nguyên khi đọc hết dữ liệu). Một Stream đọc dở (ví dụ subscriber của
+ * StreamPublisher chưa yêu cầu thêm) vẫn giữ kết nối đó, nên số Stream mở đồng thời phải nhỏ hơn kích thước pool.
+ */
+final class ResultSetStreams {
+
+    /**
+     * Fetch size mặc định. Kết nối của pool bật useCursorFetch (xem DatabaseConnection) nên giá trị dương
+     * đọc kết quả bằng con trỏ phía máy chủ theo từng lô. Khác với chế độ streaming (Integer.MIN_VALUE),
+     * máy chủ không phải chờ ghi trong lúc bên đọc dừng lại (không bị ngắt sau net_write_timeout)
+     * và kết nối vẫn chạy được câu lệnh khác khi kết quả còn đọc dở.
+     */
+    static final int STREAMING_FETCH_SIZE = 500;
+
+    /**
+     * Ánh xạ dòng hiện tại của ResultSet thành đối tượng
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Gán tham số cho câu lệnh trước khi thực thi
+     */
+    @FunctionalInterface
+    interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    /**
+     * Nạp dữ liệu liên quan cho một lô dòng trên kết nối của Stream
+     */
+    @FunctionalInterface
+    interface BatchLoader<T> {
+        void load(Connection conn, List<T> batch) throws SQLException;
+    }
+
+    private ResultSetStreams() {
+    }
+
+    /**
+     * Mở Stream cho câu truy vấn không tham số với fetch size mặc định
+     */
+    static <T> Stream<T> stream(String sql, RowMapper<T> mapper) {
+        return stream(sql, stmt -> { }, mapper, STREAMING_FETCH_SIZE);
+    }
+
+    /**
+     * Mở Stream cho câu truy vấn
+     * @param sql câu truy vấn
+     * @param binder gán tham số
+     * @param mapper ánh xạ dòng thành đối tượng
+     * @param fetchSize số dòng driver lấy mỗi lần (xem STREAMING_FETCH_SIZE)
+     * @return Stream các đối tượng, rỗng nếu không mở được truy vấn
+     */
+    static <T> Stream<T> stream(String sql, Binder binder, RowMapper<T> mapper, int fetchSize) {
+        RowSpliterator<T> spliterator = open(sql, binder, mapper, fetchSize, true);
+        if (spliterator == null) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    /**
+     * Mở Stream cho câu truy vấn không tham số, gom dòng thành từng lô và nạp dữ liệu liên quan của mỗi lô
+     * trên cùng kết nối (con trỏ phía máy chủ cho phép chạy câu lệnh khác khi kết quả còn đọc dở),
+     * nên mỗi Stream chỉ giữ một kết nối của pool
+     * @param batchSize số dòng tối đa trong một lô
+     * @param loader nạp dữ liệu liên quan cho mỗi lô
+     */
+    static <T> Stream<T> stream(String sql, RowMapper<T> mapper, int batchSize, BatchLoader<T> loader) {
+        RowSpliterator<T> spliterator = open(sql, stmt -> { }, mapper, STREAMING_FETCH_SIZE, false);
+        if (spliterator == null) {
+            return Stream.empty();
+        }
+        Stream<T> rows = StreamSupport.stream(spliterator, false);
+        return batched(rows, batchSize, batch -> {
+            try {
+                loader.load(spliterator.conn, batch);
+            } catch (SQLException e) {
+                System.err.println("Error loading streamed row details: " + e.getMessage());
+            }
+        }, spliterator::close).onClose(spliterator::close);
+    }
+
+    /**
+     * Mở câu truy vấn và tạo Spliterator đọc kết quả
+     * @param closeConnectionAtEnd trả kết nối về pool ngay khi đọc hết dòng (false: chờ đến khi đóng)
+     * @return Spliterator, hoặc null nếu không mở được truy vấn
+     */
+    private static <T> RowSpliterator<T> open(String sql, Binder binder, RowMapper<T> mapper, int fetchSize,
+                                              boolean closeConnectionAtEnd) {
+        Connection conn = DatabaseConnection.getReadConnection();
+        if (conn == null) {
+            return null;
+        }
+
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            binder.bind(stmt);
+            ResultSet rs = stmt.executeQuery();
+            return new RowSpliterator<>(conn, stmt, rs, mapper, closeConnectionAtEnd);
+        } catch (SQLException e) {
+            System.err.println("Error opening streaming query: " + e.getMessage());
+            closeQuietly(stmt);
+            closeQuietly(conn);
+            return null;
+        }
+    }
+
+    /**
+     * Gom phần tử của Stream thành từng lô và gọi xử lý cho mỗi lô trước khi phát các phần tử của lô
+     * (ví dụ nạp dữ liệu liên quan bằng một truy vấn IN cho cả lô). Bộ nhớ chỉ giữ tối đa một lô.
+     * @param source Stream nguồn (được đóng khi Stream kết quả được đóng)
+     * @param batchSize số phần tử tối đa trong một lô
+     * @param onBatch xử lý cho mỗi lô
+     * @return Stream phát lại các phần tử theo đúng thứ tự
+     */
+    static <T> Stream<T> batched(Stream<T> source, int batchSize, Consumer<List<T>> onBatch) {
+        return batched(source, batchSize, onBatch, () -> { }).onClose(source::close);
+    }
+
+    /**
+     * Như batched, nhưng gọi onExhausted sau khi lô cuối cùng đã được xử lý (không đóng nguồn)
+     */
+    private static <T> Stream<T> batched(Stream<T> source, int batchSize, Consumer<List<T>> onBatch,
+                                         Runnable onExhausted) {
+        Iterator<T> iterator = source.iterator();
+        Iterator<T> batchedIterator = new Iterator<T>() {
+            private Iterator<T> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                if (current.hasNext()) {
+                    return true;
+                }
+                if (!iterator.hasNext()) {
+                    onExhausted.run();
+                    return false;
+                }
+                List<T> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && iterator.hasNext()) {
+                    batch.add(iterator.next());
+                }
+                onBatch.accept(batch);
+                current = batch.iterator();
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(batchedIterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception e) {
+            System.err.println("Error closing streaming resource: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Spliterator đọc từng dòng của ResultSet; đóng ResultSet, câu lệnh và trả kết nối
+     * về pool khi hết dữ liệu (nếu closeConnectionAtEnd), khi gặp lỗi hoặc khi Stream được đóng
+     */
+    private static final class RowSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Connection conn;
+        private final Statement stmt;
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private final boolean closeConnectionAtEnd;
+        private boolean exhausted;
+        private boolean closed;
+
+        RowSpliterator(Connection conn, Statement stmt, ResultSet rs, RowMapper<T> mapper,
+                       boolean closeConnectionAtEnd) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.stmt = stmt;
+            this.rs = rs;
+            this.mapper = mapper;
+            this.closeConnectionAtEnd = closeConnectionAtEnd;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed || exhausted) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    exhausted = true;
+                    if (closeConnectionAtEnd) {
+                        close();
+                    } else {
+                        closeQuietly(rs);
+                        closeQuietly(stmt);
+                    }
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                System.err.println("Error reading streaming query: " + e.getMessage());
+                close();
+                return false;
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closeQuietly(rs);
+            closeQuietly(stmt);
+            closeQuietly(conn);
+        }
+    }
+}
@@ -1,5 +1,9 @@
+import com.library.model.RatingAggregate;
 import com.library.model.Review;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Interface repository cho các thao tác CRUD với đánh giá tài liệu
@@ -17,11 +21,22 @@ public interface ReviewRepository {
      */
     Review findById(String id);
     
+    /**
+     * Tìm nhiều đánh giá theo danh sách ID trong một số truy vấn cố định (ID -> đánh giá)
+     */
+    Map<String, Review> findByIds(Collection<String> ids);
+    
     /**
      * Lấy danh sách tất cả đánh giá
      */
     List<Review> findAll();
     
+    /**
+     * Đọc dần tất cả đánh giá (cùng thứ tự với findAll) mà không nạp toàn bộ vào bộ nhớ.
+     * Stream giữ một kết nối cho đến khi được đóng, nên phải dùng trong try-with-resources
+     */
+    Stream<Review> streamAll();
+    
     /**
      * Cập nhật thông tin đánh giá
      */
@@ -52,6 +67,11 @@ public interface ReviewRepository {
      */
     int getReviewCount(String documentId);
     
+    /**
+     * Lấy tổng hợp điểm đánh giá (tổng, số lượng, trung bình) của mọi tài liệu có đánh giá
+     */
+    Map<String, RatingAggregate> getRatingAggregates();
+    
     /**
      * Kiểm tra người dùng đã đánh giá tài liệu này chưa
      */
@@ -0,0 +1,58 @@
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Chỉ mục phụ khóa -> tập mã dòng cho các bảng trong bộ nhớ.
+ * Ghi được thực hiện khi đang giữ khóa của InMemoryDatabase; đọc không cần khóa
+ * (người đọc luôn kiểm tra lại điều kiện trên dòng chính nên một lần đọc xen giữa lúc ghi vẫn đúng).
+ */
+final class SecondaryIndex {
+    private final Map<String, Set<String>> idsByKey = new ConcurrentHashMap<>();
+
+    void add(String key, String id) {
+        if (key == null) {
+            return;
+        }
+        idsByKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    void remove(String key, String id) {
+        if (key == null) {
+            return;
+        }
+        idsByKey.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Lấy mã các dòng có đúng khóa
+     * @return bản sao tập mã (rỗng nếu không có)
+     */
+    Set<String> get(String key) {
+        Set<String> ids = key != null ? idsByKey.get(key) : null;
+        return ids != null ? new HashSet<>(ids) : new HashSet<>();
+    }
+
+    /**
+     * Lấy mã các dòng có khóa thỏa điều kiện; chỉ duyệt các khóa phân biệt, không duyệt từng dòng
+     * (dùng cho tìm kiếm chuỗi con hoặc tiền tố trên cột có ít giá trị như thể loại, tác giả)
+     */
+    Set<String> matching(Predicate<String> keyPredicate) {
+        Set<String> result = new HashSet<>();
+        for (Map.Entry<String, Set<String>> entry : idsByKey.entrySet()) {
+            if (keyPredicate.test(entry.getKey())) {
+                result.addAll(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    void clear() {
+        idsByKey.clear();
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Chuyển một nguồn Stream (ví dụ DocumentRepository::streamAll) thành Flow.Publisher có backpressure.
+ * Mỗi subscriber mở một Stream riêng; phần tử chỉ được đọc khi subscriber đã yêu cầu (request(n)),
+ * nên dữ liệu chưa được yêu cầu vẫn nằm ở phía cơ sở dữ liệu. Việc phát được chạy trên executor
+ * cho trước (truy vấn JDBC là thao tác chặn, không nên dùng ForkJoinPool chung).
+ * Với nguồn MySQL, mỗi subscription giữ một kết nối của pool (đọc bằng con trỏ phía máy chủ, nên dừng chờ
+ * request(n) lâu không bị máy chủ ngắt) cho đến khi hoàn tất hoặc bị hủy.
+ * @param <T> kiểu phần tử
+ */
+public final class StreamPublisher<T> implements Flow.Publisher<T> {
+    private final Supplier<Stream<T>> source;
+    private final Executor executor;
+
+    /**
+     * @param source hàm mở Stream mới cho mỗi subscriber
+     * @param executor executor chạy việc đọc và phát phần tử
+     */
+    public StreamPublisher(Supplier<Stream<T>> source, Executor executor) {
+        this.source = Objects.requireNonNull(source);
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        subscriber.onSubscribe(new StreamSubscription(subscriber));
+    }
+
+    /**
+     * Subscription của một subscriber. Các lần phát được tuần tự hóa bằng bộ đếm wip:
+     * chỉ một luồng chạy drain tại một thời điểm, yêu cầu đến trong lúc đó được xử lý ở vòng kế tiếp.
+     */
+    private final class StreamSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private Stream<T> stream;
+        private Iterator<T> iterator;
+        private IllegalArgumentException invalidRequest;
+
+        StreamSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request must be positive: " + n);
+            } else {
+                demand.getAndUpdate(current -> {
+                    long sum = current + n;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!emit()) {
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Phát phần tử theo số lượng đã yêu cầu
+         * @return false nếu subscription đã kết thúc (hoàn tất, lỗi hoặc bị hủy)
+         */
+        private boolean emit() {
+            if (cancelled) {
+                close();
+                return false;
+            }
+            if (invalidRequest != null) {
+                cancelled = true;
+                close();
+                subscriber.onError(invalidRequest);
+                return false;
+            }
+
+            try {
+                if (iterator == null) {
+                    stream = source.get();
+                    iterator = stream.iterator();
+                }
+                while (demand.get() > 0 && !cancelled) {
+                    if (!iterator.hasNext()) {
+                        cancelled = true;
+                        close();
+                        subscriber.onComplete();
+                        return false;
+                    }
+                    subscriber.onNext(iterator.next());
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                }
+            } catch (RuntimeException e) {
+                cancelled = true;
+                close();
+                subscriber.onError(e);
+                return false;
+            }
+
+            if (cancelled) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        private void close() {
+            if (stream != null) {
+                stream.close();
+                stream = null;
+            }
+        }
+    }
+}
@@ -1,5 +1,9 @@
 import com.library.model.User;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Interface repository cho các thao tác CRUD với người dùng
@@ -17,11 +21,22 @@ public interface UserRepository {
      */
     User findById(String id);
     
+    /**
+     * Tìm nhiều người dùng theo danh sách ID trong một số truy vấn cố định (ID -> người dùng)
+     */
+    Map<String, User> findByIds(Collection<String> ids);
+    
     /**
      * Lấy danh sách tất cả người dùng
      */
     List<User> findAll();
     
+    /**
+     * Đọc dần tất cả người dùng (cùng thứ tự với findAll) mà không nạp toàn bộ vào bộ nhớ.
+     * Stream giữ một kết nối cho đến khi được đóng, nên phải dùng trong try-with-resources
+     */
+    Stream<User> streamAll();
+    
     /**
      * Cập nhật thông tin người dùng
      */
@@ -37,6 +52,34 @@ public interface UserRepository {
      */
     List<User> findByName(String name);
     
+    /**
+     * Lấy những người dùng đang mượn nhiều tài liệu nhất (theo bộ đếm active_loan_count)
+     */
+    List<User> findTopBorrowers(int limit);
+    
+    /**
+     * Lấy những số dư tiền phạt chưa thanh toán lớn nhất (theo cột outstanding_fines)
+     * @return mã người dùng -> số dư, giảm dần theo số dư
+     */
+    Map<String, Double> findOutstandingFines(int limit);
+    
+    /**
+     * Tổng tiền phạt chưa thanh toán của mọi người dùng
+     */
+    double getTotalOutstandingFines();
+    
+    /**
+     * Đếm người dùng theo nhóm (GROUP BY user_type)
+     * @return nhóm -> số người dùng, hoặc null nếu có lỗi
+     */
+    Map<User.UserType, Integer> countByType();
+    
+    /**
+     * Đếm người dùng đang hoạt động
+     * @return số người dùng, -1 nếu có lỗi
+     */
+    int countActive();
+    
     /**
      * Lấy danh sách thể loại yêu thích của người dùng
      */
@@ -56,4 +99,9 @@ public interface UserRepository {
      * Xóa toàn bộ thể loại yêu thích của người dùng
      */
     boolean clearFavoriteGenres(String userId);
+    
+    /**
+     * Lấy mã các người dùng yêu thích một thể loại
+     */
+    Set<String> findUserIdsByFavoriteGenre(String genre);
 }
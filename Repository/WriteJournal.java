@@ -0,0 +1,692 @@
+import com.library.database.DatabaseConnection;
+import com.library.model.Document;
+import com.library.model.LoanTransaction;
+import com.library.model.Review;
+import com.library.model.User;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Nhật ký ghi trước (write-ahead journal) trên đĩa cho các thao tác ghi khi mất kết nối MySQL.
+ *
+ * Các decorator Journaling* gửi thao tác ghi thẳng xuống repository MySQL. Nếu thao tác thất bại
+ * và máy chủ chính không kết nối được, thao tác được ghi vào nhật ký cục bộ (LogStore, đẩy xuống
+ * đĩa trước khi trả về) và được xác nhận thành công. Khi nhật ký còn thao tác chờ, mọi thao tác
+ * ghi mới đều vào nhật ký để giữ đúng thứ tự.
+ *
+ * Một luồng nền định kỳ kiểm tra kết nối và phát lại các thao tác theo thứ tự, xóa các thao tác
+ * đã phát lại khỏi nhật ký theo lô. Khi phát lại:
+ * - thao tác bị cơ sở dữ liệu từ chối (ví dụ mượn khi tài liệu đã hết, trả giao dịch đã đóng)
+ *   được ghi nhận là xung đột và bỏ qua;
+ * - số lượng còn lại của tài liệu được đặt lại trên máy chủ theo số giao dịch đang mở
+ *   (còn lại = tổng - đang mượn, một câu lệnh UPDATE); nếu giá trị ghi ngoại tuyến lệch thì ghi nhận xung đột.
+ * Sau mỗi lô, các Listener nhận mã các dòng bị ảnh hưởng và xung đột để sửa bộ nhớ đệm, lịch quá hạn
+ * và thống kê đã được cập nhật theo thao tác ngoại tuyến.
+ * Phát lại là "ít nhất một lần": nếu ứng dụng dừng giữa một lô, các thao tác của lô được phát lại
+ * lần nữa; mã giao dịch/tài liệu cố định nên thao tác thêm mới không bị nhân đôi.
+ *
+ * Phạm vi: nhật ký chỉ nhận thao tác ghi đã có đủ dữ liệu, không tự đọc hay cấp mã khi mất kết nối.
+ * Được bảo đảm ngoại tuyến là sửa/xóa tài liệu và người dùng (cùng thể loại yêu thích) và thao tác
+ * trên giao dịch/đánh giá đã nạp. Thêm mới và mượn cần mã mới từ MySQLIdAllocator và đọc tài liệu,
+ * người dùng qua bộ đệm: chỉ vào được nhật ký khi khối mã đang giữ còn số và bộ đệm còn dòng cần đọc,
+ * ngoài ra thất bại như khi không có nhật ký.
+ */
+public final class WriteJournal implements AutoCloseable {
+
+    private static final byte PENDING = 1;
+    private static final byte CONFLICTS = 2;
+
+    /** Số thao tác phát lại trước mỗi lần xóa khỏi nhật ký */
+    private static final int REPLAY_BATCH_SIZE = 50;
+
+    /** Chu kỳ mặc định kiểm tra kết nối để phát lại (giây) */
+    public static final long DEFAULT_RETRY_SECONDS = 15;
+
+    /**
+     * Các loại thao tác ghi được ghi vào nhật ký
+     */
+    enum Operation {
+        SAVE_DOCUMENT, UPDATE_DOCUMENT, DELETE_DOCUMENT, UPDATE_QUANTITY,
+        SAVE_USER, UPDATE_USER, DELETE_USER,
+        ADD_FAVORITE_GENRE, REMOVE_FAVORITE_GENRE, CLEAR_FAVORITE_GENRES,
+        SAVE_LOAN, UPDATE_LOAN, DELETE_LOAN, BORROW, RETURN, RENEW,
+        SAVE_REVIEW, UPDATE_REVIEW, DELETE_REVIEW
+    }
+
+    /**
+     * Một thao tác trong nhật ký: dòng dữ liệu (đã mã hóa) hoặc khóa/tham số tùy loại thao tác
+     */
+    private static final class Entry {
+        final long sequence;
+        final Operation operation;
+        final long recordedAt;
+        final byte[] row;
+        final String key;
+        final String argument;
+        final int number;
+
+        Entry(long sequence, Operation operation, long recordedAt, byte[] row,
+              String key, String argument, int number) {
+            this.sequence = sequence;
+            this.operation = operation;
+            this.recordedAt = recordedAt;
+            this.row = row;
+            this.key = key;
+            this.argument = argument;
+            this.number = number;
+        }
+    }
+
+    /**
+     * Một xung đột phát hiện khi phát lại
+     */
+    public static final class Conflict {
+        private final long sequence;
+        private final String operation;
+        private final String key;
+        private final String reason;
+        private final Instant recordedAt;
+
+        Conflict(long sequence, String operation, String key, String reason, Instant recordedAt) {
+            this.sequence = sequence;
+            this.operation = operation;
+            this.key = key;
+            this.reason = reason;
+            this.recordedAt = recordedAt;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        /** Mã thực thể bị ảnh hưởng (tài liệu, người dùng, giao dịch hoặc đánh giá) */
+        public String getKey() {
+            return key;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        /** Thời điểm thao tác được ghi vào nhật ký (ngoại tuyến) */
+        public Instant getRecordedAt() {
+            return recordedAt;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + sequence + " " + operation + " " + key + ": " + reason;
+        }
+    }
+
+    /**
+     * Kết quả phát lại của một thao tác: mã các dòng bị ảnh hưởng (null nếu không liên quan
+     * hoặc không biết, ví dụ xóa giao dịch chỉ ghi mã giao dịch) và xung đột nếu có
+     */
+    public static final class Replayed {
+        private final String documentId;
+        private final String userId;
+        private final String transactionId;
+        private final String reviewId;
+        private final Conflict conflict;
+
+        Replayed(String documentId, String userId, String transactionId, String reviewId, Conflict conflict) {
+            this.documentId = documentId;
+            this.userId = userId;
+            this.transactionId = transactionId;
+            this.reviewId = reviewId;
+            this.conflict = conflict;
+        }
+
+        public String getDocumentId() {
+            return documentId;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        public String getReviewId() {
+            return reviewId;
+        }
+
+        /** Xung đột của thao tác (bị từ chối hoặc được sửa khi phát lại), null nếu được áp dụng như đã ghi */
+        public Conflict getConflict() {
+            return conflict;
+        }
+    }
+
+    /**
+     * Nhận kết quả sau mỗi lô phát lại đã được xóa khỏi nhật ký (gọi trên luồng phát lại).
+     * Trạng thái được dựng từ thao tác ghi ngoại tuyến (bộ nhớ đệm, lịch quá hạn, thống kê)
+     * cần được sửa theo kết quả trên máy chủ.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void replayed(List<Replayed> replayed);
+    }
+
+    private final LogStore store;
+    private final DocumentRepository documents;
+    private final UserRepository users;
+    private final LoanTransactionRepository loans;
+    private final ReviewRepository reviews;
+    private final List<Entry> pending = new ArrayList<>();
+    private final List<Conflict> conflicts = new ArrayList<>();
+    private long nextSequence = 1;
+    private final Object replayLock = new Object();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService replayer;
+
+    private WriteJournal(LogStore store, DocumentRepository documents, UserRepository users,
+                         LoanTransactionRepository loans, ReviewRepository reviews, long retrySeconds) {
+        this.store = store;
+        this.documents = documents;
+        this.users = users;
+        this.loans = loans;
+        this.reviews = reviews;
+        this.replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            // Phiên ghi riêng: phát lại không buộc các lần đọc của giao diện về máy chủ chính
+            Thread thread = new Thread(() -> {
+                DatabaseConnection.startSession();
+                r.run();
+            }, "write-journal-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (retrySeconds > 0) {
+            replayer.scheduleWithFixedDelay(this::replayIfReachable, retrySeconds, retrySeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Mở (hoặc tạo) nhật ký trong thư mục; các thao tác còn chờ từ lần chạy trước sẽ được phát lại
+     * vào các repository gốc (không phải decorator Journaling*)
+     * @param retrySeconds chu kỳ kiểm tra kết nối để phát lại (0: chỉ phát lại khi gọi replay())
+     */
+    public static WriteJournal open(Path directory, DocumentRepository documents, UserRepository users,
+                                    LoanTransactionRepository loans, ReviewRepository reviews,
+                                    long retrySeconds) throws IOException {
+        LogStore store = LogStore.open(directory, true);
+        WriteJournal journal = new WriteJournal(store, documents, users, loans, reviews, retrySeconds);
+        try {
+            journal.load();
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+        if (!journal.pending.isEmpty()) {
+            System.err.println(journal.pending.size() + " journaled writes are waiting to be replayed");
+        }
+        return journal;
+    }
+
+    private void load() throws IOException {
+        store.forEach((table, id, value) -> {
+            long sequence = Long.parseLong(id);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (table == PENDING) {
+                pending.add(decodeEntry(sequence, value));
+            } else if (table == CONFLICTS) {
+                conflicts.add(decodeConflict(sequence, value));
+            }
+        });
+        pending.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        conflicts.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+    }
+
+    // ==================== GHI ====================
+
+    boolean write(BooleanSupplier direct, Operation operation, Document document) {
+        return write(direct, operation, () -> RecordCodecs.encode(document), document.getId(), null, 0);
+    }
+
+    boolean write(BooleanSupplier direct, Operation operation, User user) {
+        return write(direct, operation, () -> RecordCodecs.encode(user, 0, 0.0, Collections.emptyList()),
+                     user.getId(), null, 0);
+    }
+
+    boolean write(BooleanSupplier direct, Operation operation, LoanTransaction transaction, int number) {
+        return write(direct, operation, () -> RecordCodecs.encode(transaction), transaction.getId(), null, number);
+    }
+
+    boolean write(BooleanSupplier direct, Operation operation, Review review) {
+        return write(direct, operation, () -> RecordCodecs.encode(review), review.getId(), null, 0);
+    }
+
+    boolean write(BooleanSupplier direct, Operation operation, String key, String argument, int number) {
+        return write(direct, operation, () -> null, key, argument, number);
+    }
+
+    private interface RowEncoder {
+        byte[] encode() throws IOException;
+    }
+
+    /**
+     * Ghi thẳng xuống cơ sở dữ liệu nếu nhật ký rỗng; nếu thất bại vì mất kết nối (hoặc nhật ký
+     * còn thao tác chờ) thì ghi vào nhật ký
+     * @return true nếu cơ sở dữ liệu hoặc nhật ký đã nhận thao tác
+     */
+    private boolean write(BooleanSupplier direct, Operation operation, RowEncoder row,
+                          String key, String argument, int number) {
+        if (!hasPending()) {
+            try {
+                if (direct.getAsBoolean()) {
+                    return true;
+                }
+            } catch (RuntimeException e) {
+                // Lỗi bất ngờ khi ghi thẳng được xử lý như một lần ghi thất bại
+                System.err.println("Error writing directly, checking connection: " + e.getMessage());
+            }
+            if (DatabaseConnection.isPrimaryAvailable()) {
+                return false;
+            }
+        }
+        try {
+            append(operation, row.encode(), key, argument, number);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing to the write journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized void append(Operation operation, byte[] row, String key, String argument, int number)
+            throws IOException {
+        Entry entry = new Entry(nextSequence, operation, System.currentTimeMillis(), row, key, argument, number);
+        store.append(Collections.singletonList(new LogStore.Entry(PENDING, sequenceKey(entry.sequence),
+                                                                  encodeEntry(entry))));
+        nextSequence++;
+        pending.add(entry);
+    }
+
+    /**
+     * Nhật ký còn thao tác chưa phát lại
+     */
+    public synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Số thao tác chưa phát lại
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Các xung đột đã phát hiện khi phát lại (cũ nhất trước)
+     */
+    public synchronized List<Conflict> getConflicts() {
+        return new ArrayList<>(conflicts);
+    }
+
+    /**
+     * Xóa danh sách xung đột (sau khi thủ thư đã xử lý)
+     */
+    public boolean clearConflicts() {
+        synchronized (this) {
+            List<LogStore.Entry> deletes = new ArrayList<>();
+            for (Conflict conflict : conflicts) {
+                deletes.add(new LogStore.Entry(CONFLICTS, sequenceKey(conflict.getSequence()), null));
+            }
+            try {
+                store.append(deletes);
+                conflicts.clear();
+                return true;
+            } catch (IOException e) {
+                System.err.println("Error clearing journal conflicts: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    // ==================== PHÁT LẠI ====================
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void replayIfReachable() {
+        if (hasPending() && DatabaseConnection.isPrimaryAvailable()) {
+            replay();
+        }
+    }
+
+    /**
+     * Phát lại các thao tác chờ theo thứ tự cho đến khi hết hoặc mất kết nối
+     * @return số thao tác đã xử lý (kể cả thao tác bị từ chối do xung đột)
+     */
+    public int replay() {
+        synchronized (replayLock) {
+            int processed = 0;
+            while (true) {
+                List<Entry> batch;
+                synchronized (this) {
+                    batch = new ArrayList<>(pending.subList(0, Math.min(REPLAY_BATCH_SIZE, pending.size())));
+                }
+                if (batch.isEmpty()) {
+                    return processed;
+                }
+
+                List<Entry> done = new ArrayList<>();
+                List<Conflict> found = new ArrayList<>();
+                List<Replayed> results = new ArrayList<>();
+                boolean interrupted = false;
+                for (Entry entry : batch) {
+                    List<Conflict> reconciled = new ArrayList<>();
+                    String conflict;
+                    try {
+                        conflict = apply(entry, reconciled);
+                    } catch (IOException | RuntimeException e) {
+                        conflict = "Unreadable journal entry: " + e.getMessage();
+                    }
+                    if (conflict != null && !DatabaseConnection.isPrimaryAvailable()) {
+                        // Mất kết nối giữa chừng: giữ thao tác này và các thao tác sau cho lần phát lại tới
+                        interrupted = true;
+                        break;
+                    }
+                    if (conflict != null) {
+                        Conflict rejected = new Conflict(entry.sequence, entry.operation.name(), entry.key, conflict,
+                                                         Instant.ofEpochMilli(entry.recordedAt));
+                        found.add(rejected);
+                        results.add(replayed(entry, rejected));
+                    } else {
+                        found.addAll(reconciled);
+                        results.add(replayed(entry, reconciled.isEmpty() ? null : reconciled.get(0)));
+                    }
+                    done.add(entry);
+                }
+
+                if (!done.isEmpty() && !acknowledge(done, found)) {
+                    return processed;
+                }
+                notifyListeners(results);
+                processed += done.size();
+                if (interrupted) {
+                    return processed;
+                }
+            }
+        }
+    }
+
+    /**
+     * Xóa các thao tác đã phát lại khỏi nhật ký và lưu các xung đột trong một lô
+     */
+    private boolean acknowledge(List<Entry> done, List<Conflict> found) {
+        List<LogStore.Entry> changes = new ArrayList<>();
+        for (Entry entry : done) {
+            changes.add(new LogStore.Entry(PENDING, sequenceKey(entry.sequence), null));
+        }
+        try {
+            for (Conflict conflict : found) {
+                changes.add(new LogStore.Entry(CONFLICTS, sequenceKey(conflict.getSequence()), encodeConflict(conflict)));
+            }
+            synchronized (this) {
+                store.append(changes);
+                pending.subList(0, done.size()).clear();
+                conflicts.addAll(found);
+            }
+        } catch (IOException e) {
+            System.err.println("Error updating the write journal after replay: " + e.getMessage());
+            return false;
+        }
+        for (Conflict conflict : found) {
+            System.err.println("Journal replay conflict " + conflict);
+        }
+        if (store.needsCompaction()) {
+            try {
+                store.compact();
+            } catch (IOException e) {
+                System.err.println("Error compacting the write journal: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void notifyListeners(List<Replayed> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.replayed(results);
+            } catch (RuntimeException e) {
+                System.err.println("Error notifying journal replay listener: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Các mã bị ảnh hưởng bởi một thao tác (giao dịch/đánh giá kèm tài liệu và người dùng nếu có dòng)
+     */
+    private static Replayed replayed(Entry entry, Conflict conflict) {
+        switch (entry.operation) {
+            case SAVE_DOCUMENT:
+            case UPDATE_DOCUMENT:
+            case DELETE_DOCUMENT:
+            case UPDATE_QUANTITY:
+                return new Replayed(entry.key, null, null, null, conflict);
+            case SAVE_LOAN:
+            case UPDATE_LOAN:
+            case DELETE_LOAN:
+            case BORROW:
+            case RETURN:
+            case RENEW: {
+                LoanTransaction transaction = decodeOrNull(entry, RecordCodecs::decodeLoan);
+                return transaction != null
+                        ? new Replayed(transaction.getDocumentId(), transaction.getUserId(), entry.key, null, conflict)
+                        : new Replayed(null, null, entry.key, null, conflict);
+            }
+            case SAVE_REVIEW:
+            case UPDATE_REVIEW:
+            case DELETE_REVIEW: {
+                Review review = decodeOrNull(entry, RecordCodecs::decodeReview);
+                return review != null
+                        ? new Replayed(review.getDocumentId(), review.getUserId(), null, entry.key, conflict)
+                        : new Replayed(null, null, null, entry.key, conflict);
+            }
+            default:
+                // Người dùng và thể loại yêu thích: khóa là mã người dùng
+                return new Replayed(null, entry.key, null, null, conflict);
+        }
+    }
+
+    private interface RowDecoder<T> {
+        T decode(byte[] row) throws IOException;
+    }
+
+    private static <T> T decodeOrNull(Entry entry, RowDecoder<T> decoder) {
+        if (entry.row == null) {
+            return null;
+        }
+        try {
+            return decoder.decode(entry.row);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Phát lại một thao tác
+     * @param reconciled nhận xung đột của thao tác vẫn được áp dụng sau khi sửa số lượng
+     * @return null nếu thành công, ngược lại là lý do cơ sở dữ liệu từ chối
+     */
+    private String apply(Entry entry, List<Conflict> reconciled) throws IOException {
+        switch (entry.operation) {
+            case SAVE_DOCUMENT:
+                return documents.save(RecordCodecs.decodeDocument(entry.row))
+                        ? null : "Document already exists or was rejected";
+            case UPDATE_DOCUMENT: {
+                Document document = RecordCodecs.decodeDocument(entry.row);
+                if (!documents.update(document)) {
+                    return "Document no longer exists";
+                }
+                return reconcileAvailable(entry, document.getAvailableQuantity(), reconciled)
+                        ? null : "Document was updated but its available quantity could not be reconciled";
+            }
+            case DELETE_DOCUMENT:
+                return documents.delete(entry.key) ? null : "Document no longer exists or is still referenced";
+            case UPDATE_QUANTITY:
+                return reconcileAvailable(entry, entry.number, reconciled) ? null : "Document no longer exists";
+            case SAVE_USER:
+                return users.save(RecordCodecs.decodeUser(entry.row).user) ? null : "User already exists or was rejected";
+            case UPDATE_USER:
+                return users.update(RecordCodecs.decodeUser(entry.row).user) ? null : "User no longer exists";
+            case DELETE_USER:
+                return users.delete(entry.key) ? null : "User no longer exists or still has loans";
+            case ADD_FAVORITE_GENRE:
+                return users.addFavoriteGenre(entry.key, entry.argument) ? null : "Favorite genre was rejected";
+            case REMOVE_FAVORITE_GENRE:
+                return users.removeFavoriteGenre(entry.key, entry.argument) ? null : "Favorite genre was not found";
+            case CLEAR_FAVORITE_GENRES:
+                return users.clearFavoriteGenres(entry.key) ? null : "Favorite genres could not be cleared";
+            case SAVE_LOAN:
+                return loans.save(RecordCodecs.decodeLoan(entry.row)) ? null : "Loan already exists or was rejected";
+            case UPDATE_LOAN:
+                return loans.update(RecordCodecs.decodeLoan(entry.row)) ? null : "Loan no longer exists";
+            case DELETE_LOAN:
+                return loans.delete(entry.key) ? null : "Loan no longer exists";
+            case BORROW:
+                return loans.borrow(RecordCodecs.decodeLoan(entry.row))
+                        ? null : "Document no longer available or user at borrow limit";
+            case RETURN:
+                return loans.completeReturn(RecordCodecs.decodeLoan(entry.row)) ? null : "Loan was already closed";
+            case RENEW:
+                return loans.renew(RecordCodecs.decodeLoan(entry.row), entry.number)
+                        ? null : "Loan was changed or closed since it was renewed offline";
+            case SAVE_REVIEW:
+                return reviews.save(RecordCodecs.decodeReview(entry.row)) ? null : "Review already exists or was rejected";
+            case UPDATE_REVIEW:
+                return reviews.update(RecordCodecs.decodeReview(entry.row)) ? null : "Review no longer exists";
+            case DELETE_REVIEW:
+                return reviews.delete(entry.key) ? null : "Review no longer exists";
+            default:
+                return "Unknown operation";
+        }
+    }
+
+    /**
+     * Đặt số lượng còn lại theo máy chủ (tổng số trừ số giao dịch đang mở, một câu lệnh trên máy chủ chính).
+     * Giá trị ghi ngoại tuyến được tính từ dữ liệu cũ, nên nếu lệch thì ghi nhận xung đột.
+     * @return false nếu tài liệu không còn hoặc không đặt lại được
+     */
+    private boolean reconcileAvailable(Entry entry, int offlineAvailable, List<Conflict> reconciled) {
+        int available = documents.reconcileAvailableQuantity(entry.key);
+        if (available < 0) {
+            return false;
+        }
+        if (available != offlineAvailable) {
+            reconciled.add(new Conflict(entry.sequence, entry.operation.name(), entry.key,
+                    "Available quantity " + offlineAvailable + " recorded offline corrected to " + available,
+                    Instant.ofEpochMilli(entry.recordedAt)));
+        }
+        return true;
+    }
+
+    // ==================== MÃ HÓA ====================
+
+    /**
+     * Khóa theo số thứ tự, đệm số 0 để thứ tự chuỗi trùng thứ tự số
+     */
+    private static String sequenceKey(long sequence) {
+        return String.format("%019d", sequence);
+    }
+
+    private static byte[] encodeEntry(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(entry.operation.name());
+        out.writeLong(entry.recordedAt);
+        out.writeInt(entry.row != null ? entry.row.length : -1);
+        if (entry.row != null) {
+            out.write(entry.row);
+        }
+        writeNullable(out, entry.key);
+        writeNullable(out, entry.argument);
+        out.writeInt(entry.number);
+        return bytes.toByteArray();
+    }
+
+    private static Entry decodeEntry(long sequence, byte[] value) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(value));
+        Operation operation = Operation.valueOf(in.readUTF());
+        long recordedAt = in.readLong();
+        int rowLength = in.readInt();
+        byte[] row = null;
+        if (rowLength >= 0) {
+            row = new byte[rowLength];
+            in.readFully(row);
+        }
+        String key = readNullable(in);
+        String argument = readNullable(in);
+        return new Entry(sequence, operation, recordedAt, row, key, argument, in.readInt());
+    }
+
+    private static byte[] encodeConflict(Conflict conflict) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(conflict.getOperation());
+        writeNullable(out, conflict.getKey());
+        out.writeUTF(conflict.getReason());
+        out.writeLong(conflict.getRecordedAt().toEpochMilli());
+        return bytes.toByteArray();
+    }
+
+    private static Conflict decodeConflict(long sequence, byte[] value) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(value));
+        String operation = in.readUTF();
+        String key = readNullable(in);
+        String reason = in.readUTF();
+        return new Conflict(sequence, operation, key, reason, Instant.ofEpochMilli(in.readLong()));
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Dừng luồng phát lại và đóng nhật ký; các thao tác chờ được giữ lại cho lần chạy sau
+     */
+    @Override
+    public void close() {
+        replayer.shutdownNow();
+        try {
+            store.close();
+        } catch (IOException e) {
+            System.err.println("Error closing the write journal: " + e.getMessage());
+        }
+    }
+}
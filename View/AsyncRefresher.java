@@ -0,0 +1,89 @@
+package com.library.view;
+
+import javax.swing.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Chạy việc nạp dữ liệu của panel trên luồng nền và áp kết quả lên EDT.
+ * Mỗi panel giữ một {@link AsyncRefresher}; khi một lần làm mới mới được yêu cầu,
+ * lần trước (nếu chưa chạy) bị hủy và kết quả của nó (nếu đã chạy) bị bỏ qua,
+ * nên bảng chỉ hiển thị kết quả của yêu cầu mới nhất.
+ */
+public final class AsyncRefresher {
+    private static final int WORKER_COUNT = 4;
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger(1);
+    
+    /** Pool luồng nền dùng chung cho mọi panel (luồng daemon để không giữ ứng dụng khi thoát) */
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKER_COUNT, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "panel-refresh-" + THREAD_NUMBER.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    
+    private final String name;
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> pending;
+    
+    /**
+     * @param name tên dùng trong thông báo lỗi (ví dụ tên panel)
+     */
+    public AsyncRefresher(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Nạp dữ liệu trên luồng nền rồi áp kết quả lên EDT.
+     * Yêu cầu trước đó chưa hoàn tất sẽ bị hủy/bỏ qua.
+     * @param loader hàm nạp dữ liệu (chạy trên luồng nền, không được chạm vào thành phần Swing)
+     * @param onLoaded hàm áp kết quả (chạy trên EDT)
+     * @param <T> kiểu kết quả
+     */
+    public synchronized <T> void submit(Supplier<T> loader, Consumer<T> onLoaded) {
+        long ticket = generation.incrementAndGet();
+        if (pending != null) {
+            // Không ngắt luồng đang chạy JDBC; kết quả của nó sẽ bị bỏ qua nhờ số thế hệ
+            pending.cancel(false);
+        }
+        
+        pending = EXECUTOR.submit(() -> {
+            if (generation.get() != ticket) {
+                return;
+            }
+            
+            T result;
+            try {
+                result = loader.get();
+            } catch (RuntimeException e) {
+                System.err.println("Error refreshing " + name + ": " + e.getMessage());
+                return;
+            }
+            
+            SwingUtilities.invokeLater(() -> {
+                if (generation.get() == ticket) {
+                    onLoaded.accept(result);
+                }
+            });
+        });
+    }
+    
+    /**
+     * Hủy yêu cầu đang chờ (kết quả của nó sẽ không được áp lên giao diện)
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+}
@@ -14,6 +14,8 @@ public abstract class BasePanel extends JPanel implements RefreshablePanel {
     protected JTable mainTable;
     protected DefaultTableModel tableModel;
     protected JTextField searchField;
+    /** Chạy việc nạp dữ liệu của panel trên luồng nền (khởi tạo trước khi gọi refreshData) */
+    protected final AsyncRefresher refresher = new AsyncRefresher(getClass().getSimpleName());
     
     /**
      * Khởi tạo {@link BasePanel} với tham chiếu thư viện.
@@ -1,10 +1,13 @@
 package com.library.view;
 
 import com.library.model.*;
+import com.library.repository.Page;
+import com.library.repository.PageRequest;
 import com.library.service.GoogleBooksService;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.List;
 
 /**
@@ -13,17 +16,26 @@ import java.util.List;
 public class DocumentPanel extends JPanel implements RefreshablePanel {
     private Library library;
     private JTable documentTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<Document> tableModel;
     private JTextField searchField;
     private JComboBox<String> searchTypeCombo;
     private JComboBox<String> documentTypeCombo;
     private GoogleBooksService googleBooksService;
+    private final AsyncRefresher refresher = new AsyncRefresher("documents");
+    
+    // Bảng tài liệu được nạp theo trang khi cuộn; chỉ những cột dưới đây được sắp xếp phía cơ sở dữ liệu
+    private static final int PAGE_SIZE = 100;
+    private static final String[] SORT_COLUMNS = {"id", "title", "author", "genre", "year"};
+    private PageRequest pageRequest = PageRequest.of("title", true, PAGE_SIZE);
+    // Bảng đang hiển thị kết quả tìm kiếm: tài liệu mới không được chèn vào
+    private boolean showingSearchResults;
     
     public DocumentPanel(Library library) {
         this.library = library;
         this.googleBooksService = new GoogleBooksService();
         initializePanel();
         refreshData();
+        library.addEventListener(this::onLibraryEvent);
     }
     
     private void initializePanel() {
@@ -93,18 +105,27 @@ public class DocumentPanel extends JPanel implements RefreshablePanel {
         JPanel panel = new JPanel(new BorderLayout());
         
         String[] columnNames = {"ID", "Title", "Author", "Genre", "Year", "Status", "Details"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Đặt bảng ở chế độ chỉ đọc
-            }
-        };
+        tableModel = new PagedTableModel<>(columnNames, this::toRow, PAGE_SIZE); // Bảng chỉ đọc
         
         documentTable = new JTable(tableModel);
         documentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         documentTable.setRowHeight(25);
         documentTable.getTableHeader().setReorderingAllowed(false);
         
+        // Nhấn vào tiêu đề cột để sắp xếp phía cơ sở dữ liệu (nhấn lại để đảo chiều)
+        documentTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = documentTable.columnAtPoint(e.getPoint());
+                if (column >= 0 && column < SORT_COLUMNS.length) {
+                    String sortColumn = SORT_COLUMNS[column];
+                    boolean ascending = !sortColumn.equals(pageRequest.getSortColumn()) || !pageRequest.isAscending();
+                    pageRequest = pageRequest.withSort(sortColumn, ascending);
+                    refreshData();
+                }
+            }
+        });
+        
         documentTable.getColumnModel().getColumn(0).setPreferredWidth(80);  // ID
         documentTable.getColumnModel().getColumn(1).setPreferredWidth(250); // Title
         documentTable.getColumnModel().getColumn(2).setPreferredWidth(150); // Author
@@ -149,35 +170,20 @@ public class DocumentPanel extends JPanel implements RefreshablePanel {
     
     @Override
     public void refreshData() {
-        tableModel.setRowCount(0); 
-        
-        List<Document> documents;
-        String selectedType = (String) documentTypeCombo.getSelectedItem();
-        
-        switch (selectedType) {
-            case "Books Only":
-                documents = library.getAllDocuments(); 
-                break;
-            default:
-                documents = library.getAllDocuments();
-                break;
-        }
-        
-        for (Document doc : documents) {
-            String details = "ISBN: " + doc.getIsbn() + " | " + doc.getPageCount() + " pages";
-            String status = doc.getQuantityStatus(); 
+        // Loại tài liệu hiện chỉ có sách nên "Books Only" và "All Documents" cho cùng kết quả
+        refresher.cancel();
+        showingSearchResults = false;
+        tableModel.setSource(new PagedTableModel.PageSource<Document>() {
+            @Override
+            public int count(PageRequest request) {
+                return library.countDocuments(request);
+            }
             
-            Object[] row = {
-                doc.getId(),
-                doc.getTitle(),
-                doc.getAuthor(),
-                doc.getGenre(),
-                doc.getYear(),
-                status,
-                details
-            };
-            tableModel.addRow(row);
-        }
+            @Override
+            public Page<Document> fetch(PageRequest request) {
+                return library.getDocumentPage(request);
+            }
+        }, pageRequest);
     }
     
     private void performSearch() {
@@ -187,46 +193,104 @@ public class DocumentPanel extends JPanel implements RefreshablePanel {
             return;
         }
         
-        tableModel.setRowCount(0);
         String searchType = (String) searchTypeCombo.getSelectedItem();
-        List<Document> results;
+        showingSearchResults = true;
         
-        switch (searchType) {
-            case "Title":
-                results = library.searchDocumentsByTitle(searchText);
+        refresher.submit(() -> {
+            List<Document> results;
+            
+            // Tìm qua chỉ mục trong bộ nhớ thay vì LIKE '%...%' hoặc quét toàn bộ danh mục
+            switch (searchType) {
+                case "Title":
+                    results = library.searchDocuments(searchText, DocumentSearchIndex.Field.TITLE);
+                    break;
+                case "Author":
+                    results = library.searchDocuments(searchText, DocumentSearchIndex.Field.AUTHOR);
+                    break;
+                case "Genre":
+                    results = library.searchDocuments(searchText, DocumentSearchIndex.Field.GENRE);
+                    break;
+                default: 
+                    results = library.searchDocuments(searchText, DocumentSearchIndex.Field.ALL);
+                    break;
+            }
+            return results;
+        }, results -> tableModel.setSource(PagedTableModel.listSource(results), pageRequest));
+    }
+    
+    /**
+     * Nhận sự kiện thay đổi (trên luồng của bus): đọc lại tài liệu bị thay đổi theo mã
+     * rồi cập nhật đúng dòng đó trên EDT. Mượn/trả làm đổi cột trạng thái số lượng.
+     */
+    private void onLibraryEvent(LibraryEvent event) {
+        String documentId = event.getDocumentId();
+        switch (event.getType()) {
+            case DOCUMENT_ADDED:
+                SwingUtilities.invokeLater(this::documentAdded);
                 break;
-            case "Author":
-                results = library.searchDocumentsByAuthor(searchText);
+            case DOCUMENT_UPDATED:
+            case LOAN_CREATED:
+            case LOAN_RETURNED:
+                if (documentId == null) {
+                    return;
+                }
+                Document document = library.getDocument(documentId);
+                if (document == null) {
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> tableModel.updateRow(documentId, document));
                 break;
-            case "Genre":
-                results = library.searchDocumentsByGenre(searchText);
+            case DOCUMENT_REMOVED:
+                SwingUtilities.invokeLater(() -> documentRemoved(documentId));
                 break;
-            default: 
-                results = library.getAllDocuments().stream()
-                    .filter(doc -> doc.getTitle().toLowerCase().contains(searchText.toLowerCase()) ||
-                                  doc.getAuthor().toLowerCase().contains(searchText.toLowerCase()) ||
-                                  doc.getGenre().toLowerCase().contains(searchText.toLowerCase()))
-                    .toList();
+            default:
                 break;
         }
-        
-        for (Document doc : results) {
-            String details = "ISBN: " + doc.getIsbn() + " | " + doc.getPageCount() + " pages";
-            String status = doc.getQuantityStatus(); 
-            
-            Object[] row = {
-                doc.getId(),
-                doc.getTitle(),
-                doc.getAuthor(),
-                doc.getGenre(),
-                doc.getYear(),
-                status,
-                details
-            };
-            tableModel.addRow(row);
+    }
+    
+    /**
+     * Thêm một dòng cho tài liệu mới. Vị trí của nó theo thứ tự sắp xếp do cơ sở dữ liệu quyết định
+     * (collation của MySQL khác so sánh trong Java) nên các trang đang hiển thị được nạp lại.
+     */
+    private void documentAdded() {
+        if (showingSearchResults || pageRequest.hasFilter()) {
+            return;
+        }
+        if (!tableModel.rowAdded()) {
+            refreshData();
+        }
+    }
+    
+    /**
+     * Bỏ dòng của tài liệu đã xóa. Kết quả tìm kiếm là danh sách cố định nên được tìm lại.
+     */
+    private void documentRemoved(String documentId) {
+        if (showingSearchResults) {
+            performSearch();
+        } else if (!tableModel.removeRow(documentId)) {
+            refreshData();
         }
     }
     
+    /**
+     * Chuyển tài liệu thành dữ liệu một dòng của bảng
+     * (chạy trên luồng nạp trang, hoặc trên EDT khi một dòng thay đổi)
+     */
+    private Object[] toRow(Document doc) {
+        String details = "ISBN: " + doc.getIsbn() + " | " + doc.getPageCount() + " pages";
+        String status = doc.getQuantityStatus(); 
+        
+        return new Object[]{
+            doc.getId(),
+            doc.getTitle(),
+            doc.getAuthor(),
+            doc.getGenre(),
+            doc.getYear(),
+            status,
+            details
+        };
+    }
+    
     private void showAddBookDialog() {
         JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Add New Book", true);
         dialog.setLayout(new GridBagLayout());
@@ -318,12 +382,11 @@ public class DocumentPanel extends JPanel implements RefreshablePanel {
                 }
                 
                 // Kiểm tra xem tài liệu đã tồn tại 
-                Document existingDoc = findExistingDocument(title, author, isbn);
+                Document existingDoc = library.findDuplicateDocument(title, author, isbn);
                 
                 if (existingDoc != null) {
                     existingDoc.addQuantity(quantity);
                     if (library.updateDocument(existingDoc)) {
-                        refreshData();
                         dialog.dispose();
                         JOptionPane.showMessageDialog(this, 
                             String.format("Added %d books. Total quantity: %d", quantity, existingDoc.getTotalQuantity())
@@ -339,7 +402,6 @@ public class DocumentPanel extends JPanel implements RefreshablePanel {
                     doc.setDescription(descriptionArea.getText());
                     
                     if (library.addDocument(doc)) {
-                        refreshData();
                         dialog.dispose();
                         JOptionPane.showMessageDialog(this, 
                             String.format("Document added successfully! Quantity: %d", quantity)
@@ -369,23 +431,6 @@ public class DocumentPanel extends JPanel implements RefreshablePanel {
         dialog.setVisible(true);
     }
     
-    /**
-     * Tìm tài liệu đã tồn tại theo tiêu đề, tác giả và ISBN.
-     */
-    private Document findExistingDocument(String title, String author, String isbn) {
-        for (Document doc : library.getAllDocuments()) {
-            boolean titleMatch = doc.getTitle().equalsIgnoreCase(title);
-            boolean authorMatch = doc.getAuthor().equalsIgnoreCase(author);
-            boolean isbnMatch = (isbn.isEmpty() && doc.getIsbn().isEmpty()) ||
-                               doc.getIsbn().equalsIgnoreCase(isbn);
-            
-            if (titleMatch && authorMatch && isbnMatch) {
-                return doc;
-            }
-        }
-        return null;
-    }
-    
     private void showDocumentDetails() {
         int selectedRow = documentTable.getSelectedRow();
         if (selectedRow == -1) {
@@ -548,7 +593,6 @@ public class DocumentPanel extends JPanel implements RefreshablePanel {
                 document.setDescription(descriptionArea.getText().trim());
                 
                 if (library.updateDocument(document)) {
-                    refreshData();
                     dialog.dispose();
                     JOptionPane.showMessageDialog(this, "Document updated successfully!");
                 } else {
@@ -592,7 +636,6 @@ public class DocumentPanel extends JPanel implements RefreshablePanel {
         
         if (result == JOptionPane.YESOption) {
             if (library.removeDocument(documentId)) {
-                refreshData();
                 JOptionPane.showMessageDialog(this, "Document deleted successfully!");
             } else {
                 JOptionPane.showMessageDialog(this, "Cannot delete document. It may be currently borrowed.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -4,6 +4,8 @@ import com.library.model.*;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -14,6 +16,21 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
     private JTable loanTable;
     private DefaultTableModel tableModel;
     private JComboBox<String> filterCombo;
+    private final AsyncRefresher refresher = new AsyncRefresher("loans");
+    private final RowIdentityMap<LoanView> loadedLoans = new RowIdentityMap<>(LoanView::getTransactionId);
+    
+    /**
+     * Kết quả một lần nạp: các bản chiếu giao dịch và dữ liệu dòng tương ứng của bảng
+     */
+    private static final class LoadedLoans {
+        final List<LoanView> loans;
+        final Object[][] rows;
+        
+        LoadedLoans(List<LoanView> loans, Object[][] rows) {
+            this.loans = loans;
+            this.rows = rows;
+        }
+    }
     
     /**
      * Khởi tạo panel quản lý mượn/trả.
@@ -23,6 +40,8 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
         this.library = library;
         initializePanel();
         refreshData();
+        // Mượn, trả, gia hạn và quá hạn (kể cả từ bộ quét lúc nửa đêm) chỉ cập nhật dòng của giao dịch đó
+        library.addEventListener(this::onLibraryEvent);
     }
     
     /**
@@ -144,54 +163,118 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
     
     @Override
     public void refreshData() {
-        tableModel.setRowCount(0); // Xóa dữ liệu hiện có
+        LoanView.Filter filter = selectedFilter();
         
-        List<LoanTransaction> transactions;
+        refresher.submit(() -> {
+            // Một truy vấn JOIN trả về đủ dữ liệu hiển thị, không cần nạp từng người dùng/tài liệu
+            List<LoanView> loans = library.getLoanViews(filter);
+            
+            Object[][] rows = new Object[loans.size()][];
+            for (int i = 0; i < loans.size(); i++) {
+                rows[i] = toRow(loans.get(i));
+            }
+            return new LoadedLoans(loans, rows);
+        }, loaded -> {
+            loadedLoans.replace(loaded.loans);
+            TableHelper.updateTableData(tableModel, loaded.rows);
+        });
+    }
+    
+    /**
+     * Bộ lọc tương ứng với lựa chọn hiện tại của filterCombo.
+     */
+    private LoanView.Filter selectedFilter() {
         String selectedFilter = (String) filterCombo.getSelectedItem();
         
         switch (selectedFilter) {
             case "Active Loans":
-                transactions = library.getAllTransactions().stream()
-                    .filter(t -> t.getStatus() == LoanTransaction.TransactionStatus.ACTIVE || 
-                               t.getStatus() == LoanTransaction.TransactionStatus.RENEWED)
-                    .toList();
-                break;
+                return LoanView.Filter.ACTIVE;
             case "Returned Loans":
-                transactions = library.getAllTransactions().stream()
-                    .filter(t -> t.getStatus() == LoanTransaction.TransactionStatus.RETURNED ||
-                               t.getStatus() == LoanTransaction.TransactionStatus.OVERDUE)
-                    .toList();
-                break;
+                return LoanView.Filter.RETURNED;
             case "Overdue Loans":
-                transactions = library.getOverdueTransactions();
-                break;
+                return LoanView.Filter.OVERDUE;
             default: // "All Loans" — Tất cả giao dịch
-                transactions = library.getAllTransactions();
+                return LoanView.Filter.ALL;
+        }
+    }
+    
+    /**
+     * Chuyển bản chiếu giao dịch thành dữ liệu một dòng của bảng.
+     */
+    private static Object[] toRow(LoanView loan) {
+        String userName = loan.getUserName() != null ? loan.getUserName() : "Unknown";
+        String documentTitle = loan.getDocumentTitle() != null ? loan.getDocumentTitle() : "Unknown";
+        String returnDateStr = loan.getReturnDate() != null ? 
+                             loan.getReturnDate().toString() : "Not returned";
+        String fineStr = loan.getFineAmount() > 0 ? 
+                       String.format("$%.2f", loan.getFineAmount()) : "-";
+        
+        return new Object[]{
+            loan.getTransactionId(),
+            userName,
+            documentTitle,
+            loan.getBorrowDate(),
+            loan.getDueDate(),
+            returnDateStr,
+            fineStr
+        };
+    }
+    
+    /**
+     * Nhận sự kiện thay đổi (trên luồng của bus): đọc lại bản chiếu của giao dịch bị thay đổi
+     * rồi cập nhật đúng dòng đó trên EDT.
+     */
+    private void onLibraryEvent(LibraryEvent event) {
+        switch (event.getType()) {
+            case LOAN_CREATED:
+            case LOAN_RETURNED:
+            case LOAN_RENEWED:
+            case LOAN_OVERDUE:
+            case LOAN_UPDATED:
+            case LOAN_REMOVED:
+                String transactionId = event.getEntityId();
+                LoanView loan = event.getType() == LibraryEvent.Type.LOAN_REMOVED
+                        ? null : library.getLoanView(transactionId);
+                SwingUtilities.invokeLater(() -> applyLoan(transactionId, loan));
+                break;
+            default:
                 break;
         }
+    }
+    
+    /**
+     * Thêm, sửa hoặc bỏ dòng của một giao dịch theo bộ lọc đang chọn.
+     * @param loan bản chiếu mới, hoặc null nếu giao dịch không còn tồn tại
+     */
+    private void applyLoan(String transactionId, LoanView loan) {
+        LoanView.Filter filter = selectedFilter();
+        int row = TableHelper.findRow(tableModel, transactionId);
+        if (loan == null || !loan.matches(filter)) {
+            if (row >= 0) {
+                tableModel.removeRow(row);
+                loadedLoans.remove(transactionId);
+            }
+            return;
+        }
         
-        for (LoanTransaction transaction : transactions) {
-            User user = library.getUser(transaction.getUserId());
-            Document document = library.getDocument(transaction.getDocumentId());
-            
-            String userName = user != null ? user.getName() : "Unknown";
-            String documentTitle = document != null ? document.getTitle() : "Unknown";
-            String returnDateStr = transaction.getReturnDate() != null ? 
-                                 transaction.getReturnDate().toString() : "Not returned";
-            String fineStr = transaction.getFineAmount() > 0 ? 
-                           String.format("$%.2f", transaction.getFineAmount()) : "-";
-            
-            Object[] row = {
-                transaction.getId(),
-                userName,
-                documentTitle,
-                transaction.getBorrowDate(),
-                transaction.getDueDate(),
-                returnDateStr,
-                fineStr
-            };
-            tableModel.addRow(row);
+        loadedLoans.put(loan);
+        if (row >= 0) {
+            TableHelper.replaceRow(tableModel, row, toRow(loan));
+        } else {
+            TableHelper.insertSorted(tableModel, toRow(loan), rowOrder(filter));
+        }
+    }
+    
+    /**
+     * Thứ tự dòng của findLoanViews: quá hạn theo hạn trả tăng dần, còn lại theo ngày mượn giảm dần.
+     */
+    private static Comparator<Object[]> rowOrder(LoanView.Filter filter) {
+        if (filter == LoanView.Filter.OVERDUE) {
+            return Comparator.comparing((Object[] row) -> (LocalDate) row[4],
+                                        Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()));
         }
+        return Comparator.comparing((Object[] row) -> (LocalDate) row[3],
+                                    Comparator.nullsLast(Comparator.<LocalDate>reverseOrder()));
     }
     
     /**
@@ -278,7 +361,6 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
             
             String transactionId = library.borrowDocument(selectedUser.getId(), selectedDocument.getId());
             if (transactionId != null) {
-                refreshData();
                 dialog.dispose();
                 JOptionPane.showMessageDialog(this, 
                     "Document borrowed successfully!\nTransaction ID: " + transactionId);
@@ -300,6 +382,44 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
         dialog.setVisible(true);
     }
     
+    /**
+     * Lấy giao dịch của dòng đang chọn: dựng lại từ dòng đã nạp nếu có,
+     * nếu không thì tra cứu theo ID.
+     * @param transactionId mã giao dịch
+     * @return giao dịch, hoặc null nếu không tồn tại
+     */
+    private LoanTransaction findTransaction(String transactionId) {
+        LoanView loaded = loadedLoans.get(transactionId);
+        if (loaded != null) {
+            return loaded.toTransaction();
+        }
+        return library.getTransaction(transactionId);
+    }
+    
+    /**
+     * Lấy tên người dùng của giao dịch (từ dòng đã nạp nếu có).
+     */
+    private String userNameOf(LoanTransaction transaction) {
+        LoanView loaded = loadedLoans.get(transaction.getId());
+        if (loaded != null && loaded.getUserName() != null) {
+            return loaded.getUserName();
+        }
+        User user = library.getUser(transaction.getUserId());
+        return user != null ? user.getName() : "Unknown";
+    }
+    
+    /**
+     * Lấy tiêu đề tài liệu của giao dịch (từ dòng đã nạp nếu có).
+     */
+    private String documentTitleOf(LoanTransaction transaction) {
+        LoanView loaded = loadedLoans.get(transaction.getId());
+        if (loaded != null && loaded.getDocumentTitle() != null) {
+            return loaded.getDocumentTitle();
+        }
+        Document document = library.getDocument(transaction.getDocumentId());
+        return document != null ? document.getTitle() : "Unknown";
+    }
+    
     /**
      * Xử lý trả tài liệu cho giao dịch đang chọn.
      */
@@ -311,27 +431,21 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
         }
         
         String transactionId = (String) tableModel.getValueAt(selectedRow, 0);
-        LoanTransaction transaction = library.getAllTransactions().stream()
-            .filter(t -> t.getId().equals(transactionId))
-            .findFirst().orElse(null);
+        LoanTransaction transaction = findTransaction(transactionId);
         
         if (transaction == null) {
             JOptionPane.showMessageDialog(this, "Transaction not found!", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
         
-        if (transaction.getStatus() != LoanTransaction.TransactionStatus.ACTIVE &&
-            transaction.getStatus() != LoanTransaction.TransactionStatus.RENEWED) {
+        if (!transaction.isOpen()) {
             JOptionPane.showMessageDialog(this, "This document has already been returned.", "Already Returned", JOptionPane.WARNING_MESSAGE);
             return;
         }
         
-        User user = library.getUser(transaction.getUserId());
-        Document document = library.getDocument(transaction.getDocumentId());
-        
         String message = String.format("Return document?\n\nUser: %s\nDocument: %s\nBorrow Date: %s\nDue Date: %s",
-            user != null ? user.getName() : "Unknown",
-            document != null ? document.getTitle() : "Unknown",
+            userNameOf(transaction),
+            documentTitleOf(transaction),
             transaction.getBorrowDate(),
             transaction.getDueDate());
         
@@ -346,7 +460,6 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
         
         if (result == JOptionPane.YES_OPTION) {
             if (library.returnDocument(transactionId)) {
-                refreshData();
                 String successMessage = "Document returned successfully!";
                 if (transaction.isOverdue()) {
                     successMessage += String.format("\nFine applied: $%.2f", transaction.getFineAmount());
@@ -369,9 +482,7 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
         }
         
         String transactionId = (String) tableModel.getValueAt(selectedRow, 0);
-        LoanTransaction transaction = library.getAllTransactions().stream()
-            .filter(t -> t.getId().equals(transactionId))
-            .findFirst().orElse(null);
+        LoanTransaction transaction = findTransaction(transactionId);
         
         if (transaction == null) {
             JOptionPane.showMessageDialog(this, "Transaction not found!", "Error", JOptionPane.ERROR_MESSAGE);
@@ -389,13 +500,10 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
             return;
         }
         
-        User user = library.getUser(transaction.getUserId());
-        Document document = library.getDocument(transaction.getDocumentId());
-        
         String message = String.format("Renew loan for %d days?\n\nUser: %s\nDocument: %s\nCurrent Due Date: %s\nRenewals: %d/%d",
             library.getDefaultLoanDays(),
-            user != null ? user.getName() : "Unknown",
-            document != null ? document.getTitle() : "Unknown",
+            userNameOf(transaction),
+            documentTitleOf(transaction),
             transaction.getDueDate(),
             transaction.getRenewalCount(),
             transaction.getMaxRenewals());
@@ -405,7 +513,6 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
         
         if (result == JOptionPane.YES_OPTION) {
             if (library.renewLoan(transactionId)) {
-                refreshData();
                 JOptionPane.showMessageDialog(this, 
                     "Loan renewed successfully!\nNew due date: " + transaction.getDueDate());
             } else {
@@ -425,9 +532,7 @@ public class LoanPanel extends JPanel implements RefreshablePanel {
         }
         
         String transactionId = (String) tableModel.getValueAt(selectedRow, 0);
-        LoanTransaction transaction = library.getAllTransactions().stream()
-            .filter(t -> t.getId().equals(transactionId))
-            .findFirst().orElse(null);
+        LoanTransaction transaction = findTransaction(transactionId);
         
         if (transaction == null) {
             JOptionPane.showMessageDialog(this, "Transaction not found!", "Error", JOptionPane.ERROR_MESSAGE);
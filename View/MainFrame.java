@@ -1,9 +1,12 @@
 package com.library.view;
 
+import com.library.database.SchemaMigrator;
 import com.library.model.*;
+import com.library.repository.WriteJournal;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.util.List;
 
 /**
  * Khung giao diện chính cho Hệ thống Quản lý Thư viện
@@ -19,6 +22,16 @@ public class MainFrame extends JFrame {
     private ReviewPanel reviewPanel;
     private StatisticsPanel statisticsPanel;
     
+    // Gộp các lần chuyển tab liên tiếp thành một lần làm mới cho tab cuối cùng được chọn
+    private static final int TAB_REFRESH_DELAY_MS = 200;
+    private Timer tabRefreshTimer;
+    
+    // Trạng thái nhật ký ghi trước (thao tác chờ đồng bộ, xung đột khi phát lại), đọc lại định kỳ
+    private static final int JOURNAL_POLL_MS = 5000;
+    private JLabel journalLabel;
+    private JButton conflictsButton;
+    private Timer journalTimer;
+    
     public MainFrame() {
         this.library = Library.getInstance();
         initializeGUI();
@@ -159,11 +172,16 @@ public class MainFrame extends JFrame {
             tabbedPane.setForegroundAt(i, UITheme.TEXT_SECONDARY);
         }
         
-        tabbedPane.addChangeListener(e -> {
+        tabRefreshTimer = new Timer(TAB_REFRESH_DELAY_MS, e -> {
             Component selectedComponent = tabbedPane.getSelectedComponent();
             if (selectedComponent instanceof RefreshablePanel) {
                 ((RefreshablePanel) selectedComponent).refreshData();
             }
+        });
+        tabRefreshTimer.setRepeats(false);
+        
+        tabbedPane.addChangeListener(e -> {
+            tabRefreshTimer.restart();
             
             int selectedIndex = tabbedPane.getSelectedIndex();
             for (int i = 0; i < tabbedPane.getTabCount(); i++) {
@@ -185,7 +203,64 @@ public class MainFrame extends JFrame {
         statusLabel.setFont(new Font("SansSerif", Font.PLAIN, 11));
         statusBar.add(statusLabel);
         
+        journalLabel = new JLabel();
+        journalLabel.setFont(new Font("SansSerif", Font.PLAIN, 11));
+        statusBar.add(journalLabel);
+        
+        conflictsButton = new JButton("Xem xung đột");
+        conflictsButton.setFont(new Font("SansSerif", Font.PLAIN, 11));
+        conflictsButton.setVisible(false);
+        conflictsButton.addActionListener(e -> showWriteConflicts());
+        statusBar.add(conflictsButton);
+        
         add(statusBar, BorderLayout.SOUTH);
+        
+        journalTimer = new Timer(JOURNAL_POLL_MS, e -> updateJournalStatus());
+        journalTimer.start();
+        updateJournalStatus();
+    }
+    
+    /**
+     * Hiển thị số thao tác chờ đồng bộ và số xung đột khi phát lại nhật ký ghi trước
+     */
+    private void updateJournalStatus() {
+        int pending = library.getPendingWriteCount();
+        int conflicts = library.getWriteConflicts().size();
+        StringBuilder text = new StringBuilder();
+        if (pending > 0) {
+            text.append(" | Chờ đồng bộ: ").append(pending).append(" thao tác");
+        }
+        if (conflicts > 0) {
+            text.append(" | Xung đột khi đồng bộ: ").append(conflicts);
+        }
+        journalLabel.setText(text.toString());
+        journalLabel.setForeground(conflicts > 0 ? UITheme.DANGER_COLOR : UITheme.WARNING_COLOR);
+        conflictsButton.setVisible(conflicts > 0);
+    }
+    
+    /**
+     * Danh sách xung đột khi phát lại; người dùng có thể xóa các xung đột đã xem
+     */
+    private void showWriteConflicts() {
+        List<WriteJournal.Conflict> conflicts = library.getWriteConflicts();
+        StringBuilder text = new StringBuilder();
+        for (WriteJournal.Conflict conflict : conflicts) {
+            text.append(conflict.getRecordedAt()).append("  ").append(conflict).append('\n');
+        }
+        JTextArea area = new JTextArea(text.toString());
+        area.setEditable(false);
+        area.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        JScrollPane scrollPane = new JScrollPane(area);
+        scrollPane.setPreferredSize(new Dimension(700, 300));
+        
+        Object[] options = {"Đã xem - xóa danh sách", "Đóng"};
+        int choice = JOptionPane.showOptionDialog(this, scrollPane, "Xung đột khi đồng bộ",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[1]);
+        if (choice == 0 && !library.clearWriteConflicts()) {
+            JOptionPane.showMessageDialog(this, "Không xóa được danh sách xung đột.", "Lỗi",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+        updateJournalStatus();
     }
     
     private void resetLibrary() {
@@ -238,6 +313,11 @@ public class MainFrame extends JFrame {
     }
     
     public static void main(String[] args) {
+        // Nâng cấp lược đồ (bảng, cột, chỉ mục) trước khi repository được sử dụng
+        if (!Library.isInMemoryMode() && !Library.isLogStructuredMode() && !SchemaMigrator.migrate()) {
+            System.err.println("Database schema migration failed; continuing with the existing schema");
+        }
+        
         SwingUtilities.invokeLater(() -> {
             try {
                 for (UIManager.LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
@@ -0,0 +1,413 @@
+package com.library.view;
+
+import com.library.repository.Page;
+import com.library.repository.PageRequest;
+import javax.swing.*;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * TableModel nạp dữ liệu theo trang khi người dùng cuộn tới, thay cho DefaultTableModel
+ * chứa toàn bộ bảng. Chỉ một số trang gần nhất được giữ trong bộ nhớ (LRU); trang chưa có
+ * được nạp trên luồng nền và bảng được cập nhật khi trang về tới.
+ * Trang kế tiếp được đọc theo khóa (keyset) của trang trước; khi người dùng nhảy xa
+ * (kéo thanh cuộn) thì dùng OFFSET cho trang đó rồi tiếp tục theo khóa.
+ * Một dòng thêm/sửa/xóa được áp thẳng lên các trang đã nạp (updateRow/removeRow);
+ * các trang phía sau chỗ thay đổi bị bỏ và được nạp lại theo OFFSET khi cần.
+ * Trang nạp lỗi hoặc về thiếu dòng (ví dụ repository trả trang rỗng khi mất kết nối) được thử lại
+ * sau một khoảng chờ tăng dần, không nạp lại ngay mỗi lần bảng vẽ lại. Dòng mới thêm (rowAdded)
+ * làm nạp lại các trang đang hiển thị vì vị trí của nó do nguồn dữ liệu quyết định.
+ * @param <T> kiểu thực thể của mỗi dòng
+ */
+public class PagedTableModel<T> extends AbstractTableModel {
+    private static final int MAX_CACHED_PAGES = 10;
+    private static final Object LOADING = "…";
+    private static final int RETRY_BASE_MILLIS = 1_000;
+    private static final int RETRY_MAX_MILLIS = 30_000;
+    
+    /**
+     * Nguồn dữ liệu theo trang
+     */
+    public interface PageSource<T> {
+        /**
+         * Đếm tổng số dòng khớp yêu cầu
+         */
+        int count(PageRequest request);
+        
+        /**
+         * Đọc một trang theo yêu cầu
+         */
+        Page<T> fetch(PageRequest request);
+    }
+    
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "table-page-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final String[] columnNames;
+    private final Function<T, Object[]> rowMapper;
+    private final int pageSize;
+    
+    private PageSource<T> source;
+    private PageRequest baseRequest;
+    private int rowCount;
+    private boolean counting;
+    private volatile long generation;
+    // Tăng khi một dòng được chèn/xóa: trang đang nạp dở có thể đã lệch vị trí nên bị bỏ
+    private long layout;
+    
+    /**
+     * Một trang đã nạp: các thực thể và dữ liệu dòng tương ứng
+     */
+    private static final class LoadedPage<T> {
+        final List<T> items;
+        final List<Object[]> rows;
+        
+        LoadedPage(List<T> items, List<Object[]> rows) {
+            this.items = items;
+            this.rows = rows;
+        }
+    }
+    
+    private final Map<Integer, LoadedPage<T>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, LoadedPage<T>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, PageRequest> anchors = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private final Map<Integer, Failure> failures = new HashMap<>();
+    
+    /**
+     * Lần nạp thất bại liên tiếp của một trang và thời điểm được thử lại
+     */
+    private static final class Failure {
+        int attempts;
+        long retryAt;
+    }
+    
+    /**
+     * @param columnNames tên các cột
+     * @param rowMapper hàm chuyển thực thể thành dữ liệu một dòng
+     * @param pageSize số dòng mỗi trang
+     */
+    public PagedTableModel(String[] columnNames, Function<T, Object[]> rowMapper, int pageSize) {
+        this.columnNames = columnNames;
+        this.rowMapper = rowMapper;
+        this.pageSize = pageSize;
+    }
+    
+    /**
+     * Tạo nguồn dữ liệu từ một danh sách có sẵn trong bộ nhớ (ví dụ kết quả tìm kiếm)
+     */
+    public static <T> PageSource<T> listSource(List<T> items) {
+        return new PageSource<T>() {
+            @Override
+            public int count(PageRequest request) {
+                return items.size();
+            }
+            
+            @Override
+            public Page<T> fetch(PageRequest request) {
+                int from = Math.min(request.getOffset(), items.size());
+                int to = Math.min(from + request.getLimit(), items.size());
+                PageRequest next = to < items.size() ? request.atOffset(to) : null;
+                return new Page<>(new ArrayList<>(items.subList(from, to)), next);
+            }
+        };
+    }
+    
+    /**
+     * Đổi nguồn dữ liệu và yêu cầu gốc (sắp xếp/lọc), rồi nạp lại từ đầu. Gọi trên EDT.
+     */
+    public void setSource(PageSource<T> newSource, PageRequest request) {
+        this.source = newSource;
+        this.baseRequest = request;
+        reload();
+    }
+    
+    /**
+     * Lấy yêu cầu gốc hiện tại (sắp xếp/lọc)
+     */
+    public PageRequest getRequest() {
+        return baseRequest;
+    }
+    
+    /**
+     * Bỏ mọi trang đã nạp, đếm lại số dòng trên luồng nền rồi vẽ lại bảng. Gọi trên EDT.
+     */
+    public void reload() {
+        long ticket = ++generation;
+        pages.clear();
+        anchors.clear();
+        loading.clear();
+        failures.clear();
+        if (source == null || baseRequest == null) {
+            rowCount = 0;
+            counting = false;
+            fireTableDataChanged();
+            return;
+        }
+        counting = true;
+        
+        PageSource<T> currentSource = source;
+        PageRequest request = baseRequest.atOffset(0);
+        anchors.put(0, request);
+        LOADER.submit(() -> {
+            int count = -1;
+            try {
+                count = currentSource.count(request);
+            } catch (RuntimeException e) {
+                System.err.println("Error counting table rows: " + e.getMessage());
+            } finally {
+                int result = count;
+                SwingUtilities.invokeLater(() -> countLoaded(ticket, result));
+            }
+        });
+    }
+    
+    /**
+     * Nhận kết quả đếm; nếu đếm lỗi thì bảng rỗng và được nạp lại sau một khoảng chờ
+     */
+    private void countLoaded(long ticket, int count) {
+        if (ticket != generation) {
+            return;
+        }
+        rowCount = Math.max(count, 0);
+        counting = false;
+        fireTableDataChanged();
+        if (count < 0) {
+            Timer timer = new Timer(RETRY_MAX_MILLIS, e -> {
+                if (ticket == generation) {
+                    reload();
+                }
+            });
+            timer.setRepeats(false);
+            timer.start();
+        }
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+    
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageIndex = row / pageSize;
+        LoadedPage<T> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return LOADING;
+        }
+        int offsetInPage = row % pageSize;
+        if (offsetInPage >= page.rows.size()) {
+            if (row < rowCount) {
+                // Trang bị hụt dòng cuối sau removeRow hoặc về thiếu dòng: nạp lại (theo khoảng chờ nếu lỗi)
+                requestPage(pageIndex);
+                return LOADING;
+            }
+            return null;
+        }
+        return page.rows.get(offsetInPage)[column];
+    }
+    
+    /**
+     * Kiểm tra dòng đã được nạp chưa (dùng trước khi đọc giá trị của dòng đang chọn)
+     */
+    public boolean isRowLoaded(int row) {
+        LoadedPage<T> page = pages.get(row / pageSize);
+        return page != null && row % pageSize < page.rows.size();
+    }
+    
+    /**
+     * Thay dữ liệu dòng có mã cho trước (giá trị cột đầu tiên) trong các trang đã nạp. Gọi trên EDT.
+     * Dòng giữ nguyên vị trí kể cả khi giá trị cột sắp xếp đổi; lần nạp lại sau sẽ xếp lại.
+     * @return false nếu dòng không nằm trong trang đã nạp nào
+     */
+    public boolean updateRow(String id, T item) {
+        for (Map.Entry<Integer, LoadedPage<T>> entry : pages.entrySet()) {
+            List<Object[]> rows = entry.getValue().rows;
+            for (int i = 0; i < rows.size(); i++) {
+                if (Objects.equals(rows.get(i)[0], id)) {
+                    entry.getValue().items.set(i, item);
+                    rows.set(i, rowMapper.apply(item));
+                    int row = entry.getKey() * pageSize + i;
+                    fireTableRowsUpdated(row, row);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Bỏ dòng có mã cho trước khỏi bảng. Gọi trên EDT.
+     * @return false nếu dòng không nằm trong trang đã nạp nào (vị trí không xác định, bên gọi nên reload)
+     */
+    public boolean removeRow(String id) {
+        if (counting) {
+            return false;
+        }
+        for (Map.Entry<Integer, LoadedPage<T>> entry : pages.entrySet()) {
+            List<Object[]> rows = entry.getValue().rows;
+            for (int i = 0; i < rows.size(); i++) {
+                if (Objects.equals(rows.get(i)[0], id)) {
+                    int pageIndex = entry.getKey();
+                    entry.getValue().items.remove(i);
+                    rows.remove(i);
+                    dropPagesAfter(pageIndex);
+                    rowCount--;
+                    int row = pageIndex * pageSize + i;
+                    fireTableRowsDeleted(row, row);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Ghi nhận một dòng mới được thêm vào nguồn dữ liệu. Gọi trên EDT.
+     * Vị trí của dòng do thứ tự (collation) của nguồn dữ liệu quyết định nên không tính ở đây:
+     * số dòng tăng một và mọi trang đã nạp bị bỏ, các dòng đang hiển thị được nạp lại theo OFFSET
+     * mà không cần đếm lại.
+     * @return false nếu đang đếm số dòng (bên gọi nên reload)
+     */
+    public boolean rowAdded() {
+        if (counting) {
+            return false;
+        }
+        dropPagesAfter(-1);
+        rowCount++;
+        fireTableDataChanged();
+        return true;
+    }
+    
+    /**
+     * Bỏ các trang (và khóa của chúng) sau trang bị chèn/xóa dòng; chúng sẽ được nạp lại theo OFFSET
+     */
+    private void dropPagesAfter(int pageIndex) {
+        layout++;
+        pages.keySet().removeIf(index -> index > pageIndex);
+        anchors.keySet().removeIf(index -> index > pageIndex);
+        failures.keySet().removeIf(index -> index > pageIndex);
+        loading.clear();
+    }
+    
+    /**
+     * Lên lịch nạp một trang trên luồng nền (bỏ qua nếu đang nạp hoặc chưa tới lúc thử lại)
+     */
+    private void requestPage(int pageIndex) {
+        if (source == null) {
+            return;
+        }
+        Failure failure = failures.get(pageIndex);
+        if (failure != null && System.currentTimeMillis() < failure.retryAt) {
+            return;
+        }
+        if (!loading.add(pageIndex)) {
+            return;
+        }
+        
+        long ticket = generation;
+        long layoutTicket = layout;
+        PageSource<T> currentSource = source;
+        PageRequest anchor = anchors.get(pageIndex);
+        PageRequest request = anchor != null ? anchor : baseRequest.atOffset(pageIndex * pageSize);
+        
+        LOADER.submit(() -> {
+            if (ticket != generation) {
+                return;
+            }
+            Page<T> page = null;
+            List<Object[]> rows = null;
+            try {
+                page = currentSource.fetch(request);
+                rows = new ArrayList<>(page.getItems().size());
+                for (T item : page.getItems()) {
+                    rows.add(rowMapper.apply(item));
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Error loading table page " + pageIndex + ": " + e.getMessage());
+                page = null;
+            } finally {
+                Page<T> loaded = page;
+                List<Object[]> loadedRows = rows;
+                SwingUtilities.invokeLater(() -> pageLoaded(ticket, layoutTicket, pageIndex, loaded, loadedRows));
+            }
+        });
+    }
+    
+    /**
+     * Nhận kết quả nạp một trang trên EDT (page null nếu nạp lỗi)
+     */
+    private void pageLoaded(long ticket, long layoutTicket, int pageIndex, Page<T> page, List<Object[]> rows) {
+        if (ticket != generation || layoutTicket != layout) {
+            return;
+        }
+        loading.remove(pageIndex);
+        int firstRow = pageIndex * pageSize;
+        if (page == null) {
+            pageFailed(pageIndex);
+            return;
+        }
+        pages.put(pageIndex, new LoadedPage<>(new ArrayList<>(page.getItems()), rows));
+        if (page.getNext() != null) {
+            anchors.put(pageIndex + 1, page.getNext());
+        }
+        // Trang thiếu dòng so với số đã đếm: có thể lỗi truy vấn, thử lại sau thay vì ngay lập tức
+        if (rows.size() < Math.min(pageSize, rowCount - firstRow)) {
+            pageFailed(pageIndex);
+        } else {
+            failures.remove(pageIndex);
+        }
+        int lastRow = Math.min(rowCount, firstRow + pageSize) - 1;
+        if (lastRow >= firstRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+    
+    /**
+     * Ghi nhận một lần nạp trang thất bại và hẹn vẽ lại trang (để nạp lại) sau khoảng chờ tăng dần
+     */
+    private void pageFailed(int pageIndex) {
+        Failure failure = failures.computeIfAbsent(pageIndex, index -> new Failure());
+        int delay = (int) Math.min(RETRY_MAX_MILLIS, (long) RETRY_BASE_MILLIS << Math.min(failure.attempts, 5));
+        failure.attempts++;
+        failure.retryAt = System.currentTimeMillis() + delay;
+        
+        long ticket = generation;
+        Timer timer = new Timer(delay, e -> {
+            int firstRow = pageIndex * pageSize;
+            int lastRow = Math.min(rowCount, firstRow + pageSize) - 1;
+            if (ticket == generation && lastRow >= firstRow) {
+                fireTableRowsUpdated(firstRow, lastRow);
+            }
+        });
+        timer.setRepeats(false);
+        timer.start();
+    }
+}
@@ -4,7 +4,13 @@ import com.library.model.*;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Bảng quản lý đánh giá và xếp hạng tài liệu.
@@ -14,6 +20,15 @@ public class ReviewPanel extends JPanel implements RefreshablePanel {
     private JTable reviewTable;
     private DefaultTableModel tableModel;
     private JTextField searchField;
+    private final AsyncRefresher refresher = new AsyncRefresher("reviews");
+    
+    /** Thứ tự dòng của buildReviewRows: theo tiêu đề tài liệu, trong cùng tài liệu mới nhất trước */
+    private static final Comparator<Object[]> BY_TITLE_THEN_NEWEST = Comparator
+        .comparing((Object[] row) -> (String) row[1], String.CASE_INSENSITIVE_ORDER)
+        .thenComparing(row -> (LocalDate) row[5], Comparator.nullsLast(Comparator.<LocalDate>reverseOrder()));
+    
+    // Bảng đang hiển thị kết quả tìm kiếm: đánh giá mới không được chèn vào
+    private boolean showingSearchResults;
     
     /**
      * Khởi tạo panel quản lý đánh giá.
@@ -23,6 +38,7 @@ public class ReviewPanel extends JPanel implements RefreshablePanel {
         this.library = library;
         initializePanel();
         refreshData();
+        library.addEventListener(this::onLibraryEvent);
     }
     
     /**
@@ -145,33 +161,18 @@ public class ReviewPanel extends JPanel implements RefreshablePanel {
     
     @Override
     public void refreshData() {
-        tableModel.setRowCount(0); // Xóa dữ liệu hiện có
-        
-        // Lấy toàn bộ đánh giá từ tất cả tài liệu
-        List<Document> documents = library.getAllDocuments();
-        for (Document document : documents) {
-            List<Review> reviews = library.getDocumentReviews(document.getId());
+        showingSearchResults = false;
+        refresher.submit(() -> {
+            // Lấy toàn bộ đánh giá cùng tài liệu liên quan trong một số truy vấn cố định
+            List<Review> reviews = library.getAllReviews();
+            Set<String> documentIds = new HashSet<>();
             for (Review review : reviews) {
-                User user = library.getUser(review.getUserId());
-                
-                String userName = user != null ? user.getName() : "Unknown";
-                String comment = review.hasComment() ? 
-                    (review.getComment().length() > 50 ? 
-                     review.getComment().substring(0, 47) + "..." : 
-                     review.getComment()) : "[No comment]";
-                
-                Object[] row = {
-                    review.getId(),
-                    document.getTitle(),
-                    userName,
-                    review.getRatingAsStars() + " (" + review.getRating() + "/5)",
-                    comment,
-                    review.getReviewDate().toLocalDate(),
-                    review.getHelpfulVotes()
-                };
-                tableModel.addRow(row);
+                documentIds.add(review.getDocumentId());
             }
-        }
+            Map<String, Document> documents = library.getDocuments(documentIds);
+            
+            return buildReviewRows(reviews, documents);
+        }, rows -> TableHelper.updateTableData(tableModel, rows));
     }
     
     /**
@@ -184,35 +185,120 @@ public class ReviewPanel extends JPanel implements RefreshablePanel {
             return;
         }
         
-        tableModel.setRowCount(0);
-        
-        List<Document> documents = library.getAllDocuments();
-        for (Document document : documents) {
-            if (document.getTitle().toLowerCase().contains(searchText)) {
-                List<Review> reviews = library.getDocumentReviews(document.getId());
-                for (Review review : reviews) {
-                    User user = library.getUser(review.getUserId());
-                    String userName = user != null ? user.getName() : "Unknown";
-                    String comment = review.hasComment() ? 
-                        (review.getComment().length() > 50 ? 
-                         review.getComment().substring(0, 47) + "..." : 
-                         review.getComment()) : "[No comment]";
-                    
-                    Object[] row = {
-                        review.getId(),
-                        document.getTitle(),
-                        userName,
-                        review.getRatingAsStars() + " (" + review.getRating() + "/5)",
-                        comment,
-                        review.getReviewDate().toLocalDate(),
-                        review.getHelpfulVotes()
-                    };
-                    tableModel.addRow(row);
+        showingSearchResults = true;
+        refresher.submit(() -> {
+            List<Review> reviews = library.getAllReviews();
+            Set<String> documentIds = new HashSet<>();
+            for (Review review : reviews) {
+                documentIds.add(review.getDocumentId());
+            }
+            Map<String, Document> documents = library.getDocuments(documentIds);
+            
+            List<Review> matchingReviews = reviews.stream()
+                .filter(review -> {
+                    Document document = documents.get(review.getDocumentId());
+                    return document != null && document.getTitle().toLowerCase().contains(searchText);
+                })
+                .toList();
+            
+            return buildReviewRows(matchingReviews, documents);
+        }, rows -> TableHelper.updateTableData(tableModel, rows));
+    }
+    
+    /**
+     * Nhận sự kiện thay đổi (trên luồng của bus): dựng lại dòng của đánh giá bị thay đổi
+     * rồi cập nhật đúng dòng đó trên EDT.
+     */
+    private void onLibraryEvent(LibraryEvent event) {
+        String reviewId = event.getEntityId();
+        switch (event.getType()) {
+            case REVIEW_ADDED:
+            case REVIEW_UPDATED:
+                Review review = library.getReview(reviewId);
+                Document document = review != null ? library.getDocument(review.getDocumentId()) : null;
+                if (document == null) {
+                    return;
                 }
+                Object[][] rows = buildReviewRows(List.of(review), Map.of(document.getId(), document));
+                boolean insert = event.getType() == LibraryEvent.Type.REVIEW_ADDED;
+                SwingUtilities.invokeLater(() -> applyReview(reviewId, rows[0], insert));
+                break;
+            case REVIEW_REMOVED:
+                SwingUtilities.invokeLater(() -> applyReview(reviewId, null, false));
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Sửa, chèn hoặc bỏ dòng của một đánh giá.
+     * @param row dữ liệu dòng mới, hoặc null nếu đánh giá đã bị xóa
+     * @param insert chèn dòng nếu chưa có (đánh giá vừa được thêm)
+     */
+    private void applyReview(String reviewId, Object[] row, boolean insert) {
+        int index = TableHelper.findRow(tableModel, reviewId);
+        if (row == null) {
+            if (index >= 0) {
+                tableModel.removeRow(index);
             }
+        } else if (index >= 0) {
+            TableHelper.replaceRow(tableModel, index, row);
+        } else if (insert && !showingSearchResults) {
+            TableHelper.insertSorted(tableModel, row, BY_TITLE_THEN_NEWEST);
         }
     }
     
+    /**
+     * Tạo các dòng đánh giá cho bảng, nhóm theo tiêu đề tài liệu (đánh giá mới nhất trước).
+     * Người đánh giá được nạp một lần cho toàn bộ danh sách. Chạy trên luồng nền.
+     * @param reviews danh sách đánh giá (đã sắp xếp theo ngày giảm dần)
+     * @param documents bảng ánh xạ ID -> tài liệu của các đánh giá
+     * @return dữ liệu các dòng của bảng
+     */
+    private Object[][] buildReviewRows(List<Review> reviews, Map<String, Document> documents) {
+        Set<String> userIds = new HashSet<>();
+        for (Review review : reviews) {
+            userIds.add(review.getUserId());
+        }
+        Map<String, User> users = library.getUsers(userIds);
+        
+        List<Review> ordered = new ArrayList<>();
+        for (Review review : reviews) {
+            if (documents.containsKey(review.getDocumentId())) {
+                ordered.add(review);
+            }
+        }
+        // Sắp xếp ổn định theo tiêu đề để giữ thứ tự ngày trong cùng một tài liệu
+        ordered.sort(Comparator.comparing(
+            (Review review) -> documents.get(review.getDocumentId()).getTitle(),
+            String.CASE_INSENSITIVE_ORDER));
+        
+        Object[][] rows = new Object[ordered.size()][];
+        for (int i = 0; i < ordered.size(); i++) {
+            Review review = ordered.get(i);
+            Document document = documents.get(review.getDocumentId());
+            User user = users.get(review.getUserId());
+            
+            String userName = user != null ? user.getName() : "Unknown";
+            String comment = review.hasComment() ? 
+                (review.getComment().length() > 50 ? 
+                 review.getComment().substring(0, 47) + "..." : 
+                 review.getComment()) : "[No comment]";
+            
+            rows[i] = new Object[]{
+                review.getId(),
+                document.getTitle(),
+                userName,
+                review.getRatingAsStars() + " (" + review.getRating() + "/5)",
+                comment,
+                review.getReviewDate().toLocalDate(),
+                review.getHelpfulVotes()
+            };
+        }
+        return rows;
+    }
+    
     /**
      * Hiển thị hộp thoại thêm đánh giá mới.
      */
@@ -323,7 +409,6 @@ public class ReviewPanel extends JPanel implements RefreshablePanel {
             }
             
             if (library.addReview(selectedUser.getId(), selectedDocument.getId(), selectedRating, comment)) {
-                refreshData();
                 dialog.dispose();
                 JOptionPane.showMessageDialog(this, "Review added successfully!");
             } else {
@@ -357,20 +442,8 @@ public class ReviewPanel extends JPanel implements RefreshablePanel {
         String reviewId = (String) tableModel.getValueAt(selectedRow, 0);
         
         // Tìm đánh giá tương ứng
-        Review review = null;
-        Document document = null;
-        List<Document> documents = library.getAllDocuments();
-        for (Document doc : documents) {
-            List<Review> reviews = library.getDocumentReviews(doc.getId());
-            for (Review r : reviews) {
-                if (r.getId().equals(reviewId)) {
-                    review = r;
-                    document = doc;
-                    break;
-                }
-            }
-            if (review != null) break;
-        }
+        Review review = library.getReview(reviewId);
+        Document document = review != null ? library.getDocument(review.getDocumentId()) : null;
         
         if (review == null || document == null) {
             JOptionPane.showMessageDialog(this, "Review not found!", "Error", JOptionPane.ERROR_MESSAGE);
@@ -434,7 +507,6 @@ public class ReviewPanel extends JPanel implements RefreshablePanel {
         
         // Gọi phương thức của Library để đánh dấu hữu ích và lưu vào cơ sở dữ liệu
         if (library.markReviewAsHelpful(reviewId)) {
-            refreshData();
             JOptionPane.showMessageDialog(this, "Review marked as helpful!");
         } else {
             JOptionPane.showMessageDialog(this, "Failed to mark review as helpful!", "Error", JOptionPane.ERROR_MESSAGE);
@@ -0,0 +1,57 @@
+package com.library.view;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Ánh xạ từ mã của dòng đang hiển thị sang đối tượng đã nạp cho dòng đó,
+ * để các thao tác trên dòng đang chọn không phải truy vấn lại cơ sở dữ liệu.
+ * Được thay toàn bộ sau mỗi lần làm mới bảng và sửa từng mục khi một dòng thay đổi; chỉ truy cập trên EDT.
+ * @param <T> kiểu đối tượng của dòng
+ */
+final class RowIdentityMap<T> {
+    private final Function<T, String> idOf;
+    private Map<String, T> rows = new HashMap<>();
+
+    /**
+     * @param idOf hàm lấy mã (giá trị cột đầu tiên của bảng) từ đối tượng
+     */
+    RowIdentityMap(Function<T, String> idOf) {
+        this.idOf = idOf;
+    }
+
+    /**
+     * Thay nội dung bằng các đối tượng vừa nạp
+     */
+    void replace(Collection<T> items) {
+        Map<String, T> loaded = new HashMap<>(Math.max(16, items.size() * 2));
+        for (T item : items) {
+            loaded.put(idOf.apply(item), item);
+        }
+        rows = loaded;
+    }
+
+    /**
+     * Thêm hoặc thay đối tượng của một dòng
+     */
+    void put(T item) {
+        rows.put(idOf.apply(item), item);
+    }
+
+    /**
+     * Bỏ đối tượng của dòng đã bị xóa khỏi bảng
+     */
+    void remove(String id) {
+        rows.remove(id);
+    }
+
+    /**
+     * Lấy đối tượng của dòng theo mã
+     * @return đối tượng đã nạp, hoặc null nếu dòng không có trong lần nạp gần nhất
+     */
+    T get(String id) {
+        return id != null ? rows.get(id) : null;
+    }
+}
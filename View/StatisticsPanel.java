@@ -1,10 +1,13 @@
 package com.library.view;
 
 import com.library.model.*;
+import com.library.repository.EntityCache;
 import javax.swing.*;
 import java.awt.*;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Bảng hiển thị thống kê và báo cáo của thư viện.
@@ -13,6 +16,7 @@ public class StatisticsPanel extends JPanel implements RefreshablePanel {
     private Library library;
     private JTextArea statsTextArea;
     private JTextArea reportsTextArea;
+    private final AsyncRefresher refresher = new AsyncRefresher("statistics");
     
     /**
      * Khởi tạo panel thống kê và báo cáo.
@@ -119,14 +123,16 @@ public class StatisticsPanel extends JPanel implements RefreshablePanel {
     
     @Override
     public void refreshData() {
-        updateStatistics();
-        updateReports();
+        refresher.submit(() -> new String[]{buildStatistics(), buildReports()}, texts -> {
+            statsTextArea.setText(texts[0]);
+            reportsTextArea.setText(texts[1]);
+        });
     }
     
     /**
-     * Cập nhật phần thống kê nhanh từ dữ liệu hiện tại của thư viện.
+     * Tạo nội dung phần thống kê nhanh từ dữ liệu hiện tại của thư viện (chạy trên luồng nền).
      */
-    private void updateStatistics() {
+    private String buildStatistics() {
         StringBuilder stats = new StringBuilder();
         Map<String, Object> libraryStats = library.getLibraryStatistics();
         
@@ -140,18 +146,17 @@ public class StatisticsPanel extends JPanel implements RefreshablePanel {
         stats.append("Borrowed: ").append(libraryStats.get("borrowedDocuments")).append("\n");
         
         // Phân loại theo loại tài liệu
-        List<Document> documents = library.getAllDocuments();
-        stats.append("\nDocuments: ").append(documents.size()).append("\n\n");
+        stats.append("\nDocuments: ").append(libraryStats.get("totalDocuments")).append("\n\n");
         
         stats.append("=== USER STATISTICS ===\n");
         stats.append("Total Users: ").append(libraryStats.get("totalUsers")).append("\n");
         
-        // Phân loại theo nhóm người dùng
-        List<User> users = library.getAllUsers();
-        long students = users.stream().filter(u -> u.getUserType() == User.UserType.STUDENT).count();
-        long faculty = users.stream().filter(u -> u.getUserType() == User.UserType.FACULTY).count();
-        long staff = users.stream().filter(u -> u.getUserType() == User.UserType.STAFF).count();
-        long guests = users.stream().filter(u -> u.getUserType() == User.UserType.GUEST).count();
+        // Phân loại theo nhóm người dùng (bộ đếm trong bộ nhớ)
+        Map<User.UserType, Long> usersByType = library.getUserCountsByType();
+        long students = usersByType.getOrDefault(User.UserType.STUDENT, 0L);
+        long faculty = usersByType.getOrDefault(User.UserType.FACULTY, 0L);
+        long staff = usersByType.getOrDefault(User.UserType.STAFF, 0L);
+        long guests = usersByType.getOrDefault(User.UserType.GUEST, 0L);
         
         stats.append("\nStudents: ").append(students).append("\n");
         stats.append("Faculty: ").append(faculty).append("\n");
@@ -165,14 +170,12 @@ public class StatisticsPanel extends JPanel implements RefreshablePanel {
         stats.append("=== REVIEW STATISTICS ===\n");
         stats.append("Total Reviews: ").append(libraryStats.get("totalReviews")).append("\n");
         
-        // Tính điểm trung bình trên tất cả tài liệu có đánh giá
-        List<Document> allDocs = library.getAllDocuments();
+        // Tính điểm trung bình trên tất cả tài liệu có đánh giá (từ bảng tổng hợp nạp sẵn)
         double totalRating = 0;
         int docsWithReviews = 0;
-        for (Document doc : allDocs) {
-            double rating = library.getDocumentAverageRating(doc.getId());
-            if (rating > 0) {
-                totalRating += rating;
+        for (RatingAggregate aggregate : library.getRatingAggregates().values()) {
+            if (aggregate.getReviewCount() > 0) {
+                totalRating += aggregate.getAverageRating();
                 docsWithReviews++;
             }
         }
@@ -183,25 +186,35 @@ public class StatisticsPanel extends JPanel implements RefreshablePanel {
         stats.append("💰 Daily Fine Rate: $").append(library.getDailyFineRate()).append("\n");
         stats.append("📅 Default Loan Period: ").append(library.getDefaultLoanDays()).append(" days\n");
         
-        statsTextArea.setText(stats.toString());
+        Map<String, EntityCache.Stats> cacheStats = library.getCacheStatistics();
+        if (!cacheStats.isEmpty()) {
+            stats.append("\n=== CACHE ===\n");
+            for (Map.Entry<String, EntityCache.Stats> entry : cacheStats.entrySet()) {
+                stats.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+            }
+        }
+        
+        return stats.toString();
     }
     
     /**
-     * Cập nhật phần báo cáo chi tiết (top rated, overdue, hoạt động...).
+     * Tạo nội dung phần báo cáo chi tiết (top rated, overdue, hoạt động...) trên luồng nền.
      */
-    private void updateReports() {
+    private String buildReports() {
         StringBuilder reports = new StringBuilder();
         
         // Báo cáo tài liệu được đánh giá cao
         reports.append("=== TOP RATED DOCUMENTS ===\n");
-        List<Document> popularDocs = library.getPopularDocuments();
+        List<Document> popularDocs = library.getTopRatedDocuments(library.getAvailableDocuments(), 5);
         if (popularDocs.isEmpty()) {
             reports.append("No documents with ratings yet.\n");
         } else {
-            for (int i = 0; i < Math.min(5, popularDocs.size()); i++) {
+            Map<String, RatingAggregate> aggregates = library.getRatingAggregates();
+            for (int i = 0; i < popularDocs.size(); i++) {
                 Document doc = popularDocs.get(i);
-                double rating = library.getDocumentAverageRating(doc.getId());
-                int reviewCount = library.getDocumentReviews(doc.getId()).size();
+                RatingAggregate aggregate = aggregates.getOrDefault(doc.getId(), RatingAggregate.empty(doc.getId()));
+                double rating = aggregate.getAverageRating();
+                int reviewCount = aggregate.getReviewCount();
                 reports.append(String.format("%d. %s\n", i + 1, doc.getTitle()));
                 reports.append(String.format("   Author: %s\n", doc.getAuthor()));
                 reports.append(String.format("   Rating: %.1f/5 (%d reviews)\n", rating, reviewCount));
@@ -218,57 +231,74 @@ public class StatisticsPanel extends JPanel implements RefreshablePanel {
         if (overdueTransactions.isEmpty()) {
             reports.append("No overdue documents.\n");
         } else {
+            Map<String, User> overdueUsers = library.getUsers(
+                overdueTransactions.stream().map(LoanTransaction::getUserId).collect(Collectors.toSet()));
+            Map<String, Document> overdueDocuments = library.getDocuments(
+                overdueTransactions.stream().map(LoanTransaction::getDocumentId).collect(Collectors.toSet()));
+            
             for (LoanTransaction transaction : overdueTransactions) {
-                User user = library.getUser(transaction.getUserId());
-                Document document = library.getDocument(transaction.getDocumentId());
+                User user = overdueUsers.get(transaction.getUserId());
+                Document document = overdueDocuments.get(transaction.getDocumentId());
                 
                 reports.append(String.format("• %s\n", document != null ? document.getTitle() : "Unknown"));
                 reports.append(String.format("  Borrower: %s\n", user != null ? user.getName() : "Unknown"));
                 reports.append(String.format("  Due Date: %s\n", transaction.getDueDate()));
                 reports.append(String.format("  Days Overdue: %d\n", transaction.getDaysOverdue()));
-                reports.append(String.format("  Fine: $%.2f\n\n", transaction.calculateFine(library.getDailyFineRate())));
+                reports.append(String.format("  Fine: $%.2f\n\n", transaction.getFineAmount()));
             }
         }
         
+        // Tiền phạt chưa thanh toán (số dư được cộng dồn hằng đêm, đọc theo chỉ mục)
+        reports.append("=== OUTSTANDING FINES ===\n");
+        reports.append(String.format("Total: $%.2f\n", library.getTotalOutstandingFines()));
+        Map<String, Double> outstandingFines = library.getOutstandingFines(5);
+        Map<String, User> finedUsers = library.getUsers(outstandingFines.keySet());
+        int rank = 1;
+        for (Map.Entry<String, Double> entry : outstandingFines.entrySet()) {
+            User user = finedUsers.get(entry.getKey());
+            reports.append(String.format("%d. %s: $%.2f\n", rank++,
+                          user != null ? user.getName() : entry.getKey(), entry.getValue()));
+        }
+        reports.append("\n");
+        
         // Báo cáo người mượn tích cực nhất
         reports.append("=== MOST ACTIVE BORROWERS ===\n");
-        List<User> users = library.getAllUsers();
-        users.sort((u1, u2) -> Integer.compare(u2.getBorrowedCount(), u1.getBorrowedCount()));
-        
-        for (int i = 0; i < Math.min(5, users.size()); i++) {
-            User user = users.get(i);
-            if (user.getBorrowedCount() > 0) {
-                reports.append(String.format("%d. %s (%s)\n", i + 1, user.getName(), user.getUserType()));
-                reports.append(String.format("   Currently borrowed: %d/%d\n", 
-                              user.getBorrowedCount(), user.getMaxBorrowLimit()));
-                reports.append(String.format("   Email: %s\n\n", user.getEmail()));
-            }
+        List<User> topBorrowers = library.getTopBorrowers(5);
+        for (int i = 0; i < topBorrowers.size(); i++) {
+            User user = topBorrowers.get(i);
+            reports.append(String.format("%d. %s (%s)\n", i + 1, user.getName(), user.getUserType()));
+            reports.append(String.format("   Currently borrowed: %d/%d\n", 
+                          user.getBorrowedCount(), user.getMaxBorrowLimit()));
+            reports.append(String.format("   Email: %s\n\n", user.getEmail()));
         }
         
-        // Phân bố theo thể loại
+        // Phân bố theo thể loại (bộ đếm trong bộ nhớ)
         reports.append("=== COLLECTION BY GENRE ===\n");
-        Map<String, Long> genreCounts = library.getAllDocuments().stream()
-            .collect(java.util.stream.Collectors.groupingBy(
-                Document::getGenre,
-                java.util.stream.Collectors.counting()
-            ));
+        Map<String, Long> genreCounts = library.getDocumentCountsByGenre();
         
         genreCounts.entrySet().stream()
             .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
             .forEach(entry -> 
-                reports.append(String.format("• %s: %d documents\n", entry.getKey(), entry.getValue()))
+                reports.append(String.format("• %s: %d documents\n",
+                              entry.getKey() != null ? entry.getKey() : "Unknown", entry.getValue()))
             );
         
         // Hoạt động gần đây
         reports.append("\n=== RECENT ACTIVITY ===\n");
-        List<LoanTransaction> recentTransactions = library.getAllTransactions().stream()
-            .sorted((t1, t2) -> t2.getBorrowDate().compareTo(t1.getBorrowDate()))
-            .limit(10)
-            .toList();
+        // Stream đã sắp xếp theo ngày mượn giảm dần nên chỉ cần giữ 10 dòng đầu
+        List<LoanTransaction> recentTransactions;
+        try (Stream<LoanTransaction> transactions = library.streamAllTransactions()) {
+            recentTransactions = transactions.limit(10).toList();
+        }
+        
+        Map<String, User> recentUsers = library.getUsers(
+            recentTransactions.stream().map(LoanTransaction::getUserId).collect(Collectors.toSet()));
+        Map<String, Document> recentDocuments = library.getDocuments(
+            recentTransactions.stream().map(LoanTransaction::getDocumentId).collect(Collectors.toSet()));
         
         for (LoanTransaction transaction : recentTransactions) {
-            User user = library.getUser(transaction.getUserId());
-            Document document = library.getDocument(transaction.getDocumentId());
+            User user = recentUsers.get(transaction.getUserId());
+            Document document = recentDocuments.get(transaction.getDocumentId());
             
             String action = transaction.getReturnDate() != null ? "Returned" : "Borrowed";
             reports.append(String.format("• %s: %s\n", action, 
@@ -280,7 +310,7 @@ public class StatisticsPanel extends JPanel implements RefreshablePanel {
             reports.append(String.format("  Status: %s\n\n", transaction.getStatus()));
         }
         
-        reportsTextArea.setText(reports.toString());
+        return reports.toString();
     }
     
     /**
@@ -4,6 +4,8 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
+import java.util.Comparator;
+import java.util.Objects;
 
 /**
  * Lớp cho các thao tác table phổ biến
@@ -48,6 +50,49 @@ public class TableHelper {
         }
     }
     
+    /**
+     * Tìm dòng theo mã (giá trị cột đầu tiên)
+     * @return chỉ số dòng trong model, hoặc -1 nếu không có
+     */
+    public static int findRow(DefaultTableModel model, Object id) {
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (Objects.equals(model.getValueAt(row, 0), id)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Ghi đè dữ liệu một dòng tại chỗ (giữ nguyên vị trí và dòng đang chọn)
+     */
+    public static void replaceRow(DefaultTableModel model, int row, Object[] data) {
+        for (int column = 0; column < data.length; column++) {
+            model.setValueAt(data[column], row, column);
+        }
+    }
+    
+    /**
+     * Chèn một dòng vào bảng đang được sắp xếp theo order: sau mọi dòng không đứng sau nó
+     * @return chỉ số dòng vừa chèn
+     */
+    public static int insertSorted(DefaultTableModel model, Object[] data, Comparator<Object[]> order) {
+        int columns = model.getColumnCount();
+        int row = 0;
+        while (row < model.getRowCount()) {
+            Object[] existing = new Object[columns];
+            for (int column = 0; column < columns; column++) {
+                existing[column] = model.getValueAt(row, column);
+            }
+            if (order.compare(existing, data) > 0) {
+                break;
+            }
+            row++;
+        }
+        model.insertRow(row, data);
+        return row;
+    }
+    
     /**
      * Lấy dữ liệu hàng được chọn từ table
      */
@@ -3,6 +3,7 @@ package com.library.view;
 import com.library.model.*;
 import javax.swing.*;
 import java.awt.*;
+import java.util.Comparator;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -19,12 +20,20 @@ public class UserPanel extends BasePanel {
     // Mẫu kiểm tra số điện thoại (đúng 10 chữ số)
     private static final Pattern PHONE_PATTERN = Pattern.compile("^\\d{10}$");
     
+    /** Thứ tự dòng của getAllUsers (ORDER BY name) */
+    private static final Comparator<Object[]> BY_NAME = Comparator.comparing(
+        (Object[] row) -> (String) row[1], Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+    
+    // Bảng đang hiển thị kết quả tìm kiếm: người dùng mới không được chèn vào
+    private boolean showingSearchResults;
+    
     /**
      * Khởi tạo panel quản lý người dùng.
      * @param library đối tượng thư viện sử dụng để lấy và cập nhật dữ liệu người dùng
      */
     public UserPanel(Library library) {
         super(library);
+        library.addEventListener(this::onLibraryEvent);
     }
     
     // Ghi đè các phương thức trừu tượng từ BasePanel
@@ -72,8 +81,9 @@ public class UserPanel extends BasePanel {
         }
         
         // Tìm kiếm theo tên hoặc email
-        List<User> users = library.searchUsersByName(searchText);
-        updateUserTable(users);
+        String query = searchText;
+        showingSearchResults = true;
+        refresher.submit(() -> library.searchUsersByName(query), this::updateUserTable);
     }
     
     @Override
@@ -100,8 +110,8 @@ public class UserPanel extends BasePanel {
     
     @Override
     public void refreshData() {
-        List<User> users = library.getAllUsers();
-        updateUserTable(users);
+        showingSearchResults = false;
+        refresher.submit(library::getAllUsers, this::updateUserTable);
     }
     
     /**
@@ -112,15 +122,64 @@ public class UserPanel extends BasePanel {
         tableModel.setRowCount(0); // Xóa dữ liệu hiện có
         
         for (User user : users) {
-            Object[] rowData = {
-                user.getId(),
-                user.getName(),
-                user.getEmail(),
-                user.getUserType(),
-                user.getBorrowedCount() + "/" + user.getMaxBorrowLimit(),
-                user.getRegistrationDate()
-            };
-            tableModel.addRow(rowData);
+            tableModel.addRow(toRow(user));
+        }
+    }
+    
+    /**
+     * Chuyển người dùng thành dữ liệu một dòng của bảng.
+     */
+    private static Object[] toRow(User user) {
+        return new Object[]{
+            user.getId(),
+            user.getName(),
+            user.getEmail(),
+            user.getUserType(),
+            user.getBorrowedCount() + "/" + user.getMaxBorrowLimit(),
+            user.getRegistrationDate()
+        };
+    }
+    
+    /**
+     * Nhận sự kiện thay đổi (trên luồng của bus): đọc lại người dùng bị thay đổi theo mã
+     * rồi cập nhật đúng dòng đó trên EDT. Mượn/trả làm đổi cột số sách đang mượn.
+     */
+    private void onLibraryEvent(LibraryEvent event) {
+        switch (event.getType()) {
+            case USER_ADDED:
+            case USER_UPDATED:
+            case LOAN_CREATED:
+            case LOAN_RETURNED:
+                if (event.getUserId() == null) {
+                    return;
+                }
+                User user = library.getUser(event.getUserId());
+                boolean insert = event.getType() == LibraryEvent.Type.USER_ADDED;
+                SwingUtilities.invokeLater(() -> applyUser(event.getUserId(), user, insert));
+                break;
+            case USER_REMOVED:
+                SwingUtilities.invokeLater(() -> applyUser(event.getUserId(), null, false));
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Sửa, chèn hoặc bỏ dòng của một người dùng.
+     * @param user người dùng mới đọc, hoặc null nếu đã bị xóa
+     * @param insert chèn dòng nếu chưa có (người dùng vừa được thêm)
+     */
+    private void applyUser(String userId, User user, boolean insert) {
+        int row = TableHelper.findRow(tableModel, userId);
+        if (user == null) {
+            if (row >= 0) {
+                tableModel.removeRow(row);
+            }
+        } else if (row >= 0) {
+            TableHelper.replaceRow(tableModel, row, toRow(user));
+        } else if (insert && !showingSearchResults) {
+            TableHelper.insertSorted(tableModel, toRow(user), BY_NAME);
         }
     }
     
@@ -197,7 +256,6 @@ public class UserPanel extends BasePanel {
                 
                 if (library.addUser(newUser)) {
                     showSuccess("User added successfully!");
-                    refreshData();
                     dialog.dispose();
                 } else {
                     showError("Failed to add user. Please try again.");
@@ -313,7 +371,6 @@ public class UserPanel extends BasePanel {
                 
                 if (library.updateUser(user)) {
                     showSuccess("User updated successfully!");
-                    refreshData();
                     dialog.dispose();
                 } else {
                     showError("Failed to update user. Please try again.");
@@ -395,7 +452,6 @@ public class UserPanel extends BasePanel {
         if (showConfirmation(confirmMessage)) {
             if (library.removeUser(selectedId)) {
                 showSuccess("User deleted successfully!");
-                refreshData();
             } else {
                 showError("Failed to delete user. Please try again.");
             }